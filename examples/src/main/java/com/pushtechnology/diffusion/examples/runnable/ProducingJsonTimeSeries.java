@@ -23,6 +23,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
 
 import com.pushtechnology.diffusion.client.Diffusion;
 import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
@@ -30,6 +31,7 @@ import com.pushtechnology.diffusion.client.features.control.topics.TopicControl;
 import com.pushtechnology.diffusion.client.session.Session;
 import com.pushtechnology.diffusion.datatype.json.JSON;
 import com.pushtechnology.diffusion.transform.transformer.Transformers;
+import com.pushtechnology.diffusion.transform.updater.BackfillOptions;
 import com.pushtechnology.diffusion.transform.updater.TimeSeriesUpdater;
 
 import org.slf4j.Logger;
@@ -42,9 +44,11 @@ import org.slf4j.LoggerFactory;
  */
 public final class ProducingJsonTimeSeries extends AbstractClient {
     private static final Logger LOG = LoggerFactory.getLogger(ProducingJsonTimeSeries.class);
+    private static final int HISTORY_SIZE = 10000;
     private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
 
-    private volatile Future<?> updateTask;
+    // Guarded by this
+    private Future<?> updateTask;
 
     /**
      * Constructor.
@@ -76,6 +80,35 @@ public final class ProducingJsonTimeSeries extends AbstractClient {
             .unsafeTransform(Transformers.<RandomData>fromPojo())
             .createTimeSeries(session);
 
+        // Append the history before appending new values
+        valueUpdater
+            .backfill(
+                "time/series/random",
+                () -> Stream.generate(RandomData::next).limit(HISTORY_SIZE).iterator(),
+                BackfillOptions.builder().progress(1000, status -> LOG.info("Backfilling: {}", status)).build())
+            .thenAccept(status -> {
+                LOG.info("Backfilled: {}", status);
+                if (status.isStopped()) {
+                    LOG.error("Backfill stopped by a failed append", status.getFirstFailure());
+                }
+                else {
+                    beginAppending(session, valueUpdater);
+                }
+            })
+            .exceptionally(e -> {
+                LOG.error("Failed to backfill data", e);
+                return null;
+            });
+    }
+
+    private synchronized void beginAppending(Session session, TimeSeriesUpdater<RandomData> valueUpdater) {
+        // The session may have been disconnected while backfilling, onDisconnected holds the same lock
+        if (!session.getState().isConnected()) {
+            LOG.warn("Disconnected while backfilling, not appending");
+            return;
+        }
+
+        cancelAppending();
         updateTask = executor.scheduleAtFixedRate(
             () -> valueUpdater
                 .append("time/series/random", RandomData.next())
@@ -89,8 +122,16 @@ public final class ProducingJsonTimeSeries extends AbstractClient {
     }
 
     @Override
-    public void onDisconnected() {
-        updateTask.cancel(false);
+    public synchronized void onDisconnected() {
+        cancelAppending();
+    }
+
+    // Guarded by this
+    private void cancelAppending() {
+        if (updateTask != null) {
+            updateTask.cancel(false);
+            updateTask = null;
+        }
     }
 
     @Override
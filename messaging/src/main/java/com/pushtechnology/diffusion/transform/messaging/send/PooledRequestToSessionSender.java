@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.messaging.send;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.pushtechnology.diffusion.client.session.SessionId;
+import com.pushtechnology.diffusion.transform.session.SessionShards;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+/**
+ * A {@link RequestToSessionSender} that sends each request using the session of a
+ * {@link com.pushtechnology.diffusion.transform.session.SessionPool} that the message path is assigned to.
+ *
+ * @param <T> the type of response understood by Diffusion
+ * @param <U> the type of request
+ * @param <V> the type of response
+ * @author Push Technology Limited
+ */
+/*package*/ final class PooledRequestToSessionSender<T, U, V> implements RequestToSessionSender<T, U, V> {
+    private final SessionShards<RequestToSessionSender<T, U, V>> senders;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ PooledRequestToSessionSender(SessionShards<RequestToSessionSender<T, U, V>> senders) {
+        this.senders = senders;
+    }
+
+    @Override
+    public CompletableFuture<V> sendRequest(
+            SessionId sessionId,
+            String path,
+            U request) throws TransformationException {
+
+        return senders.forKey(path).sendRequest(sessionId, path, request);
+    }
+
+    @Override
+    public CompletableFuture<Integer> sendRequest(
+            String sessionFilter,
+            String path,
+            U request,
+            TransformedFilterCallback<T, V> callback) throws TransformationException {
+
+        return senders.forKey(path).sendRequest(sessionFilter, path, request, callback);
+    }
+}
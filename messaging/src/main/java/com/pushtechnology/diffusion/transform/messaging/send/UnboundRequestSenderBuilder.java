@@ -16,6 +16,7 @@
 package com.pushtechnology.diffusion.transform.messaging.send;
 
 import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
 import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
 /**
@@ -54,4 +55,20 @@ public interface UnboundRequestSenderBuilder<T, U, V> extends RequestSenderBuild
      * @return a request to session sender
      */
     RequestToSessionSender<T, U, V> buildToSessionSender(Session session);
+
+    /**
+     * Create a request to handler sender that sends each request using the session of a pool that the message path
+     * is assigned to.
+     * @param sessionPool the session pool to send from
+     * @return a request to handler sender
+     */
+    RequestToHandlerSender<U, V> buildToHandlerSender(SessionPool sessionPool);
+
+    /**
+     * Create a request to session sender that sends each request using the session of a pool that the message path
+     * is assigned to.
+     * @param sessionPool the session pool to send from
+     * @return a request to session sender
+     */
+    RequestToSessionSender<T, U, V> buildToSessionSender(SessionPool sessionPool);
 }
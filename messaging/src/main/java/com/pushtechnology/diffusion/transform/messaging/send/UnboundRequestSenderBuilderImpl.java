@@ -19,6 +19,8 @@ import static com.pushtechnology.diffusion.transform.messaging.send.InternalTran
 
 import com.pushtechnology.diffusion.client.features.Messaging;
 import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
+import com.pushtechnology.diffusion.transform.session.SessionShards;
 import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
 /**
@@ -98,4 +100,14 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
             requestTransformer,
             responseTransformer);
     }
+
+    @Override
+    public RequestToHandlerSender<U, V> buildToHandlerSender(SessionPool sessionPool) {
+        return new PooledRequestToHandlerSender<>(new SessionShards<>(sessionPool, this::buildToHandlerSender));
+    }
+
+    @Override
+    public RequestToSessionSender<T, U, V> buildToSessionSender(SessionPool sessionPool) {
+        return new PooledRequestToSessionSender<>(new SessionShards<>(sessionPool, this::buildToSessionSender));
+    }
 }
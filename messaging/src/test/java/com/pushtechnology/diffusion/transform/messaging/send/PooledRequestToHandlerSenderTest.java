@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.messaging.send;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
+import com.pushtechnology.diffusion.transform.session.SessionShards;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+/**
+ * Unit tests for {@link PooledRequestToHandlerSender}.
+ *
+ * @author Push Technology Limited
+ */
+public final class PooledRequestToHandlerSenderTest {
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private Session sessionOne;
+    @Mock
+    private Session sessionTwo;
+    @Mock
+    private RequestToHandlerSender<String, String> senderOne;
+    @Mock
+    private RequestToHandlerSender<String, String> senderTwo;
+
+    private SessionPool sessionPool;
+    private RequestToHandlerSender<String, String> sender;
+
+    @Before
+    public void setUp() throws TransformationException {
+        when(sessionOne.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+        when(sessionTwo.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+        when(senderOne.sendRequest("path", "request")).thenReturn(completedFuture("one"));
+        when(senderTwo.sendRequest("path", "request")).thenReturn(completedFuture("two"));
+
+        sessionPool = SessionPool.of(asList(sessionOne, sessionTwo));
+        sender = new PooledRequestToHandlerSender<>(new SessionShards<>(
+            sessionPool,
+            session -> session == sessionOne ? senderOne : senderTwo));
+    }
+
+    @Test
+    public void sendRequest() throws Exception {
+        final String expected = sessionPool.sessionFor("path") == sessionOne ? "one" : "two";
+
+        assertEquals(expected, sender.sendRequest("path", "request").get());
+    }
+}
@@ -15,17 +15,20 @@
 
 package com.pushtechnology.diffusion.transform.stream;
 
+import java.io.IOException;
+import java.util.function.UnaryOperator;
+
 import com.pushtechnology.diffusion.client.Diffusion;
-import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
 import com.pushtechnology.diffusion.client.features.TimeSeries.Event;
 import com.pushtechnology.diffusion.client.features.Topics;
-import com.pushtechnology.diffusion.client.features.Topics.UnsubscribeReason;
 import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
 import com.pushtechnology.diffusion.client.session.Session;
 import com.pushtechnology.diffusion.client.topics.TopicSelector;
-import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
 import com.pushtechnology.diffusion.client.topics.details.TopicType;
 import com.pushtechnology.diffusion.datatype.DataType;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
+
+import org.reactivestreams.Publisher;
 
 /**
  * Abstract implementation of {@link StreamBuilder}.
@@ -43,20 +46,23 @@ import com.pushtechnology.diffusion.datatype.DataType;
      * Source value type.
      */
     protected final Class<S> valueType;
+    /**
+     * Stages applied to the source values before they are transformed.
+     */
+    protected final UnaryOperator<ValueStream<S>> sourceStages;
     // CHECKSTYLE.ON: VisibilityModifier
 
     /**
      * Constructor.
      */
-    protected AbstractStreamBuilder(Class<S> valueType) {
+    protected AbstractStreamBuilder(Class<S> valueType, UnaryOperator<ValueStream<S>> sourceStages) {
         this.valueType = valueType;
+        this.sourceStages = sourceStages;
     }
 
     @Override
     public final StreamHandle register(Topics topicsFeature, String topicSelector, V stream) {
-        final ValueStream<S> valueStream = adaptStream(stream);
-        topicsFeature.addStream(topicSelector, valueType, valueStream);
-        return new StreamHandleImpl(topicsFeature, valueStream);
+        return registerSource(topicsFeature, topicSelector, adaptStream(stream));
     }
 
     @Override
@@ -66,7 +72,7 @@ import com.pushtechnology.diffusion.datatype.DataType;
 
     @Override
     public final StreamHandle register(Topics topicsFeature, TopicSelector topicSelector, V stream) {
-        final ValueStream<S> valueStream = adaptStream(stream);
+        final ValueStream<S> valueStream = adaptAndStage(stream);
         topicsFeature.addStream(topicSelector, valueType, valueStream);
         return new StreamHandleImpl(topicsFeature, valueStream);
     }
@@ -76,11 +82,66 @@ import com.pushtechnology.diffusion.datatype.DataType;
         return register(session.feature(Topics.class), topicSelector, stream);
     }
 
+    @Override
+    public final SwappableStreamHandle<S, T> registerSwappable(
+            Topics topicsFeature,
+            String topicSelector,
+            V stream) {
+
+        final SwappableStreamAdapter<S, T> adapter = adaptSwappableStream(stream);
+        final ValueStream<S> valueStream = sourceStages.apply(adapter);
+        topicsFeature.addStream(topicSelector, valueType, valueStream);
+        return new SwappableStreamHandleImpl<>(new StreamHandleImpl(topicsFeature, valueStream), adapter);
+    }
+
+    @Override
+    public final SwappableStreamHandle<S, T> registerSwappable(Session session, String topicSelector, V stream) {
+        return registerSwappable(session.feature(Topics.class), topicSelector, stream);
+    }
+
+    @Override
+    public final StreamHandle register(SessionPool sessionPool, String topicSelector, V stream) {
+        final PooledStream<S> pooledStream = new PooledStream<>(valueType, topicSelector, adaptAndStage(stream));
+        final SessionPool.Binding binding = sessionPool.bind(topicSelector, pooledStream::bindTo);
+        return () -> pooledStream.close(binding);
+    }
+
+    @Override
+    public final StreamHandle register(Session session, String topicSelector, SharedMemoryWriter<? super T> writer) {
+        return register(session.feature(Topics.class), topicSelector, writer);
+    }
+
+    @Override
+    public final TopicRoute<S> route(String pathPattern, V stream) {
+        return new TopicRoute<>(pathPattern, adaptAndStage(stream));
+    }
+
+    @Override
+    public final StreamHub<V> share(Session session, String topicSelector) {
+        return share(session.feature(Topics.class), topicSelector);
+    }
+
+    @Override
+    public final Publisher<TopicValue<T>> publisher(
+            Session session,
+            String topicSelector,
+            OverflowStrategy overflowStrategy) {
+
+        return publisher(session.feature(Topics.class), topicSelector, overflowStrategy);
+    }
+
+    @Override
+    public final long replay(JournalReplay replay, V stream) throws IOException, InterruptedException {
+        return replay.replay(valueType, adaptAndStage(stream));
+    }
+
     @Override
     public final StreamHandle createFallback(Topics topicsFeature, V stream) {
         final DataType<S> dataType = Diffusion.dataTypes().getByClass(valueType);
         final TopicType topicType = TopicType.valueOf(dataType.getTypeName().toUpperCase());
-        final ValueStream<S> valueStream = new FilterStream<>(topicType, adaptStream(stream));
+        final ValueStream<S> valueStream = new TopicFilterStream<>(
+            (topicPath, specification) -> topicType.equals(specification.getType()),
+            adaptAndStage(stream));
         topicsFeature.addFallbackStream(valueType, valueStream);
         return new StreamHandleImpl(topicsFeature, valueStream);
     }
@@ -97,6 +158,53 @@ import com.pushtechnology.diffusion.datatype.DataType;
         return new StreamHandleImpl(session.feature(Topics.class), valueStream);
     }
 
+    /**
+     * Add a stage that receives the source values after the stages already added.
+     * @param stage The stage to add
+     * @return The stages of the new builder
+     */
+    protected final UnaryOperator<ValueStream<S>> withSourceStage(UnaryOperator<ValueStream<S>> stage) {
+        return stream -> sourceStages.apply(stage.apply(stream));
+    }
+
+    /**
+     * Add a stage that records the source values to a journal.
+     * @param journal The journal
+     * @return The stages of the new builder
+     */
+    protected final UnaryOperator<ValueStream<S>> withRecordingStage(StreamJournal journal) {
+        return withSourceStage(stream -> new RecordingStream<>(
+            journal,
+            Diffusion.dataTypes().getByClass(valueType),
+            stream));
+    }
+
+    /**
+     * Add a stage that records the update rate and processing cost of each topic.
+     * @param monitor The monitor
+     * @return The stages of the new builder
+     */
+    protected final UnaryOperator<ValueStream<S>> withMonitoringStage(TopicRateMonitor monitor) {
+        return withSourceStage(stream -> new MonitoringStream<>(monitor, System::nanoTime, stream));
+    }
+
+    /**
+     * Register a stream of source values. The source stages are applied to the stream.
+     * @param topicsFeature The topics feature
+     * @param topicSelector The topic selector to match the stream
+     * @param sourceStream The source value stream
+     * @return A handle to the stream
+     */
+    protected final StreamHandle registerSource(
+            Topics topicsFeature,
+            String topicSelector,
+            ValueStream<S> sourceStream) {
+
+        final ValueStream<S> valueStream = sourceStages.apply(sourceStream);
+        topicsFeature.addStream(topicSelector, valueType, valueStream);
+        return new StreamHandleImpl(topicsFeature, valueStream);
+    }
+
     /**
      * Adapt the target value stream to the source value stream.
      * @param targetStream The target value stream
@@ -104,61 +212,21 @@ import com.pushtechnology.diffusion.datatype.DataType;
      */
     protected abstract ValueStream<S> adaptStream(V targetStream);
 
+    /**
+     * Adapt a value stream to a stream of source values whose transformer can be swapped.
+     * @param targetStream The value stream
+     * @return The adapted stream
+     */
+    protected abstract SwappableStreamAdapter<S, T> adaptSwappableStream(V targetStream);
+
+    private ValueStream<S> adaptAndStage(V targetStream) {
+        return sourceStages.apply(adaptStream(targetStream));
+    }
+
     /**
      * Adapt the target value stream to the source time series value stream.
      * @param targetStream The target value stream
      * @return The source value stream
      */
     protected abstract ValueStream<Event<S>> adaptTimeSeriesStream(U targetStream);
-
-    /**
-     * Implementation of {@link ValueStream} that filters by topic type. Used to restrict fallback streams to
-     * certain topic types.
-     *
-     * @param <S>
-     */
-    private static final class FilterStream<S> implements ValueStream<S> {
-        private final TopicType topicType;
-        private final ValueStream<S> delegate;
-
-        private FilterStream(TopicType topicType, ValueStream<S> delegate) {
-            this.topicType = topicType;
-            this.delegate = delegate;
-        }
-
-        @Override
-        public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
-            if (topicType.equals(topicSpecification.getType())) {
-                delegate.onValue(topicPath, topicSpecification, oldValue, newValue);
-            }
-        }
-
-        @Override
-        public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
-            if (topicType.equals(topicSpecification.getType())) {
-                delegate.onSubscription(topicPath, topicSpecification);
-            }
-        }
-
-        @Override
-        public void onUnsubscription(
-            String topicPath,
-            TopicSpecification topicSpecification,
-            UnsubscribeReason unsubscribeReason) {
-
-            if (topicType.equals(topicSpecification.getType())) {
-                delegate.onUnsubscription(topicPath, topicSpecification, unsubscribeReason);
-            }
-        }
-
-        @Override
-        public void onClose() {
-            delegate.onClose();
-        }
-
-        @Override
-        public void onError(ErrorReason errorReason) {
-            delegate.onError(errorReason);
-        }
-    }
 }
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.time.Duration;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+
+/**
+ * Builder for a stream that delivers the updates of topic values in batches. Created by
+ * {@link StreamBuilder#batch(java.util.concurrent.ScheduledExecutorService)}.
+ * <p>
+ * The transformed updates of all the topics matched by the stream are collected into a batch. The batch is delivered
+ * when any of these occur:
+ * <ul>
+ * <li>the batch reaches its maximum size</li>
+ * <li>the oldest update in the batch reaches the maximum latency</li>
+ * <li>no update has been received for the quiet period, so the burst of notifications from the session has ended</li>
+ * <li>a subscription, unsubscription, close or error notification is received</li>
+ * </ul>
+ * A batch that reaches its maximum size is delivered by the session thread. Other batches are delivered by the
+ * scheduler. Batches are never delivered concurrently.
+ * <p>
+ * By default batches have a maximum size of 1000 updates, a maximum latency of 100 milliseconds and a quiet period of
+ * 1 millisecond.
+ * <p>
+ * Builders are immutable. Each method that configures the batches returns a new builder.
+ *
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+public interface BatchedStreamBuilder<T> {
+    /**
+     * Set the maximum number of updates in a batch.
+     *
+     * @param maxBatchSize the maximum number of updates
+     * @return a new builder
+     */
+    BatchedStreamBuilder<T> maxBatchSize(int maxBatchSize);
+
+    /**
+     * Set the maximum time an update waits for its batch to be delivered.
+     *
+     * @param maxLatency the maximum latency
+     * @return a new builder
+     */
+    BatchedStreamBuilder<T> maxLatency(Duration maxLatency);
+
+    /**
+     * Set the time without updates after which a batch is delivered.
+     *
+     * @param quietPeriod the quiet period
+     * @return a new builder
+     */
+    BatchedStreamBuilder<T> quietPeriod(Duration quietPeriod);
+
+    /**
+     * Create the stream.
+     *
+     * @param topicsFeature the topics feature
+     * @param topicSelector the topic selector to match the stream
+     * @param stream the stream to deliver the batches to
+     * @return a handle to the stream
+     */
+    StreamHandle register(Topics topicsFeature, String topicSelector, BatchedValueStream<T> stream);
+
+    /**
+     * Create the stream.
+     *
+     * @param session the session
+     * @param topicSelector the topic selector to match the stream
+     * @param stream the stream to deliver the batches to
+     * @return a handle to the stream
+     */
+    StreamHandle register(Session session, String topicSelector, BatchedValueStream<T> stream);
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+
+/**
+ * Implementation of {@link BatchedStreamBuilder}.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class BatchedStreamBuilderImpl<S, T> implements BatchedStreamBuilder<T> {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    private static final long DEFAULT_MAX_LATENCY = Duration.ofMillis(100L).toNanos();
+    private static final long DEFAULT_QUIET_PERIOD = Duration.ofMillis(1L).toNanos();
+    private final StreamBuilder<S, T, ? super TransformedStream<S, T>, ?> streamBuilder;
+    private final ScheduledExecutorService scheduler;
+    private final int maxBatchSize;
+    private final long maxLatency;
+    private final long quietPeriod;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ BatchedStreamBuilderImpl(
+            StreamBuilder<S, T, ? super TransformedStream<S, T>, ?> streamBuilder,
+            ScheduledExecutorService scheduler) {
+        this(streamBuilder, scheduler, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_LATENCY, DEFAULT_QUIET_PERIOD);
+    }
+
+    private BatchedStreamBuilderImpl(
+            StreamBuilder<S, T, ? super TransformedStream<S, T>, ?> streamBuilder,
+            ScheduledExecutorService scheduler,
+            int maxBatchSize,
+            long maxLatency,
+            long quietPeriod) {
+        this.streamBuilder = streamBuilder;
+        this.scheduler = scheduler;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatency = maxLatency;
+        this.quietPeriod = quietPeriod;
+    }
+
+    @Override
+    public BatchedStreamBuilder<T> maxBatchSize(int newMaxBatchSize) {
+        if (newMaxBatchSize <= 0) {
+            throw new IllegalArgumentException("The maximum batch size must be positive");
+        }
+        return new BatchedStreamBuilderImpl<>(streamBuilder, scheduler, newMaxBatchSize, maxLatency, quietPeriod);
+    }
+
+    @Override
+    public BatchedStreamBuilder<T> maxLatency(Duration newMaxLatency) {
+        return new BatchedStreamBuilderImpl<>(
+            streamBuilder,
+            scheduler,
+            maxBatchSize,
+            toPositiveNanos(newMaxLatency),
+            quietPeriod);
+    }
+
+    @Override
+    public BatchedStreamBuilder<T> quietPeriod(Duration newQuietPeriod) {
+        return new BatchedStreamBuilderImpl<>(
+            streamBuilder,
+            scheduler,
+            maxBatchSize,
+            maxLatency,
+            toPositiveNanos(newQuietPeriod));
+    }
+
+    @Override
+    public StreamHandle register(Topics topicsFeature, String topicSelector, BatchedValueStream<T> stream) {
+        return streamBuilder.register(
+            topicsFeature,
+            topicSelector,
+            new BatchingStream<>(scheduler, maxBatchSize, maxLatency, quietPeriod, System::nanoTime, stream));
+    }
+
+    @Override
+    public StreamHandle register(Session session, String topicSelector, BatchedValueStream<T> stream) {
+        return register(session.feature(Topics.class), topicSelector, stream);
+    }
+
+    private static long toPositiveNanos(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("The duration must be positive");
+        }
+        return duration.toNanos();
+    }
+}
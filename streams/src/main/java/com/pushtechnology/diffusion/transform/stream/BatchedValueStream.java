@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.List;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+/**
+ * A stream that receives the updates of topic values in batches. Registered with a {@link BatchedStreamBuilder}.
+ * <p>
+ * The updates of a batch are in the order they were received so the updates of each topic are in order. The
+ * subscription and unsubscription notifications of a topic are delivered after the batch holding the updates of the
+ * topic received before them. They can be delivered before a pending batch that only holds updates of other topics.
+ *
+ * @param <T> the type of the values
+ * @author Push Technology Limited
+ */
+public interface BatchedValueStream<T> extends Topics.SubscriberStream {
+    /**
+     * Notifies a batch of updates.
+     *
+     * @param updates the updates, the list cannot be modified
+     */
+    void onBatch(List<ValueUpdate<T>> updates);
+
+    /**
+     * Default implementation of a {@link BatchedValueStream}. Ignores all notifications.
+     *
+     * @param <T> the type of the values
+     */
+    class Default<T> implements BatchedValueStream<T> {
+        @Override
+        public void onBatch(List<ValueUpdate<T>> updates) {
+        }
+
+        @Override
+        public void onSubscription(String topicPath, TopicSpecification specification) {
+        }
+
+        @Override
+        public void onUnsubscription(
+                String topicPath,
+                TopicSpecification specification,
+                Topics.UnsubscribeReason reason) {
+        }
+
+        @Override
+        public void onClose() {
+        }
+
+        @Override
+        public void onError(ErrorReason errorReason) {
+        }
+    }
+}
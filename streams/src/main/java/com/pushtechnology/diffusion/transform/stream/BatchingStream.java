@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.LongSupplier;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TransformedStream} that collects the transformed values into batches for a {@link BatchedValueStream}.
+ * <p>
+ * A single flush task is scheduled while the batch is not empty. When it runs it delivers the batch if the oldest
+ * update has reached the maximum latency or the quiet period has passed since the newest update, otherwise it
+ * schedules itself for the earlier of those times. The batch is taken from the stream while holding its lock and
+ * delivered while holding only a separate delivery lock, so values can be added to the next batch while a batch is
+ * delivered. Every notification of the batched stream is made while holding the delivery lock, so batches and
+ * subscription changes are delivered in order.
+ * <p>
+ * A subscription or unsubscription notification only delivers the pending batch first if it holds an update for the
+ * same topic. The subscriptions of an initial burst do not break it into batches of one update.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class BatchingStream<S, T> implements TransformedStream<S, T> {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingStream.class);
+    private final ScheduledExecutorService scheduler;
+    private final int maxBatchSize;
+    private final long maxLatency;
+    private final long quietPeriod;
+    private final LongSupplier nanoClock;
+    private final BatchedValueStream<T> delegate;
+    private final Object deliveryLock = new Object();
+    // Guarded by this
+    private List<ValueUpdate<T>> batch = new ArrayList<>();
+    // Guarded by this
+    private final Set<String> batchedTopics = new HashSet<>();
+    // Guarded by this
+    private long oldestUpdate;
+    // Guarded by this
+    private long newestUpdate;
+    // Guarded by this
+    private ScheduledFuture<?> flushTask;
+    // Guarded by this
+    private boolean closed;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ BatchingStream(
+            ScheduledExecutorService scheduler,
+            int maxBatchSize,
+            long maxLatency,
+            long quietPeriod,
+            LongSupplier nanoClock,
+            BatchedValueStream<T> delegate) {
+        this.scheduler = scheduler;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatency = maxLatency;
+        this.quietPeriod = quietPeriod;
+        this.nanoClock = nanoClock;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, T oldValue, T newValue) {
+        final boolean full;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            final long now = nanoClock.getAsLong();
+            if (batch.isEmpty()) {
+                oldestUpdate = now;
+            }
+            newestUpdate = now;
+            batch.add(new ValueUpdate<>(topicPath, topicSpecification, oldValue, newValue));
+            batchedTopics.add(topicPath);
+
+            full = batch.size() >= maxBatchSize;
+            if (!full && flushTask == null) {
+                scheduleFlush(now);
+            }
+        }
+
+        if (full) {
+            synchronized (deliveryLock) {
+                deliver(takeFullBatch());
+            }
+        }
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        synchronized (deliveryLock) {
+            deliver(takeBatchWithTopic(topicPath));
+            delegate.onSubscription(topicPath, topicSpecification);
+        }
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        synchronized (deliveryLock) {
+            deliver(takeBatchWithTopic(topicPath));
+            delegate.onUnsubscription(topicPath, topicSpecification, reason);
+        }
+    }
+
+    @Override
+    public void onTransformationException(
+            String topicPath,
+            TopicSpecification specification,
+            S value,
+            TransformationException e) {
+
+        LOG.warn("{} transformation error, topic={}, value={}", this, topicPath, value, e);
+    }
+
+    @Override
+    public void onClose() {
+        synchronized (deliveryLock) {
+            deliver(close());
+            delegate.onClose();
+        }
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        synchronized (deliveryLock) {
+            deliver(close());
+            delegate.onError(errorReason);
+        }
+    }
+
+    /**
+     * Run by the flush task.
+     */
+    private void onFlushTask() {
+        synchronized (deliveryLock) {
+            deliver(takeDueBatch());
+        }
+    }
+
+    /**
+     * @return the batch if it is due to be delivered, otherwise {@code null} and the flush task is rescheduled
+     */
+    private synchronized List<ValueUpdate<T>> takeDueBatch() {
+        flushTask = null;
+        if (closed || batch.isEmpty()) {
+            return null;
+        }
+
+        final long now = nanoClock.getAsLong();
+        if (now - flushTime() >= 0L) {
+            return takeBatch();
+        }
+        else {
+            scheduleFlush(now);
+            return null;
+        }
+    }
+
+    /**
+     * @return the batch if it holds an update of the topic, otherwise {@code null}
+     */
+    private synchronized List<ValueUpdate<T>> takeBatchWithTopic(String topicPath) {
+        return batchedTopics.contains(topicPath) ? takeBatch() : null;
+    }
+
+    /**
+     * @return the batch if it is full, otherwise {@code null} as another thread has already taken it
+     */
+    private synchronized List<ValueUpdate<T>> takeFullBatch() {
+        return batch.size() >= maxBatchSize ? takeBatch() : null;
+    }
+
+    // Guarded by this
+    private long flushTime() {
+        final long latencyDeadline = oldestUpdate + maxLatency;
+        final long quietDeadline = newestUpdate + quietPeriod;
+        return latencyDeadline - quietDeadline < 0L ? latencyDeadline : quietDeadline;
+    }
+
+    // Guarded by this
+    private void scheduleFlush(long now) {
+        flushTask = scheduler.schedule(this::onFlushTask, Math.max(0L, flushTime() - now), NANOSECONDS);
+    }
+
+    /**
+     * Close the stream.
+     *
+     * @return the batch, {@code null} if it is empty
+     */
+    private synchronized List<ValueUpdate<T>> close() {
+        final List<ValueUpdate<T>> updates = takeBatch();
+        closed = true;
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        return updates;
+    }
+
+    /**
+     * Replace the batch with an empty one.
+     *
+     * @return the batch, {@code null} if it is empty
+     */
+    // Guarded by this
+    private List<ValueUpdate<T>> takeBatch() {
+        if (batch.isEmpty()) {
+            return null;
+        }
+
+        final List<ValueUpdate<T>> updates = batch;
+        batch = new ArrayList<>(Math.min(updates.size(), maxBatchSize));
+        batchedTopics.clear();
+        return updates;
+    }
+
+    /**
+     * Deliver a batch taken from the stream. Called while holding the delivery lock, not the lock of the stream.
+     */
+    private void deliver(List<ValueUpdate<T>> updates) {
+        if (updates == null) {
+            return;
+        }
+
+        try {
+            delegate.onBatch(unmodifiableList(updates));
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (RuntimeException e) {
+            LOG.warn("RuntimeException thrown by batched stream '{}'", delegate, e);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+}
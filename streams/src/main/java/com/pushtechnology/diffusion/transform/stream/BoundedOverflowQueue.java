@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * An {@link OverflowQueue} that holds up to a number of values beyond the demand of the subscriber.
+ *
+ * @param <S> the type of the values held
+ * @author Push Technology Limited
+ */
+/*package*/ final class BoundedOverflowQueue<S> implements OverflowQueue<S> {
+    private final Queue<TopicValue<S>> values = new ArrayDeque<>();
+    private final int capacity;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ BoundedOverflowQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(TopicValue<S> value, long demand) {
+        final int size = values.size();
+        if (size < capacity || size < demand) {
+            values.add(value);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public TopicValue<S> poll() {
+        return values.poll();
+    }
+
+    @Override
+    public void remove(String topicPath) {
+        values.removeIf(value -> value.getTopicPath().equals(topicPath));
+    }
+
+    @Override
+    public void clear() {
+        values.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An {@link OverflowQueue} that holds the latest value of each topic.
+ *
+ * @param <S> the type of the values held
+ * @author Push Technology Limited
+ */
+/*package*/ final class ConflatingOverflowQueue<S> implements OverflowQueue<S> {
+    private final Map<String, TopicValue<S>> values = new LinkedHashMap<>();
+
+    @Override
+    public boolean offer(TopicValue<S> value, long demand) {
+        // Replacing the value of a topic keeps the position of the topic
+        values.put(value.getTopicPath(), value);
+        return true;
+    }
+
+    @Override
+    public TopicValue<S> poll() {
+        final Iterator<TopicValue<S>> iterator = values.values().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        final TopicValue<S> value = iterator.next();
+        iterator.remove();
+        return value;
+    }
+
+    @Override
+    public void remove(String topicPath) {
+        values.remove(topicPath);
+    }
+
+    @Override
+    public void clear() {
+        values.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+}
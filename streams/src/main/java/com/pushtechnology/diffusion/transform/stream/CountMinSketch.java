@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A count-min sketch of approximate totals for a large number of keys in constant memory.
+ * <p>
+ * Each key is added to one counter in each row of the sketch. The estimate for a key is the smallest of its counters,
+ * so it is never less than the true total and only overestimates when other keys collide in every row.
+ * <p>
+ * The counters are updated atomically so keys can be added from many threads without locking. Keys added while the
+ * sketch is cleared may be partly kept.
+ *
+ * @author Push Technology Limited
+ */
+/*package*/ final class CountMinSketch {
+    private static final int DEPTH = 4;
+    private final int mask;
+    private final AtomicLongArray counters;
+
+    /**
+     * Constructor.
+     *
+     * @param width the number of counters in each row, rounded up to a power of two
+     */
+    /*package*/ CountMinSketch(int width) {
+        final int rowWidth = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        mask = rowWidth - 1;
+        counters = new AtomicLongArray(DEPTH * rowWidth);
+    }
+
+    /**
+     * Add an amount to the total of a key.
+     *
+     * @param hash the hash code of the key
+     * @param amount the amount to add
+     */
+    /*package*/ void add(int hash, long amount) {
+        for (int row = 0; row < DEPTH; row++) {
+            counters.getAndAdd(index(hash, row), amount);
+        }
+    }
+
+    /**
+     * @param hash the hash code of the key
+     * @return the estimated total of the key
+     */
+    /*package*/ long estimate(int hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Reset the totals of every key.
+     */
+    /*package*/ void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0L);
+        }
+    }
+
+    private int index(int hash, int row) {
+        // MurmurHash3 finalizer of the hash, seeded differently for each row
+        int h = hash + row * 0x9e3779b9;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+}
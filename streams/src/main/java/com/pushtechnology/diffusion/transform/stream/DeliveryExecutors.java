@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory for executors that can be used with {@link StreamBuilder#perTopicDelivery(java.util.concurrent.Executor)}.
+ *
+ * @author Push Technology Limited
+ */
+public final class DeliveryExecutors {
+    private static final Logger LOG = LoggerFactory.getLogger(DeliveryExecutors.class);
+
+    private DeliveryExecutors() {
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for each task.
+     * <p>
+     * Virtual threads are only available from Java 21. When running on an earlier version of Java an executor that
+     * starts a new daemon thread for each task, reusing idle threads, is returned instead.
+     *
+     * @return the executor
+     */
+    public static ExecutorService virtualThreadPerTask() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            LOG.debug("Virtual threads are not available, falling back to platform threads", e);
+            return Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
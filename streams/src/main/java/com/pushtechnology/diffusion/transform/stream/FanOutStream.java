@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ValueStream} that delivers each notification to many delegates. It keeps the specification and latest value
+ * of each subscribed topic so that a delegate added later is notified of the existing subscriptions.
+ * <p>
+ * Notifications are delivered while holding a shared lock so notifications for different topics can be delivered
+ * concurrently. Delegates are added and removed while holding the exclusive lock so a new delegate receives the
+ * existing subscriptions before any later notification.
+ * <p>
+ * A delegate added or removed by a thread that is delivering a notification, such as a stream closing its own handle,
+ * cannot take the exclusive lock. The change is queued and applied when the notification has been delivered.
+ *
+ * @param <T> the type of the values
+ * @param <V> the type of the delegate value streams
+ * @author Push Technology Limited
+ */
+/*package*/ class FanOutStream<T, V extends ValueStream<T>> implements ValueStream<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(FanOutStream.class);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Queue<Runnable> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final List<V> delegates = new CopyOnWriteArrayList<>();
+    private final Map<String, Subscription<T>> subscriptions = new ConcurrentHashMap<>();
+
+    @Override
+    public final void onValue(String topicPath, TopicSpecification topicSpecification, T oldValue, T newValue) {
+        final Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            subscriptions.put(topicPath, new Subscription<>(topicSpecification, newValue));
+            forEachDelegate(topicPath, delegate -> delegate.onValue(topicPath, topicSpecification, oldValue, newValue));
+        }
+        finally {
+            readLock.unlock();
+        }
+        applyPendingChanges();
+    }
+
+    @Override
+    public final void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        final Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            subscriptions.put(topicPath, new Subscription<>(topicSpecification, null));
+            forEachDelegate(topicPath, delegate -> delegate.onSubscription(topicPath, topicSpecification));
+        }
+        finally {
+            readLock.unlock();
+        }
+        applyPendingChanges();
+    }
+
+    @Override
+    public final void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        final Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            subscriptions.remove(topicPath);
+            forEachDelegate(topicPath, delegate -> delegate.onUnsubscription(topicPath, topicSpecification, reason));
+        }
+        finally {
+            readLock.unlock();
+        }
+        applyPendingChanges();
+    }
+
+    @Override
+    public final void onClose() {
+        final Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            subscriptions.clear();
+            forEachDelegate(null, ValueStream::onClose);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public final void onError(ErrorReason errorReason) {
+        final Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            subscriptions.clear();
+            forEachDelegate(null, delegate -> delegate.onError(errorReason));
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Add a delegate. The delegate is notified of the topics already subscribed to and their latest values.
+     *
+     * @param delegate the delegate
+     */
+    /*package*/ final void add(V delegate) {
+        change(() -> {
+            subscriptions.forEach((topicPath, subscription) -> {
+                deliver(topicPath, delegate, stream -> stream.onSubscription(topicPath, subscription.specification));
+                if (subscription.value != null) {
+                    deliver(
+                        topicPath,
+                        delegate,
+                        stream -> stream.onValue(topicPath, subscription.specification, null, subscription.value));
+                }
+            });
+            delegates.add(delegate);
+        });
+    }
+
+    /**
+     * Remove a delegate. The delegate is notified that it has been closed.
+     *
+     * @param delegate the delegate
+     */
+    /*package*/ final void remove(V delegate) {
+        change(() -> {
+            if (delegates.remove(delegate)) {
+                deliver(null, delegate, ValueStream::onClose);
+            }
+        });
+    }
+
+    /**
+     * Apply a change to the delegates while holding the exclusive lock, or queue it if the thread holds the shared
+     * lock.
+     *
+     * @param change the change
+     */
+    private void change(Runnable change) {
+        pendingChanges.add(change);
+        applyPendingChanges();
+    }
+
+    /**
+     * Apply the queued changes unless the thread holds the shared lock and cannot take the exclusive lock.
+     */
+    private void applyPendingChanges() {
+        if (pendingChanges.isEmpty() || lock.getReadHoldCount() > 0) {
+            return;
+        }
+
+        final Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Runnable change = pendingChanges.poll();
+            while (change != null) {
+                change.run();
+                change = pendingChanges.poll();
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Deliver a notification about a topic to every delegate while holding the shared lock.
+     *
+     * @param topicPath the topic path
+     * @param notification the notification
+     */
+    protected final void notifyDelegates(String topicPath, Consumer<V> notification) {
+        final Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            forEachDelegate(topicPath, notification);
+        }
+        finally {
+            readLock.unlock();
+        }
+        applyPendingChanges();
+    }
+
+    private void forEachDelegate(String topicPath, Consumer<V> notification) {
+        for (final V delegate : delegates) {
+            deliver(topicPath, delegate, notification);
+        }
+    }
+
+    private static <V> void deliver(String topicPath, V delegate, Consumer<V> notification) {
+        try {
+            notification.accept(delegate);
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (RuntimeException e) {
+            LOG.warn("RuntimeException thrown by stream handler '{}' for topic '{}'", delegate, topicPath, e);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+
+    /**
+     * The state of a subscribed topic.
+     *
+     * @param <T> the type of the values
+     */
+    private static final class Subscription<T> {
+        private final TopicSpecification specification;
+        private final T value;
+
+        private Subscription(TopicSpecification specification, T value) {
+            this.specification = specification;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ValueStream} that moves the subscription and initial value of each topic off the session thread. When a
+ * selector matches many topics the session delivers a burst of subscriptions and initial values. These are queued in
+ * a mailbox for each topic and drained by the executor, so the initial values of different topics are transformed
+ * in parallel while the notifications for a topic stay in order.
+ * <p>
+ * A notification for a topic that has a mailbox is added to it. Once a mailbox has been drained it is removed and the
+ * following notifications for the topic are delivered directly on the session thread. Each time the stream has
+ * delivered all the initial values it has received the {@link SynchronisationListener} is notified.
+ * <p>
+ * The {@link #onClose()} and {@link #onError(ErrorReason)} notifications are not associated with a topic. They are
+ * delivered through their own mailbox and discard any notifications for topics that have not yet been delivered.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+/*package*/ final class InitialBurstStream<S> implements ValueStream<S> {
+    private static final Logger LOG = LoggerFactory.getLogger(InitialBurstStream.class);
+    private final TopicMailboxes mailboxes;
+    private final SynchronisationListener listener;
+    private final LongSupplier nanoClock;
+    private final ValueStream<S> delegate;
+
+    // Guarded by this
+    private int pendingInitial;
+    // Guarded by this
+    private int initialValues;
+    // Guarded by this
+    private long burstStart;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ InitialBurstStream(
+            Executor executor,
+            SynchronisationListener listener,
+            LongSupplier nanoClock,
+            ValueStream<S> delegate) {
+        this.listener = listener;
+        this.nanoClock = nanoClock;
+        this.delegate = delegate;
+        mailboxes = new TopicMailboxes(executor, delegate);
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
+        final Runnable notification = () -> delegate.onValue(topicPath, topicSpecification, oldValue, newValue);
+        if (oldValue == null) {
+            deliverInitial(topicPath, notification, true);
+        }
+        else {
+            deliver(topicPath, notification);
+        }
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        deliverInitial(topicPath, () -> delegate.onSubscription(topicPath, topicSpecification), false);
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        deliver(topicPath, () -> delegate.onUnsubscription(topicPath, topicSpecification, reason));
+    }
+
+    @Override
+    public void onClose() {
+        discardAll();
+        mailboxes.deliverToStream(delegate::onClose);
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        discardAll();
+        mailboxes.deliverToStream(() -> delegate.onError(errorReason));
+    }
+
+    private void discardAll() {
+        mailboxes.discardAll();
+        synchronized (this) {
+            pendingInitial = 0;
+        }
+    }
+
+    /**
+     * Deliver a notification through the mailbox of the topic if it has one, otherwise deliver it directly.
+     */
+    private void deliver(String topicPath, Runnable notification) {
+        if (!mailboxes.deliverIfPresent(topicPath, notification)) {
+            notification.run();
+        }
+    }
+
+    /**
+     * Deliver a notification through the mailbox of the topic, creating it if needed.
+     */
+    private void deliverInitial(String topicPath, Runnable notification, boolean isValue) {
+        beginInitial();
+        mailboxes.deliver(
+            topicPath,
+            () -> {
+                try {
+                    notification.run();
+                }
+                finally {
+                    endInitial(isValue);
+                }
+            },
+            true);
+    }
+
+    private synchronized void beginInitial() {
+        if (pendingInitial == 0) {
+            burstStart = nanoClock.getAsLong();
+            initialValues = 0;
+        }
+        pendingInitial += 1;
+    }
+
+    private void endInitial(boolean isValue) {
+        final int synchronisedValues;
+        final long duration;
+        synchronized (this) {
+            if (pendingInitial == 0) {
+                // Discarded by close
+                return;
+            }
+
+            if (isValue) {
+                initialValues += 1;
+            }
+            pendingInitial -= 1;
+            if (pendingInitial != 0) {
+                return;
+            }
+
+            synchronisedValues = initialValues;
+            duration = nanoClock.getAsLong() - burstStart;
+        }
+
+        try {
+            listener.onSynchronised(synchronisedValues, duration);
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (RuntimeException e) {
+            LOG.warn("RuntimeException thrown by synchronisation listener '{}'", listener, e);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+
+    /**
+     * @return the number of topics with a mailbox
+     */
+    /*package*/ int mailboxCount() {
+        return mailboxes.size();
+    }
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.pushtechnology.diffusion.client.Diffusion;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.client.topics.details.TopicType;
+
+/**
+ * The format of the segments of a {@link StreamJournal}.
+ * <p>
+ * A segment is a file of a fixed size containing a sequence of records. Each record is written as:
+ * <ol>
+ * <li>the length of the rest of the record as an int, a length of zero marks the end of the segment</li>
+ * <li>the time the value was received as a long</li>
+ * <li>the length of the topic path as an unsigned short followed by the UTF-8 bytes of the topic path</li>
+ * <li>the length of the topic specification as an unsigned short followed by the encoded specification</li>
+ * <li>the length of the value as an int followed by the bytes of the value</li>
+ * </ol>
+ * The segments are named so that sorting their names orders them by when they were written.
+ *
+ * @author Push Technology Limited
+ */
+/*package*/ final class JournalFormat {
+    /**
+     * The length of the record fields that are not variable length.
+     */
+    /*package*/ static final int FIXED_RECORD_LENGTH = 4 + 8 + 2 + 2 + 4;
+    /**
+     * The maximum length of a topic path or encoded topic specification.
+     */
+    /*package*/ static final int MAX_SHORT_LENGTH = 0xFFFF;
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private JournalFormat() {
+    }
+
+    /**
+     * @return the name of a segment
+     */
+    /*package*/ static String segmentName(long index) {
+        return String.format("%019d%s", index, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * @return the index of a segment
+     */
+    /*package*/ static long segmentIndex(Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @return the segments in a directory in the order they were written
+     */
+    /*package*/ static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Encode a topic specification as the type followed by the number of properties and the properties.
+     */
+    /*package*/ static byte[] encodeSpecification(TopicSpecification specification) {
+        final List<byte[]> strings = new ArrayList<>();
+        strings.add(specification.getType().name().getBytes(UTF_8));
+        for (Map.Entry<String, String> property : specification.getProperties().entrySet()) {
+            strings.add(property.getKey().getBytes(UTF_8));
+            strings.add(property.getValue().getBytes(UTF_8));
+        }
+
+        final int length = 4 + strings.stream().mapToInt(string -> 4 + string.length).sum();
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(specification.getProperties().size());
+        for (byte[] string : strings) {
+            buffer.putInt(string.length);
+            buffer.put(string);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decode a topic specification encoded by {@link #encodeSpecification(TopicSpecification)}.
+     */
+    /*package*/ static TopicSpecification decodeSpecification(ByteBuffer buffer) {
+        final int properties = buffer.getInt();
+        TopicSpecification specification = Diffusion.newTopicSpecification(TopicType.valueOf(getString(buffer)));
+        for (int i = 0; i < properties; i++) {
+            specification = specification.withProperty(getString(buffer), getString(buffer));
+        }
+        return specification;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.pushtechnology.diffusion.client.Diffusion;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.datatype.DataType;
+
+/**
+ * A replay of the values recorded by a {@link StreamJournal}. Passed to
+ * {@link StreamBuilder#replay(JournalReplay, ValueStream)} to deliver the recorded values through the builder.
+ * <p>
+ * The replay delivers a subscription notification for each topic before the first value recorded for it and then
+ * delivers the recorded values in order. The stream is closed when the replay ends. The values are delivered by the
+ * thread that starts the replay, either as fast as possible or with the intervals they were recorded with.
+ * <p>
+ * Replays are immutable. Each method that configures the replay returns a new replay.
+ *
+ * @author Push Technology Limited
+ */
+public final class JournalReplay {
+    private final Path directory;
+    private final boolean recordedSpeed;
+
+    private JournalReplay(Path directory, boolean recordedSpeed) {
+        this.directory = directory;
+        this.recordedSpeed = recordedSpeed;
+    }
+
+    /**
+     * Create a replay of a journal at the maximum speed.
+     *
+     * @param directory the directory the journal was written to
+     * @return the replay
+     */
+    public static JournalReplay of(Path directory) {
+        return new JournalReplay(directory, false);
+    }
+
+    /**
+     * Deliver the values with the intervals they were recorded with.
+     *
+     * @return a new replay
+     */
+    public JournalReplay atRecordedSpeed() {
+        return new JournalReplay(directory, true);
+    }
+
+    /**
+     * Deliver the values as fast as possible.
+     *
+     * @return a new replay
+     */
+    public JournalReplay atMaximumSpeed() {
+        return new JournalReplay(directory, false);
+    }
+
+    /**
+     * Replay the journal to a stream.
+     *
+     * @return the number of values replayed
+     */
+    /*package*/ <S> long replay(Class<S> valueType, ValueStream<S> stream) throws IOException, InterruptedException {
+        final DataType<S> dataType = Diffusion.dataTypes().getByClass(valueType);
+        final Replay<S> replay = new Replay<>(dataType, stream);
+        try {
+            for (Path segment : JournalFormat.segments(directory)) {
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    replay.replaySegment(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+                }
+            }
+        }
+        finally {
+            stream.onClose();
+        }
+        return replay.count;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalReplay [directory=" + directory + ", recordedSpeed=" + recordedSpeed + "]";
+    }
+
+    /**
+     * The state of a single replay.
+     */
+    private final class Replay<S> {
+        private final Map<ByteBuffer, TopicSpecification> specifications = new HashMap<>();
+        private final Map<String, S> values = new HashMap<>();
+        private final DataType<S> dataType;
+        private final ValueStream<S> stream;
+        private long firstTimestamp;
+        private long firstNanos;
+        private long count;
+
+        private Replay(DataType<S> dataType, ValueStream<S> stream) {
+            this.dataType = dataType;
+            this.stream = stream;
+        }
+
+        private void replaySegment(ByteBuffer segment) throws InterruptedException {
+            while (segment.remaining() >= 4) {
+                final int length = segment.getInt();
+                if (length == 0) {
+                    return;
+                }
+
+                final long timestamp = segment.getLong();
+                final String topicPath = new String(getBytes(segment, segment.getShort() & 0xFFFF), UTF_8);
+                final TopicSpecification specification = getSpecification(segment, segment.getShort() & 0xFFFF);
+                final S value = dataType.readValue(getBytes(segment, segment.getInt()));
+
+                awaitRecordedTime(timestamp);
+                if (!values.containsKey(topicPath)) {
+                    stream.onSubscription(topicPath, specification);
+                }
+                stream.onValue(topicPath, specification, values.put(topicPath, value), value);
+                count += 1L;
+            }
+        }
+
+        private TopicSpecification getSpecification(ByteBuffer segment, int length) {
+            final ByteBuffer encoded = segment.slice();
+            encoded.limit(length);
+            segment.position(segment.position() + length);
+
+            final TopicSpecification specification = specifications.get(encoded);
+            if (specification != null) {
+                return specification;
+            }
+
+            final ByteBuffer copy = ByteBuffer.wrap(getBytes(encoded, length));
+            final TopicSpecification decoded = JournalFormat.decodeSpecification(copy.duplicate());
+            specifications.put(copy, decoded);
+            return decoded;
+        }
+
+        private void awaitRecordedTime(long timestamp) throws InterruptedException {
+            if (!recordedSpeed) {
+                return;
+            }
+
+            if (count == 0L) {
+                firstTimestamp = timestamp;
+                firstNanos = System.nanoTime();
+                return;
+            }
+
+            final long delay = MILLISECONDS.toNanos(timestamp - firstTimestamp) - (System.nanoTime() - firstNanos);
+            if (delay > 0L) {
+                NANOSECONDS.sleep(delay);
+            }
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer, int length) {
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.Map;
+
+/**
+ * A view of the latest transformed value of each topic matched by a selector.
+ * <p>
+ * The view is updated as values are received and can be read concurrently without locking. Reads are weakly
+ * consistent, a read concurrent with an update may or may not reflect it. Values can be looked up through the
+ * indexes declared with the {@link MaterializedViewBuilder}. Indexes are updated incrementally as values are received
+ * and topics are unsubscribed from.
+ * <p>
+ * Closing the view removes its stream from the session and clears the view.
+ *
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+public interface MaterializedView<T> extends StreamHandle {
+    /**
+     * @param topicPath the topic path
+     * @return the latest value of the topic or {@code null} if the topic is not in the view
+     */
+    T get(String topicPath);
+
+    /**
+     * @return the number of topics in the view
+     */
+    int size();
+
+    /**
+     * @return an unmodifiable map of topic paths to the latest values, updated as the view changes
+     */
+    Map<String, T> asMap();
+
+    /**
+     * Find the topics with a key in an index.
+     *
+     * @param indexName the name of the index
+     * @param key the key
+     * @return the topic paths and latest values of the topics with the key
+     * @throws IllegalArgumentException if there is no index with the name
+     */
+    Map<String, T> lookup(String indexName, Object key);
+
+    /**
+     * Find the topics with keys in a range of a sorted index.
+     *
+     * @param indexName the name of the sorted index
+     * @param fromKey the lowest key, inclusive
+     * @param toKey the highest key, exclusive
+     * @param <K> the type of the keys
+     * @return the topic paths and latest values of the topics with keys in the range, in key order
+     * @throws IllegalArgumentException if there is no sorted index with the name
+     */
+    <K extends Comparable<? super K>> Map<String, T> range(String indexName, K fromKey, K toKey);
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.function.Function;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+
+/**
+ * Builder for a {@link MaterializedView}. Created by {@link StreamBuilder#materialize()}.
+ * <p>
+ * Builders are immutable. Each time an index is declared a new builder is returned.
+ *
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+public interface MaterializedViewBuilder<T> {
+    /**
+     * Declare an index that looks up topics by a key extracted from their values.
+     * <p>
+     * Values for which the extractor returns {@code null} are not indexed.
+     *
+     * @param indexName the name of the index
+     * @param keyExtractor the function that extracts the key from a value
+     * @param <K> the type of the keys
+     * @return a new builder
+     */
+    <K> MaterializedViewBuilder<T> hashIndex(String indexName, Function<? super T, K> keyExtractor);
+
+    /**
+     * Declare an index that looks up topics by a key extracted from their values and supports range queries.
+     * <p>
+     * Values for which the extractor returns {@code null} are not indexed.
+     *
+     * @param indexName the name of the index
+     * @param keyExtractor the function that extracts the key from a value
+     * @param <K> the type of the keys
+     * @return a new builder
+     */
+    <K extends Comparable<? super K>> MaterializedViewBuilder<T> sortedIndex(
+        String indexName,
+        Function<? super T, K> keyExtractor);
+
+    /**
+     * Create the view.
+     *
+     * @param topicsFeature the topics feature
+     * @param topicSelector the topic selector to match the view
+     * @return the view
+     */
+    MaterializedView<T> register(Topics topicsFeature, String topicSelector);
+
+    /**
+     * Create the view.
+     *
+     * @param session the session
+     * @param topicSelector the topic selector to match the view
+     * @return the view
+     */
+    MaterializedView<T> register(Session session, String topicSelector);
+}
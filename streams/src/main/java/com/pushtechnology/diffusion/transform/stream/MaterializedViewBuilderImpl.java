@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Collections.emptyMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+
+/**
+ * Implementation of {@link MaterializedViewBuilder}.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class MaterializedViewBuilderImpl<S, T> implements MaterializedViewBuilder<T> {
+    private final StreamBuilder<S, T, ? super TransformedStream<S, T>, ?> streamBuilder;
+    private final Map<String, Supplier<ViewIndex<T, ?>>> indexes;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ MaterializedViewBuilderImpl(StreamBuilder<S, T, ? super TransformedStream<S, T>, ?> streamBuilder) {
+        this(streamBuilder, emptyMap());
+    }
+
+    private MaterializedViewBuilderImpl(
+            StreamBuilder<S, T, ? super TransformedStream<S, T>, ?> streamBuilder,
+            Map<String, Supplier<ViewIndex<T, ?>>> indexes) {
+        this.streamBuilder = streamBuilder;
+        this.indexes = indexes;
+    }
+
+    @Override
+    public <K> MaterializedViewBuilder<T> hashIndex(String indexName, Function<? super T, K> keyExtractor) {
+        return withIndex(indexName, () -> ViewIndex.hash(keyExtractor));
+    }
+
+    @Override
+    public <K extends Comparable<? super K>> MaterializedViewBuilder<T> sortedIndex(
+            String indexName,
+            Function<? super T, K> keyExtractor) {
+
+        return withIndex(indexName, () -> ViewIndex.sorted(keyExtractor));
+    }
+
+    @Override
+    public MaterializedView<T> register(Topics topicsFeature, String topicSelector) {
+        final Map<String, ViewIndex<T, ?>> viewIndexes = new LinkedHashMap<>();
+        indexes.forEach((indexName, index) -> viewIndexes.put(indexName, index.get()));
+
+        final MaterializedViewImpl<S, T> view = new MaterializedViewImpl<>(viewIndexes);
+        view.registered(streamBuilder.register(topicsFeature, topicSelector, view));
+        return view;
+    }
+
+    @Override
+    public MaterializedView<T> register(Session session, String topicSelector) {
+        return register(session.feature(Topics.class), topicSelector);
+    }
+
+    private MaterializedViewBuilder<T> withIndex(String indexName, Supplier<ViewIndex<T, ?>> index) {
+        if (indexes.containsKey(indexName)) {
+            throw new IllegalArgumentException("There is already an index named " + indexName);
+        }
+        final Map<String, Supplier<ViewIndex<T, ?>>> newIndexes = new LinkedHashMap<>(indexes);
+        newIndexes.put(indexName, index);
+        return new MaterializedViewBuilderImpl<>(streamBuilder, newIndexes);
+    }
+}
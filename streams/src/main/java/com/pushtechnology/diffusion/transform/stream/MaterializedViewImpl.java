@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementation of {@link MaterializedView}. The view is the stream that receives the transformed values.
+ * <p>
+ * A topic keeps its latest value when a new value cannot be transformed. A value transformed to {@code null} removes
+ * the topic from the view and its indexes.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class MaterializedViewImpl<S, T> implements MaterializedView<T>, TransformedStream<S, T> {
+    private static final Logger LOG = LoggerFactory.getLogger(MaterializedViewImpl.class);
+    private final Map<String, T> values = new ConcurrentHashMap<>();
+    private final Map<String, ViewIndex<T, ?>> indexes;
+    private volatile StreamHandle handle;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ MaterializedViewImpl(Map<String, ViewIndex<T, ?>> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Notify the view of the handle to its stream.
+     *
+     * @param streamHandle the handle to the stream
+     */
+    /*package*/ void registered(StreamHandle streamHandle) {
+        handle = streamHandle;
+    }
+
+    @Override
+    public T get(String topicPath) {
+        return values.get(topicPath);
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public Map<String, T> asMap() {
+        return unmodifiableMap(values);
+    }
+
+    @Override
+    public Map<String, T> lookup(String indexName, Object key) {
+        final ViewIndex<T, ?> index = index(indexName);
+        final Map<String, T> result = new HashMap<>();
+        for (final String topicPath : index.lookup(key)) {
+            final T value = values.get(topicPath);
+            if (value != null && index.hasKey(value, key)) {
+                result.put(topicPath, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K extends Comparable<? super K>> Map<String, T> range(String indexName, K fromKey, K toKey) {
+        final ViewIndex<T, K> index = (ViewIndex<T, K>) index(indexName);
+        final Map<K, Set<String>> keys = index.range(fromKey, toKey);
+        if (keys == null) {
+            throw new IllegalArgumentException("The index " + indexName + " is not sorted");
+        }
+
+        final Map<String, T> result = new LinkedHashMap<>();
+        keys.forEach((key, topicPaths) -> {
+            for (final String topicPath : topicPaths) {
+                final T value = values.get(topicPath);
+                if (value != null && index.hasKey(value, key)) {
+                    result.put(topicPath, value);
+                }
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void close() {
+        final StreamHandle streamHandle = handle;
+        if (streamHandle != null) {
+            streamHandle.close();
+        }
+        clear();
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, T oldValue, T newValue) {
+        if (newValue == null) {
+            remove(topicPath);
+            return;
+        }
+
+        final T previousValue = values.put(topicPath, newValue);
+        for (final ViewIndex<T, ?> index : indexes.values()) {
+            index.update(topicPath, previousValue, newValue);
+        }
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        remove(topicPath);
+    }
+
+    @Override
+    public void onTransformationException(
+            String topicPath,
+            TopicSpecification specification,
+            S value,
+            TransformationException e) {
+
+        LOG.warn("{} transformation error, topic={}, value={}", this, topicPath, value, e);
+    }
+
+    @Override
+    public void onClose() {
+        clear();
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        clear();
+    }
+
+    private ViewIndex<T, ?> index(String indexName) {
+        final ViewIndex<T, ?> index = indexes.get(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("There is no index named " + indexName);
+        }
+        return index;
+    }
+
+    private void remove(String topicPath) {
+        final T previousValue = values.remove(topicPath);
+        if (previousValue != null) {
+            for (final ViewIndex<T, ?> index : indexes.values()) {
+                index.remove(topicPath, previousValue);
+            }
+        }
+    }
+
+    private void clear() {
+        values.clear();
+        indexes.values().forEach(ViewIndex::clear);
+    }
+}
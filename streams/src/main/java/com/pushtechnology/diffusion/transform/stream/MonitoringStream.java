@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.LongSupplier;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ValueStream} that records the updates of each topic and the time spent delivering them to a
+ * {@link TopicRateMonitor}. The time includes the transformation and the stream handler.
+ * <p>
+ * If the monitor conflates hot topics, the values of a hot topic are held and the latest value is delivered by a
+ * flush task at the end of the conflation period. The old value delivered with it is the old value of the first value
+ * held. Once a topic has a value held, later values are held until the flush even if the topic is no longer hot, so
+ * the values of a topic are delivered in order. Held values are delivered before the unsubscription notification of
+ * their topic and before the stream is closed. When conflating, the notifications are handled while holding the lock
+ * of the stream.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+/*package*/ final class MonitoringStream<S> implements ValueStream<S> {
+    private static final Logger LOG = LoggerFactory.getLogger(MonitoringStream.class);
+    private final TopicRateMonitor monitor;
+    private final LongSupplier nanoClock;
+    private final ValueStream<S> delegate;
+    private final boolean conflating;
+    // Guarded by this
+    private final Map<String, HeldValue<S>> heldValues = new LinkedHashMap<>();
+    // Guarded by this
+    private ScheduledFuture<?> flushTask;
+    // Guarded by this
+    private boolean closed;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ MonitoringStream(TopicRateMonitor monitor, LongSupplier nanoClock, ValueStream<S> delegate) {
+        this.monitor = monitor;
+        this.nanoClock = nanoClock;
+        this.delegate = delegate;
+        conflating = monitor.conflatesHotTopics();
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
+        if (!conflating) {
+            deliver(topicPath, topicSpecification, oldValue, newValue, 1);
+            return;
+        }
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            final HeldValue<S> heldValue = heldValues.get(topicPath);
+            if (heldValue != null) {
+                heldValue.specification = topicSpecification;
+                heldValue.newValue = newValue;
+                monitor.record(topicPath, 1, 0L);
+            }
+            else if (monitor.isHot(topicPath)) {
+                heldValues.put(topicPath, new HeldValue<>(topicSpecification, oldValue, newValue));
+                monitor.record(topicPath, 1, 0L);
+                if (flushTask == null) {
+                    flushTask = monitor.getScheduler().schedule(
+                        this::onFlushTask,
+                        monitor.getConflationPeriod(),
+                        NANOSECONDS);
+                }
+            }
+            else {
+                deliver(topicPath, topicSpecification, oldValue, newValue, 1);
+            }
+        }
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        delegate.onSubscription(topicPath, topicSpecification);
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        if (conflating) {
+            synchronized (this) {
+                final HeldValue<S> heldValue = heldValues.remove(topicPath);
+                if (heldValue != null) {
+                    deliver(topicPath, heldValue);
+                }
+                delegate.onUnsubscription(topicPath, topicSpecification, reason);
+            }
+        }
+        else {
+            delegate.onUnsubscription(topicPath, topicSpecification, reason);
+        }
+    }
+
+    @Override
+    public void onClose() {
+        if (conflating) {
+            synchronized (this) {
+                close();
+                delegate.onClose();
+            }
+        }
+        else {
+            delegate.onClose();
+        }
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        if (conflating) {
+            synchronized (this) {
+                close();
+                delegate.onError(errorReason);
+            }
+        }
+        else {
+            delegate.onError(errorReason);
+        }
+    }
+
+    /**
+     * Run by the flush task.
+     */
+    private synchronized void onFlushTask() {
+        flushTask = null;
+        if (closed) {
+            return;
+        }
+
+        flush();
+    }
+
+    // Guarded by this
+    private void close() {
+        flush();
+        closed = true;
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+    }
+
+    // Guarded by this
+    private void flush() {
+        final List<Map.Entry<String, HeldValue<S>>> entries = new ArrayList<>(heldValues.entrySet());
+        heldValues.clear();
+        for (final Map.Entry<String, HeldValue<S>> entry : entries) {
+            try {
+                deliver(entry.getKey(), entry.getValue());
+            }
+            // CHECKSTYLE.OFF: IllegalCatch
+            catch (RuntimeException e) {
+                LOG.warn("RuntimeException thrown by stream handler '{}' for topic '{}'", delegate, entry.getKey(), e);
+            }
+            // CHECKSTYLE.ON: IllegalCatch
+        }
+    }
+
+    private void deliver(String topicPath, HeldValue<S> heldValue) {
+        deliver(topicPath, heldValue.specification, heldValue.oldValue, heldValue.newValue, 0);
+    }
+
+    private void deliver(String topicPath, TopicSpecification specification, S oldValue, S newValue, int count) {
+        final long start = nanoClock.getAsLong();
+        try {
+            delegate.onValue(topicPath, specification, oldValue, newValue);
+        }
+        finally {
+            monitor.record(topicPath, count, nanoClock.getAsLong() - start);
+        }
+    }
+
+    /**
+     * The value of a topic held until the end of the conflation period.
+     *
+     * @param <S> the type of the source values
+     */
+    private static final class HeldValue<S> {
+        private final S oldValue;
+        private TopicSpecification specification;
+        private S newValue;
+
+        private HeldValue(TopicSpecification specification, S oldValue, S newValue) {
+            this.specification = specification;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+    }
+}
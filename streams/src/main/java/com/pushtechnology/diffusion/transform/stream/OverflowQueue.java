@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+/**
+ * The values held by a publisher until they are requested by the subscriber. Implementations are not thread-safe.
+ *
+ * @param <S> the type of the values held
+ * @author Push Technology Limited
+ */
+/*package*/ interface OverflowQueue<S> {
+    /**
+     * Offer a value to the queue.
+     *
+     * @param value the value
+     * @param demand the number of values requested by the subscriber that have not been delivered
+     * @return if the value was accepted
+     */
+    boolean offer(TopicValue<S> value, long demand);
+
+    /**
+     * @return the next value to deliver or {@code null} if there is none
+     */
+    TopicValue<S> poll();
+
+    /**
+     * Remove any values held for a topic.
+     *
+     * @param topicPath the topic path
+     */
+    void remove(String topicPath);
+
+    /**
+     * Remove all the values.
+     */
+    void clear();
+
+    /**
+     * @return if no values are held
+     */
+    boolean isEmpty();
+}
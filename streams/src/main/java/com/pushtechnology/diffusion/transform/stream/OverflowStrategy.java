@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+/**
+ * The strategy used by a publisher created by a {@link StreamBuilder} when values are received faster than the
+ * subscriber requests them.
+ * <p>
+ * Values are held untransformed until they are delivered. Values that are discarded are never transformed.
+ *
+ * @author Push Technology Limited
+ */
+public final class OverflowStrategy {
+    private static final OverflowStrategy CONFLATE = new OverflowStrategy(true, 0);
+    private static final OverflowStrategy DROP = new OverflowStrategy(false, 0);
+
+    private final boolean conflate;
+    private final int capacity;
+
+    private OverflowStrategy(boolean conflate, int capacity) {
+        this.conflate = conflate;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Hold only the latest value of each topic. A topic keeps its position in the delivery order when a pending value
+     * is replaced by a newer one.
+     *
+     * @return the strategy
+     */
+    public static OverflowStrategy conflate() {
+        return CONFLATE;
+    }
+
+    /**
+     * Discard values received when the subscriber has not requested any.
+     *
+     * @return the strategy
+     */
+    public static OverflowStrategy drop() {
+        return DROP;
+    }
+
+    /**
+     * Hold up to a number of values beyond those requested by the subscriber. Values received when the buffer is full
+     * are discarded.
+     *
+     * @param capacity the maximum number of values to hold
+     * @return the strategy
+     */
+    public static OverflowStrategy buffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        return new OverflowStrategy(false, capacity);
+    }
+
+    /**
+     * @param <S> the type of the values held
+     * @return a new queue implementing the strategy
+     */
+    /*package*/ <S> OverflowQueue<S> createQueue() {
+        return conflate ? new ConflatingOverflowQueue<>() : new BoundedOverflowQueue<>(capacity);
+    }
+
+    @Override
+    public String toString() {
+        return conflate ? "OverflowStrategy [conflate]" : "OverflowStrategy [capacity=" + capacity + "]";
+    }
+}
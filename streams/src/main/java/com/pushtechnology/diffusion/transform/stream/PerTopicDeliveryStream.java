@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.concurrent.Executor;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+/**
+ * A {@link ValueStream} that moves the notifications for each topic off the session thread. Each topic has a mailbox
+ * of pending notifications. When the mailbox is not empty a single task is run by the executor to drain it, so the
+ * notifications for a topic are delivered in order and never concurrently while different topics are delivered in
+ * parallel.
+ * <p>
+ * The {@link #onClose()} and {@link #onError(ErrorReason)} notifications are not associated with a topic. They are
+ * delivered through their own mailbox and discard any notifications for topics that have not yet been delivered.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+/*package*/ final class PerTopicDeliveryStream<S> implements ValueStream<S> {
+    private final TopicMailboxes mailboxes;
+    private final ValueStream<S> delegate;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ PerTopicDeliveryStream(Executor executor, ValueStream<S> delegate) {
+        this.delegate = delegate;
+        mailboxes = new TopicMailboxes(executor, delegate);
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
+        mailboxes.deliver(topicPath, () -> delegate.onValue(topicPath, topicSpecification, oldValue, newValue), false);
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        mailboxes.deliver(topicPath, () -> delegate.onSubscription(topicPath, topicSpecification), false);
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        // The mailbox is removed only if this is the last notification pending for it
+        mailboxes.deliver(topicPath, () -> delegate.onUnsubscription(topicPath, topicSpecification, reason), true);
+    }
+
+    @Override
+    public void onClose() {
+        mailboxes.discardAll();
+        mailboxes.deliverToStream(delegate::onClose);
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        mailboxes.discardAll();
+        mailboxes.deliverToStream(() -> delegate.onError(errorReason));
+    }
+
+    /**
+     * @return the number of topics with a mailbox
+     */
+    /*package*/ int mailboxCount() {
+        return mailboxes.size();
+    }
+}
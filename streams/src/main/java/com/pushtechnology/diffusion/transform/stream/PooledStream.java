@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ValueStream} bound to a session of a {@link SessionPool}. The stream is added and its selector subscribed
+ * to on the session it is bound to. When the session is closed the stream is bound to another session of the pool,
+ * so the close and error notifications of the lost session are not delivered. They are only delivered once the
+ * stream has been closed by its handle.
+ * <p>
+ * Streams registered with the same selector are bound to the same session. The subscriptions to each selector are
+ * counted for each session, so the selector is only unsubscribed from when the last stream using it is removed.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+/*package*/ final class PooledStream<S> implements ValueStream<S> {
+    private static final Logger LOG = LoggerFactory.getLogger(PooledStream.class);
+    // Guarded by itself
+    private static final Map<Topics, Map<String, Integer>> SUBSCRIPTIONS = new WeakHashMap<>();
+    private final Class<S> valueType;
+    private final String topicSelector;
+    private final ValueStream<S> delegate;
+    private volatile boolean closing;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ PooledStream(Class<S> valueType, String topicSelector, ValueStream<S> delegate) {
+        this.valueType = valueType;
+        this.topicSelector = topicSelector;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Add the stream and subscribe to its selector on a session.
+     *
+     * @return the task that removes the stream and unsubscribes from the selector if no other stream uses it
+     */
+    /*package*/ Runnable bindTo(Session session) {
+        final Topics topicsFeature = session.feature(Topics.class);
+        topicsFeature.addStream(topicSelector, valueType, this);
+        synchronized (SUBSCRIPTIONS) {
+            final int count = SUBSCRIPTIONS
+                .computeIfAbsent(topicsFeature, feature -> new HashMap<>())
+                .merge(topicSelector, 1, Integer::sum);
+            if (count == 1) {
+                topicsFeature.subscribe(topicSelector).whenComplete((result, e) -> {
+                    if (e != null) {
+                        LOG.warn("Failed to subscribe to '{}' on session {}", topicSelector, session, e);
+                    }
+                });
+            }
+        }
+        return () -> {
+            topicsFeature.removeStream(this);
+            release(topicsFeature);
+        };
+    }
+
+    /**
+     * Release the subscription to the selector, unsubscribing from it if no other stream uses it.
+     */
+    private void release(Topics topicsFeature) {
+        synchronized (SUBSCRIPTIONS) {
+            final Map<String, Integer> counts = SUBSCRIPTIONS.get(topicsFeature);
+            final Integer count = counts == null ? null : counts.get(topicSelector);
+            if (count == null) {
+                return;
+            }
+            else if (count > 1) {
+                counts.put(topicSelector, count - 1);
+            }
+            else {
+                counts.remove(topicSelector);
+                if (counts.isEmpty()) {
+                    SUBSCRIPTIONS.remove(topicsFeature);
+                }
+                topicsFeature.unsubscribe(topicSelector);
+            }
+        }
+    }
+
+    /**
+     * Close the stream.
+     *
+     * @param binding the binding of the stream to the pool
+     */
+    /*package*/ void close(SessionPool.Binding binding) {
+        closing = true;
+        final boolean bound = binding.getSession() != null;
+        binding.close();
+        if (!bound) {
+            // Not removed from a session so the stream is not notified by a session
+            delegate.onClose();
+        }
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
+        delegate.onValue(topicPath, topicSpecification, oldValue, newValue);
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        delegate.onSubscription(topicPath, topicSpecification);
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        delegate.onUnsubscription(topicPath, topicSpecification, reason);
+    }
+
+    @Override
+    public void onClose() {
+        if (closing) {
+            delegate.onClose();
+        }
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        if (closing) {
+            delegate.onError(errorReason);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+/**
+ * Exception thrown while consuming the results of a {@link TransformedRangeQuery}.
+ *
+ * @author Push Technology Limited
+ */
+public final class RangeQueryException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     *
+     * @param message description of the failure
+     * @param cause the cause of the failure
+     */
+    public RangeQueryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
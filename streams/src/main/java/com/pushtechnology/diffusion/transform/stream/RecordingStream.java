@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.io.IOException;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.datatype.Bytes;
+import com.pushtechnology.diffusion.datatype.DataType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ValueStream} that appends the values it receives to a {@link StreamJournal} before delivering them. Values
+ * that are already {@link Bytes} are recorded without being encoded again. A failure to record a value is logged and
+ * the value is still delivered.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+/*package*/ final class RecordingStream<S> implements ValueStream<S> {
+    private static final Logger LOG = LoggerFactory.getLogger(RecordingStream.class);
+    private final StreamJournal journal;
+    private final DataType<S> dataType;
+    private final ValueStream<S> delegate;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ RecordingStream(StreamJournal journal, DataType<S> dataType, ValueStream<S> delegate) {
+        this.journal = journal;
+        this.dataType = dataType;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
+        final Bytes bytes = newValue instanceof Bytes ? (Bytes) newValue : dataType.toBytes(newValue);
+        try {
+            journal.append(topicPath, topicSpecification, System.currentTimeMillis(), bytes);
+        }
+        catch (IOException e) {
+            LOG.warn("Failed to record value of topic '{}' to {}", topicPath, journal, e);
+        }
+        delegate.onValue(topicPath, topicSpecification, oldValue, newValue);
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        delegate.onSubscription(topicPath, topicSpecification);
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        delegate.onUnsubscription(topicPath, topicSpecification, reason);
+    }
+
+    @Override
+    public void onClose() {
+        delegate.onClose();
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        delegate.onError(errorReason);
+    }
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Collections.newSetFromMap;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.path.TopicPathTrie;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ValueStream} that routes the notifications for each topic to the streams whose patterns match its path.
+ * The matching streams are cached for each topic until it is unsubscribed from. A stream routed by more than one
+ * pattern is notified once.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+/*package*/ final class RoutingStream<S> implements ValueStream<S> {
+    private static final Logger LOG = LoggerFactory.getLogger(RoutingStream.class);
+    private final Map<String, List<ValueStream<S>>> routeCache = new ConcurrentHashMap<>();
+    private final TopicPathTrie<ValueStream<S>> routes;
+    private final List<ValueStream<S>> allStreams;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ RoutingStream(TopicPathTrie<ValueStream<S>> routes) {
+        this.routes = routes;
+        allStreams = distinct(routes.values());
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
+        deliver(
+            topicPath,
+            routesFor(topicPath),
+            stream -> stream.onValue(topicPath, topicSpecification, oldValue, newValue));
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        deliver(topicPath, routesFor(topicPath), stream -> stream.onSubscription(topicPath, topicSpecification));
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        final List<ValueStream<S>> streams = routeCache.remove(topicPath);
+        deliver(
+            topicPath,
+            streams == null ? distinct(routes.match(topicPath)) : streams,
+            stream -> stream.onUnsubscription(topicPath, topicSpecification, reason));
+    }
+
+    @Override
+    public void onClose() {
+        routeCache.clear();
+        deliver(null, allStreams, ValueStream::onClose);
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        routeCache.clear();
+        deliver(null, allStreams, stream -> stream.onError(errorReason));
+    }
+
+    private List<ValueStream<S>> routesFor(String topicPath) {
+        return routeCache.computeIfAbsent(topicPath, path -> distinct(routes.match(path)));
+    }
+
+    private static <S> List<ValueStream<S>> distinct(List<ValueStream<S>> streams) {
+        if (streams.size() < 2) {
+            return streams;
+        }
+
+        final Set<ValueStream<S>> seen = newSetFromMap(new IdentityHashMap<>());
+        final List<ValueStream<S>> result = new ArrayList<>(streams.size());
+        for (final ValueStream<S> stream : streams) {
+            if (seen.add(stream)) {
+                result.add(stream);
+            }
+        }
+        return result;
+    }
+
+    private void deliver(String topicPath, List<ValueStream<S>> streams, Consumer<ValueStream<S>> notification) {
+        for (final ValueStream<S> stream : streams) {
+            try {
+                notification.accept(stream);
+            }
+            // CHECKSTYLE.OFF: IllegalCatch
+            catch (RuntimeException e) {
+                LOG.warn("RuntimeException thrown by stream handler '{}' for topic '{}'", stream, topicPath, e);
+            }
+            // CHECKSTYLE.ON: IllegalCatch
+        }
+    }
+}
@@ -15,10 +15,14 @@
 
 package com.pushtechnology.diffusion.transform.stream;
 
+import java.util.concurrent.Executor;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 import com.pushtechnology.diffusion.client.features.TimeSeries.Event;
 import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
 
 /**
  * An immutable builder for streams.
@@ -48,4 +52,25 @@ public interface SafeStreamBuilder<S, T> extends
      * @return a new stream builder
      */
     <R> SafeStreamBuilder<S, R> transform(Function<T, R> newTransformer);
+
+    @Override
+    SafeStreamBuilder<S, T> perTopicDelivery(Executor executor);
+
+    @Override
+    SafeStreamBuilder<S, T> parallelInitialValues(Executor executor, SynchronisationListener listener);
+
+    @Override
+    SafeStreamBuilder<S, T> filter(Predicate<S> predicate);
+
+    @Override
+    SafeStreamBuilder<S, T> filterTopics(BiPredicate<String, TopicSpecification> predicate);
+
+    @Override
+    SafeStreamBuilder<S, T> distinctUntilChanged();
+
+    @Override
+    SafeStreamBuilder<S, T> record(StreamJournal journal);
+
+    @Override
+    SafeStreamBuilder<S, T> monitor(TopicRateMonitor monitor);
 }
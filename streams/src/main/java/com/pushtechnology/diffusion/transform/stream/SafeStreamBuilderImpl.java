@@ -17,15 +17,28 @@ package com.pushtechnology.diffusion.transform.stream;
 
 import static com.pushtechnology.diffusion.transform.transformer.Transformers.toTransformer;
 
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
 
+import com.pushtechnology.diffusion.client.features.TimeSeries;
 import com.pushtechnology.diffusion.client.features.TimeSeries.Event;
 import com.pushtechnology.diffusion.client.features.TimeSeries.EventMetadata;
+import com.pushtechnology.diffusion.client.features.Topics;
 import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
 import com.pushtechnology.diffusion.timeseries.event.EventImpl;
 import com.pushtechnology.diffusion.timeseries.event.EventMetadataImpl;
 import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
+import org.reactivestreams.Publisher;
+
 /**
  * A {@link SafeStreamBuilder} that does register a transformed stream.
  *
@@ -42,7 +55,17 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
      * Constructor.
      */
     /*package*/ SafeStreamBuilderImpl(Class<S> valueType, Function<S, T> transformer) {
-        super(valueType);
+        this(valueType, transformer, UnaryOperator.identity());
+    }
+
+    /**
+     * Constructor.
+     */
+    /*package*/ SafeStreamBuilderImpl(
+            Class<S> valueType,
+            Function<S, T> transformer,
+            UnaryOperator<ValueStream<S>> sourceStages) {
+        super(valueType, sourceStages);
         this.transformer = transformer;
     }
 
@@ -50,13 +73,116 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
     public <R> StreamBuilder<S, R, TransformedStream<S, R>, TransformedStream<Event<S>, Event<R>>>
         unsafeTransform(UnsafeTransformer<T, R> newTransformer) {
 
-        return new StreamBuilderImpl<>(valueType, toTransformer(transformer).chainUnsafe(newTransformer));
+        return new StreamBuilderImpl<>(valueType, toTransformer(transformer).chainUnsafe(newTransformer), sourceStages);
     }
 
 
     @Override
     public <R> SafeStreamBuilder<S, R> transform(Function<T, R> newTransformer) {
-        return new SafeStreamBuilderImpl<>(valueType, transformer.andThen(newTransformer));
+        return new SafeStreamBuilderImpl<>(valueType, transformer.andThen(newTransformer), sourceStages);
+    }
+
+    @Override
+    public SafeStreamBuilder<S, T> perTopicDelivery(Executor executor) {
+        return new SafeStreamBuilderImpl<>(
+            valueType,
+            transformer,
+            withSourceStage(stream -> new PerTopicDeliveryStream<>(executor, stream)));
+    }
+
+    @Override
+    public SafeStreamBuilder<S, T> parallelInitialValues(Executor executor, SynchronisationListener listener) {
+        return new SafeStreamBuilderImpl<>(
+            valueType,
+            transformer,
+            withSourceStage(stream -> new InitialBurstStream<>(executor, listener, System::nanoTime, stream)));
+    }
+
+    @Override
+    public SafeStreamBuilder<S, T> filter(Predicate<S> predicate) {
+        return new SafeStreamBuilderImpl<>(
+            valueType,
+            transformer,
+            withSourceStage(stream -> new ValueFilterStream<>(
+                (oldValue, newValue) -> predicate.test(newValue),
+                stream)));
+    }
+
+    @Override
+    public SafeStreamBuilder<S, T> filterTopics(BiPredicate<String, TopicSpecification> predicate) {
+        return new SafeStreamBuilderImpl<>(
+            valueType,
+            transformer,
+            withSourceStage(stream -> new TopicFilterStream<>(predicate, stream)));
+    }
+
+    @Override
+    public SafeStreamBuilder<S, T> distinctUntilChanged() {
+        return new SafeStreamBuilderImpl<>(
+            valueType,
+            transformer,
+            withSourceStage(stream -> new ValueFilterStream<>(
+                (oldValue, newValue) -> !Objects.equals(oldValue, newValue),
+                stream)));
+    }
+
+    @Override
+    public SafeStreamBuilder<S, T> record(StreamJournal journal) {
+        return new SafeStreamBuilderImpl<>(valueType, transformer, withRecordingStage(journal));
+    }
+
+    @Override
+    public SafeStreamBuilder<S, T> monitor(TopicRateMonitor monitor) {
+        return new SafeStreamBuilderImpl<>(valueType, transformer, withMonitoringStage(monitor));
+    }
+
+    @Override
+    public StreamHub<ValueStream<T>> share(Topics topicsFeature, String topicSelector) {
+        return new StreamHubImpl<>(
+            FanOutStream::new,
+            fanOut -> register(topicsFeature, topicSelector, fanOut));
+    }
+
+    @Override
+    public Publisher<TopicValue<T>> publisher(
+            Topics topicsFeature,
+            String topicSelector,
+            OverflowStrategy overflowStrategy) {
+
+        return new ValuePublisher<>(
+            sourceStream -> registerSource(topicsFeature, topicSelector, sourceStream),
+            toTransformer(transformer),
+            overflowStrategy);
+    }
+
+    @Override
+    public MaterializedViewBuilder<T> materialize() {
+        return new MaterializedViewBuilderImpl<>(this);
+    }
+
+    @Override
+    public StreamHandle register(Topics topicsFeature, String topicSelector, SharedMemoryWriter<? super T> writer) {
+        return register(topicsFeature, topicSelector, new SharedMemoryStream<S, T>(writer));
+    }
+
+    @Override
+    public BatchedStreamBuilder<T> batch(ScheduledExecutorService scheduler) {
+        return new BatchedStreamBuilderImpl<>(this, scheduler);
+    }
+
+    @Override
+    public WindowedAggregationBuilder<T> aggregate(
+            ToDoubleFunction<? super T> valueExtractor,
+            ScheduledExecutorService scheduler) {
+
+        return new WindowedAggregationBuilderImpl<>(this, valueExtractor, scheduler);
+    }
+
+    @Override
+    public TransformedRangeQuery<T> rangeQuery(Session session) {
+        return new TransformedRangeQueryImpl<>(
+            session.feature(TimeSeries.class).rangeQuery().as(valueType),
+            toTransformer(transformer));
     }
 
     @Override
@@ -64,6 +190,11 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         return new SafeStreamAdapter<>(transformer, targetStream);
     }
 
+    @Override
+    protected SwappableStreamAdapter<S, T> adaptSwappableStream(ValueStream<T> targetStream) {
+        return new SwappableStreamAdapter<>(toTransformer(transformer), new SafeTransformedStream<>(targetStream));
+    }
+
     @Override
     protected ValueStream<Event<S>> adaptTimeSeriesStream(ValueStream<Event<T>> targetStream) {
         final Function<Event<S>, Event<T>> eventTransformer = value -> {
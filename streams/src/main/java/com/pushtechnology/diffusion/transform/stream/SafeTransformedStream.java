@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TransformedStream} that delivers the notifications to a {@link ValueStream} and logs the values that could
+ * not be transformed. Allows the stream handler of a safe builder to be used where a transformation can fail.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class SafeTransformedStream<S, T> implements TransformedStream<S, T> {
+    private static final Logger LOG = LoggerFactory.getLogger(SafeTransformedStream.class);
+    private final ValueStream<T> delegate;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ SafeTransformedStream(ValueStream<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, T oldValue, T newValue) {
+        delegate.onValue(topicPath, topicSpecification, oldValue, newValue);
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        delegate.onSubscription(topicPath, topicSpecification);
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        delegate.onUnsubscription(topicPath, topicSpecification, reason);
+    }
+
+    @Override
+    public void onTransformationException(
+            String topicPath,
+            TopicSpecification specification,
+            S value,
+            TransformationException e) {
+
+        LOG.warn("{} transformation error, topic={}, value={}", delegate, topicPath, value, e);
+    }
+
+    @Override
+    public void onClose() {
+        delegate.onClose();
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        delegate.onError(errorReason);
+    }
+}
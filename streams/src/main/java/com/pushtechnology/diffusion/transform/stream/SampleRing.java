@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+/**
+ * A ring buffer of timestamped samples held in primitive arrays. The buffer grows when it is full. Not thread-safe.
+ *
+ * @author Push Technology Limited
+ */
+/*package*/ final class SampleRing {
+    private static final int INITIAL_CAPACITY = 16;
+    private long[] times = new long[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+
+    /**
+     * Add a sample. Samples are expected to be added in time order.
+     *
+     * @param time the time of the sample
+     * @param value the value of the sample
+     */
+    /*package*/ void add(long time, double value) {
+        if (size == times.length) {
+            grow();
+        }
+        final int tail = (head + size) & (times.length - 1);
+        times[tail] = time;
+        values[tail] = value;
+        size += 1;
+    }
+
+    /**
+     * Remove the samples at or before a time.
+     *
+     * @param time the time
+     */
+    /*package*/ void evictUntil(long time) {
+        while (size > 0 && times[head] <= time) {
+            head = (head + 1) & (times.length - 1);
+            size -= 1;
+        }
+    }
+
+    /**
+     * Add the samples to an accumulator.
+     *
+     * @param accumulator the accumulator
+     */
+    /*package*/ void accumulate(WindowAccumulator accumulator) {
+        final int mask = times.length - 1;
+        for (int i = 0; i < size; i++) {
+            accumulator.add(values[(head + i) & mask]);
+        }
+    }
+
+    /**
+     * Add the samples before a time to an accumulator and remove them.
+     *
+     * @param time the time
+     * @param accumulator the accumulator
+     */
+    /*package*/ void drainBefore(long time, WindowAccumulator accumulator) {
+        while (size > 0 && times[head] < time) {
+            accumulator.add(values[head]);
+            head = (head + 1) & (times.length - 1);
+            size -= 1;
+        }
+    }
+
+    /**
+     * @return the number of samples
+     */
+    /*package*/ int size() {
+        return size;
+    }
+
+    private void grow() {
+        final int capacity = times.length;
+        final long[] newTimes = new long[capacity * 2];
+        final double[] newValues = new double[capacity * 2];
+        final int firstPart = capacity - head;
+        System.arraycopy(times, head, newTimes, 0, firstPart);
+        System.arraycopy(times, 0, newTimes, firstPart, head);
+        System.arraycopy(values, head, newValues, 0, firstPart);
+        System.arraycopy(values, 0, newValues, firstPart, head);
+        times = newTimes;
+        values = newValues;
+        head = 0;
+    }
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * The layout of the memory-mapped ring buffer shared by a {@link SharedMemoryWriter} and its
+ * {@link SharedMemoryReader}s.
+ * <p>
+ * The file starts with a header of {@link #HEADER_LENGTH} bytes followed by the ring of {@code capacity} bytes. The
+ * header holds a magic number, the version of the format, the capacity of the ring, the claim position and the publish
+ * position. Positions are byte offsets into an unbounded stream, the offset into the ring is the position modulo the
+ * capacity.
+ * <p>
+ * Each record is aligned to {@link #ALIGNMENT} bytes and starts with the int length of the record, including the
+ * header, and the int type of the record. Values and removals continue with the int length of the UTF-8 topic path,
+ * the path and, for values, the encoded value. A padding record fills the end of the ring when the next record does
+ * not fit.
+ * <p>
+ * The writer advances the claim position before it writes a record and advances the publish position after. A reader
+ * reads records up to the publish position. A record has been overwritten if the claim position has moved more than
+ * the capacity beyond it.
+ * <p>
+ * The buffer accesses are plain reads and writes that the compiler and the processor may reorder. Java 8 has no
+ * public API for memory fences, so the writer and readers order them with the fences of {@code sun.misc.Unsafe}. The
+ * fences are looked up as constant method handles, which the compiler inlines. A fence on a volatile field of this
+ * class would not order the accesses to the mapped memory, which is shared with other processes that never touch the
+ * field.
+ *
+ * @author Push Technology Limited
+ */
+/*package*/ final class SharedMemoryFormat {
+    /**
+     * The magic number at the start of the file.
+     */
+    /*package*/ static final int MAGIC = 0x44544d52;
+    /**
+     * The version of the format.
+     */
+    /*package*/ static final int VERSION = 1;
+    /**
+     * The offset of the magic number.
+     */
+    /*package*/ static final int MAGIC_OFFSET = 0;
+    /**
+     * The offset of the version.
+     */
+    /*package*/ static final int VERSION_OFFSET = 4;
+    /**
+     * The offset of the capacity.
+     */
+    /*package*/ static final int CAPACITY_OFFSET = 8;
+    /**
+     * The offset of the claim position. Starts a new cache line.
+     */
+    /*package*/ static final int CLAIM_POSITION_OFFSET = 64;
+    /**
+     * The offset of the publish position.
+     */
+    /*package*/ static final int PUBLISH_POSITION_OFFSET = 72;
+    /**
+     * The length of the header.
+     */
+    /*package*/ static final int HEADER_LENGTH = 128;
+    /**
+     * The length of the header of a record.
+     */
+    /*package*/ static final int RECORD_HEADER_LENGTH = 12;
+    /**
+     * The alignment of records.
+     */
+    /*package*/ static final int ALIGNMENT = 8;
+    /**
+     * The minimum capacity of the ring.
+     */
+    /*package*/ static final int MIN_CAPACITY = 4096;
+    /**
+     * Record type of a padding record.
+     */
+    /*package*/ static final int PADDING = 0;
+    /**
+     * Record type of a topic value.
+     */
+    /*package*/ static final int VALUE = 1;
+    /**
+     * Record type of the removal of a topic.
+     */
+    /*package*/ static final int REMOVAL = 2;
+
+    private static final MethodHandle STORE_FENCE = fence("storeFence");
+    private static final MethodHandle LOAD_FENCE = fence("loadFence");
+
+    private SharedMemoryFormat() {
+    }
+
+    /**
+     * @param capacity the capacity of the ring
+     * @return the maximum length of a record, a quarter of the capacity
+     */
+    /*package*/ static int maxRecordLength(int capacity) {
+        return capacity / 4;
+    }
+
+    /**
+     * @param length the length of a record
+     * @return the length rounded up to the alignment
+     */
+    /*package*/ static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * Order the buffer reads and writes before the fence before the buffer writes after it.
+     */
+    /*package*/ static void storeFence() {
+        try {
+            STORE_FENCE.invokeExact();
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (Throwable t) {
+            throw new IllegalStateException("Store fence failed", t);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+
+    /**
+     * Order the buffer reads before the fence before the buffer reads and writes after it.
+     */
+    /*package*/ static void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (Throwable t) {
+            throw new IllegalStateException("Load fence failed", t);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+
+    private static MethodHandle fence(String name) {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                .findVirtual(unsafeClass, name, MethodType.methodType(void.class))
+                .bindTo(field.get(null));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
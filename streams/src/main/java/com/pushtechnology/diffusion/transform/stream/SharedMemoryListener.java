@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+/**
+ * Listener for the records read from shared memory by a {@link SharedMemoryReader}.
+ *
+ * @param <T> the type of the values
+ * @author Push Technology Limited
+ */
+public interface SharedMemoryListener<T> {
+
+    /**
+     * Notified of the value of a topic.
+     *
+     * @param topicPath the topic path
+     * @param value the value
+     */
+    void onValue(String topicPath, T value);
+
+    /**
+     * Notified when the writer stops receiving values for a topic.
+     *
+     * @param topicPath the topic path
+     */
+    void onRemoval(String topicPath);
+
+    /**
+     * Notified when the reader fell so far behind the writer that records were overwritten before they were read.
+     * The reader continues from the latest record written. The values of topics that were updated while the reader
+     * was behind may not be delivered again until they next change.
+     *
+     * @param lostBytes the length of the records that were skipped
+     */
+    void onOverrun(long lostBytes);
+}
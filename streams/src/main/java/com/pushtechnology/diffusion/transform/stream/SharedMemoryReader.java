@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.CAPACITY_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.CLAIM_POSITION_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.HEADER_LENGTH;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.MAGIC;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.MAGIC_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.PADDING;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.PUBLISH_POSITION_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.RECORD_HEADER_LENGTH;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.REMOVAL;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.VALUE;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.VERSION;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.VERSION_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.align;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.loadFence;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.maxRecordLength;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Reads the topic values written to shared memory by a {@link SharedMemoryWriter} in another process. Created by
+ * {@link #open(Path, ValueCodec)}.
+ * <p>
+ * The reader starts at the latest record written and is advanced by {@link #poll(SharedMemoryListener, int)}. Reading
+ * never blocks the writer or other readers. If the writer overwrites records before they are read the listener is
+ * notified of the overrun and the reader skips to the latest record. A reader is not thread-safe, each thread should
+ * open its own reader.
+ *
+ * @param <T> the type of the values
+ * @author Push Technology Limited
+ */
+public final class SharedMemoryReader<T> implements AutoCloseable {
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer view;
+    private final ValueCodec<T> codec;
+    private final int capacity;
+    private final int maxRecordLength;
+    private final byte[] pathBytes;
+    private final byte[] valueBytes;
+    private long position;
+    private boolean closed;
+
+    private SharedMemoryReader(MappedByteBuffer buffer, ValueCodec<T> codec, int capacity) {
+        this.buffer = buffer;
+        view = buffer.duplicate();
+        this.codec = codec;
+        this.capacity = capacity;
+        maxRecordLength = maxRecordLength(capacity);
+        pathBytes = new byte[maxRecordLength];
+        valueBytes = new byte[maxRecordLength];
+        position = buffer.getLong(PUBLISH_POSITION_OFFSET);
+    }
+
+    /**
+     * Open a reader.
+     *
+     * @param file the file written by a {@link SharedMemoryWriter}
+     * @param codec the codec used to decode the values
+     * @param <T> the type of the values
+     * @return the reader
+     * @throws IOException if the file could not be mapped or was not written by a {@link SharedMemoryWriter}
+     */
+    public static <T> SharedMemoryReader<T> open(Path file, ValueCodec<T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            if (channel.size() < HEADER_LENGTH) {
+                throw new IOException(file + " is not a ring buffer");
+            }
+
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0L, HEADER_LENGTH);
+            final int capacity = header.getInt(CAPACITY_OFFSET);
+            if (header.getInt(MAGIC_OFFSET) != MAGIC
+                || header.getInt(VERSION_OFFSET) != VERSION
+                || channel.size() != HEADER_LENGTH + (long) capacity) {
+                throw new IOException(file + " is not a ring buffer");
+            }
+
+            return new SharedMemoryReader<>(
+                channel.map(FileChannel.MapMode.READ_ONLY, 0L, HEADER_LENGTH + capacity),
+                codec,
+                capacity);
+        }
+    }
+
+    /**
+     * Read the records written since the last poll.
+     *
+     * @param listener the listener to notify of the records
+     * @param limit the maximum number of values and removals to read
+     * @return the number of values and removals read
+     * @throws IllegalStateException if the reader is closed
+     */
+    public int poll(SharedMemoryListener<? super T> listener, int limit) {
+        if (closed) {
+            throw new IllegalStateException("The reader is closed");
+        }
+
+        final long published = buffer.getLong(PUBLISH_POSITION_OFFSET);
+        loadFence();
+
+        int count = 0;
+        while (count < limit && position - published < 0L) {
+            if (isOverwritten()) {
+                overrun(listener);
+                return count;
+            }
+
+            final int offset = HEADER_LENGTH + (int) (position & (capacity - 1));
+            final int length = buffer.getInt(offset);
+            final int type = buffer.getInt(offset + 4);
+            int pathLength = 0;
+            int valueLength = 0;
+            if (type != PADDING) {
+                pathLength = buffer.getInt(offset + 8);
+                valueLength = length - RECORD_HEADER_LENGTH - pathLength;
+                if (length > maxRecordLength || pathLength < 0 || valueLength < 0) {
+                    // Overwritten while reading the header
+                    overrun(listener);
+                    return count;
+                }
+                readBytes(offset + RECORD_HEADER_LENGTH, pathBytes, pathLength);
+                readBytes(offset + RECORD_HEADER_LENGTH + pathLength, valueBytes, valueLength);
+            }
+
+            loadFence();
+            if (isOverwritten() || length <= 0) {
+                overrun(listener);
+                return count;
+            }
+            position += align(length);
+
+            if (type == VALUE) {
+                listener.onValue(new String(pathBytes, 0, pathLength, UTF_8), codec.decode(valueBytes, 0, valueLength));
+                count++;
+            }
+            else if (type == REMOVAL) {
+                listener.onRemoval(new String(pathBytes, 0, pathLength, UTF_8));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of bytes written that have not been read
+     */
+    public long getLag() {
+        return buffer.getLong(PUBLISH_POSITION_OFFSET) - position;
+    }
+
+    /**
+     * @return the position after the last record read
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public String toString() {
+        return "SharedMemoryReader [capacity=" + capacity + ", position=" + position + ", codec=" + codec + "]";
+    }
+
+    private boolean isOverwritten() {
+        return buffer.getLong(CLAIM_POSITION_OFFSET) - position > capacity;
+    }
+
+    private void overrun(SharedMemoryListener<? super T> listener) {
+        final long latest = buffer.getLong(PUBLISH_POSITION_OFFSET);
+        final long lostBytes = latest - position;
+        position = latest;
+        listener.onOverrun(lostBytes);
+    }
+
+    private void readBytes(int offset, byte[] bytes, int length) {
+        view.position(offset);
+        view.get(bytes, 0, length);
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.io.IOException;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TransformedStream} that writes the transformed values to a {@link SharedMemoryWriter}. The removal of a
+ * topic is written when the stream is unsubscribed from it. A failure to write is logged. The writer is not closed
+ * with the stream.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class SharedMemoryStream<S, T> implements TransformedStream<S, T> {
+    private static final Logger LOG = LoggerFactory.getLogger(SharedMemoryStream.class);
+    private final SharedMemoryWriter<? super T> writer;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ SharedMemoryStream(SharedMemoryWriter<? super T> writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, T oldValue, T newValue) {
+        try {
+            writer.write(topicPath, newValue);
+        }
+        catch (IOException e) {
+            LOG.warn("Failed to write value of topic '{}' to {}", topicPath, writer, e);
+        }
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        try {
+            writer.remove(topicPath);
+        }
+        catch (IOException e) {
+            LOG.warn("Failed to write removal of topic '{}' to {}", topicPath, writer, e);
+        }
+    }
+
+    @Override
+    public void onTransformationException(
+            String topicPath,
+            TopicSpecification specification,
+            S value,
+            TransformationException e) {
+
+        LOG.warn("{} transformation error, topic={}, value={}", this, topicPath, value, e);
+    }
+
+    @Override
+    public void onClose() {
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+    }
+}
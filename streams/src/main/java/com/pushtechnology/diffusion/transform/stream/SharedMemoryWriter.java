@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.CAPACITY_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.CLAIM_POSITION_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.HEADER_LENGTH;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.MAGIC;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.MAGIC_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.MIN_CAPACITY;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.PADDING;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.PUBLISH_POSITION_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.RECORD_HEADER_LENGTH;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.REMOVAL;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.VALUE;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.VERSION;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.VERSION_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.align;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.maxRecordLength;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.storeFence;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes topic values to a ring buffer in a memory-mapped file so that other processes on the same host can read them
+ * with a {@link SharedMemoryReader} without their own sessions. Created by {@link #open(Path, int, ValueCodec)} and
+ * registered with a stream builder with
+ * {@link StreamBuilder#register(com.pushtechnology.diffusion.client.features.Topics, String, SharedMemoryWriter)}.
+ * <p>
+ * There is a single writer for each file. Readers never block the writer, a reader that falls more than the capacity
+ * of the ring behind the writer is notified of an overrun and skips to the latest record. A record may use up to a
+ * quarter of the capacity. Opening a writer for a file written by an earlier writer with the same capacity continues
+ * after the records it wrote so connected readers are not disrupted.
+ * <p>
+ * Streams registered by different builders can share a writer.
+ *
+ * @param <T> the type of the values
+ * @author Push Technology Limited
+ */
+public final class SharedMemoryWriter<T> implements AutoCloseable {
+    private final MappedByteBuffer buffer;
+    private final ValueCodec<T> codec;
+    private final int capacity;
+    private final int maxRecordLength;
+    // Guarded by this
+    private final Map<String, byte[]> encodedPaths = new HashMap<>();
+    // Guarded by this
+    private long position;
+    // Guarded by this
+    private boolean closed;
+
+    private SharedMemoryWriter(MappedByteBuffer buffer, ValueCodec<T> codec, int capacity, long position) {
+        this.buffer = buffer;
+        this.codec = codec;
+        this.capacity = capacity;
+        this.position = position;
+        maxRecordLength = maxRecordLength(capacity);
+    }
+
+    /**
+     * Open a writer.
+     *
+     * @param file the file to map, it is created if it does not exist
+     * @param capacity the capacity of the ring in bytes, a power of two of at least 4096
+     * @param codec the codec used to encode the values
+     * @param <T> the type of the values
+     * @return the writer
+     * @throws IOException if the file could not be mapped or was written with a different capacity
+     */
+    public static <T> SharedMemoryWriter<T> open(Path file, int capacity, ValueCodec<T> codec) throws IOException {
+        if (capacity < MIN_CAPACITY || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(
+                "The capacity must be a power of two of at least " + MIN_CAPACITY + " bytes");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+            final boolean created = channel.size() == 0L;
+            if (!created && channel.size() != HEADER_LENGTH + capacity) {
+                throw new IOException(file + " is not a ring buffer with a capacity of " + capacity + " bytes");
+            }
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_LENGTH + capacity);
+            if (created) {
+                buffer.putInt(VERSION_OFFSET, VERSION);
+                buffer.putInt(CAPACITY_OFFSET, capacity);
+                buffer.putLong(CLAIM_POSITION_OFFSET, 0L);
+                buffer.putLong(PUBLISH_POSITION_OFFSET, 0L);
+                storeFence();
+                buffer.putInt(MAGIC_OFFSET, MAGIC);
+                return new SharedMemoryWriter<>(buffer, codec, capacity, 0L);
+            }
+
+            if (buffer.getInt(MAGIC_OFFSET) != MAGIC
+                || buffer.getInt(VERSION_OFFSET) != VERSION
+                || buffer.getInt(CAPACITY_OFFSET) != capacity) {
+                throw new IOException(file + " is not a ring buffer with a capacity of " + capacity + " bytes");
+            }
+
+            // A record claimed but not published by an earlier writer is abandoned
+            final long position = buffer.getLong(PUBLISH_POSITION_OFFSET);
+            buffer.putLong(CLAIM_POSITION_OFFSET, position);
+            return new SharedMemoryWriter<>(buffer, codec, capacity, position);
+        }
+    }
+
+    /**
+     * Write the value of a topic.
+     *
+     * @param topicPath the topic path
+     * @param value the value
+     * @throws ClosedChannelException if the writer is closed
+     * @throws IOException if the record is longer than a quarter of the capacity
+     */
+    public void write(String topicPath, T value) throws IOException {
+        final byte[] encodedValue = codec.encode(value);
+        synchronized (this) {
+            append(VALUE, encodedPath(topicPath), encodedValue);
+        }
+    }
+
+    /**
+     * Write the removal of a topic.
+     *
+     * @param topicPath the topic path
+     * @throws ClosedChannelException if the writer is closed
+     * @throws IOException if the record is longer than a quarter of the capacity
+     */
+    public synchronized void remove(String topicPath) throws IOException {
+        append(REMOVAL, encodedPath(topicPath), new byte[0]);
+        encodedPaths.remove(topicPath);
+    }
+
+    /**
+     * @return the position after the last record written
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            buffer.force();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SharedMemoryWriter [capacity=" + capacity + ", codec=" + codec + "]";
+    }
+
+    // Guarded by this
+    private byte[] encodedPath(String topicPath) {
+        return encodedPaths.computeIfAbsent(topicPath, path -> path.getBytes(UTF_8));
+    }
+
+    // Guarded by this
+    private void append(int type, byte[] path, byte[] value) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+
+        final int length = RECORD_HEADER_LENGTH + path.length + value.length;
+        if (length > maxRecordLength) {
+            throw new IOException(
+                "A record of " + length + " bytes is longer than the maximum of " + maxRecordLength + " bytes");
+        }
+
+        final int recordLength = align(length);
+        int index = (int) (position & (capacity - 1));
+        final int padding = capacity - index < recordLength ? capacity - index : 0;
+
+        // Readers of the records about to be overwritten will detect the overrun
+        buffer.putLong(CLAIM_POSITION_OFFSET, position + padding + recordLength);
+        storeFence();
+
+        if (padding > 0) {
+            buffer.putInt(HEADER_LENGTH + index, padding);
+            buffer.putInt(HEADER_LENGTH + index + 4, PADDING);
+            index = 0;
+        }
+
+        final int offset = HEADER_LENGTH + index;
+        buffer.putInt(offset, length);
+        buffer.putInt(offset + 4, type);
+        buffer.putInt(offset + 8, path.length);
+        buffer.position(offset + RECORD_HEADER_LENGTH);
+        buffer.put(path);
+        buffer.put(value);
+
+        position += padding + recordLength;
+        storeFence();
+        buffer.putLong(PUBLISH_POSITION_OFFSET, position);
+    }
+}
@@ -15,15 +15,25 @@
 
 package com.pushtechnology.diffusion.transform.stream;
 
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 import com.pushtechnology.diffusion.client.features.TimeSeries.Event;
 import com.pushtechnology.diffusion.client.features.Topics;
 import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
 import com.pushtechnology.diffusion.client.session.Session;
 import com.pushtechnology.diffusion.client.topics.TopicSelector;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
 import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
+import org.reactivestreams.Publisher;
+
 /**
  * An immutable builder for streams. The builder can be used to chain the {@link UnsafeTransformer}s that will be
  * applied to a stream. The builder can be used as a template to register multiple streams that apply the same
@@ -58,6 +68,114 @@ public interface StreamBuilder<S, T, V extends ValueStream<T>, U extends ValueSt
     <R> StreamBuilder<S, R, ? extends ValueStream<R>, ? extends ValueStream<Event<R>>>
         transform(Function<T, R> newTransformer);
 
+    /**
+     * Deliver the notifications for each topic using an executor.
+     * <p>
+     * The notifications for a topic are queued in a mailbox for that topic. The mailbox is drained by a single task
+     * run by the executor, so the notifications for a topic are delivered in order and never concurrently. The
+     * notifications for different topics may be delivered in parallel. This allows the stream to block without
+     * holding up the session. The values are transformed by the task so the transformation is also moved off the
+     * session thread.
+     * <p>
+     * This only applies to streams registered with {@code register} or {@code createFallback}.
+     *
+     * @param executor the executor to deliver the notifications with, see
+     * {@link DeliveryExecutors#virtualThreadPerTask()}
+     * @return a new stream builder
+     */
+    StreamBuilder<S, T, V, U> perTopicDelivery(Executor executor);
+
+    /**
+     * Deliver the subscription and initial value of each topic using an executor.
+     * <p>
+     * When a selector matches many topics the session delivers a burst of subscriptions and initial values. The
+     * notifications for a topic are queued in a mailbox for that topic until its initial value has been delivered. The
+     * mailbox is drained by a single task run by the executor, so the initial values of different topics are
+     * transformed in parallel while the notifications for a topic are delivered in order and never concurrently. Once
+     * the mailbox of a topic has been drained its notifications are delivered on the session thread again.
+     * <p>
+     * The stream may receive notifications for different topics concurrently. The listener is notified each time all
+     * the initial values received have been delivered.
+     * <p>
+     * This only applies to streams registered with {@code register} or {@code createFallback}.
+     *
+     * @param executor the executor to deliver the initial values with, for example
+     * {@link java.util.concurrent.ForkJoinPool#commonPool()}
+     * @param listener the listener to notify when the stream is synchronised
+     * @return a new stream builder
+     */
+    StreamBuilder<S, T, V, U> parallelInitialValues(Executor executor, SynchronisationListener listener);
+
+    /**
+     * Filter the source values before they are transformed.
+     * <p>
+     * Values rejected by the predicate are discarded without being transformed or delivered to the stream. The
+     * subscription and unsubscription notifications are always delivered. Discarded values do not update the old value
+     * provided with the next value delivered to the stream.
+     * <p>
+     * This only applies to streams registered with {@code register} or {@code createFallback}.
+     *
+     * @param predicate the predicate that accepts the source values to deliver
+     * @return a new stream builder
+     */
+    StreamBuilder<S, T, V, U> filter(Predicate<S> predicate);
+
+    /**
+     * Filter the topics that notifications are delivered for.
+     * <p>
+     * The predicate is evaluated against the path and specification of the topic for every notification. All the
+     * notifications for a rejected topic are discarded, including the subscription and unsubscription notifications.
+     * The predicate should return the same result each time it is evaluated for a topic.
+     * <p>
+     * This only applies to streams registered with {@code register} or {@code createFallback}.
+     *
+     * @param predicate the predicate that accepts the topics to deliver notifications for
+     * @return a new stream builder
+     */
+    StreamBuilder<S, T, V, U> filterTopics(BiPredicate<String, TopicSpecification> predicate);
+
+    /**
+     * Discard source values that are equal to the previous value of the topic before they are transformed.
+     * <p>
+     * The comparison is made between the old and new source values provided by the session so no additional state is
+     * kept by the stream. Values are compared using {@link Object#equals(Object)}. This avoids transforming and
+     * delivering a value that has not changed.
+     * <p>
+     * This only applies to streams registered with {@code register} or {@code createFallback}.
+     *
+     * @return a new stream builder
+     */
+    StreamBuilder<S, T, V, U> distinctUntilChanged();
+
+    /**
+     * Record the source values to a journal before they are transformed.
+     * <p>
+     * The topic path, specification, time received and bytes of each value are appended to the journal. The values
+     * can be replayed through a stream builder with {@link #replay(JournalReplay, ValueStream)} to test or benchmark
+     * transformations without a session.
+     * <p>
+     * This only applies to streams registered with {@code register} or {@code createFallback}.
+     *
+     * @param journal the journal to record the values to
+     * @return a new stream builder
+     */
+    StreamBuilder<S, T, V, U> record(StreamJournal journal);
+
+    /**
+     * Monitor the update rate and processing cost of each topic.
+     * <p>
+     * The updates of each topic and the time spent transforming and delivering them are recorded by the monitor. The
+     * monitor reports the topics with the most updates and can conflate the values of topics that go over a rate
+     * threshold, see {@link TopicRateMonitor.Builder#conflateHotTopics(java.time.Duration)}. A monitor can be shared by
+     * many streams.
+     * <p>
+     * This only applies to streams registered with {@code register} or {@code createFallback}.
+     *
+     * @param monitor the monitor to record the metrics to
+     * @return a new stream builder
+     */
+    StreamBuilder<S, T, V, U> monitor(TopicRateMonitor monitor);
+
     /**
      * Create the stream.
      *
@@ -98,6 +216,189 @@ public interface StreamBuilder<S, T, V extends ValueStream<T>, U extends ValueSt
      */
     StreamHandle register(Session session, TopicSelector topicSelector, V stream);
 
+    /**
+     * Replay the values recorded in a journal to a stream.
+     * <p>
+     * The values are delivered through the source stages and transformations of this builder by the calling thread.
+     * The method returns when the replay ends.
+     *
+     * @param replay the replay
+     * @param stream the stream to deliver the values to
+     * @return the number of values replayed
+     * @throws IOException if the journal could not be read
+     * @throws InterruptedException if the thread is interrupted while waiting to replay a value at the recorded speed
+     */
+    long replay(JournalReplay replay, V stream) throws IOException, InterruptedException;
+
+    /**
+     * Create a stream whose transformation can be replaced while it is registered.
+     * <p>
+     * The stream is added in the same way as {@link #register(Topics, String, ValueStream)}. The handle can swap the
+     * transformation without removing the stream, so the session does not subscribe again and the current values of
+     * the topics are not delivered again. The source stages added to this builder are not affected by a swap.
+     *
+     * @param topicsFeature the topics feature
+     * @param topicSelector the topic selector to match the stream
+     * @param stream the stream handler
+     * @return a handle to the stream that can swap its transformation
+     */
+    SwappableStreamHandle<S, T> registerSwappable(Topics topicsFeature, String topicSelector, V stream);
+
+    /**
+     * Create a stream whose transformation can be replaced while it is registered.
+     *
+     * @param session the session
+     * @param topicSelector the topic selector to match the stream
+     * @param stream the stream handler
+     * @return a handle to the stream that can swap its transformation
+     * @see #registerSwappable(Topics, String, ValueStream)
+     */
+    SwappableStreamHandle<S, T> registerSwappable(Session session, String topicSelector, V stream);
+
+    /**
+     * Create the stream on a session of a pool.
+     * <p>
+     * The topic selector is assigned to a session of the pool. The stream is added to the session and the session
+     * subscribes to the selector. If the session is closed the stream is moved to the session the selector is then
+     * assigned to and is notified of the subscriptions made by that session. Closing the handle unsubscribes from the
+     * selector and removes the stream.
+     * <p>
+     * Unlike {@link #register(Session, String, ValueStream)}, which only adds the stream and leaves subscribing to the
+     * caller, the pool subscribes to the selector. The pool chooses the session and must subscribe again on the session
+     * the stream is moved to, so the caller cannot subscribe for it.
+     *
+     * @param sessionPool the session pool
+     * @param topicSelector the topic selector to match the stream
+     * @param stream the stream
+     * @return a handle to the stream
+     */
+    StreamHandle register(SessionPool sessionPool, String topicSelector, V stream);
+
+    /**
+     * Create a stream that writes the transformed values to shared memory.
+     * <p>
+     * The value of each topic is written to the ring buffer of the writer when it is received and the removal of a
+     * topic is written when the stream is unsubscribed from it. Other processes on the same host can read the values
+     * with a {@link SharedMemoryReader}. Closing the handle removes the stream but does not close the writer.
+     *
+     * @param topicsFeature the topics feature
+     * @param topicSelector the topic selector to match the stream
+     * @param writer the shared memory writer
+     * @return a handle to the stream
+     */
+    StreamHandle register(Topics topicsFeature, String topicSelector, SharedMemoryWriter<? super T> writer);
+
+    /**
+     * Create a stream that writes the transformed values to shared memory.
+     *
+     * @param session the session
+     * @param topicSelector the topic selector to match the stream
+     * @param writer the shared memory writer
+     * @return a handle to the stream
+     * @see #register(Topics, String, SharedMemoryWriter)
+     */
+    StreamHandle register(Session session, String topicSelector, SharedMemoryWriter<? super T> writer);
+
+    /**
+     * Create a builder for a view of the latest transformed value of each topic.
+     * <p>
+     * The source stages added to this builder are applied to the view.
+     *
+     * @return a new view builder
+     */
+    MaterializedViewBuilder<T> materialize();
+
+    /**
+     * Create a builder for a stream that delivers the transformed values in batches.
+     * <p>
+     * The source stages added to this builder are applied to the stream.
+     *
+     * @param scheduler the executor used to deliver batches that have not reached their maximum size
+     * @return a new batched stream builder
+     */
+    BatchedStreamBuilder<T> batch(ScheduledExecutorService scheduler);
+
+    /**
+     * Create a builder for a stream that aggregates numeric values over windows of time.
+     * <p>
+     * The source stages added to this builder are applied to the stream.
+     *
+     * @param valueExtractor the function that extracts the numeric value to aggregate from each transformed value
+     * @param scheduler the executor used to emit the aggregates
+     * @return a new aggregation builder
+     */
+    WindowedAggregationBuilder<T> aggregate(
+        ToDoubleFunction<? super T> valueExtractor,
+        ScheduledExecutorService scheduler);
+
+    /**
+     * Create a route to a stream for a {@link TopicRouterBuilder}.
+     * <p>
+     * The values for the topics matching the pattern are transformed and delivered to the stream. The source stages
+     * added to this builder are applied to the route.
+     *
+     * @param pathPattern the topic path pattern, see {@link com.pushtechnology.diffusion.transform.path.TopicPathTrie}
+     * @param stream the stream handler
+     * @return the route
+     */
+    TopicRoute<S> route(String pathPattern, V stream);
+
+    /**
+     * Create a hub that shares a single stream between many stream handlers.
+     * <p>
+     * Each value is transformed once and delivered to every stream registered with the hub. The stream is added to
+     * the session when the first stream handler is registered with the hub and removed when all the handles have
+     * been closed. Each call creates a new hub with its own stream, the caller keeps the hub and registers every
+     * stream handler that shares the values with it.
+     *
+     * @param topicsFeature the topics feature
+     * @param topicSelector the topic selector to match the stream
+     * @return the hub
+     */
+    StreamHub<V> share(Topics topicsFeature, String topicSelector);
+
+    /**
+     * Create a hub that shares a single stream between many stream handlers.
+     *
+     * @param session the session
+     * @param topicSelector the topic selector to match the stream
+     * @return the hub
+     * @see #share(Topics, String)
+     */
+    StreamHub<V> share(Session session, String topicSelector);
+
+    /**
+     * Create a publisher of the transformed values of topics.
+     * <p>
+     * Each subscriber is provided by a separate stream that is added to the session when it subscribes and removed
+     * when the subscription is cancelled. Values are only delivered when requested by the subscriber. Values
+     * received faster than they are requested are held untransformed according to the overflow strategy. Values that
+     * are discarded by the overflow strategy are not transformed.
+     * <p>
+     * The subscription fails if a value cannot be transformed. The subscription completes when the session is
+     * closed.
+     *
+     * @param topicsFeature the topics feature
+     * @param topicSelector the topic selector to match the stream
+     * @param overflowStrategy the strategy to use when values are received faster than they are requested
+     * @return the publisher
+     */
+    Publisher<TopicValue<T>> publisher(
+        Topics topicsFeature,
+        String topicSelector,
+        OverflowStrategy overflowStrategy);
+
+    /**
+     * Create a publisher of the transformed values of topics.
+     *
+     * @param session the session
+     * @param topicSelector the topic selector to match the stream
+     * @param overflowStrategy the strategy to use when values are received faster than they are requested
+     * @return the publisher
+     * @see #publisher(Topics, String, OverflowStrategy)
+     */
+    Publisher<TopicValue<T>> publisher(Session session, String topicSelector, OverflowStrategy overflowStrategy);
+
     /**
      * Create the fallback stream.
      *
@@ -125,4 +426,14 @@ public interface StreamBuilder<S, T, V extends ValueStream<T>, U extends ValueSt
      * @return a handle to the stream
      */
     StreamHandle createTimeSeries(Session session, String topicSelector, U stream);
+
+    /**
+     * Create a range query against time series topics that transforms the selected events.
+     * <p>
+     * The source stages added to the builder, such as filters, are not applied to the query.
+     *
+     * @param session the session
+     * @return a new query that selects all the events of a time series
+     */
+    TransformedRangeQuery<T> rangeQuery(Session session);
 }
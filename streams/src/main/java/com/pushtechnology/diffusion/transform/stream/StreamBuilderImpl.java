@@ -15,15 +15,28 @@
 
 package com.pushtechnology.diffusion.transform.stream;
 
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
 
+import com.pushtechnology.diffusion.client.features.TimeSeries;
 import com.pushtechnology.diffusion.client.features.TimeSeries.Event;
 import com.pushtechnology.diffusion.client.features.TimeSeries.EventMetadata;
+import com.pushtechnology.diffusion.client.features.Topics;
 import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
 import com.pushtechnology.diffusion.timeseries.event.EventImpl;
 import com.pushtechnology.diffusion.timeseries.event.EventMetadataImpl;
 import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
+import org.reactivestreams.Publisher;
+
 /**
  * A {@link StreamBuilder} that creates a transformed stream.
  *
@@ -39,7 +52,17 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
      * Constructor.
      */
     /*package*/ StreamBuilderImpl(Class<S> valueType, UnsafeTransformer<S, T> transformer) {
-        super(valueType);
+        this(valueType, transformer, UnaryOperator.identity());
+    }
+
+    /**
+     * Constructor.
+     */
+    /*package*/ StreamBuilderImpl(
+            Class<S> valueType,
+            UnsafeTransformer<S, T> transformer,
+            UnaryOperator<ValueStream<S>> sourceStages) {
+        super(valueType, sourceStages);
         this.transformer = transformer;
     }
 
@@ -47,14 +70,131 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
     public <R> StreamBuilder<S, R, TransformedStream<S, R>, TransformedStream<Event<S>, Event<R>>>
         unsafeTransform(UnsafeTransformer<T, R> newTransformer) {
 
-        return new StreamBuilderImpl<>(valueType, transformer.chainUnsafe(newTransformer));
+        return new StreamBuilderImpl<>(valueType, transformer.chainUnsafe(newTransformer), sourceStages);
     }
 
     @Override
     public <R> StreamBuilder<S, R, TransformedStream<S, R>, TransformedStream<Event<S>, Event<R>>>
         transform(Function<T, R> newTransformer) {
 
-        return new StreamBuilderImpl<>(valueType, transformer.chain(newTransformer));
+        return new StreamBuilderImpl<>(valueType, transformer.chain(newTransformer), sourceStages);
+    }
+
+    @Override
+    public StreamBuilder<S, T, TransformedStream<S, T>, TransformedStream<Event<S>, Event<T>>>
+        perTopicDelivery(Executor executor) {
+
+        return new StreamBuilderImpl<>(
+            valueType,
+            transformer,
+            withSourceStage(stream -> new PerTopicDeliveryStream<>(executor, stream)));
+    }
+
+    @Override
+    public StreamBuilder<S, T, TransformedStream<S, T>, TransformedStream<Event<S>, Event<T>>>
+        parallelInitialValues(Executor executor, SynchronisationListener listener) {
+
+        return new StreamBuilderImpl<>(
+            valueType,
+            transformer,
+            withSourceStage(stream -> new InitialBurstStream<>(executor, listener, System::nanoTime, stream)));
+    }
+
+    @Override
+    public StreamBuilder<S, T, TransformedStream<S, T>, TransformedStream<Event<S>, Event<T>>>
+        filter(Predicate<S> predicate) {
+
+        return new StreamBuilderImpl<>(
+            valueType,
+            transformer,
+            withSourceStage(stream -> new ValueFilterStream<>(
+                (oldValue, newValue) -> predicate.test(newValue),
+                stream)));
+    }
+
+    @Override
+    public StreamBuilder<S, T, TransformedStream<S, T>, TransformedStream<Event<S>, Event<T>>>
+        filterTopics(BiPredicate<String, TopicSpecification> predicate) {
+
+        return new StreamBuilderImpl<>(
+            valueType,
+            transformer,
+            withSourceStage(stream -> new TopicFilterStream<>(predicate, stream)));
+    }
+
+    @Override
+    public StreamBuilder<S, T, TransformedStream<S, T>, TransformedStream<Event<S>, Event<T>>>
+        distinctUntilChanged() {
+
+        return new StreamBuilderImpl<>(
+            valueType,
+            transformer,
+            withSourceStage(stream -> new ValueFilterStream<>(
+                (oldValue, newValue) -> !Objects.equals(oldValue, newValue),
+                stream)));
+    }
+
+    @Override
+    public StreamBuilder<S, T, TransformedStream<S, T>, TransformedStream<Event<S>, Event<T>>>
+        record(StreamJournal journal) {
+
+        return new StreamBuilderImpl<>(valueType, transformer, withRecordingStage(journal));
+    }
+
+    @Override
+    public StreamBuilder<S, T, TransformedStream<S, T>, TransformedStream<Event<S>, Event<T>>>
+        monitor(TopicRateMonitor monitor) {
+
+        return new StreamBuilderImpl<>(valueType, transformer, withMonitoringStage(monitor));
+    }
+
+    @Override
+    public StreamHub<TransformedStream<S, T>> share(Topics topicsFeature, String topicSelector) {
+        return new StreamHubImpl<>(
+            TransformedFanOutStream::new,
+            fanOut -> register(topicsFeature, topicSelector, fanOut));
+    }
+
+    @Override
+    public Publisher<TopicValue<T>> publisher(
+            Topics topicsFeature,
+            String topicSelector,
+            OverflowStrategy overflowStrategy) {
+
+        return new ValuePublisher<>(
+            sourceStream -> registerSource(topicsFeature, topicSelector, sourceStream),
+            transformer,
+            overflowStrategy);
+    }
+
+    @Override
+    public MaterializedViewBuilder<T> materialize() {
+        return new MaterializedViewBuilderImpl<>(this);
+    }
+
+    @Override
+    public StreamHandle register(Topics topicsFeature, String topicSelector, SharedMemoryWriter<? super T> writer) {
+        return register(topicsFeature, topicSelector, new SharedMemoryStream<S, T>(writer));
+    }
+
+    @Override
+    public BatchedStreamBuilder<T> batch(ScheduledExecutorService scheduler) {
+        return new BatchedStreamBuilderImpl<>(this, scheduler);
+    }
+
+    @Override
+    public WindowedAggregationBuilder<T> aggregate(
+            ToDoubleFunction<? super T> valueExtractor,
+            ScheduledExecutorService scheduler) {
+
+        return new WindowedAggregationBuilderImpl<>(this, valueExtractor, scheduler);
+    }
+
+    @Override
+    public TransformedRangeQuery<T> rangeQuery(Session session) {
+        return new TransformedRangeQueryImpl<>(
+            session.feature(TimeSeries.class).rangeQuery().as(valueType),
+            transformer);
     }
 
     @Override
@@ -62,6 +202,11 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         return new StreamAdapter<>(transformer, targetStream);
     }
 
+    @Override
+    protected SwappableStreamAdapter<S, T> adaptSwappableStream(TransformedStream<S, T> targetStream) {
+        return new SwappableStreamAdapter<>(transformer, targetStream);
+    }
+
     @Override
     protected ValueStream<Event<S>> adaptTimeSeriesStream(TransformedStream<Event<S>, Event<T>> targetStream) {
         final UnsafeTransformer<Event<S>, Event<T>> eventTransformer = value -> {
@@ -94,4 +94,15 @@ public final class StreamBuilders {
     public static SafeStreamBuilder<RecordV2, RecordV2> newRecordV2StreamBuilder() {
         return newStreamBuilder(RecordV2.class);
     }
+
+    /**
+     * Create a {@link TopicRouterBuilder} for a source.
+     *
+     * @param valueType the type value of the source values
+     * @param <V> the type of the source values
+     * @return The router builder
+     */
+    public static <V> TopicRouterBuilder<V> newTopicRouterBuilder(Class<V> valueType) {
+        return new TopicRouterBuilderImpl<>(valueType);
+    }
 }
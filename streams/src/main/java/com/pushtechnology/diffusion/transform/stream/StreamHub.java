@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+
+/**
+ * A hub that shares a single transformed stream between many streams.
+ * <p>
+ * The values received by the hub are transformed once and delivered to every stream registered with it. The hub adds
+ * its stream to the session when the first stream is registered and removes it when the handles of all the registered
+ * streams have been closed. Streams registered while the hub is active are notified of the topics the hub is already
+ * subscribed to and their current values.
+ *
+ * @param <V> the type of the value streams that can be registered
+ * @author Push Technology Limited
+ */
+public interface StreamHub<V extends ValueStream<?>> {
+    /**
+     * Register a stream with the hub.
+     *
+     * @param stream the stream handler
+     * @return a handle to the stream
+     */
+    StreamHandle register(V stream);
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+
+/**
+ * Implementation of {@link StreamHub}. The registered streams are reference counted. A new {@link FanOutStream} is
+ * added to the session when the first stream is registered and removed when the last handle is closed.
+ * <p>
+ * Streams are added to and removed from the fan out stream without holding the lock of the hub, so a stream can
+ * register other streams or close handles from its notifications.
+ *
+ * @param <T> the type of the transformed values
+ * @param <V> the type of the value streams that can be registered
+ * @param <F> the type of the fan out stream
+ * @author Push Technology Limited
+ */
+/*package*/ final class StreamHubImpl<T, V extends ValueStream<T>, F extends FanOutStream<T, V>>
+        implements StreamHub<V> {
+    private final Supplier<F> fanOutFactory;
+    private final Function<F, StreamHandle> registration;
+    // Guarded by this
+    private F fanOut;
+    // Guarded by this
+    private StreamHandle fanOutHandle;
+    // Guarded by this
+    private int references;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ StreamHubImpl(Supplier<F> fanOutFactory, Function<F, StreamHandle> registration) {
+        this.fanOutFactory = fanOutFactory;
+        this.registration = registration;
+    }
+
+    @Override
+    public StreamHandle register(V stream) {
+        final F currentFanOut;
+        synchronized (this) {
+            if (references == 0) {
+                final F newFanOut = fanOutFactory.get();
+                fanOutHandle = registration.apply(newFanOut);
+                fanOut = newFanOut;
+            }
+            references += 1;
+            currentFanOut = fanOut;
+        }
+
+        currentFanOut.add(stream);
+        return new HubHandle(currentFanOut, stream);
+    }
+
+    private void release(F streamFanOut, V stream) {
+        streamFanOut.remove(stream);
+
+        final StreamHandle closedHandle;
+        synchronized (this) {
+            references -= 1;
+            if (references > 0) {
+                return;
+            }
+            // A new fan out stream is used for the next registration so late notifications for this one are dropped
+            closedHandle = fanOutHandle;
+            fanOutHandle = null;
+            fanOut = null;
+        }
+        closedHandle.close();
+    }
+
+    /**
+     * Handle to a stream registered with the hub.
+     */
+    private final class HubHandle implements StreamHandle {
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private final F streamFanOut;
+        private final V stream;
+
+        private HubHandle(F streamFanOut, V stream) {
+            this.streamFanOut = streamFanOut;
+            this.stream = stream;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(streamFanOut, stream);
+            }
+        }
+    }
+}
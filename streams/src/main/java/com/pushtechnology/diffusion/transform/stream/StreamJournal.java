@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.datatype.Bytes;
+
+/**
+ * A journal that records the source values received by streams. Created by {@link #open(Path, int)} and added to a
+ * stream builder with {@link StreamBuilder#record(StreamJournal)}. The values can be replayed through any stream
+ * builder with a {@link JournalReplay}.
+ * <p>
+ * The journal is written to memory-mapped segment files in a directory. A new segment is started when a record does
+ * not fit in the current segment. The segments are written to the page cache and flushed to disk when a segment is
+ * completed or the journal is closed. Opening a journal in a directory that already contains segments continues the
+ * journal after them.
+ * <p>
+ * Streams registered by different builders can share a journal.
+ *
+ * @author Push Technology Limited
+ */
+public final class StreamJournal implements AutoCloseable {
+    private static final int MIN_SEGMENT_SIZE = 4096;
+    private final Map<TopicSpecification, byte[]> encodedSpecifications = new ConcurrentHashMap<>();
+    private final SegmentOutputStream segmentOutput = new SegmentOutputStream();
+    private final Path directory;
+    private final int segmentSize;
+    // Guarded by this
+    private long nextSegmentIndex;
+    // Guarded by this
+    private MappedByteBuffer segment;
+    // Guarded by this
+    private boolean closed;
+
+    private StreamJournal(Path directory, int segmentSize, long nextSegmentIndex) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.nextSegmentIndex = nextSegmentIndex;
+    }
+
+    /**
+     * Open a journal.
+     *
+     * @param directory the directory to write the segments to, it is created if it does not exist
+     * @param segmentSize the size of each segment in bytes
+     * @return the journal
+     * @throws IOException if the directory could not be created or read
+     */
+    public static StreamJournal open(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("The segment size must be at least " + MIN_SEGMENT_SIZE + " bytes");
+        }
+
+        Files.createDirectories(directory);
+        final List<Path> segments = JournalFormat.segments(directory);
+        final long nextSegmentIndex = segments.isEmpty() ?
+            0L :
+            JournalFormat.segmentIndex(segments.get(segments.size() - 1)) + 1L;
+        return new StreamJournal(directory, segmentSize, nextSegmentIndex);
+    }
+
+    /**
+     * Append a value to the journal.
+     *
+     * @throws IOException if the journal is closed, the record is too large for a segment or a new segment could not
+     * be created
+     */
+    /*package*/ synchronized void append(
+            String topicPath,
+            TopicSpecification specification,
+            long timestamp,
+            Bytes value) throws IOException {
+
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+
+        final byte[] path = topicPath.getBytes(UTF_8);
+        final byte[] encodedSpecification =
+            encodedSpecifications.computeIfAbsent(specification, JournalFormat::encodeSpecification);
+        if (path.length > JournalFormat.MAX_SHORT_LENGTH
+            || encodedSpecification.length > JournalFormat.MAX_SHORT_LENGTH) {
+            throw new IOException("The topic path or specification of '" + topicPath + "' is too long to record");
+        }
+
+        final int length = JournalFormat.FIXED_RECORD_LENGTH + path.length + encodedSpecification.length
+            + value.length();
+        if (length > segmentSize) {
+            throw new IOException("A record of " + length + " bytes does not fit in a segment");
+        }
+
+        if (segment == null || segment.remaining() < length) {
+            nextSegment();
+        }
+
+        final int start = segment.position();
+        segment.position(start + 4);
+        segment.putLong(timestamp);
+        segment.putShort((short) path.length);
+        segment.put(path);
+        segment.putShort((short) encodedSpecification.length);
+        segment.put(encodedSpecification);
+        segment.putInt(value.length());
+        value.copyTo(segmentOutput);
+        // The length is written last so a partially written record marks the end of the segment
+        segment.putInt(start, length - 4);
+    }
+
+    /**
+     * Flush the journal to disk and close it. Values received after the journal is closed are not recorded.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    // Guarded by this
+    private void nextSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+
+        final Path file = directory.resolve(JournalFormat.segmentName(nextSegmentIndex));
+        try (FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+            // The mapping remains valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0L, segmentSize);
+        }
+        nextSegmentIndex += 1L;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamJournal [directory=" + directory + ", segmentSize=" + segmentSize + "]";
+    }
+
+    /**
+     * Writes the bytes of a value into the current segment.
+     */
+    private final class SegmentOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+            segment.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            segment.put(bytes, offset, length);
+        }
+    }
+}
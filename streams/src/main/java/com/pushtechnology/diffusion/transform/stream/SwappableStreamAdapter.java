@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A transforming stream that uses an {@link UnsafeTransformer} that can be swapped while the stream is registered.
+ * <p>
+ * Each transformed value is cached with the transformer that produced it. When a topic is updated and its cached value
+ * was produced by an earlier transformer, the old value is transformed again from the source value provided by the
+ * session. If it cannot be transformed, or there is no source value, the old value is delivered as {@code null}.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class SwappableStreamAdapter<S, T> implements ValueStream<S> {
+    private static final Logger LOG = LoggerFactory.getLogger(SwappableStreamAdapter.class);
+    private final Map<String, CachedValue<S, T>> valueCache = new ConcurrentHashMap<>();
+    private final TransformedStream<S, T> delegate;
+    private volatile UnsafeTransformer<S, T> transformer;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ SwappableStreamAdapter(UnsafeTransformer<S, T> transformer, TransformedStream<S, T> delegate) {
+        this.transformer = transformer;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Replace the transformer.
+     */
+    /*package*/ void swap(UnsafeTransformer<S, T> newTransformer) {
+        transformer = newTransformer;
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
+        final UnsafeTransformer<S, T> currentTransformer = transformer;
+        final T transformedNewValue;
+        try {
+            transformedNewValue = currentTransformer.transform(newValue);
+        }
+        catch (TransformationException e) {
+            delegate.onTransformationException(topicPath, topicSpecification, newValue, e);
+            return;
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (Exception e) {
+            delegate.onTransformationException(topicPath, topicSpecification, newValue, new TransformationException(e));
+            return;
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+
+        final CachedValue<S, T> cachedValue =
+            valueCache.put(topicPath, new CachedValue<>(currentTransformer, transformedNewValue));
+        final T transformedOldValue;
+        if (cachedValue == null) {
+            transformedOldValue = null;
+        }
+        else if (cachedValue.transformer == currentTransformer) {
+            transformedOldValue = cachedValue.value;
+        }
+        else {
+            transformedOldValue = transformAgain(currentTransformer, topicPath, oldValue);
+        }
+
+        try {
+            delegate.onValue(topicPath, topicSpecification, transformedOldValue, transformedNewValue);
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (RuntimeException e) {
+            LOG.warn(
+                "RuntimeException thrown by stream handler '{}' for topic '{}' with old value '{}' and new value '{}'",
+                delegate,
+                topicPath,
+                transformedOldValue,
+                transformedNewValue,
+                e);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification specification) {
+        delegate.onSubscription(topicPath, specification);
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+        delegate.onUnsubscription(topicPath, topicSpecification, reason);
+        valueCache.remove(topicPath);
+    }
+
+    @Override
+    public void onClose() {
+        delegate.onClose();
+        valueCache.clear();
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        if (ErrorReason.SESSION_CLOSED.equals(errorReason)) {
+            delegate.onClose();
+        }
+        else {
+            delegate.onError(errorReason);
+        }
+        valueCache.clear();
+    }
+
+    private T transformAgain(UnsafeTransformer<S, T> currentTransformer, String topicPath, S oldValue) {
+        if (oldValue == null) {
+            return null;
+        }
+
+        try {
+            return currentTransformer.transform(oldValue);
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (Exception e) {
+            LOG.debug("Failed to transform the old value of topic '{}' after a swap", topicPath, e);
+            return null;
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+
+    /**
+     * A transformed value and the transformer that produced it.
+     *
+     * @param <S> the type of the source values
+     * @param <T> the type of the transformed values
+     */
+    private static final class CachedValue<S, T> {
+        private final UnsafeTransformer<S, T> transformer;
+        private final T value;
+
+        private CachedValue(UnsafeTransformer<S, T> transformer, T value) {
+            this.transformer = transformer;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
+
+/**
+ * Handle to a stream that allows its transformation to be replaced while it remains registered.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+public interface SwappableStreamHandle<S, T> extends StreamHandle {
+
+    /**
+     * Replace the transformation of the stream.
+     * <p>
+     * The stream remains subscribed, no notifications are lost or repeated. Values received after the swap are
+     * transformed by the new transformer. The cached transformed value of each topic is replaced lazily, when the
+     * topic is next updated the old value is transformed again from the source value provided by the session.
+     *
+     * @param transformer the new transformer from the source values to the transformed values
+     */
+    void swap(UnsafeTransformer<S, T> transformer);
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
+
+/**
+ * Implementation of {@link SwappableStreamHandle}.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class SwappableStreamHandleImpl<S, T> implements SwappableStreamHandle<S, T> {
+    private final StreamHandle handle;
+    private final SwappableStreamAdapter<S, T> adapter;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ SwappableStreamHandleImpl(StreamHandle handle, SwappableStreamAdapter<S, T> adapter) {
+        this.handle = handle;
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void swap(UnsafeTransformer<S, T> transformer) {
+        adapter.swap(transformer);
+    }
+
+    @Override
+    public void close() {
+        handle.close();
+    }
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+/**
+ * Service provider interface for observing the initial values of a stream built with
+ * {@link StreamBuilder#parallelInitialValues(java.util.concurrent.Executor, SynchronisationListener)}.
+ * <p>
+ * Implementations adapt the time taken to synchronise to a monitoring system. The listener is called by the executor
+ * of the stream and should not block.
+ *
+ * @author Push Technology Limited
+ */
+@FunctionalInterface
+public interface SynchronisationListener {
+
+    /**
+     * Notified when the stream has delivered all the initial values it has received.
+     *
+     * @param initialValues the number of initial values delivered since the stream was last synchronised
+     * @param durationNanos the time in nanoseconds from the first subscription or initial value received since the
+     * stream was last synchronised to the delivery of the last initial value
+     */
+    void onSynchronised(int initialValues, long durationNanos);
+}
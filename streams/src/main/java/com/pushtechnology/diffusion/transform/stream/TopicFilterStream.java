@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.function.BiPredicate;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics.UnsubscribeReason;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+/**
+ * Implementation of {@link ValueStream} that filters by topic. Only the notifications for topics accepted by the
+ * predicate are passed to the delegate. Used to restrict fallback streams to certain topic types.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+/*package*/ final class TopicFilterStream<S> implements ValueStream<S> {
+    private final BiPredicate<String, TopicSpecification> predicate;
+    private final ValueStream<S> delegate;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ TopicFilterStream(BiPredicate<String, TopicSpecification> predicate, ValueStream<S> delegate) {
+        this.predicate = predicate;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
+        if (predicate.test(topicPath, topicSpecification)) {
+            delegate.onValue(topicPath, topicSpecification, oldValue, newValue);
+        }
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        if (predicate.test(topicPath, topicSpecification)) {
+            delegate.onSubscription(topicPath, topicSpecification);
+        }
+    }
+
+    @Override
+    public void onUnsubscription(
+        String topicPath,
+        TopicSpecification topicSpecification,
+        UnsubscribeReason unsubscribeReason) {
+
+        if (predicate.test(topicPath, topicSpecification)) {
+            delegate.onUnsubscription(topicPath, topicSpecification, unsubscribeReason);
+        }
+    }
+
+    @Override
+    public void onClose() {
+        delegate.onClose();
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        delegate.onError(errorReason);
+    }
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Mailboxes of notifications for the topics of a stream. When a mailbox is not empty a single task is run by the
+ * executor to drain it, so the notifications for a topic are delivered in order and never concurrently while
+ * different topics are delivered in parallel.
+ * <p>
+ * A mailbox is looked up or created before a notification is added to it, never while the map of mailboxes is being
+ * updated, so the executor may run the task on the calling thread. A drained mailbox marked for removal is removed and
+ * rejects further notifications, which are then added to a new mailbox for the topic.
+ *
+ * @author Push Technology Limited
+ */
+/*package*/ final class TopicMailboxes {
+    private static final Logger LOG = LoggerFactory.getLogger(TopicMailboxes.class);
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Mailbox streamMailbox = new Mailbox(null);
+    private final Executor executor;
+    private final Object handler;
+
+    /**
+     * Constructor.
+     *
+     * @param executor the executor that drains the mailboxes
+     * @param handler the handler the notifications are delivered to, used to log exceptions
+     */
+    /*package*/ TopicMailboxes(Executor executor, Object handler) {
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    /**
+     * Add a notification to the mailbox of a topic, creating the mailbox if needed.
+     *
+     * @param removeWhenDrained if the mailbox is removed once it has been drained, unless a later notification is
+     * added without this
+     */
+    /*package*/ void deliver(String topicPath, Runnable notification, boolean removeWhenDrained) {
+        while (!mailboxes.computeIfAbsent(topicPath, Mailbox::new).add(notification, removeWhenDrained)) {
+            // The mailbox was drained and removed, try again with a new mailbox
+            continue;
+        }
+    }
+
+    /**
+     * Add a notification to the mailbox of a topic if it has one.
+     *
+     * @return false if the topic has no mailbox and the notification was not added
+     */
+    /*package*/ boolean deliverIfPresent(String topicPath, Runnable notification) {
+        while (true) {
+            final Mailbox mailbox = mailboxes.get(topicPath);
+            if (mailbox == null) {
+                return false;
+            }
+            if (mailbox.add(notification, mailbox.removeWhenDrained())) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Add a notification that is not associated with a topic to the mailbox of the stream.
+     */
+    /*package*/ void deliverToStream(Runnable notification) {
+        streamMailbox.add(notification, false);
+    }
+
+    /**
+     * Discard the notifications for topics that have not yet been delivered. Each mailbox is marked as removed before
+     * it is removed, so later notifications are added to a new mailbox instead of one that is being drained.
+     */
+    /*package*/ void discardAll() {
+        mailboxes.forEach((topicPath, mailbox) -> {
+            mailbox.discard();
+            mailboxes.remove(topicPath, mailbox);
+        });
+    }
+
+    /**
+     * @return the number of topics with a mailbox
+     */
+    /*package*/ int size() {
+        return mailboxes.size();
+    }
+
+    /**
+     * The notifications waiting to be delivered for a single topic.
+     */
+    private final class Mailbox implements Runnable {
+        private final String topicPath;
+        // Guarded by this
+        private final Queue<Runnable> notifications = new ArrayDeque<>();
+        // Guarded by this
+        private boolean scheduled;
+        // Guarded by this
+        private boolean removeWhenDrained;
+        // Guarded by this
+        private boolean removed;
+
+        private Mailbox(String topicPath) {
+            this.topicPath = topicPath;
+        }
+
+        /**
+         * Add a notification. Schedules the mailbox to be drained if it was empty.
+         *
+         * @return false if the mailbox has been removed
+         */
+        private boolean add(Runnable notification, boolean remove) {
+            synchronized (this) {
+                if (removed) {
+                    return false;
+                }
+
+                notifications.add(notification);
+                removeWhenDrained = remove;
+                if (scheduled) {
+                    return true;
+                }
+                scheduled = true;
+            }
+
+            executor.execute(this);
+            return true;
+        }
+
+        private synchronized boolean removeWhenDrained() {
+            return removeWhenDrained;
+        }
+
+        /**
+         * Discard the notifications that have not been delivered and reject further notifications.
+         */
+        private synchronized void discard() {
+            notifications.clear();
+            removed = true;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final Runnable notification;
+                synchronized (this) {
+                    notification = notifications.poll();
+                    if (notification == null) {
+                        scheduled = false;
+                        if (removeWhenDrained && topicPath != null) {
+                            removed = true;
+                            mailboxes.remove(topicPath, this);
+                        }
+                        return;
+                    }
+                }
+
+                try {
+                    notification.run();
+                }
+                // CHECKSTYLE.OFF: IllegalCatch
+                catch (RuntimeException e) {
+                    LOG.warn("RuntimeException thrown by stream handler '{}' for topic '{}'", handler, topicPath, e);
+                }
+                // CHECKSTYLE.ON: IllegalCatch
+            }
+        }
+    }
+}
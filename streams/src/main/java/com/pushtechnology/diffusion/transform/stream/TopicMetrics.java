@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+/**
+ * The update rate and processing cost of a topic over one reporting interval of a {@link TopicRateMonitor}.
+ * <p>
+ * The values are estimates. They are never less than the true values but may be greater when other topics share the
+ * counters used to track them.
+ *
+ * @author Push Technology Limited
+ */
+public final class TopicMetrics {
+    private final String topicPath;
+    private final long updates;
+    private final double updateRate;
+    private final long cost;
+    private final boolean hot;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ TopicMetrics(String topicPath, long updates, double updateRate, long cost, boolean hot) {
+        this.topicPath = topicPath;
+        this.updates = updates;
+        this.updateRate = updateRate;
+        this.cost = cost;
+        this.hot = hot;
+    }
+
+    /**
+     * @return the path of the topic
+     */
+    public String getTopicPath() {
+        return topicPath;
+    }
+
+    /**
+     * @return the number of updates received during the interval
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * @return the number of updates received per second during the interval
+     */
+    public double getUpdateRate() {
+        return updateRate;
+    }
+
+    /**
+     * @return the total time spent processing the updates in nanoseconds
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    /**
+     * @return the mean time spent processing an update in nanoseconds
+     */
+    public double getMeanCost() {
+        return updates == 0L ? 0.0 : (double) cost / updates;
+    }
+
+    /**
+     * @return if the update rate reached the hot topic threshold of the monitor
+     */
+    public boolean isHot() {
+        return hot;
+    }
+
+    @Override
+    public String toString() {
+        return "TopicMetrics [topicPath=" + topicPath
+            + ", updates=" + updates
+            + ", updateRate=" + updateRate
+            + ", cost=" + cost
+            + ", hot=" + hot + "]";
+    }
+}
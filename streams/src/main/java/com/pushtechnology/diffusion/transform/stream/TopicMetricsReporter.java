@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.List;
+
+/**
+ * Service provider interface for publishing the metrics collected by a {@link TopicRateMonitor}.
+ * <p>
+ * Implementations adapt the metrics to a monitoring system. The reporter is called by the scheduler of the monitor
+ * at the end of each reporting interval and should not block.
+ *
+ * @author Push Technology Limited
+ */
+@FunctionalInterface
+public interface TopicMetricsReporter {
+
+    /**
+     * Report the metrics of an interval.
+     *
+     * @param hotTopics the metrics of the topics with the most updates during the interval, in descending order of
+     * updates
+     * @param intervalUpdates the total number of updates received for all topics during the interval
+     */
+    void report(List<TopicMetrics> hotTopics, long intervalUpdates);
+}
@@ -0,0 +1,471 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the update rate and processing cost of the topics received by the streams it is added to with
+ * {@link StreamBuilder#monitor(TopicRateMonitor)}.
+ * <p>
+ * The monitor uses constant memory however many topics it sees. The totals of every topic are kept in a count-min
+ * sketch and the topics with the most updates are kept in a table of fixed capacity. A topic enters the table when
+ * its estimated total exceeds the smallest total in the table, replacing that topic. At the end of each interval the
+ * metrics of the topics in the table are passed to the {@link TopicMetricsReporter} and the totals are reset.
+ * <p>
+ * Updates are recorded without locking. The table is a min-heap ordered by the totals of the topics when they were
+ * last compared, which never exceed their current totals. Only an update of a topic outside the table whose total
+ * exceeds the smallest of those totals locks the table.
+ * <p>
+ * Topics that reached the hot topic threshold during the last interval are hot until the end of the next interval.
+ * Streams can conflate the values of hot topics, see {@link Builder#conflateHotTopics(Duration)}.
+ *
+ * @author Push Technology Limited
+ */
+public final class TopicRateMonitor implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(TopicRateMonitor.class);
+    private static final double NANOS_PER_SECOND = 1e9;
+    private final ScheduledExecutorService scheduler;
+    private final int capacity;
+    private final long interval;
+    private final double hotThreshold;
+    private final long conflationPeriod;
+    private final TopicMetricsReporter reporter;
+    private final LongSupplier nanoClock;
+    private final CountMinSketch updates;
+    private final CountMinSketch costs;
+    private final LongAdder intervalUpdates = new LongAdder();
+    private final Map<String, HeavyHitter> heavyHitters = new ConcurrentHashMap<>();
+    // Guarded by this
+    private final HeavyHitter[] heap;
+    // Guarded by this
+    private int size;
+    // The total of the root of the heap, Long.MIN_VALUE while the heap is not full
+    private volatile long smallestUpdates = Long.MIN_VALUE;
+    // Guarded by this
+    private long intervalStart;
+    // Guarded by this
+    private ScheduledFuture<?> reportTask;
+    private volatile Set<String> hotTopics = emptySet();
+    private volatile List<TopicMetrics> lastReport = emptyList();
+
+    /**
+     * Constructor.
+     */
+    /*package*/ TopicRateMonitor(
+            ScheduledExecutorService scheduler,
+            int capacity,
+            long interval,
+            double hotThreshold,
+            long conflationPeriod,
+            TopicMetricsReporter reporter,
+            LongSupplier nanoClock) {
+        this.scheduler = scheduler;
+        this.capacity = capacity;
+        this.interval = interval;
+        this.hotThreshold = hotThreshold;
+        this.conflationPeriod = conflationPeriod;
+        this.reporter = reporter;
+        this.nanoClock = nanoClock;
+        // Enough counters that collisions between the tracked topics and the rest are unlikely
+        updates = new CountMinSketch(capacity * 64);
+        costs = new CountMinSketch(capacity * 64);
+        heap = new HeavyHitter[capacity];
+        intervalStart = nanoClock.getAsLong();
+    }
+
+    /**
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the metrics of the topics with the most updates during the last interval, in descending order of updates
+     */
+    public List<TopicMetrics> getHotTopics() {
+        return lastReport;
+    }
+
+    /**
+     * @param topicPath the topic path
+     * @return if the topic reached the hot topic threshold during the last interval
+     */
+    public boolean isHot(String topicPath) {
+        return hotTopics.contains(topicPath);
+    }
+
+    /**
+     * @param topicPath the topic path
+     * @return the estimated number of updates received for the topic during the current interval
+     */
+    public long estimateUpdates(String topicPath) {
+        return updates.estimate(topicPath.hashCode());
+    }
+
+    /**
+     * @param topicPath the topic path
+     * @return the estimated time spent processing the updates for the topic during the current interval in
+     * nanoseconds
+     */
+    public long estimateCost(String topicPath) {
+        return costs.estimate(topicPath.hashCode());
+    }
+
+    /**
+     * Stop reporting. Streams using the monitor continue to record metrics but no topic will be hot.
+     */
+    @Override
+    public synchronized void close() {
+        if (reportTask != null) {
+            reportTask.cancel(false);
+            reportTask = null;
+        }
+        hotTopics = emptySet();
+    }
+
+    /**
+     * Record updates for a topic.
+     *
+     * @param topicPath the topic path
+     * @param count the number of updates
+     * @param cost the time spent processing the updates in nanoseconds
+     */
+    /*package*/ void record(String topicPath, int count, long cost) {
+        final int hash = topicPath.hashCode();
+        updates.add(hash, count);
+        costs.add(hash, cost);
+        intervalUpdates.add(count);
+
+        // The totals of the topics in the table are read from the sketches when they are reported
+        if (!heavyHitters.containsKey(topicPath) && updates.estimate(hash) > smallestUpdates) {
+            track(topicPath, hash);
+        }
+    }
+
+    /**
+     * @return if streams should conflate the values of hot topics
+     */
+    /*package*/ boolean conflatesHotTopics() {
+        return conflationPeriod > 0L;
+    }
+
+    /**
+     * @return the period hot topics are conflated for in nanoseconds
+     */
+    /*package*/ long getConflationPeriod() {
+        return conflationPeriod;
+    }
+
+    /**
+     * @return the scheduler of the monitor
+     */
+    /*package*/ ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Schedule the end of each interval.
+     */
+    /*package*/ synchronized void start() {
+        reportTask = scheduler.scheduleAtFixedRate(this::report, interval, interval, NANOSECONDS);
+    }
+
+    /**
+     * End the current interval and report its metrics.
+     */
+    /*package*/ void report() {
+        final List<TopicMetrics> metrics = new ArrayList<>(capacity);
+        final long totalUpdates;
+        synchronized (this) {
+            final long now = nanoClock.getAsLong();
+            final double seconds = Math.max(now - intervalStart, 1L) / NANOS_PER_SECOND;
+            for (int i = 0; i < size; i++) {
+                final HeavyHitter heavyHitter = heap[i];
+                final long topicUpdates = updates.estimate(heavyHitter.hash);
+                final double rate = topicUpdates / seconds;
+                metrics.add(new TopicMetrics(
+                    heavyHitter.topicPath,
+                    topicUpdates,
+                    rate,
+                    costs.estimate(heavyHitter.hash),
+                    rate >= hotThreshold));
+            }
+            totalUpdates = intervalUpdates.sumThenReset();
+
+            Arrays.fill(heap, 0, size, null);
+            size = 0;
+            smallestUpdates = Long.MIN_VALUE;
+            heavyHitters.clear();
+            updates.clear();
+            costs.clear();
+            intervalStart = now;
+        }
+
+        metrics.sort((left, right) -> Long.compare(right.getUpdates(), left.getUpdates()));
+        final Set<String> newHotTopics = new HashSet<>();
+        for (final TopicMetrics topicMetrics : metrics) {
+            if (topicMetrics.isHot()) {
+                newHotTopics.add(topicMetrics.getTopicPath());
+            }
+        }
+        hotTopics = unmodifiableSet(newHotTopics);
+        lastReport = unmodifiableList(metrics);
+
+        try {
+            reporter.report(lastReport, totalUpdates);
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (RuntimeException e) {
+            LOG.warn("RuntimeException thrown by metrics reporter '{}'", reporter, e);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+
+    /**
+     * Add a topic to the table if its total exceeds the smallest total in the table.
+     */
+    private synchronized void track(String topicPath, int hash) {
+        if (heavyHitters.containsKey(topicPath)) {
+            return;
+        }
+
+        final long estimate = updates.estimate(hash);
+        final HeavyHitter added = new HeavyHitter(topicPath, hash, estimate);
+        if (size < capacity) {
+            added.index = size;
+            heap[size++] = added;
+            siftUp(added);
+        }
+        else {
+            refreshSmallest();
+            final HeavyHitter smallest = heap[0];
+            if (estimate <= smallest.updates) {
+                smallestUpdates = smallest.updates;
+                return;
+            }
+
+            heavyHitters.remove(smallest.topicPath);
+            added.index = 0;
+            heap[0] = added;
+            siftDown(added);
+        }
+        heavyHitters.put(topicPath, added);
+        smallestUpdates = size < capacity ? Long.MIN_VALUE : heap[0].updates;
+    }
+
+    /**
+     * Update the total of the root of the heap until the root holds the smallest current total.
+     */
+    // Guarded by this
+    private void refreshSmallest() {
+        HeavyHitter smallest = heap[0];
+        long estimate = updates.estimate(smallest.hash);
+        while (estimate > smallest.updates) {
+            smallest.updates = estimate;
+            siftDown(smallest);
+            smallest = heap[0];
+            estimate = updates.estimate(smallest.hash);
+        }
+    }
+
+    // Guarded by this
+    private void siftUp(HeavyHitter heavyHitter) {
+        int index = heavyHitter.index;
+        while (index > 0) {
+            final int parentIndex = (index - 1) >>> 1;
+            final HeavyHitter parent = heap[parentIndex];
+            if (parent.updates <= heavyHitter.updates) {
+                break;
+            }
+            place(parent, index);
+            index = parentIndex;
+        }
+        place(heavyHitter, index);
+    }
+
+    // Guarded by this
+    private void siftDown(HeavyHitter heavyHitter) {
+        int index = heavyHitter.index;
+        while (true) {
+            final int leftIndex = 2 * index + 1;
+            if (leftIndex >= size) {
+                break;
+            }
+            final int rightIndex = leftIndex + 1;
+            final int childIndex =
+                rightIndex < size && heap[rightIndex].updates < heap[leftIndex].updates ? rightIndex : leftIndex;
+            final HeavyHitter child = heap[childIndex];
+            if (heavyHitter.updates <= child.updates) {
+                break;
+            }
+            place(child, index);
+            index = childIndex;
+        }
+        place(heavyHitter, index);
+    }
+
+    // Guarded by this
+    private void place(HeavyHitter heavyHitter, int index) {
+        heap[index] = heavyHitter;
+        heavyHitter.index = index;
+    }
+
+    /**
+     * A topic tracked individually.
+     */
+    private static final class HeavyHitter {
+        private final String topicPath;
+        private final int hash;
+        // The total when the topic was last compared, guarded by the monitor
+        private long updates;
+        // The position in the heap, guarded by the monitor
+        private int index;
+
+        private HeavyHitter(String topicPath, int hash, long updates) {
+            this.topicPath = topicPath;
+            this.hash = hash;
+            this.updates = updates;
+        }
+    }
+
+    /**
+     * Builder of {@link TopicRateMonitor}s.
+     */
+    public static final class Builder {
+        private static final TopicMetricsReporter NO_REPORTER = (hotTopics, intervalUpdates) -> { };
+        private int capacity = 32;
+        private Duration interval = Duration.ofSeconds(10L);
+        private double hotThreshold = Double.POSITIVE_INFINITY;
+        private Duration conflationPeriod = Duration.ZERO;
+        private TopicMetricsReporter reporter = NO_REPORTER;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the number of topics tracked individually. Defaults to 32.
+         *
+         * @param newCapacity the number of topics
+         * @return this builder
+         * @throws IllegalArgumentException if the capacity is not positive
+         */
+        public Builder capacity(int newCapacity) {
+            if (newCapacity <= 0) {
+                throw new IllegalArgumentException("The capacity must be positive");
+            }
+            capacity = newCapacity;
+            return this;
+        }
+
+        /**
+         * Set the reporting interval. Defaults to 10 seconds.
+         *
+         * @param newInterval the interval
+         * @return this builder
+         * @throws IllegalArgumentException if the interval is not positive
+         */
+        public Builder interval(Duration newInterval) {
+            if (newInterval.isNegative() || newInterval.isZero()) {
+                throw new IllegalArgumentException("The interval must be positive");
+            }
+            interval = newInterval;
+            return this;
+        }
+
+        /**
+         * Set the update rate at which a topic is hot. By default no topic is hot.
+         *
+         * @param updatesPerSecond the number of updates per second
+         * @return this builder
+         * @throws IllegalArgumentException if the rate is not positive
+         */
+        public Builder hotThreshold(double updatesPerSecond) {
+            if (!(updatesPerSecond > 0.0)) {
+                throw new IllegalArgumentException("The hot topic threshold must be positive");
+            }
+            hotThreshold = updatesPerSecond;
+            return this;
+        }
+
+        /**
+         * Conflate the values of hot topics. A stream holds the latest value of a hot topic and delivers it at the
+         * end of the period, replacing the values received in between. By default values are not conflated.
+         *
+         * @param period the period values are held for
+         * @return this builder
+         * @throws IllegalArgumentException if the period is not positive
+         */
+        public Builder conflateHotTopics(Duration period) {
+            if (period.isNegative() || period.isZero()) {
+                throw new IllegalArgumentException("The conflation period must be positive");
+            }
+            conflationPeriod = period;
+            return this;
+        }
+
+        /**
+         * Set the reporter the metrics are passed to at the end of each interval.
+         *
+         * @param newReporter the reporter
+         * @return this builder
+         */
+        public Builder reporter(TopicMetricsReporter newReporter) {
+            reporter = newReporter;
+            return this;
+        }
+
+        /**
+         * Create the monitor and start reporting.
+         *
+         * @param scheduler the executor used to end each interval and to deliver conflated values
+         * @return the monitor
+         */
+        public TopicRateMonitor start(ScheduledExecutorService scheduler) {
+            final TopicRateMonitor monitor = new TopicRateMonitor(
+                scheduler,
+                capacity,
+                interval.toNanos(),
+                hotThreshold,
+                conflationPeriod.toNanos(),
+                reporter,
+                System::nanoTime);
+            monitor.start();
+            return monitor;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+
+/**
+ * A route from the topics matching a topic path pattern to a stream. Created by
+ * {@link StreamBuilder#route(String, ValueStream)} and added to a {@link TopicRouterBuilder}.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+public final class TopicRoute<S> {
+    private final String pathPattern;
+    private final ValueStream<S> stream;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ TopicRoute(String pathPattern, ValueStream<S> stream) {
+        this.pathPattern = pathPattern;
+        this.stream = stream;
+    }
+
+    /**
+     * @return the topic path pattern
+     */
+    public String getPathPattern() {
+        return pathPattern;
+    }
+
+    /**
+     * @return the stream of source values
+     */
+    /*package*/ ValueStream<S> getStream() {
+        return stream;
+    }
+}
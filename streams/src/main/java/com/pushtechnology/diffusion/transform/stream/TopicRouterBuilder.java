@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+
+/**
+ * Builder for a single stream that routes the notifications for the topics it is subscribed to between many streams.
+ * <p>
+ * Each {@link TopicRoute} matches topic paths with a pattern. See
+ * {@link com.pushtechnology.diffusion.transform.path.TopicPathTrie} for the pattern syntax. The notifications for a
+ * topic are delivered to every route that matches its path, in the order the routes were added. The routes that
+ * match a path are found once and cached until the topic is unsubscribed from.
+ * <p>
+ * Builders are immutable. Each time a route is added a new builder is returned.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+public interface TopicRouterBuilder<S> {
+    /**
+     * Add a route.
+     *
+     * @param route the route
+     * @return a new builder
+     */
+    TopicRouterBuilder<S> route(TopicRoute<S> route);
+
+    /**
+     * Create the routing stream.
+     *
+     * @param topicsFeature the topics feature
+     * @param topicSelector the topic selector to match the stream
+     * @return a handle to the stream
+     */
+    StreamHandle register(Topics topicsFeature, String topicSelector);
+
+    /**
+     * Create the routing stream.
+     *
+     * @param session the session
+     * @param topicSelector the topic selector to match the stream
+     * @return a handle to the stream
+     */
+    StreamHandle register(Session session, String topicSelector);
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Collections.emptyList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.transform.path.TopicPathTrie;
+
+/**
+ * Implementation of {@link TopicRouterBuilder}.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+/*package*/ final class TopicRouterBuilderImpl<S> implements TopicRouterBuilder<S> {
+    private final Class<S> valueType;
+    private final List<TopicRoute<S>> routes;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ TopicRouterBuilderImpl(Class<S> valueType) {
+        this(valueType, emptyList());
+    }
+
+    private TopicRouterBuilderImpl(Class<S> valueType, List<TopicRoute<S>> routes) {
+        this.valueType = valueType;
+        this.routes = routes;
+    }
+
+    @Override
+    public TopicRouterBuilder<S> route(TopicRoute<S> route) {
+        final List<TopicRoute<S>> newRoutes = new ArrayList<>(routes);
+        newRoutes.add(route);
+        return new TopicRouterBuilderImpl<>(valueType, newRoutes);
+    }
+
+    @Override
+    public StreamHandle register(Topics topicsFeature, String topicSelector) {
+        final TopicPathTrie.Builder<Topics.ValueStream<S>> trie = TopicPathTrie.builder();
+        for (final TopicRoute<S> route : routes) {
+            trie.add(route.getPathPattern(), route.getStream());
+        }
+
+        final RoutingStream<S> stream = new RoutingStream<>(trie.build());
+        topicsFeature.addStream(topicSelector, valueType, stream);
+        return new StreamHandleImpl(topicsFeature, stream);
+    }
+
+    @Override
+    public StreamHandle register(Session session, String topicSelector) {
+        return register(session.feature(Topics.class), topicSelector);
+    }
+}
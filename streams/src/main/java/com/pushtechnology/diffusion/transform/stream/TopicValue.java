@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+/**
+ * A value received for a topic.
+ *
+ * @param <T> the type of the value
+ * @author Push Technology Limited
+ */
+public final class TopicValue<T> {
+    private final String topicPath;
+    private final T value;
+
+    /**
+     * Constructor.
+     *
+     * @param topicPath the topic path
+     * @param value the value
+     */
+    public TopicValue(String topicPath, T value) {
+        this.topicPath = topicPath;
+        this.value = value;
+    }
+
+    /**
+     * @return the path of the topic
+     */
+    public String getTopicPath() {
+        return topicPath;
+    }
+
+    /**
+     * @return the value
+     */
+    public T getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "TopicValue [topicPath=" + topicPath + ", value=" + value + "]";
+    }
+}
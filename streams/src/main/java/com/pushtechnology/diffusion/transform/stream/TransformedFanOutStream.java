@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+/**
+ * A {@link FanOutStream} that also delivers transformation failures to many {@link TransformedStream}s.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class TransformedFanOutStream<S, T>
+        extends FanOutStream<T, TransformedStream<S, T>>
+        implements TransformedStream<S, T> {
+
+    @Override
+    public void onTransformationException(
+            String topicPath,
+            TopicSpecification specification,
+            S value,
+            TransformationException e) {
+
+        notifyDelegates(
+            topicPath,
+            delegate -> delegate.onTransformationException(topicPath, specification, value, e));
+    }
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+import com.pushtechnology.diffusion.client.features.TimeSeries.Event;
+
+/**
+ * A range query against a time series topic that transforms the events it selects.
+ * <p>
+ * The query is evaluated as a sequence of pages, each selecting at most {@link #pageSize(int)} events. The results are
+ * consumed through an {@link Iterator} that requests the next page and transforms its events while the events of the
+ * current page are being consumed. This allows large ranges to be queried without holding every event in memory.
+ * <p>
+ * Queries are immutable. Each method that configures the query returns a new query.
+ *
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+public interface TransformedRangeQuery<T> {
+    /**
+     * The default maximum number of events selected by each page.
+     */
+    int DEFAULT_PAGE_SIZE = 1000;
+
+    /**
+     * Select events from the start of the time series. This is the default.
+     *
+     * @return a new query
+     */
+    TransformedRangeQuery<T> fromStart();
+
+    /**
+     * Select events starting at a sequence number.
+     *
+     * @param sequence the sequence number of the first event
+     * @return a new query
+     */
+    TransformedRangeQuery<T> from(long sequence);
+
+    /**
+     * Select events starting at a time.
+     *
+     * @param timestamp the time of the first event
+     * @return a new query
+     */
+    TransformedRangeQuery<T> from(Instant timestamp);
+
+    /**
+     * Select events starting a number of events before the end of the time series.
+     *
+     * @param count the number of events before the end
+     * @return a new query
+     */
+    TransformedRangeQuery<T> fromLast(long count);
+
+    /**
+     * Select events up to and including a sequence number.
+     *
+     * @param sequence the sequence number of the last event
+     * @return a new query
+     */
+    TransformedRangeQuery<T> to(long sequence);
+
+    /**
+     * Select events up to and including a time.
+     *
+     * @param timestamp the time of the last event
+     * @return a new query
+     */
+    TransformedRangeQuery<T> to(Instant timestamp);
+
+    /**
+     * Select events up to a number of events before the end of the time series.
+     *
+     * @param count the number of events before the end to exclude
+     * @return a new query
+     */
+    TransformedRangeQuery<T> untilLast(long count);
+
+    /**
+     * Limit the total number of events selected by the query.
+     *
+     * @param count the maximum number of events
+     * @return a new query
+     */
+    TransformedRangeQuery<T> limit(long count);
+
+    /**
+     * Set the maximum number of events selected by each page.
+     *
+     * @param count the maximum number of events in a page, defaults to {@link #DEFAULT_PAGE_SIZE}
+     * @return a new query
+     */
+    TransformedRangeQuery<T> pageSize(int count);
+
+    /**
+     * Set the executor used to transform the events of each page. Defaults to the common fork join pool so the
+     * events are not transformed by the session.
+     *
+     * @param executor the executor
+     * @return a new query
+     */
+    TransformedRangeQuery<T> transformWith(Executor executor);
+
+    /**
+     * Evaluate the query against a time series topic.
+     * <p>
+     * The first page is requested immediately. The iterator blocks when the next page has not been received yet. If
+     * a page cannot be selected or one of its values cannot be transformed the iterator throws a
+     * {@link RangeQueryException}.
+     *
+     * @param topicPath the path of the time series topic
+     * @return an iterator over the transformed events
+     */
+    Iterator<Event<T>> selectFrom(String topicPath);
+}
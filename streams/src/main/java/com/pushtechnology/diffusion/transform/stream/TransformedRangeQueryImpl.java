@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Collections.emptyIterator;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+
+import com.pushtechnology.diffusion.client.features.TimeSeries.Event;
+import com.pushtechnology.diffusion.client.features.TimeSeries.EventMetadata;
+import com.pushtechnology.diffusion.client.features.TimeSeries.QueryResult;
+import com.pushtechnology.diffusion.client.features.TimeSeries.RangeQuery;
+import com.pushtechnology.diffusion.timeseries.event.EventImpl;
+import com.pushtechnology.diffusion.timeseries.event.EventMetadataImpl;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
+
+/**
+ * Implementation of {@link TransformedRangeQuery}.
+ * <p>
+ * The anchor of the query is only applied to the first page. Each later page is anchored at the sequence number after
+ * the last event of the previous page. The span of the query is applied to every page.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class TransformedRangeQueryImpl<S, T> implements TransformedRangeQuery<T> {
+    private final RangeQuery<S> query;
+    private final UnsafeTransformer<S, T> transformer;
+    private final UnaryOperator<RangeQuery<S>> anchor;
+    private final UnaryOperator<RangeQuery<S>> span;
+    private final long limit;
+    private final int pageSize;
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ TransformedRangeQueryImpl(RangeQuery<S> query, UnsafeTransformer<S, T> transformer) {
+        this(
+            query,
+            transformer,
+            UnaryOperator.identity(),
+            UnaryOperator.identity(),
+            Long.MAX_VALUE,
+            DEFAULT_PAGE_SIZE,
+            ForkJoinPool.commonPool());
+    }
+
+    private TransformedRangeQueryImpl(
+            RangeQuery<S> query,
+            UnsafeTransformer<S, T> transformer,
+            UnaryOperator<RangeQuery<S>> anchor,
+            UnaryOperator<RangeQuery<S>> span,
+            long limit,
+            int pageSize,
+            Executor executor) {
+        this.query = query;
+        this.transformer = transformer;
+        this.anchor = anchor;
+        this.span = span;
+        this.limit = limit;
+        this.pageSize = pageSize;
+        this.executor = executor;
+    }
+
+    @Override
+    public TransformedRangeQuery<T> fromStart() {
+        return withAnchor(RangeQuery::fromStart);
+    }
+
+    @Override
+    public TransformedRangeQuery<T> from(long sequence) {
+        return withAnchor(rangeQuery -> rangeQuery.from(sequence));
+    }
+
+    @Override
+    public TransformedRangeQuery<T> from(Instant timestamp) {
+        return withAnchor(rangeQuery -> rangeQuery.from(timestamp));
+    }
+
+    @Override
+    public TransformedRangeQuery<T> fromLast(long count) {
+        return withAnchor(rangeQuery -> rangeQuery.fromLast(count));
+    }
+
+    @Override
+    public TransformedRangeQuery<T> to(long sequence) {
+        return withSpan(rangeQuery -> rangeQuery.to(sequence));
+    }
+
+    @Override
+    public TransformedRangeQuery<T> to(Instant timestamp) {
+        return withSpan(rangeQuery -> rangeQuery.to(timestamp));
+    }
+
+    @Override
+    public TransformedRangeQuery<T> untilLast(long count) {
+        return withSpan(rangeQuery -> rangeQuery.untilLast(count));
+    }
+
+    @Override
+    public TransformedRangeQuery<T> limit(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("The limit must not be negative");
+        }
+        return new TransformedRangeQueryImpl<>(query, transformer, anchor, span, count, pageSize, executor);
+    }
+
+    @Override
+    public TransformedRangeQuery<T> pageSize(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("The page size must be positive");
+        }
+        return new TransformedRangeQueryImpl<>(query, transformer, anchor, span, limit, count, executor);
+    }
+
+    @Override
+    public TransformedRangeQuery<T> transformWith(Executor newExecutor) {
+        return new TransformedRangeQueryImpl<>(query, transformer, anchor, span, limit, pageSize, newExecutor);
+    }
+
+    @Override
+    public Iterator<Event<T>> selectFrom(String topicPath) {
+        return new PageIterator(topicPath);
+    }
+
+    private TransformedRangeQuery<T> withAnchor(UnaryOperator<RangeQuery<S>> newAnchor) {
+        return new TransformedRangeQueryImpl<>(query, transformer, newAnchor, span, limit, pageSize, executor);
+    }
+
+    private TransformedRangeQuery<T> withSpan(UnaryOperator<RangeQuery<S>> newSpan) {
+        return new TransformedRangeQueryImpl<>(query, transformer, anchor, newSpan, limit, pageSize, executor);
+    }
+
+    private CompletableFuture<Page<T>> selectPage(String topicPath, RangeQuery<S> anchoredQuery, long remaining) {
+        final long count = Math.min(pageSize, remaining);
+        return span
+            .apply(anchoredQuery)
+            .limit(count)
+            .selectFrom(topicPath)
+            .thenApplyAsync(result -> transformPage(result, count), executor);
+    }
+
+    private Page<T> transformPage(QueryResult<S> result, long count) {
+        final List<Event<T>> events = new ArrayList<>((int) count);
+        final Iterator<Event<S>> sourceEvents = result.stream().iterator();
+        long nextSequence = -1;
+        while (sourceEvents.hasNext()) {
+            final Event<S> event = sourceEvents.next();
+            events.add(transformEvent(event));
+            nextSequence = (event.isEditEvent() ? event.originalEvent().sequence() : event.sequence()) + 1;
+        }
+        return new Page<>(events, !result.isComplete() && !events.isEmpty(), nextSequence);
+    }
+
+    private Event<T> transformEvent(Event<S> event) {
+        final T newValue;
+        try {
+            newValue = transformer.transform(event.value());
+        }
+        catch (TransformationException e) {
+            throw new CompletionException(e);
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (Exception e) {
+            throw new CompletionException(new TransformationException(e));
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+        final EventMetadata metadata = new EventMetadataImpl(event.sequence(), event.timestamp(), event.author());
+        return EventImpl.createEvent(metadata, event.isEditEvent() ? event.originalEvent() : metadata, newValue);
+    }
+
+    /**
+     * A page of transformed events.
+     *
+     * @param <T> the type of the transformed values
+     */
+    private static final class Page<T> {
+        private final List<Event<T>> events;
+        private final boolean hasMore;
+        private final long nextSequence;
+
+        private Page(List<Event<T>> events, boolean hasMore, long nextSequence) {
+            this.events = events;
+            this.hasMore = hasMore;
+            this.nextSequence = nextSequence;
+        }
+    }
+
+    /**
+     * Iterator over the events of each page. The next page is requested as soon as the current page is received.
+     */
+    private final class PageIterator implements Iterator<Event<T>> {
+        private final String topicPath;
+        private Iterator<Event<T>> current = emptyIterator();
+        private CompletableFuture<Page<T>> pending;
+        private long remaining = limit;
+
+        private PageIterator(String topicPath) {
+            this.topicPath = topicPath;
+            if (remaining > 0) {
+                pending = selectPage(topicPath, anchor.apply(query), remaining);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (pending == null) {
+                    return false;
+                }
+
+                final Page<T> page = awaitPage();
+                pending = null;
+                remaining -= page.events.size();
+                if (page.hasMore && remaining > 0) {
+                    pending = selectPage(topicPath, query.from(page.nextSequence), remaining);
+                }
+                current = page.events.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Event<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private Page<T> awaitPage() {
+            try {
+                return pending.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RangeQueryException("Interrupted waiting for range query of " + topicPath, e);
+            }
+            catch (ExecutionException e) {
+                pending = null;
+                throw new RangeQueryException("Range query of " + topicPath + " failed", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import com.pushtechnology.diffusion.datatype.DataType;
+
+/**
+ * A binary codec for the values written to a {@link SharedMemoryWriter} and read by a {@link SharedMemoryReader}.
+ *
+ * @param <T> the type of the values
+ * @author Push Technology Limited
+ */
+public interface ValueCodec<T> {
+
+    /**
+     * Encode a value.
+     *
+     * @param value the value
+     * @return the encoded value
+     */
+    byte[] encode(T value);
+
+    /**
+     * Decode a value. The bytes are reused after this returns so they must be copied if the value retains them.
+     *
+     * @param bytes the array containing the encoded value
+     * @param offset the offset of the encoded value
+     * @param length the length of the encoded value
+     * @return the value
+     */
+    T decode(byte[] bytes, int offset, int length);
+
+    /**
+     * Create a codec that uses a Diffusion data type.
+     *
+     * @param dataType the data type
+     * @param <T> the type of the values
+     * @return the codec
+     */
+    static <T> ValueCodec<T> of(DataType<T> dataType) {
+        return new ValueCodec<T>() {
+            @Override
+            public byte[] encode(T value) {
+                return dataType.toBytes(value).toByteArray();
+            }
+
+            @Override
+            public T decode(byte[] bytes, int offset, int length) {
+                return dataType.readValue(bytes, offset, length);
+            }
+
+            @Override
+            public String toString() {
+                return "ValueCodec [dataType=" + dataType.getTypeName() + "]";
+            }
+        };
+    }
+}
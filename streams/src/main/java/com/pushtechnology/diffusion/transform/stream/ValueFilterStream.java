@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.function.BiPredicate;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics.UnsubscribeReason;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+/**
+ * Implementation of {@link ValueStream} that filters values before they are transformed. Only the values accepted by
+ * the predicate are passed to the delegate. The predicate is provided with the old and new source values of the topic.
+ *
+ * @param <S> the type of the source values
+ * @author Push Technology Limited
+ */
+/*package*/ final class ValueFilterStream<S> implements ValueStream<S> {
+    private final BiPredicate<S, S> predicate;
+    private final ValueStream<S> delegate;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ ValueFilterStream(BiPredicate<S, S> predicate, ValueStream<S> delegate) {
+        this.predicate = predicate;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
+        if (predicate.test(oldValue, newValue)) {
+            delegate.onValue(topicPath, topicSpecification, oldValue, newValue);
+        }
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+        delegate.onSubscription(topicPath, topicSpecification);
+    }
+
+    @Override
+    public void onUnsubscription(
+        String topicPath,
+        TopicSpecification topicSpecification,
+        UnsubscribeReason unsubscribeReason) {
+
+        delegate.onUnsubscription(topicPath, topicSpecification, unsubscribeReason);
+    }
+
+    @Override
+    public void onClose() {
+        delegate.onClose();
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        delegate.onError(errorReason);
+    }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.Function;
+
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+/**
+ * A {@link Publisher} of transformed topic values. Each subscriber is provided by a separate stream that is added to
+ * the session when the subscriber subscribes and removed when the subscription is cancelled.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class ValuePublisher<S, T> implements Publisher<TopicValue<T>> {
+    private final Function<ValueStream<S>, StreamHandle> registration;
+    private final UnsafeTransformer<S, T> transformer;
+    private final OverflowStrategy overflowStrategy;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ ValuePublisher(
+            Function<ValueStream<S>, StreamHandle> registration,
+            UnsafeTransformer<S, T> transformer,
+            OverflowStrategy overflowStrategy) {
+        this.registration = registration;
+        this.transformer = transformer;
+        this.overflowStrategy = overflowStrategy;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super TopicValue<T>> subscriber) {
+        requireNonNull(subscriber, "The subscriber must not be null");
+
+        final ValueSubscription<S, T> subscription =
+            new ValueSubscription<>(subscriber, transformer, overflowStrategy.createQueue());
+        subscriber.onSubscribe(subscription);
+        subscription.registered(registration.apply(subscription));
+    }
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A {@link Subscription} to the values received by a {@link ValueStream}.
+ * <p>
+ * Values are held untransformed in an {@link OverflowQueue} until the subscriber requests them. Values are transformed
+ * and delivered by whichever thread receives or requests them, but never by more than one thread at a time.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class ValueSubscription<S, T> implements ValueStream<S>, Subscription {
+    private final AtomicInteger work = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+    private final Subscriber<? super TopicValue<T>> subscriber;
+    private final UnsafeTransformer<S, T> transformer;
+    // Guarded by this
+    private final OverflowQueue<S> queue;
+    private StreamHandle handle;
+    private volatile boolean cancelled;
+    private volatile boolean completed;
+    private volatile Throwable failure;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ ValueSubscription(
+            Subscriber<? super TopicValue<T>> subscriber,
+            UnsafeTransformer<S, T> transformer,
+            OverflowQueue<S> queue) {
+        this.subscriber = subscriber;
+        this.transformer = transformer;
+        this.queue = queue;
+    }
+
+    /**
+     * Notify the subscription of the handle to the stream providing its values.
+     *
+     * @param streamHandle the handle to the stream
+     */
+    /*package*/ void registered(StreamHandle streamHandle) {
+        synchronized (this) {
+            if (!cancelled) {
+                handle = streamHandle;
+                return;
+            }
+        }
+        streamHandle.close();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            fail(new IllegalArgumentException("The number of values requested must be positive"));
+        }
+        else {
+            requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        final StreamHandle streamHandle;
+        synchronized (this) {
+            cancelled = true;
+            queue.clear();
+            streamHandle = handle;
+            handle = null;
+        }
+        if (streamHandle != null) {
+            streamHandle.close();
+        }
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, S oldValue, S newValue) {
+        synchronized (this) {
+            if (cancelled || !queue.offer(new TopicValue<>(topicPath, newValue), requested.get())) {
+                return;
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        synchronized (this) {
+            queue.remove(topicPath);
+        }
+    }
+
+    @Override
+    public void onClose() {
+        completed = true;
+        drain();
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        if (ErrorReason.SESSION_CLOSED.equals(errorReason)) {
+            onClose();
+        }
+        else {
+            fail(new IllegalStateException("The stream failed, " + errorReason));
+            drain();
+        }
+    }
+
+    private void fail(Throwable throwable) {
+        synchronized (this) {
+            if (failure == null) {
+                failure = throwable;
+            }
+        }
+    }
+
+    /**
+     * Deliver the values requested by the subscriber and any terminal notification. Only one thread delivers values
+     * at a time. A thread that finds another delivering records the work so the other thread repeats the loop.
+     */
+    private void drain() {
+        if (work.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            long delivered = 0;
+            while (!cancelled) {
+                if (failure != null) {
+                    cancel();
+                    subscriber.onError(failure);
+                    return;
+                }
+
+                if (delivered == requested.get()) {
+                    break;
+                }
+
+                final TopicValue<S> next;
+                synchronized (this) {
+                    next = queue.poll();
+                }
+                if (next == null) {
+                    break;
+                }
+
+                final T value;
+                try {
+                    value = transformer.transform(next.getValue());
+                }
+                catch (TransformationException e) {
+                    fail(e);
+                    continue;
+                }
+                // CHECKSTYLE.OFF: IllegalCatch
+                catch (Exception e) {
+                    fail(new TransformationException(e));
+                    continue;
+                }
+                // CHECKSTYLE.ON: IllegalCatch
+
+                subscriber.onNext(new TopicValue<>(next.getTopicPath(), value));
+                delivered += 1;
+            }
+
+            if (delivered != 0) {
+                requested.accumulateAndGet(delivered, (current, used) ->
+                    current == Long.MAX_VALUE ? current : current - used);
+            }
+
+            if (!cancelled && completed && isEmpty()) {
+                cancel();
+                subscriber.onComplete();
+                return;
+            }
+
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private synchronized boolean isEmpty() {
+        return queue.isEmpty();
+    }
+}
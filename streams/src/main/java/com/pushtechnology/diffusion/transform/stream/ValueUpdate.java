@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+/**
+ * An update of the value of a topic delivered in a batch to a {@link BatchedValueStream}.
+ *
+ * @param <T> the type of the values
+ * @author Push Technology Limited
+ */
+public final class ValueUpdate<T> {
+    private final String topicPath;
+    private final TopicSpecification specification;
+    private final T oldValue;
+    private final T newValue;
+
+    /**
+     * Constructor.
+     *
+     * @param topicPath the topic path
+     * @param specification the topic specification
+     * @param oldValue the previous value of the topic, may be {@code null}
+     * @param newValue the new value of the topic
+     */
+    public ValueUpdate(String topicPath, TopicSpecification specification, T oldValue, T newValue) {
+        this.topicPath = topicPath;
+        this.specification = specification;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    /**
+     * @return the path of the topic
+     */
+    public String getTopicPath() {
+        return topicPath;
+    }
+
+    /**
+     * @return the specification of the topic
+     */
+    public TopicSpecification getSpecification() {
+        return specification;
+    }
+
+    /**
+     * @return the previous value of the topic, may be {@code null}
+     */
+    public T getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * @return the new value of the topic
+     */
+    public T getNewValue() {
+        return newValue;
+    }
+
+    @Override
+    public String toString() {
+        return "ValueUpdate [topicPath=" + topicPath
+            + ", oldValue=" + oldValue
+            + ", newValue=" + newValue + "]";
+    }
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * An index of a {@link MaterializedView} from keys extracted from the values to the paths of the topics.
+ * <p>
+ * The paths for each key are held in an immutable set that is replaced on each change. This keeps the reads of the
+ * index lock-free and allows the update functions to be retried by the concurrent map.
+ *
+ * @param <T> the type of the values
+ * @param <K> the type of the keys
+ * @author Push Technology Limited
+ */
+/*package*/ final class ViewIndex<T, K> {
+    private final Function<? super T, K> keyExtractor;
+    private final ConcurrentMap<K, Set<String>> entries;
+
+    private ViewIndex(Function<? super T, K> keyExtractor, ConcurrentMap<K, Set<String>> entries) {
+        this.keyExtractor = keyExtractor;
+        this.entries = entries;
+    }
+
+    /**
+     * @return a new index without key ordering
+     */
+    /*package*/ static <T, K> ViewIndex<T, K> hash(Function<? super T, K> keyExtractor) {
+        return new ViewIndex<>(keyExtractor, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @return a new index ordered by key
+     */
+    /*package*/ static <T, K extends Comparable<? super K>> ViewIndex<T, K> sorted(
+            Function<? super T, K> keyExtractor) {
+
+        return new ViewIndex<>(keyExtractor, new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Update the index for a new value of a topic.
+     *
+     * @param topicPath the topic path
+     * @param oldValue the previous value or {@code null}
+     * @param newValue the new value
+     */
+    /*package*/ void update(String topicPath, T oldValue, T newValue) {
+        final K oldKey = oldValue == null ? null : keyExtractor.apply(oldValue);
+        final K newKey = keyExtractor.apply(newValue);
+        if (Objects.equals(oldKey, newKey)) {
+            return;
+        }
+        if (oldKey != null) {
+            removePath(oldKey, topicPath);
+        }
+        if (newKey != null) {
+            entries.compute(newKey, (key, paths) -> {
+                if (paths == null) {
+                    return singleton(topicPath);
+                }
+                final Set<String> newPaths = new HashSet<>(paths);
+                newPaths.add(topicPath);
+                return unmodifiableSet(newPaths);
+            });
+        }
+    }
+
+    /**
+     * Remove a topic from the index.
+     *
+     * @param topicPath the topic path
+     * @param oldValue the previous value
+     */
+    /*package*/ void remove(String topicPath, T oldValue) {
+        final K oldKey = keyExtractor.apply(oldValue);
+        if (oldKey != null) {
+            removePath(oldKey, topicPath);
+        }
+    }
+
+    /**
+     * Remove all the topics from the index.
+     */
+    /*package*/ void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return the paths of the topics with the key
+     */
+    /*package*/ Set<String> lookup(Object key) {
+        final Set<String> paths = key == null ? null : entries.get(key);
+        return paths == null ? emptySet() : paths;
+    }
+
+    /**
+     * @return the keys in the range and paths of the topics with them, or {@code null} if the index is not sorted
+     */
+    /*package*/ Map<K, Set<String>> range(K fromKey, K toKey) {
+        if (!(entries instanceof ConcurrentNavigableMap)) {
+            return null;
+        }
+        return ((ConcurrentNavigableMap<K, Set<String>>) entries).subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @return if the value of a topic currently has a key
+     */
+    /*package*/ boolean hasKey(T value, Object key) {
+        return Objects.equals(keyExtractor.apply(value), key);
+    }
+
+    private void removePath(K oldKey, String topicPath) {
+        entries.computeIfPresent(oldKey, (key, paths) -> {
+            if (!paths.contains(topicPath)) {
+                return paths;
+            }
+            else if (paths.size() == 1) {
+                return null;
+            }
+            final Set<String> newPaths = new HashSet<>(paths);
+            newPaths.remove(topicPath);
+            return unmodifiableSet(newPaths);
+        });
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+/**
+ * Accumulates the count, sum, minimum and maximum of values. Not thread-safe.
+ *
+ * @author Push Technology Limited
+ */
+/*package*/ final class WindowAccumulator {
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Add a value.
+     *
+     * @param value the value
+     */
+    /*package*/ void add(double value) {
+        count += 1;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @return if no values have been added
+     */
+    /*package*/ boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return the aggregate of the values added
+     */
+    /*package*/ WindowAggregate toAggregate(String key, long windowStart, long windowEnd) {
+        return new WindowAggregate(key, windowStart, windowEnd, count, sum, min, max);
+    }
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+/**
+ * The aggregate of the values received in a window for a topic or group of topics.
+ *
+ * @author Push Technology Limited
+ */
+public final class WindowAggregate {
+    private final String key;
+    private final long windowStart;
+    private final long windowEnd;
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+
+    /**
+     * Constructor.
+     *
+     * @param key the topic path or group key
+     * @param windowStart the start of the window in milliseconds since the epoch, exclusive
+     * @param windowEnd the end of the window in milliseconds since the epoch, inclusive
+     * @param count the number of values
+     * @param sum the sum of the values
+     * @param min the smallest value
+     * @param max the largest value
+     */
+    public WindowAggregate(
+            String key,
+            long windowStart,
+            long windowEnd,
+            long count,
+            double sum,
+            double min,
+            double max) {
+
+        this.key = key;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @return the topic path or group key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the start of the window in milliseconds since the epoch, exclusive
+     */
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * @return the end of the window in milliseconds since the epoch, inclusive
+     */
+    public long getWindowEnd() {
+        return windowEnd;
+    }
+
+    /**
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the sum of the values
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the smallest value
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest value
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return the mean of the values
+     */
+    public double getMean() {
+        return sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowAggregate [key=" + key
+            + ", windowStart=" + windowStart
+            + ", windowEnd=" + windowEnd
+            + ", count=" + count
+            + ", sum=" + sum
+            + ", min=" + min
+            + ", max=" + max + "]";
+    }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+
+/**
+ * Builder for a stream that aggregates the numeric values of topics over windows of time. Created by
+ * {@link StreamBuilder#aggregate(java.util.function.ToDoubleFunction,
+ * java.util.concurrent.ScheduledExecutorService)}.
+ * <p>
+ * The values received for each topic are held in a ring buffer of primitive values. Each time the window is emitted
+ * the values that have left the window are removed and the count, sum, minimum, maximum and mean of the remaining
+ * values are provided to the listener. No aggregate is provided for a topic or group without values in the window.
+ * <p>
+ * By default the values are aggregated for each topic over tumbling windows of one second.
+ * <p>
+ * Builders are immutable. Each method that configures the aggregation returns a new builder.
+ *
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+public interface WindowedAggregationBuilder<T> {
+    /**
+     * Aggregate the values over consecutive windows that do not overlap. The windows are aligned to multiples of their
+     * duration since the epoch. The aggregate is emitted when each window closes and each value is aggregated in
+     * exactly one window, even if the scheduler runs late.
+     *
+     * @param window the duration of the windows
+     * @return a new builder
+     */
+    WindowedAggregationBuilder<T> tumbling(Duration window);
+
+    /**
+     * Aggregate the values over a window that slides forward. The aggregate of the most recent window is emitted at
+     * a fixed cadence.
+     *
+     * @param window the duration of the window
+     * @param cadence the interval between emitting aggregates
+     * @return a new builder
+     */
+    WindowedAggregationBuilder<T> sliding(Duration window, Duration cadence);
+
+    /**
+     * Merge the aggregates of the topics that have the same group key.
+     *
+     * @param groupKey the function that provides the group key for a topic path
+     * @return a new builder
+     */
+    WindowedAggregationBuilder<T> groupBy(Function<String, String> groupKey);
+
+    /**
+     * Merge the aggregates of the topics that have the same path prefix.
+     *
+     * @param segments the number of leading path segments that form the group key
+     * @return a new builder
+     */
+    WindowedAggregationBuilder<T> groupByPathPrefix(int segments);
+
+    /**
+     * Create the aggregating stream.
+     *
+     * @param topicsFeature the topics feature
+     * @param topicSelector the topic selector to match the stream
+     * @param listener the listener for the aggregates
+     * @return a handle to the stream, closing it also stops emitting aggregates
+     */
+    StreamHandle register(Topics topicsFeature, String topicSelector, Consumer<WindowAggregate> listener);
+
+    /**
+     * Create the aggregating stream.
+     *
+     * @param session the session
+     * @param topicSelector the topic selector to match the stream
+     * @param listener the listener for the aggregates
+     * @return a handle to the stream, closing it also stops emitting aggregates
+     */
+    StreamHandle register(Session session, String topicSelector, Consumer<WindowAggregate> listener);
+}
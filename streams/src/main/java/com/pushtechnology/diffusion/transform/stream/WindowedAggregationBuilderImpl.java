@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+
+/**
+ * Implementation of {@link WindowedAggregationBuilder}.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class WindowedAggregationBuilderImpl<S, T> implements WindowedAggregationBuilder<T> {
+    private static final long DEFAULT_WINDOW = 1000L;
+    private final StreamBuilder<S, T, ? super TransformedStream<S, T>, ?> streamBuilder;
+    private final ToDoubleFunction<? super T> valueExtractor;
+    private final ScheduledExecutorService scheduler;
+    private final long window;
+    private final long cadence;
+    private final boolean tumbling;
+    private final Function<String, String> groupKey;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ WindowedAggregationBuilderImpl(
+            StreamBuilder<S, T, ? super TransformedStream<S, T>, ?> streamBuilder,
+            ToDoubleFunction<? super T> valueExtractor,
+            ScheduledExecutorService scheduler) {
+        this(streamBuilder, valueExtractor, scheduler, DEFAULT_WINDOW, DEFAULT_WINDOW, true, null);
+    }
+
+    private WindowedAggregationBuilderImpl(
+            StreamBuilder<S, T, ? super TransformedStream<S, T>, ?> streamBuilder,
+            ToDoubleFunction<? super T> valueExtractor,
+            ScheduledExecutorService scheduler,
+            long window,
+            long cadence,
+            boolean tumbling,
+            Function<String, String> groupKey) {
+        this.streamBuilder = streamBuilder;
+        this.valueExtractor = valueExtractor;
+        this.scheduler = scheduler;
+        this.window = window;
+        this.cadence = cadence;
+        this.tumbling = tumbling;
+        this.groupKey = groupKey;
+    }
+
+    @Override
+    public WindowedAggregationBuilder<T> tumbling(Duration newWindow) {
+        return windows(newWindow, newWindow, true);
+    }
+
+    @Override
+    public WindowedAggregationBuilder<T> sliding(Duration newWindow, Duration newCadence) {
+        return windows(newWindow, newCadence, false);
+    }
+
+    private WindowedAggregationBuilder<T> windows(Duration newWindow, Duration newCadence, boolean isTumbling) {
+        final long windowMillis = newWindow.toMillis();
+        final long cadenceMillis = newCadence.toMillis();
+        if (windowMillis <= 0 || cadenceMillis <= 0) {
+            throw new IllegalArgumentException("The window and cadence must be at least one millisecond");
+        }
+        return new WindowedAggregationBuilderImpl<>(
+            streamBuilder,
+            valueExtractor,
+            scheduler,
+            windowMillis,
+            cadenceMillis,
+            isTumbling,
+            groupKey);
+    }
+
+    @Override
+    public WindowedAggregationBuilder<T> groupBy(Function<String, String> newGroupKey) {
+        return new WindowedAggregationBuilderImpl<>(
+            streamBuilder,
+            valueExtractor,
+            scheduler,
+            window,
+            cadence,
+            tumbling,
+            newGroupKey);
+    }
+
+    @Override
+    public WindowedAggregationBuilder<T> groupByPathPrefix(int segments) {
+        if (segments <= 0) {
+            throw new IllegalArgumentException("The number of segments must be positive");
+        }
+        return groupBy(topicPath -> pathPrefix(topicPath, segments));
+    }
+
+    @Override
+    public StreamHandle register(Topics topicsFeature, String topicSelector, Consumer<WindowAggregate> listener) {
+        final WindowedAggregationStream<S, T> stream = new WindowedAggregationStream<>(
+            valueExtractor,
+            groupKey,
+            window,
+            listener,
+            System::currentTimeMillis);
+        final StreamHandle handle = streamBuilder.register(topicsFeature, topicSelector, stream);
+        if (tumbling) {
+            final TumblingEmission emission = new TumblingEmission(stream);
+            emission.run();
+            return () -> {
+                emission.cancel();
+                handle.close();
+            };
+        }
+
+        final ScheduledFuture<?> emission = scheduler.scheduleAtFixedRate(stream::emit, cadence, cadence, MILLISECONDS);
+        return () -> {
+            emission.cancel(false);
+            handle.close();
+        };
+    }
+
+    @Override
+    public StreamHandle register(Session session, String topicSelector, Consumer<WindowAggregate> listener) {
+        return register(session.feature(Topics.class), topicSelector, listener);
+    }
+
+    /**
+     * @return the first segments of a topic path, or the whole path if it has fewer segments
+     */
+    /*package*/ static String pathPrefix(String topicPath, int segments) {
+        int end = -1;
+        for (int i = 0; i < segments; i++) {
+            end = topicPath.indexOf('/', end + 1);
+            if (end < 0) {
+                return topicPath;
+            }
+        }
+        return topicPath.substring(0, end);
+    }
+
+    /**
+     * Emits the tumbling windows of a stream. Each emission is scheduled for the end of the next window by the clock
+     * of the stream, so the emissions do not drift from the window boundaries.
+     */
+    private final class TumblingEmission implements Runnable {
+        private final WindowedAggregationStream<S, T> stream;
+        // Guarded by this
+        private ScheduledFuture<?> next;
+        // Guarded by this
+        private boolean cancelled;
+
+        private TumblingEmission(WindowedAggregationStream<S, T> stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void run() {
+            final long delay = stream.emitClosedWindows();
+            synchronized (this) {
+                if (!cancelled) {
+                    next = scheduler.schedule(this, delay, MILLISECONDS);
+                }
+            }
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            if (next != null) {
+                next.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TransformedStream} that aggregates the numeric values of each topic over a window of time. The values of
+ * each topic are held in a {@link SampleRing} that is only accessed while holding its lock. The aggregates of a
+ * sliding window are emitted by {@link #emit()}. The aggregates of tumbling windows are emitted by
+ * {@link #emitClosedWindows()}.
+ * <p>
+ * Tumbling windows are aligned to multiples of the window length since the epoch. Each window is emitted once its end
+ * has passed with the boundaries of the window, not the time it is emitted, and the samples of the window are removed
+ * from the rings. A sample is timestamped while holding the lock of its ring, so a sample added after a window has been
+ * emitted belongs to a later window. If the emission is late the samples stay in the rings until it runs, so windows
+ * never overlap or leave gaps.
+ *
+ * @param <S> the type of the source values
+ * @param <T> the type of the transformed values
+ * @author Push Technology Limited
+ */
+/*package*/ final class WindowedAggregationStream<S, T> implements TransformedStream<S, T> {
+    private static final Logger LOG = LoggerFactory.getLogger(WindowedAggregationStream.class);
+    private final Map<String, SampleRing> samples = new ConcurrentHashMap<>();
+    private final ToDoubleFunction<? super T> valueExtractor;
+    private final Function<String, String> groupKey;
+    private final long window;
+    private final Consumer<WindowAggregate> listener;
+    private final LongSupplier clock;
+    // Accessed only by the emitting task, successive runs are ordered by the scheduler
+    private long nextWindowEnd;
+
+    /**
+     * Constructor.
+     *
+     * @param groupKey the group key of each topic path, {@code null} to aggregate each topic separately
+     */
+    /*package*/ WindowedAggregationStream(
+            ToDoubleFunction<? super T> valueExtractor,
+            Function<String, String> groupKey,
+            long window,
+            Consumer<WindowAggregate> listener,
+            LongSupplier clock) {
+        this.valueExtractor = valueExtractor;
+        this.groupKey = groupKey;
+        this.window = window;
+        this.listener = listener;
+        this.clock = clock;
+        nextWindowEnd = (clock.getAsLong() / window + 1L) * window;
+    }
+
+    @Override
+    public void onValue(String topicPath, TopicSpecification topicSpecification, T oldValue, T newValue) {
+        final double value = valueExtractor.applyAsDouble(newValue);
+        final SampleRing ring = samples.computeIfAbsent(topicPath, path -> new SampleRing());
+        synchronized (ring) {
+            ring.add(clock.getAsLong(), value);
+        }
+    }
+
+    @Override
+    public void onSubscription(String topicPath, TopicSpecification topicSpecification) {
+    }
+
+    @Override
+    public void onUnsubscription(
+            String topicPath,
+            TopicSpecification topicSpecification,
+            Topics.UnsubscribeReason reason) {
+
+        samples.remove(topicPath);
+    }
+
+    @Override
+    public void onTransformationException(
+            String topicPath,
+            TopicSpecification specification,
+            S value,
+            TransformationException e) {
+
+        LOG.warn("{} transformation error, topic={}, value={}", this, topicPath, value, e);
+    }
+
+    @Override
+    public void onClose() {
+        samples.clear();
+    }
+
+    @Override
+    public void onError(ErrorReason errorReason) {
+        samples.clear();
+    }
+
+    /**
+     * Emit the aggregates of the sliding window ending now.
+     */
+    /*package*/ void emit() {
+        final long windowEnd = clock.getAsLong();
+        final long windowStart = windowEnd - window;
+
+        emit(windowStart, windowEnd, (ring, accumulator) -> {
+            ring.evictUntil(windowStart);
+            ring.accumulate(accumulator);
+        });
+    }
+
+    /**
+     * Emit the aggregates of the tumbling windows that have ended.
+     *
+     * @return the number of milliseconds until the next window ends
+     */
+    /*package*/ long emitClosedWindows() {
+        final long now = clock.getAsLong();
+        while (nextWindowEnd <= now) {
+            final long windowEnd = nextWindowEnd;
+            emit(windowEnd - window, windowEnd, (ring, accumulator) -> ring.drainBefore(windowEnd, accumulator));
+            nextWindowEnd += window;
+        }
+        return nextWindowEnd - now;
+    }
+
+    private void emit(long windowStart, long windowEnd, BiConsumer<SampleRing, WindowAccumulator> aggregation) {
+        if (groupKey == null) {
+            samples.forEach((topicPath, ring) -> {
+                final WindowAccumulator accumulator = new WindowAccumulator();
+                accumulate(ring, aggregation, accumulator);
+                notify(topicPath, windowStart, windowEnd, accumulator);
+            });
+        }
+        else {
+            final Map<String, WindowAccumulator> groups = new HashMap<>();
+            samples.forEach((topicPath, ring) -> accumulate(
+                ring,
+                aggregation,
+                groups.computeIfAbsent(groupKey.apply(topicPath), key -> new WindowAccumulator())));
+            groups.forEach((key, accumulator) -> notify(key, windowStart, windowEnd, accumulator));
+        }
+    }
+
+    private static void accumulate(
+            SampleRing ring,
+            BiConsumer<SampleRing, WindowAccumulator> aggregation,
+            WindowAccumulator accumulator) {
+        synchronized (ring) {
+            aggregation.accept(ring, accumulator);
+        }
+    }
+
+    private void notify(String key, long windowStart, long windowEnd, WindowAccumulator accumulator) {
+        if (accumulator.isEmpty()) {
+            return;
+        }
+
+        try {
+            listener.accept(accumulator.toAggregate(key, windowStart, windowEnd));
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (RuntimeException e) {
+            LOG.warn("RuntimeException thrown by aggregate listener '{}' for '{}'", listener, key, e);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+}
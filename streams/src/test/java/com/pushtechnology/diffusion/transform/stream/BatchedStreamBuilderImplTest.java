@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link BatchedStreamBuilderImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class BatchedStreamBuilderImplTest {
+    @Mock
+    private Session session;
+    @Mock
+    private Topics topics;
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Mock
+    private BatchedValueStream<Integer> stream;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(session.feature(Topics.class)).thenReturn(topics);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void register() {
+        StreamBuilders.newStringStreamBuilder()
+            .transform(String::length)
+            .batch(scheduler)
+            .maxBatchSize(100)
+            .maxLatency(Duration.ofMillis(50))
+            .quietPeriod(Duration.ofMillis(2))
+            .register(session, "?path//", stream);
+
+        verify(topics).addStream(eq("?path//"), eq(String.class), isA(SafeStreamAdapter.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyBatch() {
+        StreamBuilders.newStringStreamBuilder()
+            .batch(scheduler)
+            .maxBatchSize(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noQuietPeriod() {
+        StreamBuilders.newStringStreamBuilder()
+            .batch(scheduler)
+            .quietPeriod(Duration.ZERO);
+    }
+}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link BatchingStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class BatchingStreamTest {
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Mock
+    private ScheduledFuture<?> flushFuture;
+    @Mock
+    private BatchedValueStream<String> delegate;
+    @Mock
+    private TopicSpecification specification;
+    @Captor
+    private ArgumentCaptor<Runnable> flushTask;
+    @Captor
+    private ArgumentCaptor<List<ValueUpdate<String>>> batch;
+
+    private long now;
+    private BatchingStream<String, String> stream;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        doReturn(flushFuture).when(scheduler).schedule(any(Runnable.class), anyLong(), eq(NANOSECONDS));
+
+        now = 0L;
+        stream = new BatchingStream<>(scheduler, 3, 100L, 10L, () -> now, delegate);
+    }
+
+    @Test
+    public void flushWhenFull() {
+        stream.onValue("pathOne", specification, null, "a");
+        stream.onValue("pathTwo", specification, null, "b");
+        stream.onValue("pathOne", specification, "a", "c");
+
+        verify(delegate).onBatch(batch.capture());
+        assertUpdates(batch.getValue(), "a", "b", "c");
+        assertEquals("a", batch.getValue().get(2).getOldValue());
+        verify(scheduler).schedule(any(Runnable.class), eq(10L), eq(NANOSECONDS));
+    }
+
+    @Test
+    public void flushAfterQuietPeriod() {
+        stream.onValue("path", specification, null, "a");
+        verify(scheduler).schedule(flushTask.capture(), eq(10L), eq(NANOSECONDS));
+
+        now = 5L;
+        stream.onValue("path", specification, "a", "b");
+        now = 10L;
+        flushTask.getValue().run();
+
+        verifyNoMoreInteractions(delegate);
+        verify(scheduler).schedule(any(Runnable.class), eq(5L), eq(NANOSECONDS));
+
+        now = 15L;
+        flushTask.getValue().run();
+
+        verify(delegate).onBatch(batch.capture());
+        assertUpdates(batch.getValue(), "a", "b");
+    }
+
+    @Test
+    public void flushAfterMaxLatency() {
+        final BatchingStream<String, String> largeStream =
+            new BatchingStream<>(scheduler, 1000, 100L, 10L, () -> now, delegate);
+
+        for (now = 0L; now < 100L; now += 5L) {
+            largeStream.onValue("path", specification, null, "a");
+        }
+        verify(scheduler).schedule(flushTask.capture(), eq(10L), eq(NANOSECONDS));
+        flushTask.getValue().run();
+
+        verify(delegate).onBatch(batch.capture());
+        assertEquals(20, batch.getValue().size());
+    }
+
+    @Test
+    public void flushBeforeSubscriptionChanges() {
+        stream.onValue("path", specification, null, "a");
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        stream.onSubscription("path", specification);
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onBatch(batch.capture());
+        inOrder.verify(delegate).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        inOrder.verify(delegate).onSubscription("path", specification);
+        assertUpdates(batch.getValue(), "a");
+    }
+
+    @Test
+    public void subscriptionsDoNotFlushOtherTopics() {
+        stream.onSubscription("pathOne", specification);
+        stream.onValue("pathOne", specification, null, "a");
+        stream.onSubscription("pathTwo", specification);
+        stream.onValue("pathTwo", specification, null, "b");
+        stream.onUnsubscription("pathThree", specification, Topics.UnsubscribeReason.REQUESTED);
+        stream.onSubscription("pathThree", specification);
+        stream.onValue("pathThree", specification, null, "c");
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onSubscription("pathOne", specification);
+        inOrder.verify(delegate).onSubscription("pathTwo", specification);
+        inOrder.verify(delegate).onUnsubscription("pathThree", specification, Topics.UnsubscribeReason.REQUESTED);
+        inOrder.verify(delegate).onSubscription("pathThree", specification);
+        inOrder.verify(delegate).onBatch(batch.capture());
+        assertUpdates(batch.getValue(), "a", "b", "c");
+    }
+
+    @Test
+    public void flushOnlyTopicsInBatch() {
+        stream.onValue("pathOne", specification, null, "a");
+        stream.onUnsubscription("pathOne", specification, Topics.UnsubscribeReason.REQUESTED);
+        stream.onValue("pathTwo", specification, null, "b");
+        stream.onSubscription("pathOne", specification);
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onBatch(batch.capture());
+        inOrder.verify(delegate).onUnsubscription("pathOne", specification, Topics.UnsubscribeReason.REQUESTED);
+        inOrder.verify(delegate).onSubscription("pathOne", specification);
+        inOrder.verifyNoMoreInteractions();
+        assertUpdates(batch.getValue(), "a");
+    }
+
+    @Test
+    public void onClose() {
+        stream.onValue("path", specification, null, "a");
+        stream.onClose();
+        stream.onValue("path", specification, "a", "b");
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onBatch(batch.capture());
+        inOrder.verify(delegate).onClose();
+        assertUpdates(batch.getValue(), "a");
+        verify(flushFuture).cancel(false);
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void onError() {
+        stream.onValue("path", specification, null, "a");
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onBatch(batch.capture());
+        inOrder.verify(delegate).onError(ErrorReason.COMMUNICATION_FAILURE);
+    }
+
+    @Test
+    public void onDelegateException() {
+        doThrow(new IllegalStateException("Intentionally thrown in test"))
+            .doNothing()
+            .when(delegate)
+            .onBatch(any());
+
+        for (int i = 0; i < 6; i++) {
+            stream.onValue("path", specification, null, "a");
+        }
+
+        verify(delegate, times(2)).onBatch(any());
+    }
+
+    @Test
+    public void addValuesDuringDelivery() throws InterruptedException {
+        final Thread[] adder = new Thread[1];
+        doAnswer(invocation -> {
+            adder[0] = new Thread(() -> stream.onValue("path", specification, null, "d"));
+            adder[0].start();
+            adder[0].join(5000L);
+            return null;
+        })
+            .doNothing()
+            .when(delegate)
+            .onBatch(any());
+
+        for (int i = 0; i < 3; i++) {
+            stream.onValue("path", specification, null, "a");
+        }
+
+        assertFalse(adder[0].isAlive());
+        stream.onClose();
+
+        verify(delegate, times(2)).onBatch(batch.capture());
+        assertUpdates(batch.getAllValues().get(1), "d");
+    }
+
+    private static void assertUpdates(List<ValueUpdate<String>> updates, String... values) {
+        assertEquals(asList(values), updates.stream().map(ValueUpdate::getNewValue).collect(toList()));
+    }
+}
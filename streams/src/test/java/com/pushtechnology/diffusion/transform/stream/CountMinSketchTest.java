@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CountMinSketch}.
+ *
+ * @author Push Technology Limited
+ */
+public final class CountMinSketchTest {
+
+    @Test
+    public void estimate() {
+        final CountMinSketch sketch = new CountMinSketch(64);
+
+        sketch.add("a".hashCode(), 5L);
+        sketch.add("b".hashCode(), 2L);
+        sketch.add("a".hashCode(), 1L);
+
+        assertEquals(6L, sketch.estimate("a".hashCode()));
+        assertEquals(2L, sketch.estimate("b".hashCode()));
+        assertEquals(0L, sketch.estimate("c".hashCode()));
+    }
+
+    @Test
+    public void neverUnderestimates() {
+        final CountMinSketch sketch = new CountMinSketch(16);
+
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(("topic/" + i).hashCode(), i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(sketch.estimate(("topic/" + i).hashCode()) >= i);
+        }
+    }
+
+    @Test
+    public void clear() {
+        final CountMinSketch sketch = new CountMinSketch(64);
+
+        sketch.add("a".hashCode(), 5L);
+        sketch.clear();
+
+        assertEquals(0L, sketch.estimate("a".hashCode()));
+    }
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link FanOutStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class FanOutStreamTest {
+    @Mock
+    private Topics.ValueStream<String> delegateOne;
+    @Mock
+    private Topics.ValueStream<String> delegateTwo;
+    @Mock
+    private TopicSpecification specification;
+
+    private FanOutStream<String, Topics.ValueStream<String>> stream;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        stream = new FanOutStream<>();
+        stream.add(delegateOne);
+        stream.add(delegateTwo);
+    }
+
+    @Test
+    public void onValue() {
+        stream.onValue("path", specification, null, "value");
+
+        verify(delegateOne).onValue("path", specification, null, "value");
+        verify(delegateTwo).onValue("path", specification, null, "value");
+    }
+
+    @Test
+    public void onSubscription() {
+        stream.onSubscription("path", specification);
+
+        verify(delegateOne).onSubscription("path", specification);
+        verify(delegateTwo).onSubscription("path", specification);
+    }
+
+    @Test
+    public void onUnsubscription() {
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+
+        verify(delegateOne).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        verify(delegateTwo).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+    }
+
+    @Test
+    public void onClose() {
+        stream.onClose();
+
+        verify(delegateOne).onClose();
+        verify(delegateTwo).onClose();
+    }
+
+    @Test
+    public void onError() {
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+
+        verify(delegateOne).onError(ErrorReason.COMMUNICATION_FAILURE);
+        verify(delegateTwo).onError(ErrorReason.COMMUNICATION_FAILURE);
+    }
+
+    @Test
+    public void onDelegateException() {
+        doThrow(new RuntimeException("Intentionally thrown in test"))
+            .when(delegateOne)
+            .onValue(eq("path"), eq(specification), eq(null), eq("value"));
+
+        stream.onValue("path", specification, null, "value");
+
+        verify(delegateTwo).onValue("path", specification, null, "value");
+    }
+
+    @Test
+    public void addReplaysSubscriptions() {
+        @SuppressWarnings("unchecked")
+        final Topics.ValueStream<String> lateDelegate = mock(Topics.ValueStream.class);
+        stream.onSubscription("pathOne", specification);
+        stream.onValue("pathOne", specification, null, "value");
+        stream.onSubscription("pathTwo", specification);
+        stream.onSubscription("pathThree", specification);
+        stream.onUnsubscription("pathThree", specification, Topics.UnsubscribeReason.REQUESTED);
+
+        stream.add(lateDelegate);
+
+        final InOrder inOrder = inOrder(lateDelegate);
+        inOrder.verify(lateDelegate).onSubscription("pathOne", specification);
+        inOrder.verify(lateDelegate).onValue("pathOne", specification, null, "value");
+        verify(lateDelegate).onSubscription("pathTwo", specification);
+        verifyNoMoreInteractions(lateDelegate);
+    }
+
+    @Test
+    public void remove() {
+        stream.remove(delegateOne);
+        stream.onValue("path", specification, null, "value");
+
+        verify(delegateOne).onClose();
+        verifyNoMoreInteractions(delegateOne);
+        verify(delegateTwo).onValue("path", specification, null, "value");
+    }
+
+    @Test
+    public void removeDuringNotification() {
+        doAnswer(invocation -> {
+            stream.remove(delegateOne);
+            return null;
+        }).when(delegateOne).onValue("path", specification, null, "value");
+
+        stream.onValue("path", specification, null, "value");
+        stream.onValue("path", specification, "value", "next");
+
+        final InOrder inOrder = inOrder(delegateOne);
+        inOrder.verify(delegateOne).onValue("path", specification, null, "value");
+        inOrder.verify(delegateOne).onClose();
+        verifyNoMoreInteractions(delegateOne);
+        verify(delegateTwo).onValue("path", specification, "value", "next");
+    }
+
+    @Test
+    public void addDuringNotification() {
+        @SuppressWarnings("unchecked")
+        final Topics.ValueStream<String> lateDelegate = mock(Topics.ValueStream.class);
+        doAnswer(invocation -> {
+            stream.add(lateDelegate);
+            return null;
+        }).when(delegateOne).onSubscription("path", specification);
+
+        stream.onSubscription("path", specification);
+
+        verify(lateDelegate).onSubscription("path", specification);
+        verifyNoMoreInteractions(lateDelegate);
+    }
+
+    @Test
+    public void removeUnknown() {
+        @SuppressWarnings("unchecked")
+        final Topics.ValueStream<String> unknownDelegate = mock(Topics.ValueStream.class);
+
+        stream.remove(unknownDelegate);
+
+        verifyZeroInteractions(unknownDelegate);
+    }
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link InitialBurstStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class InitialBurstStreamTest {
+    @Mock
+    private Topics.ValueStream<String> delegate;
+    @Mock
+    private SynchronisationListener listener;
+    @Mock
+    private TopicSpecification specification;
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private long now;
+
+    private InitialBurstStream<String> stream;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        tasks.clear();
+        now = 0L;
+        stream = new InitialBurstStream<>(tasks::add, listener, () -> now, delegate);
+    }
+
+    @Test
+    public void initialValuesUseExecutor() {
+        stream.onSubscription("pathOne", specification);
+        stream.onValue("pathOne", specification, null, "first");
+        stream.onSubscription("pathTwo", specification);
+        stream.onValue("pathTwo", specification, null, "first");
+
+        assertEquals(2, tasks.size());
+        verifyZeroInteractions(delegate);
+
+        runTasks();
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onSubscription("pathOne", specification);
+        inOrder.verify(delegate).onValue("pathOne", specification, null, "first");
+        verify(delegate).onSubscription("pathTwo", specification);
+        verify(delegate).onValue("pathTwo", specification, null, "first");
+    }
+
+    @Test
+    public void updateQueuedBehindInitialValue() {
+        stream.onSubscription("path", specification);
+        stream.onValue("path", specification, null, "first");
+        stream.onValue("path", specification, "first", "second");
+
+        assertEquals(1, tasks.size());
+        verifyZeroInteractions(delegate);
+
+        runTasks();
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onSubscription("path", specification);
+        inOrder.verify(delegate).onValue("path", specification, null, "first");
+        inOrder.verify(delegate).onValue("path", specification, "first", "second");
+    }
+
+    @Test
+    public void updateDeliveredDirectlyAfterDrained() {
+        stream.onSubscription("path", specification);
+        stream.onValue("path", specification, null, "first");
+        runTasks();
+
+        stream.onValue("path", specification, "first", "second");
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+
+        assertEquals(0, tasks.size());
+        verify(delegate).onValue("path", specification, "first", "second");
+        verify(delegate).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+    }
+
+    @Test
+    public void directExecutor() {
+        final InitialBurstStream<String> directStream =
+            new InitialBurstStream<>(Runnable::run, listener, () -> now, delegate);
+
+        directStream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        directStream.onSubscription("path", specification);
+        directStream.onValue("path", specification, null, "first");
+        directStream.onValue("path", specification, "first", "second");
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        inOrder.verify(delegate).onSubscription("path", specification);
+        inOrder.verify(delegate).onValue("path", specification, null, "first");
+        inOrder.verify(delegate).onValue("path", specification, "first", "second");
+        verify(listener, times(2)).onSynchronised(anyInt(), anyLong());
+        assertEquals(0, directStream.mailboxCount());
+    }
+
+    @Test
+    public void directExecutorReentrantDelivery() {
+        final InitialBurstStream<String> directStream =
+            new InitialBurstStream<>(Runnable::run, listener, () -> now, delegate);
+        doAnswer(invocation -> {
+            directStream.onValue("path", specification, null, "first");
+            return null;
+        }).when(delegate).onSubscription("path", specification);
+
+        directStream.onSubscription("path", specification);
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onSubscription("path", specification);
+        inOrder.verify(delegate).onValue("path", specification, null, "first");
+        verify(listener).onSynchronised(1, 0L);
+        assertEquals(0, directStream.mailboxCount());
+    }
+
+    @Test
+    public void onSynchronised() {
+        now = 100L;
+        stream.onSubscription("pathOne", specification);
+        stream.onValue("pathOne", specification, null, "first");
+        stream.onSubscription("pathTwo", specification);
+        stream.onValue("pathTwo", specification, null, "first");
+
+        now = 350L;
+        runTasks();
+
+        verify(listener).onSynchronised(2, 250L);
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    public void onSynchronisedAgain() {
+        stream.onSubscription("path", specification);
+        stream.onValue("path", specification, null, "first");
+        runTasks();
+
+        now = 1000L;
+        stream.onSubscription("otherPath", specification);
+        stream.onValue("otherPath", specification, null, "first");
+        now = 1100L;
+        runTasks();
+
+        verify(listener).onSynchronised(1, 0L);
+        verify(listener).onSynchronised(1, 100L);
+    }
+
+    @Test
+    public void onListenerException() {
+        doThrow(new RuntimeException("Intentionally thrown in test"))
+            .when(listener)
+            .onSynchronised(1, 0L);
+
+        stream.onValue("path", specification, null, "first");
+        runTasks();
+
+        stream.onValue("path", specification, "first", "second");
+
+        verify(delegate).onValue("path", specification, "first", "second");
+    }
+
+    @Test
+    public void onDelegateException() {
+        doThrow(new RuntimeException("Intentionally thrown in test"))
+            .when(delegate)
+            .onValue(eq("path"), eq(specification), eq(null), eq("first"));
+
+        stream.onValue("path", specification, null, "first");
+        stream.onValue("path", specification, "first", "second");
+        runTasks();
+
+        verify(delegate).onValue("path", specification, "first", "second");
+        verify(listener).onSynchronised(1, 0L);
+    }
+
+    @Test
+    public void onClose() {
+        stream.onValue("path", specification, null, "first");
+        stream.onClose();
+        runTasks();
+
+        verify(delegate).onClose();
+        verifyNoMoreInteractions(delegate);
+        verifyZeroInteractions(listener);
+    }
+
+    @Test
+    public void onError() {
+        stream.onValue("path", specification, null, "first");
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+        runTasks();
+
+        verify(delegate).onError(ErrorReason.COMMUNICATION_FAILURE);
+        verifyNoMoreInteractions(delegate);
+        verifyZeroInteractions(listener);
+    }
+
+    private void runTasks() {
+        Runnable task = tasks.poll();
+        while (task != null) {
+            task.run();
+            task = tasks.poll();
+        }
+    }
+}
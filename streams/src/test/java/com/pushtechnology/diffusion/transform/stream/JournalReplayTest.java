@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.pushtechnology.diffusion.client.Diffusion;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.client.topics.details.TopicType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link JournalReplay}.
+ *
+ * @author Push Technology Limited
+ */
+public final class JournalReplayTest {
+    private final TopicSpecification specification = Diffusion
+        .newTopicSpecification(TopicType.STRING)
+        .withProperty(TopicSpecification.VALIDATE_VALUES, "true");
+
+    @Mock
+    private Topics.ValueStream<String> stream;
+    @Mock
+    private TransformedStream<String, Integer> transformedStream;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        initMocks(this);
+
+        directory = Files.createTempDirectory("journal");
+        try (StreamJournal journal = StreamJournal.open(directory, 4096)) {
+            journal.append("pathOne", specification, 1L, Diffusion.dataTypes().string().toBytes("first"));
+            journal.append("pathTwo", specification, 2L, Diffusion.dataTypes().string().toBytes("other"));
+            journal.append("pathOne", specification, 3L, Diffusion.dataTypes().string().toBytes("second"));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void replay() throws IOException, InterruptedException {
+        assertEquals(3L, JournalReplay.of(directory).replay(String.class, stream));
+
+        final InOrder inOrder = inOrder(stream);
+        inOrder.verify(stream).onSubscription("pathOne", specification);
+        inOrder.verify(stream).onValue("pathOne", specification, null, "first");
+        inOrder.verify(stream).onSubscription("pathTwo", specification);
+        inOrder.verify(stream).onValue("pathTwo", specification, null, "other");
+        inOrder.verify(stream).onValue("pathOne", specification, "first", "second");
+        inOrder.verify(stream).onClose();
+    }
+
+    @Test
+    public void replayAtRecordedSpeed() throws IOException, InterruptedException {
+        assertEquals(3L, JournalReplay.of(directory).atRecordedSpeed().replay(String.class, stream));
+
+        verify(stream).onValue("pathOne", specification, "first", "second");
+    }
+
+    @Test
+    public void replayThroughStreamBuilder() throws IOException, InterruptedException {
+        final long replayed = StreamBuilders
+            .newStringStreamBuilder()
+            .unsafeTransform(String::length)
+            .filter(value -> !value.equals("other"))
+            .replay(JournalReplay.of(directory), transformedStream);
+
+        assertEquals(3L, replayed);
+        verify(transformedStream).onValue("pathOne", specification, null, 5);
+        verify(transformedStream).onValue("pathOne", specification, 5, 6);
+        verify(transformedStream).onClose();
+    }
+}
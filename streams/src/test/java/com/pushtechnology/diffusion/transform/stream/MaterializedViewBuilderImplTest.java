@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link MaterializedViewBuilderImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class MaterializedViewBuilderImplTest {
+    @Mock
+    private Session session;
+    @Mock
+    private Topics topics;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(session.feature(Topics.class)).thenReturn(topics);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void register() {
+        final MaterializedView<String> view = StreamBuilders.newStringStreamBuilder()
+            .materialize()
+            .hashIndex("firstLetter", value -> value.charAt(0))
+            .register(session, "?path//");
+
+        verify(topics).addStream(eq("?path//"), eq(String.class), isA(SafeStreamAdapter.class));
+        assertEquals(0, view.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateIndex() {
+        StreamBuilders.newStringStreamBuilder()
+            .materialize()
+            .hashIndex("index", value -> value.charAt(0))
+            .sortedIndex("index", String::length);
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link MaterializedViewImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class MaterializedViewImplTest {
+    @Mock
+    private StreamHandle handle;
+    @Mock
+    private TopicSpecification specification;
+
+    private MaterializedViewImpl<String, String> view;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        final Map<String, ViewIndex<String, ?>> indexes = new LinkedHashMap<>();
+        indexes.put("firstLetter", ViewIndex.<String, Character>hash(value -> value.charAt(0)));
+        indexes.put("length", ViewIndex.<String, Integer>sorted(String::length));
+        view = new MaterializedViewImpl<>(indexes);
+        view.registered(handle);
+    }
+
+    @Test
+    public void onValue() {
+        view.onValue("pathOne", specification, null, "apple");
+        view.onValue("pathTwo", specification, null, "banana");
+
+        assertEquals("apple", view.get("pathOne"));
+        assertEquals(2, view.size());
+        assertEquals("banana", view.asMap().get("pathTwo"));
+    }
+
+    @Test
+    public void lookup() {
+        view.onValue("pathOne", specification, null, "apple");
+        view.onValue("pathTwo", specification, null, "avocado");
+        view.onValue("pathThree", specification, null, "banana");
+
+        assertEquals(2, view.lookup("firstLetter", 'a').size());
+        assertEquals(singletonMap("pathThree", "banana"), view.lookup("firstLetter", 'b'));
+        assertEquals(emptyMap(), view.lookup("firstLetter", 'c'));
+    }
+
+    @Test
+    public void lookupAfterChange() {
+        view.onValue("path", specification, null, "apple");
+        view.onValue("path", specification, "apple", "banana");
+
+        assertEquals(emptyMap(), view.lookup("firstLetter", 'a'));
+        assertEquals(singletonMap("path", "banana"), view.lookup("firstLetter", 'b'));
+    }
+
+    @Test
+    public void range() {
+        view.onValue("pathOne", specification, null, "fig");
+        view.onValue("pathTwo", specification, null, "banana");
+        view.onValue("pathThree", specification, null, "apple");
+
+        final Map<String, String> result = view.range("length", 3, 6);
+
+        assertEquals(asList("pathOne", "pathThree"), new ArrayList<>(result.keySet()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeOfHashIndex() {
+        view.range("firstLetter", 'a', 'b');
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownIndex() {
+        view.lookup("unknown", "key");
+    }
+
+    @Test
+    public void nullValueRemoves() {
+        view.onValue("pathOne", specification, null, "apple");
+        view.onValue("pathTwo", specification, null, "avocado");
+        view.onValue("pathOne", specification, "apple", null);
+
+        assertNull(view.get("pathOne"));
+        assertEquals(1, view.size());
+        assertEquals(singletonMap("pathTwo", "avocado"), view.lookup("firstLetter", 'a'));
+        assertEquals(singletonMap("pathTwo", "avocado"), view.range("length", 0, 10));
+    }
+
+    @Test
+    public void onUnsubscription() {
+        view.onValue("path", specification, null, "apple");
+        view.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+
+        assertNull(view.get("path"));
+        assertEquals(emptyMap(), view.lookup("firstLetter", 'a'));
+        assertEquals(emptyMap(), view.range("length", 0, 10));
+    }
+
+    @Test
+    public void onError() {
+        view.onValue("path", specification, null, "apple");
+        view.onError(ErrorReason.COMMUNICATION_FAILURE);
+
+        assertEquals(0, view.size());
+        assertEquals(emptyMap(), view.lookup("firstLetter", 'a'));
+    }
+
+    @Test
+    public void close() {
+        view.onValue("path", specification, null, "apple");
+        view.close();
+
+        verify(handle).close();
+        assertEquals(0, view.size());
+    }
+}
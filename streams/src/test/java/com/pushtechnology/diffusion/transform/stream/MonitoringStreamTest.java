@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link MonitoringStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class MonitoringStreamTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Mock
+    private ScheduledFuture<?> flushFuture;
+    @Mock
+    private Topics.ValueStream<String> delegate;
+    @Mock
+    private TopicSpecification specification;
+    @Captor
+    private ArgumentCaptor<Runnable> flushTask;
+
+    private long now;
+    private TopicRateMonitor monitor;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        doReturn(flushFuture).when(scheduler).schedule(any(Runnable.class), anyLong(), eq(NANOSECONDS));
+
+        now = 0L;
+    }
+
+    @Test
+    public void recordCost() {
+        monitor = new TopicRateMonitor(scheduler, 2, 1000L, 5.0, 0L, (hotTopics, updates) -> { }, () -> now);
+        final MonitoringStream<String> stream = new MonitoringStream<>(monitor, () -> now += 7L, delegate);
+
+        stream.onSubscription("path", specification);
+        stream.onValue("path", specification, null, "a");
+        stream.onValue("path", specification, "a", "b");
+
+        verify(delegate).onSubscription("path", specification);
+        verify(delegate).onValue("path", specification, null, "a");
+        verify(delegate).onValue("path", specification, "a", "b");
+        assertEquals(2L, monitor.estimateUpdates("path"));
+        assertEquals(14L, monitor.estimateCost("path"));
+    }
+
+    @Test
+    public void doNotConflateWhenDisabled() {
+        monitor = new TopicRateMonitor(scheduler, 2, 1000L, 1.0, 0L, (hotTopics, updates) -> { }, () -> now);
+        final MonitoringStream<String> stream = new MonitoringStream<>(monitor, () -> now, delegate);
+        makeHot("path");
+
+        stream.onValue("path", specification, null, "a");
+
+        verify(delegate).onValue("path", specification, null, "a");
+    }
+
+    @Test
+    public void conflateHotTopics() {
+        final MonitoringStream<String> stream = conflatingStream();
+        makeHot("hot");
+
+        stream.onValue("hot", specification, null, "a");
+        stream.onValue("cold", specification, null, "x");
+        stream.onValue("hot", specification, "a", "b");
+        stream.onValue("hot", specification, "b", "c");
+
+        verify(delegate).onValue("cold", specification, null, "x");
+        verifyNoMoreInteractions(delegate);
+        verify(scheduler).schedule(flushTask.capture(), eq(50L), eq(NANOSECONDS));
+        assertEquals(3L, monitor.estimateUpdates("hot"));
+
+        flushTask.getValue().run();
+
+        verify(delegate).onValue("hot", specification, null, "c");
+        assertEquals(3L, monitor.estimateUpdates("hot"));
+        assertEquals(1L, monitor.estimateUpdates("cold"));
+    }
+
+    @Test
+    public void holdUntilFlushed() {
+        final MonitoringStream<String> stream = conflatingStream();
+        makeHot("path");
+
+        stream.onValue("path", specification, null, "a");
+        now += 10 * SECOND;
+        monitor.report();
+        stream.onValue("path", specification, "a", "b");
+        verifyNoMoreInteractions(delegate);
+
+        flushTask().run();
+        stream.onValue("path", specification, "b", "c");
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onValue("path", specification, null, "b");
+        inOrder.verify(delegate).onValue("path", specification, "b", "c");
+    }
+
+    @Test
+    public void flushBeforeUnsubscription() {
+        final MonitoringStream<String> stream = conflatingStream();
+        makeHot("path");
+
+        stream.onValue("path", specification, null, "a");
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onValue("path", specification, null, "a");
+        inOrder.verify(delegate).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+    }
+
+    @Test
+    public void flushOnClose() {
+        final MonitoringStream<String> stream = conflatingStream();
+        makeHot("path");
+
+        stream.onValue("path", specification, null, "a");
+        stream.onClose();
+        stream.onValue("path", specification, "a", "b");
+        flushTask().run();
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onValue("path", specification, null, "a");
+        inOrder.verify(delegate).onClose();
+        verifyNoMoreInteractions(delegate);
+        verify(flushFuture).cancel(false);
+    }
+
+    @Test
+    public void flushOnError() {
+        final MonitoringStream<String> stream = conflatingStream();
+        makeHot("path");
+
+        stream.onValue("path", specification, null, "a");
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onValue("path", specification, null, "a");
+        inOrder.verify(delegate).onError(ErrorReason.COMMUNICATION_FAILURE);
+    }
+
+    @Test
+    public void delegateExceptionDuringFlush() {
+        final MonitoringStream<String> stream = conflatingStream();
+        makeHot("pathOne", "pathTwo");
+        doThrow(new RuntimeException("Intentionally thrown in test"))
+            .when(delegate)
+            .onValue("pathOne", specification, null, "a");
+
+        stream.onValue("pathOne", specification, null, "a");
+        stream.onValue("pathTwo", specification, null, "b");
+        flushTask().run();
+
+        verify(delegate).onValue("pathTwo", specification, null, "b");
+        verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), eq(NANOSECONDS));
+    }
+
+    private MonitoringStream<String> conflatingStream() {
+        monitor = new TopicRateMonitor(scheduler, 2, 1000L, 1.0, 50L, (hotTopics, updates) -> { }, () -> now);
+        return new MonitoringStream<>(monitor, () -> now, delegate);
+    }
+
+    private void makeHot(String... topicPaths) {
+        for (final String topicPath : topicPaths) {
+            monitor.record(topicPath, 10, 0L);
+        }
+        now += SECOND;
+        monitor.report();
+    }
+
+    private Runnable flushTask() {
+        verify(scheduler).schedule(flushTask.capture(), eq(50L), eq(NANOSECONDS));
+        return flushTask.getValue();
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link PerTopicDeliveryStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class PerTopicDeliveryStreamTest {
+    @Mock
+    private Topics.ValueStream<String> delegate;
+    @Mock
+    private TopicSpecification specification;
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private PerTopicDeliveryStream<String> stream;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        tasks.clear();
+        stream = new PerTopicDeliveryStream<>(tasks::add, delegate);
+    }
+
+    @Test
+    public void oneTaskPerTopic() {
+        stream.onSubscription("pathOne", specification);
+        stream.onValue("pathOne", specification, null, "first");
+        stream.onSubscription("pathTwo", specification);
+        stream.onValue("pathOne", specification, "first", "second");
+
+        assertEquals(2, tasks.size());
+        verifyNoMoreInteractions(delegate);
+
+        runTasks();
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onSubscription("pathOne", specification);
+        inOrder.verify(delegate).onValue("pathOne", specification, null, "first");
+        inOrder.verify(delegate).onValue("pathOne", specification, "first", "second");
+        verify(delegate).onSubscription("pathTwo", specification);
+    }
+
+    @Test
+    public void rescheduleAfterDrained() {
+        stream.onValue("path", specification, null, "first");
+        runTasks();
+
+        stream.onValue("path", specification, "first", "second");
+        assertEquals(1, tasks.size());
+        runTasks();
+
+        verify(delegate).onValue("path", specification, null, "first");
+        verify(delegate).onValue("path", specification, "first", "second");
+    }
+
+    @Test
+    public void onUnsubscription() {
+        stream.onSubscription("path", specification);
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        runTasks();
+
+        stream.onSubscription("path", specification);
+        assertEquals(1, tasks.size());
+        runTasks();
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onSubscription("path", specification);
+        inOrder.verify(delegate).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        inOrder.verify(delegate).onSubscription("path", specification);
+    }
+
+    @Test
+    public void mailboxRemovedAfterUnsubscription() {
+        stream.onSubscription("path", specification);
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        assertEquals(1, stream.mailboxCount());
+
+        runTasks();
+        assertEquals(0, stream.mailboxCount());
+    }
+
+    @Test
+    public void directExecutor() {
+        final PerTopicDeliveryStream<String> directStream = new PerTopicDeliveryStream<>(Runnable::run, delegate);
+
+        directStream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        directStream.onSubscription("path", specification);
+        directStream.onValue("path", specification, null, "first");
+        directStream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        inOrder.verify(delegate).onSubscription("path", specification);
+        inOrder.verify(delegate).onValue("path", specification, null, "first");
+        inOrder.verify(delegate).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        assertEquals(0, directStream.mailboxCount());
+    }
+
+    @Test
+    public void directExecutorReentrantDelivery() {
+        final PerTopicDeliveryStream<String> directStream = new PerTopicDeliveryStream<>(Runnable::run, delegate);
+        doAnswer(invocation -> {
+            directStream.onValue("path", specification, null, "first");
+            return null;
+        }).when(delegate).onSubscription("path", specification);
+
+        directStream.onSubscription("path", specification);
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onSubscription("path", specification);
+        inOrder.verify(delegate).onValue("path", specification, null, "first");
+    }
+
+    @Test
+    public void onDelegateException() {
+        doThrow(new RuntimeException("Intentionally thrown in test"))
+            .when(delegate)
+            .onValue(eq("path"), eq(specification), eq(null), eq("first"));
+
+        stream.onValue("path", specification, null, "first");
+        stream.onValue("path", specification, "first", "second");
+        runTasks();
+
+        verify(delegate).onValue("path", specification, "first", "second");
+    }
+
+    @Test
+    public void onClose() {
+        stream.onValue("path", specification, null, "first");
+        stream.onClose();
+        runTasks();
+
+        verify(delegate).onClose();
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void onError() {
+        stream.onValue("path", specification, null, "first");
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+        runTasks();
+
+        verify(delegate).onError(ErrorReason.COMMUNICATION_FAILURE);
+        verifyNoMoreInteractions(delegate);
+    }
+
+    private void runTasks() {
+        Runnable task = tasks.poll();
+        while (task != null) {
+            task.run();
+            task = tasks.poll();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link PooledStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class PooledStreamTest {
+    @Mock
+    private Session session;
+    @Mock
+    private Topics topics;
+    @Mock
+    private Topics.ValueStream<String> delegate;
+    @Mock
+    private TopicSpecification specification;
+    @Mock
+    private SessionPool.Binding binding;
+
+    private PooledStream<String> stream;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(session.feature(Topics.class)).thenReturn(topics);
+        doReturn(completedFuture(null)).when(topics).subscribe("?path//");
+        doReturn(completedFuture(null)).when(topics).unsubscribe("?path//");
+
+        stream = new PooledStream<>(String.class, "?path//", delegate);
+    }
+
+    @Test
+    public void bindTo() {
+        final Runnable unbinder = stream.bindTo(session);
+
+        verify(topics).addStream("?path//", String.class, stream);
+        verify(topics).subscribe("?path//");
+
+        unbinder.run();
+
+        verify(topics).unsubscribe("?path//");
+        verify(topics).removeStream(stream);
+    }
+
+    @Test
+    public void bindToSharedSelector() {
+        final PooledStream<String> otherStream = new PooledStream<>(String.class, "?path//", delegate);
+        final Runnable unbinder = stream.bindTo(session);
+        final Runnable otherUnbinder = otherStream.bindTo(session);
+
+        verify(topics).subscribe("?path//");
+
+        unbinder.run();
+
+        verify(topics).removeStream(stream);
+        verify(topics, never()).unsubscribe("?path//");
+
+        otherUnbinder.run();
+
+        verify(topics).removeStream(otherStream);
+        verify(topics).unsubscribe("?path//");
+    }
+
+    @Test
+    public void onValue() {
+        stream.onSubscription("path", specification);
+        stream.onValue("path", specification, null, "value");
+
+        verify(delegate).onSubscription("path", specification);
+        verify(delegate).onValue("path", specification, null, "value");
+    }
+
+    @Test
+    public void onCloseFromLostSession() {
+        stream.onClose();
+        stream.onError(ErrorReason.SESSION_CLOSED);
+
+        verify(delegate, never()).onClose();
+        verify(delegate, never()).onError(ErrorReason.SESSION_CLOSED);
+    }
+
+    @Test
+    public void closeBound() {
+        when(binding.getSession()).thenReturn(session);
+
+        stream.close(binding);
+        verify(binding).close();
+        verify(delegate, never()).onClose();
+
+        stream.onClose();
+        verify(delegate).onClose();
+    }
+
+    @Test
+    public void closeUnbound() {
+        stream.close(binding);
+
+        verify(binding).close();
+        verify(delegate).onClose();
+    }
+}
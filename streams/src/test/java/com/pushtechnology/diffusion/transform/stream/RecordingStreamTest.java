@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.pushtechnology.diffusion.client.Diffusion;
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.client.topics.details.TopicType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link RecordingStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class RecordingStreamTest {
+    private final TopicSpecification specification = Diffusion.newTopicSpecification(TopicType.STRING);
+
+    @Mock
+    private Topics.ValueStream<String> delegate;
+    @Mock
+    private Topics.ValueStream<String> replayStream;
+
+    private Path directory;
+    private StreamJournal journal;
+    private RecordingStream<String> stream;
+
+    @Before
+    public void setUp() throws IOException {
+        initMocks(this);
+
+        directory = Files.createTempDirectory("journal");
+        journal = StreamJournal.open(directory, 4096);
+        stream = new RecordingStream<>(journal, Diffusion.dataTypes().string(), delegate);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void onValue() throws IOException, InterruptedException {
+        stream.onValue("path", specification, null, "value");
+        journal.close();
+
+        verify(delegate).onValue("path", specification, null, "value");
+        JournalReplay.of(directory).replay(String.class, replayStream);
+        verify(replayStream).onValue("path", specification, null, "value");
+    }
+
+    @Test
+    public void onValueAfterJournalClosed() {
+        journal.close();
+        stream.onValue("path", specification, null, "value");
+
+        verify(delegate).onValue("path", specification, null, "value");
+    }
+
+    @Test
+    public void onSubscription() {
+        stream.onSubscription("path", specification);
+
+        verify(delegate).onSubscription("path", specification);
+    }
+
+    @Test
+    public void onUnsubscription() {
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+
+        verify(delegate).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+    }
+
+    @Test
+    public void onClose() {
+        stream.onClose();
+
+        verify(delegate).onClose();
+    }
+
+    @Test
+    public void onError() {
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+
+        verify(delegate).onError(ErrorReason.COMMUNICATION_FAILURE);
+    }
+}
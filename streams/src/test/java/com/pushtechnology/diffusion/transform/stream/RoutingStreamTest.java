@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.path.TopicPathTrie;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link RoutingStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class RoutingStreamTest {
+    @Mock
+    private Topics.ValueStream<String> priceStream;
+    @Mock
+    private Topics.ValueStream<String> auditStream;
+    @Mock
+    private TopicSpecification specification;
+
+    private RoutingStream<String> stream;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        stream = new RoutingStream<>(TopicPathTrie.<Topics.ValueStream<String>>builder()
+            .add("trades/*/price", priceStream)
+            .add("trades/**", auditStream)
+            .build());
+    }
+
+    @Test
+    public void onValue() {
+        stream.onValue("trades/a/price", specification, null, "value");
+        stream.onValue("trades/a/volume", specification, null, "value");
+
+        verify(priceStream).onValue("trades/a/price", specification, null, "value");
+        verify(auditStream).onValue("trades/a/price", specification, null, "value");
+        verify(auditStream).onValue("trades/a/volume", specification, null, "value");
+        verifyNoMoreInteractions(priceStream, auditStream);
+    }
+
+    @Test
+    public void onSubscription() {
+        stream.onSubscription("trades/a/price", specification);
+
+        verify(priceStream).onSubscription("trades/a/price", specification);
+        verify(auditStream).onSubscription("trades/a/price", specification);
+    }
+
+    @Test
+    public void onUnsubscription() {
+        stream.onSubscription("trades/a/price", specification);
+        stream.onUnsubscription("trades/a/price", specification, Topics.UnsubscribeReason.REQUESTED);
+
+        verify(priceStream).onUnsubscription("trades/a/price", specification, Topics.UnsubscribeReason.REQUESTED);
+        verify(auditStream).onUnsubscription("trades/a/price", specification, Topics.UnsubscribeReason.REQUESTED);
+    }
+
+    @Test
+    public void noRoute() {
+        stream.onValue("other", specification, null, "value");
+
+        verifyZeroInteractions(priceStream, auditStream);
+    }
+
+    @Test
+    public void onClose() {
+        stream.onClose();
+
+        verify(priceStream).onClose();
+        verify(auditStream).onClose();
+    }
+
+    @Test
+    public void onError() {
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+
+        verify(priceStream).onError(ErrorReason.COMMUNICATION_FAILURE);
+        verify(auditStream).onError(ErrorReason.COMMUNICATION_FAILURE);
+    }
+
+    @Test
+    public void streamRoutedByManyPatterns() {
+        final TopicPathTrie<Topics.ValueStream<String>> routes = TopicPathTrie.<Topics.ValueStream<String>>builder()
+            .add("trades/*/price", priceStream)
+            .add("trades/a/*", priceStream)
+            .build();
+        final RoutingStream<String> sharedStream = new RoutingStream<>(routes);
+
+        sharedStream.onValue("trades/a/price", specification, null, "value");
+        sharedStream.onUnsubscription("trades/a/price", specification, Topics.UnsubscribeReason.REQUESTED);
+        sharedStream.onClose();
+
+        verify(priceStream).onValue("trades/a/price", specification, null, "value");
+        verify(priceStream).onUnsubscription("trades/a/price", specification, Topics.UnsubscribeReason.REQUESTED);
+        verify(priceStream).onClose();
+        verifyNoMoreInteractions(priceStream);
+    }
+
+    @Test
+    public void onRouteException() {
+        doThrow(new RuntimeException("Intentionally thrown in test"))
+            .when(priceStream)
+            .onValue(eq("trades/a/price"), eq(specification), eq(null), eq("value"));
+
+        stream.onValue("trades/a/price", specification, null, "value");
+
+        verify(auditStream).onValue("trades/a/price", specification, null, "value");
+    }
+}
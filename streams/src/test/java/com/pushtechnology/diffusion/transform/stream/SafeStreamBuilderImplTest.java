@@ -23,6 +23,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Matchers.isNotNull;
 import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -45,6 +46,8 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
 
 /**
  * Unit tests for {@link SafeStreamBuilderImpl}.
@@ -67,6 +70,12 @@ public final class SafeStreamBuilderImplTest {
     private ValueStream<Event<JSON>> timeseriesStream;
     @Mock
     private JSON json;
+    @Mock
+    private TopicSpecification specification;
+    @Mock
+    private Subscriber<TopicValue<String>> subscriber;
+    @Captor
+    private ArgumentCaptor<ValueStream<String>> stringStreamCaptor;
     @Captor
     private ArgumentCaptor<ValueStream<Event<JSON>>> streamCaptor;
     @Captor
@@ -136,6 +145,95 @@ public final class SafeStreamBuilderImplTest {
         verify(topics).addStream(eq(selector), eq(String.class), isA(SafeStreamAdapter.class));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerSwappable() {
+        final StreamBuilder<String, String, ValueStream<String>, ValueStream<Event<String>>> streamBuilder =
+            new SafeStreamBuilderImpl<>(String.class, identity());
+        final SwappableStreamHandle<String, String> handle = streamBuilder.registerSwappable(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), isA(SwappableStreamAdapter.class));
+
+        handle.close();
+
+        verify(topics).removeStream(isA(SwappableStreamAdapter.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerPerTopicDelivery() {
+        final SafeStreamBuilder<String, String> streamBuilder =
+            new SafeStreamBuilderImpl<>(String.class, identity()).perTopicDelivery(Runnable::run);
+        streamBuilder.register(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), isA(PerTopicDeliveryStream.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerParallelInitialValues() {
+        final SafeStreamBuilder<String, String> streamBuilder = new SafeStreamBuilderImpl<>(String.class, identity())
+            .parallelInitialValues(Runnable::run, (initialValues, durationNanos) -> { });
+        streamBuilder.register(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), isA(InitialBurstStream.class));
+    }
+
+    @Test
+    public void registerFilterAndDistinctUntilChanged() {
+        final SafeStreamBuilder<String, String> streamBuilder =
+            new SafeStreamBuilderImpl<>(String.class, identity())
+                .filter(value -> !value.isEmpty())
+                .distinctUntilChanged();
+        streamBuilder.register(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), stringStreamCaptor.capture());
+        final ValueStream<String> registeredStream = stringStreamCaptor.getValue();
+        registeredStream.onValue("path", specification, null, "first");
+        registeredStream.onValue("path", specification, "first", "first");
+        registeredStream.onValue("path", specification, "first", "");
+
+        verify(stream).onValue("path", specification, null, "first");
+        verify(stream, never()).onValue("path", specification, "first", "first");
+        verify(stream, never()).onValue("path", specification, "first", "");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerFilterTopics() {
+        final SafeStreamBuilder<String, String> streamBuilder =
+            new SafeStreamBuilderImpl<>(String.class, identity()).filterTopics((topicPath, topicSpecification) -> true);
+        streamBuilder.register(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), isA(TopicFilterStream.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void share() {
+        final StreamHub<ValueStream<String>> hub = new SafeStreamBuilderImpl<>(String.class, identity()).share(session, "path");
+
+        final StreamHandle handleOne = hub.register(stream);
+        final StreamHandle handleTwo = hub.register(stream);
+        verify(topics).addStream(eq("path"), eq(String.class), isA(SafeStreamAdapter.class));
+
+        handleOne.close();
+        handleTwo.close();
+        verify(topics).removeStream(isA(SafeStreamAdapter.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void publisher() {
+        final Publisher<TopicValue<String>> publisher =
+            new SafeStreamBuilderImpl<>(String.class, identity()).publisher(session, "path", OverflowStrategy.conflate());
+
+        publisher.subscribe(subscriber);
+
+        verify(subscriber).onSubscribe(isA(ValueSubscription.class));
+        verify(topics).addStream(eq("path"), eq(String.class), isA(ValueSubscription.class));
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void createFallback() {
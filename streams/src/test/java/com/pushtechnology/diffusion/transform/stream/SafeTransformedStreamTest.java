@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link SafeTransformedStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SafeTransformedStreamTest {
+    @Mock
+    private Topics.ValueStream<String> delegate;
+    @Mock
+    private TopicSpecification specification;
+
+    private SafeTransformedStream<String, String> stream;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        stream = new SafeTransformedStream<>(delegate);
+    }
+
+    @After
+    public void postConditions() {
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void onValue() {
+        stream.onValue("path", specification, "a", "b");
+
+        verify(delegate).onValue("path", specification, "a", "b");
+    }
+
+    @Test
+    public void onSubscription() {
+        stream.onSubscription("path", specification);
+
+        verify(delegate).onSubscription("path", specification);
+    }
+
+    @Test
+    public void onUnsubscription() {
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+
+        verify(delegate).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+    }
+
+    @Test
+    public void onTransformationException() {
+        stream.onTransformationException("path", specification, "a", new TransformationException("Test"));
+    }
+
+    @Test
+    public void onClose() {
+        stream.onClose();
+
+        verify(delegate).onClose();
+    }
+
+    @Test
+    public void onError() {
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+
+        verify(delegate).onError(ErrorReason.COMMUNICATION_FAILURE);
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SampleRing}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SampleRingTest {
+    @Test
+    public void accumulate() {
+        final SampleRing ring = new SampleRing();
+        ring.add(1L, 2.0);
+        ring.add(2L, 4.0);
+
+        final WindowAggregate aggregate = aggregate(ring);
+        assertEquals(2L, aggregate.getCount());
+        assertEquals(6.0, aggregate.getSum(), 0.0);
+        assertEquals(2.0, aggregate.getMin(), 0.0);
+        assertEquals(4.0, aggregate.getMax(), 0.0);
+        assertEquals(3.0, aggregate.getMean(), 0.0);
+    }
+
+    @Test
+    public void evictUntil() {
+        final SampleRing ring = new SampleRing();
+        ring.add(1L, 1.0);
+        ring.add(2L, 2.0);
+        ring.add(3L, 3.0);
+
+        ring.evictUntil(2L);
+
+        assertEquals(1, ring.size());
+        assertEquals(3.0, aggregate(ring).getSum(), 0.0);
+    }
+
+    @Test
+    public void drainBefore() {
+        final SampleRing ring = new SampleRing();
+        ring.add(1L, 1.0);
+        ring.add(2L, 2.0);
+        ring.add(3L, 3.0);
+
+        final WindowAccumulator accumulator = new WindowAccumulator();
+        ring.drainBefore(3L, accumulator);
+
+        assertEquals(3.0, accumulator.toAggregate("key", 0L, 0L).getSum(), 0.0);
+        assertEquals(1, ring.size());
+        assertEquals(3.0, aggregate(ring).getSum(), 0.0);
+    }
+
+    @Test
+    public void growAfterWrapping() {
+        final SampleRing ring = new SampleRing();
+        for (int i = 0; i < 10; i++) {
+            ring.add(i, 1.0);
+        }
+        ring.evictUntil(7L);
+        for (int i = 10; i < 40; i++) {
+            ring.add(i, i);
+        }
+
+        assertEquals(32, ring.size());
+        final WindowAggregate aggregate = aggregate(ring);
+        assertEquals(1.0, aggregate.getMin(), 0.0);
+        assertEquals(39.0, aggregate.getMax(), 0.0);
+
+        ring.evictUntil(9L);
+        assertEquals(30, ring.size());
+        assertEquals(10.0, aggregate(ring).getMin(), 0.0);
+    }
+
+    private static WindowAggregate aggregate(SampleRing ring) {
+        final WindowAccumulator accumulator = new WindowAccumulator();
+        ring.accumulate(accumulator);
+        return accumulator.toAggregate("key", 0L, 0L);
+    }
+}
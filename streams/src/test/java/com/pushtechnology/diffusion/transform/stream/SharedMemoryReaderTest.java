@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.CLAIM_POSITION_OFFSET;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.HEADER_LENGTH;
+import static com.pushtechnology.diffusion.transform.stream.SharedMemoryFormat.VALUE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link SharedMemoryReader}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SharedMemoryReaderTest {
+    private static final ValueCodec<String> CODEC = new ValueCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes, int offset, int length) {
+            return new String(bytes, offset, length, UTF_8);
+        }
+    };
+
+    @Mock
+    private SharedMemoryListener<String> listener;
+
+    private Path file;
+    private SharedMemoryWriter<String> writer;
+
+    @Before
+    public void setUp() throws IOException {
+        initMocks(this);
+
+        file = Files.createTempFile("ring", ".shm");
+        Files.delete(file);
+        writer = SharedMemoryWriter.open(file, 4096, CODEC);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        writer.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void startAtLatestRecord() throws IOException {
+        writer.write("path", "before");
+
+        try (SharedMemoryReader<String> reader = SharedMemoryReader.open(file, CODEC)) {
+            writer.write("path", "after");
+
+            assertEquals(1, reader.poll(listener, 10));
+            verify(listener).onValue("path", "after");
+            verifyNoMoreInteractions(listener);
+        }
+    }
+
+    @Test
+    public void readValuesAndRemovals() throws IOException {
+        try (SharedMemoryReader<String> reader = SharedMemoryReader.open(file, CODEC)) {
+            writer.write("pathOne", "a");
+            writer.write("pathTwo", "b");
+            writer.remove("pathOne");
+
+            assertEquals(3, reader.poll(listener, 10));
+            assertEquals(0L, reader.getLag());
+
+            final InOrder inOrder = inOrder(listener);
+            inOrder.verify(listener).onValue("pathOne", "a");
+            inOrder.verify(listener).onValue("pathTwo", "b");
+            inOrder.verify(listener).onRemoval("pathOne");
+        }
+    }
+
+    @Test
+    public void limit() throws IOException {
+        try (SharedMemoryReader<String> reader = SharedMemoryReader.open(file, CODEC)) {
+            writer.write("path", "a");
+            writer.write("path", "b");
+
+            assertEquals(1, reader.poll(listener, 1));
+            assertEquals(24L, reader.getLag());
+            assertEquals(1, reader.poll(listener, 1));
+            assertEquals(0, reader.poll(listener, 1));
+        }
+    }
+
+    @Test
+    public void wrapAround() throws IOException {
+        try (SharedMemoryReader<String> reader = SharedMemoryReader.open(file, CODEC)) {
+            final String value = new String(new char[1000]);
+            for (int i = 0; i < 10; i++) {
+                writer.write("path", value + i);
+                assertEquals(1, reader.poll(listener, 10));
+                verify(listener).onValue("path", value + i);
+            }
+            verify(listener, never()).onOverrun(anyLong());
+        }
+    }
+
+    @Test
+    public void overrun() throws IOException {
+        try (SharedMemoryReader<String> reader = SharedMemoryReader.open(file, CODEC)) {
+            final String value = new String(new char[1000]);
+            for (int i = 0; i < 5; i++) {
+                writer.write("path", value);
+            }
+
+            assertEquals(0, reader.poll(listener, 10));
+            verify(listener).onOverrun(writer.getPosition());
+            assertEquals(0L, reader.getLag());
+
+            writer.write("path", "a");
+            assertEquals(1, reader.poll(listener, 10));
+            verify(listener).onValue("path", "a");
+        }
+    }
+
+    @Test
+    public void partialWriteNotRead() throws IOException {
+        try (SharedMemoryReader<String> reader = SharedMemoryReader.open(file, CODEC)) {
+            writer.write("path", "a");
+
+            // The writer has claimed the next record and written part of its header but not published it
+            final long position = writer.getPosition();
+            partialWrite(position + 24L, HEADER_LENGTH + (int) position, 21, VALUE);
+
+            assertEquals(1, reader.poll(listener, 10));
+            verify(listener).onValue("path", "a");
+            verifyNoMoreInteractions(listener);
+            assertEquals(position, reader.getPosition());
+            assertEquals(0L, reader.getLag());
+        }
+    }
+
+    @Test
+    public void partialOverwriteDetected() throws IOException {
+        try (SharedMemoryReader<String> reader = SharedMemoryReader.open(file, CODEC)) {
+            final String value = new String(new char[1000]);
+            for (int i = 0; i < 4; i++) {
+                writer.write("path", value);
+            }
+
+            // The writer has claimed a record that wraps over the first record and started to overwrite it
+            final long published = writer.getPosition();
+            partialWrite(published + 32L + 1016L, HEADER_LENGTH, 1016, VALUE, 5000);
+
+            assertEquals(0, reader.poll(listener, 10));
+            verify(listener).onOverrun(published);
+            verifyNoMoreInteractions(listener);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void notRingBuffer() throws IOException {
+        final Path other = Files.createTempFile("other", ".shm");
+        try {
+            Files.write(other, new byte[256]);
+            SharedMemoryReader.open(other, CODEC);
+        }
+        finally {
+            Files.delete(other);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pollAfterClose() throws IOException {
+        final SharedMemoryReader<String> reader = SharedMemoryReader.open(file, CODEC);
+        reader.close();
+
+        reader.poll(listener, 10);
+    }
+
+    /**
+     * Advance the claim position and write some ints of a record without publishing it, as the writer does before it
+     * completes a record.
+     */
+    private void partialWrite(long claimPosition, int offset, int... ints) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, channel.size());
+            buffer.putLong(CLAIM_POSITION_OFFSET, claimPosition);
+            for (int i = 0; i < ints.length; i++) {
+                buffer.putInt(offset + 4 * i, ints[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link SharedMemoryStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SharedMemoryStreamTest {
+    private static final ValueCodec<String> CODEC = new ValueCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes, int offset, int length) {
+            return new String(bytes, offset, length, UTF_8);
+        }
+    };
+
+    @Mock
+    private TopicSpecification specification;
+    @Mock
+    private SharedMemoryListener<String> listener;
+
+    private Path file;
+    private SharedMemoryWriter<String> writer;
+    private SharedMemoryReader<String> reader;
+    private SharedMemoryStream<String, String> stream;
+
+    @Before
+    public void setUp() throws IOException {
+        initMocks(this);
+
+        file = Files.createTempFile("ring", ".shm");
+        Files.delete(file);
+        writer = SharedMemoryWriter.open(file, 4096, CODEC);
+        reader = SharedMemoryReader.open(file, CODEC);
+        stream = new SharedMemoryStream<>(writer);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        reader.close();
+        writer.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void writeValuesAndRemovals() {
+        stream.onSubscription("path", specification);
+        stream.onValue("path", specification, null, "a");
+        stream.onValue("path", specification, "a", "b");
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+
+        assertEquals(3, reader.poll(listener, 10));
+        final InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).onValue("path", "a");
+        inOrder.verify(listener).onValue("path", "b");
+        inOrder.verify(listener).onRemoval("path");
+    }
+
+    @Test
+    public void writeFailure() {
+        stream.onValue("path", specification, null, new String(new char[2000]));
+        stream.onValue("path", specification, null, "a");
+
+        assertEquals(1, reader.poll(listener, 10));
+        verify(listener).onValue("path", "a");
+    }
+
+    @Test
+    public void doNotCloseWriter() {
+        stream.onClose();
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+        stream.onValue("path", specification, null, "a");
+
+        assertEquals(1, reader.poll(listener, 10));
+    }
+}
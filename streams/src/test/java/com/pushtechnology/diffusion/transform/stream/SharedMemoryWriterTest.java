@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SharedMemoryWriter}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SharedMemoryWriterTest {
+    private static final ValueCodec<String> CODEC = new ValueCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes, int offset, int length) {
+            return new String(bytes, offset, length, UTF_8);
+        }
+    };
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("ring", ".shm");
+        Files.delete(file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void createFile() throws IOException {
+        try (SharedMemoryWriter<String> writer = SharedMemoryWriter.open(file, 4096, CODEC)) {
+            assertEquals(0L, writer.getPosition());
+        }
+
+        assertEquals(SharedMemoryFormat.HEADER_LENGTH + 4096L, Files.size(file));
+    }
+
+    @Test
+    public void alignRecords() throws IOException {
+        try (SharedMemoryWriter<String> writer = SharedMemoryWriter.open(file, 4096, CODEC)) {
+            writer.write("path", "a");
+            assertEquals(24L, writer.getPosition());
+
+            writer.remove("path");
+            assertEquals(40L, writer.getPosition());
+        }
+    }
+
+    @Test
+    public void padEndOfRing() throws IOException {
+        try (SharedMemoryWriter<String> writer = SharedMemoryWriter.open(file, 4096, CODEC)) {
+            final String value = new String(new char[1000]);
+            for (int i = 0; i < 4; i++) {
+                writer.write("path", value);
+            }
+            assertEquals(4064L, writer.getPosition());
+
+            writer.write("path", value);
+            assertEquals(4096L + 1016L, writer.getPosition());
+        }
+    }
+
+    @Test
+    public void continueAfterExistingRecords() throws IOException {
+        try (SharedMemoryWriter<String> writer = SharedMemoryWriter.open(file, 4096, CODEC)) {
+            writer.write("path", "a");
+        }
+
+        try (SharedMemoryWriter<String> writer = SharedMemoryWriter.open(file, 4096, CODEC)) {
+            assertEquals(24L, writer.getPosition());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void differentCapacity() throws IOException {
+        SharedMemoryWriter.open(file, 4096, CODEC).close();
+
+        SharedMemoryWriter.open(file, 8192, CODEC);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityNotPowerOfTwo() throws IOException {
+        SharedMemoryWriter.open(file, 5000, CODEC);
+    }
+
+    @Test(expected = IOException.class)
+    public void recordTooLong() throws IOException {
+        try (SharedMemoryWriter<String> writer = SharedMemoryWriter.open(file, 4096, CODEC)) {
+            writer.write("path", new String(new char[1024]));
+        }
+    }
+
+    @Test(expected = ClosedChannelException.class)
+    public void writeAfterClose() throws IOException {
+        final SharedMemoryWriter<String> writer = SharedMemoryWriter.open(file, 4096, CODEC);
+        writer.close();
+
+        writer.write("path", "a");
+    }
+}
@@ -17,6 +17,7 @@ package com.pushtechnology.diffusion.transform.stream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
@@ -43,6 +44,8 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
 
 /**
  * Unit tests for {@link StreamBuilderImpl}.
@@ -64,6 +67,8 @@ public final class StreamBuilderImplTest {
     private TransformedStream<Event<JSON>, Event<JSON>> timeseriesStream;
     @Mock
     private JSON json;
+    @Mock
+    private Subscriber<TopicValue<String>> subscriber;
     @Captor
     private ArgumentCaptor<Topics.ValueStream<Event<JSON>>> streamCaptor;
     @Captor
@@ -111,6 +116,108 @@ public final class StreamBuilderImplTest {
         verify(topics).addStream(eq(selector), eq(String.class), isA(StreamAdapter.class));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerPerTopicDelivery() {
+        final StreamBuilder<String, String, TransformedStream<String, String>, TransformedStream<Event<String>, Event<String>>> streamBuilder =
+            new StreamBuilderImpl<>(String.class, Transformers.toTransformer(Function.identity())).perTopicDelivery(Runnable::run);
+        streamBuilder.register(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), isA(PerTopicDeliveryStream.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerParallelInitialValues() {
+        final StreamBuilder<String, String, TransformedStream<String, String>, TransformedStream<Event<String>, Event<String>>> streamBuilder =
+            new StreamBuilderImpl<>(String.class, Transformers.toTransformer(Function.identity()))
+                .parallelInitialValues(Runnable::run, (initialValues, durationNanos) -> { });
+        streamBuilder.register(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), isA(InitialBurstStream.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerSwappable() {
+        final StreamBuilder<String, String, TransformedStream<String, String>, TransformedStream<Event<String>, Event<String>>> streamBuilder =
+            new StreamBuilderImpl<>(String.class, Transformers.toTransformer(Function.identity()));
+        final SwappableStreamHandle<String, String> handle = streamBuilder.registerSwappable(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), isA(SwappableStreamAdapter.class));
+
+        handle.close();
+
+        verify(topics).removeStream(isA(SwappableStreamAdapter.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerFilter() {
+        final StreamBuilder<String, String, TransformedStream<String, String>, TransformedStream<Event<String>, Event<String>>> streamBuilder =
+            new StreamBuilderImpl<>(String.class, Transformers.toTransformer(Function.identity())).filter(value -> true);
+        streamBuilder.register(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), isA(ValueFilterStream.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerFilterTopics() {
+        final StreamBuilder<String, String, TransformedStream<String, String>, TransformedStream<Event<String>, Event<String>>> streamBuilder =
+            new StreamBuilderImpl<>(String.class, Transformers.toTransformer(Function.identity()))
+                .filterTopics((topicPath, topicSpecification) -> true);
+        streamBuilder.register(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), isA(TopicFilterStream.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void registerDistinctUntilChanged() {
+        final StreamBuilder<String, String, TransformedStream<String, String>, TransformedStream<Event<String>, Event<String>>> streamBuilder =
+            new StreamBuilderImpl<>(String.class, Transformers.toTransformer(Function.identity())).distinctUntilChanged();
+        streamBuilder.register(topics, "path", stream);
+
+        verify(topics).addStream(eq("path"), eq(String.class), isA(ValueFilterStream.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void share() {
+        final StreamHub<TransformedStream<String, String>> hub = new StreamBuilderImpl<>(String.class, Transformers.toTransformer(Function.identity())).share(session, "path");
+
+        final StreamHandle handleOne = hub.register(stream);
+        final StreamHandle handleTwo = hub.register(stream);
+        verify(topics).addStream(eq("path"), eq(String.class), isA(StreamAdapter.class));
+
+        handleOne.close();
+        handleTwo.close();
+        verify(topics).removeStream(isA(StreamAdapter.class));
+    }
+
+    @Test
+    public void shareNewHub() {
+        final StreamBuilderImpl<String, String> builder =
+            new StreamBuilderImpl<>(String.class, Transformers.toTransformer(Function.identity()));
+
+        final StreamHub<TransformedStream<String, String>> hub = builder.share(session, "path");
+
+        assertNotSame(hub, builder.share(session, "path"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void publisher() {
+        final Publisher<TopicValue<String>> publisher =
+            new StreamBuilderImpl<>(String.class, Transformers.toTransformer(Function.identity())).publisher(session, "path", OverflowStrategy.conflate());
+
+        publisher.subscribe(subscriber);
+
+        verify(subscriber).onSubscribe(isA(ValueSubscription.class));
+        verify(topics).addStream(eq("path"), eq(String.class), isA(ValueSubscription.class));
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void createFallback() {
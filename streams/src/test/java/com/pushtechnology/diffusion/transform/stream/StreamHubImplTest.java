@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link StreamHubImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class StreamHubImplTest {
+    @Mock
+    private Function<FanOutStream<String, Topics.ValueStream<String>>, StreamHandle> registration;
+    @Mock
+    private StreamHandle fanOutHandle;
+    @Mock
+    private Topics.ValueStream<String> streamOne;
+    @Mock
+    private Topics.ValueStream<String> streamTwo;
+    @Mock
+    private TopicSpecification specification;
+    @Captor
+    private ArgumentCaptor<FanOutStream<String, Topics.ValueStream<String>>> fanOutCaptor;
+
+    private StreamHub<Topics.ValueStream<String>> hub;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(registration.apply(any())).thenReturn(fanOutHandle);
+
+        hub = new StreamHubImpl<>(FanOutStream::new, registration);
+    }
+
+    @Test
+    public void registerOnce() {
+        hub.register(streamOne);
+        hub.register(streamTwo);
+
+        verify(registration).apply(fanOutCaptor.capture());
+        fanOutCaptor.getValue().onValue("path", specification, null, "value");
+
+        verify(streamOne).onValue("path", specification, null, "value");
+        verify(streamTwo).onValue("path", specification, null, "value");
+    }
+
+    @Test
+    public void closeLastHandle() {
+        final StreamHandle handleOne = hub.register(streamOne);
+        final StreamHandle handleTwo = hub.register(streamTwo);
+
+        handleOne.close();
+        verifyNoMoreInteractions(fanOutHandle);
+        verify(streamOne).onClose();
+
+        handleTwo.close();
+        verify(fanOutHandle).close();
+        verify(streamTwo).onClose();
+    }
+
+    @Test
+    public void closeHandleTwice() {
+        final StreamHandle handleOne = hub.register(streamOne);
+        hub.register(streamTwo);
+
+        handleOne.close();
+        handleOne.close();
+
+        verifyNoMoreInteractions(fanOutHandle);
+    }
+
+    @Test
+    public void closeFromNotification() {
+        final AtomicReference<StreamHandle> handleOne = new AtomicReference<>();
+        doAnswer(invocation -> {
+            handleOne.get().close();
+            return null;
+        }).when(streamOne).onValue("path", specification, null, "value");
+        handleOne.set(hub.register(streamOne));
+        hub.register(streamTwo);
+
+        verify(registration).apply(fanOutCaptor.capture());
+        fanOutCaptor.getValue().onValue("path", specification, null, "value");
+        fanOutCaptor.getValue().onValue("path", specification, "value", "next");
+
+        verify(streamOne).onValue("path", specification, null, "value");
+        verify(streamOne).onClose();
+        verifyNoMoreInteractions(streamOne, fanOutHandle);
+        verify(streamTwo).onValue("path", specification, "value", "next");
+    }
+
+    @Test
+    public void registerAfterClose() {
+        hub.register(streamOne).close();
+        hub.register(streamTwo);
+
+        verify(registration, times(2)).apply(fanOutCaptor.capture());
+        fanOutCaptor.getAllValues().get(0).onValue("path", specification, null, "value");
+
+        verify(streamOne).onClose();
+        verifyNoMoreInteractions(streamOne, streamTwo);
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.pushtechnology.diffusion.client.Diffusion;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.client.topics.details.TopicType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link StreamJournal}.
+ *
+ * @author Push Technology Limited
+ */
+public final class StreamJournalTest {
+    private final TopicSpecification specification = Diffusion.newTopicSpecification(TopicType.STRING);
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void appendToSegment() throws IOException {
+        try (StreamJournal journal = StreamJournal.open(directory, 4096)) {
+            journal.append("path", specification, 1L, Diffusion.dataTypes().string().toBytes("value"));
+        }
+
+        assertEquals(1, JournalFormat.segments(directory).size());
+    }
+
+    @Test
+    public void rollSegments() throws IOException {
+        try (StreamJournal journal = StreamJournal.open(directory, 4096)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append("path", specification, i, Diffusion.dataTypes().binary().toBytes(new byte[1000]));
+            }
+        }
+
+        assertEquals(4, JournalFormat.segments(directory).size());
+    }
+
+    @Test
+    public void continueAfterExistingSegments() throws IOException {
+        try (StreamJournal journal = StreamJournal.open(directory, 4096)) {
+            journal.append("path", specification, 1L, Diffusion.dataTypes().string().toBytes("first"));
+        }
+        try (StreamJournal journal = StreamJournal.open(directory, 4096)) {
+            journal.append("path", specification, 2L, Diffusion.dataTypes().string().toBytes("second"));
+        }
+
+        assertEquals(1L, JournalFormat.segmentIndex(JournalFormat.segments(directory).get(1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void recordTooLarge() throws IOException {
+        try (StreamJournal journal = StreamJournal.open(directory, 4096)) {
+            journal.append("path", specification, 1L, Diffusion.dataTypes().binary().toBytes(new byte[4096]));
+        }
+    }
+
+    @Test(expected = ClosedChannelException.class)
+    public void appendAfterClose() throws IOException {
+        final StreamJournal journal = StreamJournal.open(directory, 4096);
+        journal.close();
+
+        journal.append("path", specification, 1L, Diffusion.dataTypes().string().toBytes("value"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void segmentTooSmall() throws IOException {
+        StreamJournal.open(directory, 1024);
+    }
+}
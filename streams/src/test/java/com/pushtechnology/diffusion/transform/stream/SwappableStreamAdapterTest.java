@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link SwappableStreamAdapter}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SwappableStreamAdapterTest {
+    @Mock
+    private TransformedStream<String, String> delegate;
+    @Mock
+    private TopicSpecification specification;
+
+    private SwappableStreamAdapter<String, String> stream;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        stream = new SwappableStreamAdapter<>(String::toUpperCase, delegate);
+    }
+
+    @Test
+    public void onValue() {
+        stream.onValue("path", specification, null, "a");
+        stream.onValue("path", specification, "a", "b");
+
+        verify(delegate).onValue("path", specification, null, "A");
+        verify(delegate).onValue("path", specification, "A", "B");
+    }
+
+    @Test
+    public void swap() {
+        stream.onValue("path", specification, null, "a");
+
+        stream.swap(value -> value + value);
+        stream.onValue("path", specification, "a", "b");
+        stream.onValue("path", specification, "b", "c");
+
+        verify(delegate).onValue("path", specification, null, "A");
+        verify(delegate).onValue("path", specification, "aa", "bb");
+        verify(delegate).onValue("path", specification, "bb", "cc");
+    }
+
+    @Test
+    public void swapWithoutOldValue() {
+        stream.onValue("path", specification, null, "a");
+
+        stream.swap(value -> value + value);
+        stream.onValue("path", specification, null, "b");
+
+        verify(delegate).onValue("path", specification, null, "bb");
+    }
+
+    @Test
+    public void swapOldValueCannotBeTransformed() {
+        stream.onValue("path", specification, null, "a");
+
+        stream.swap(value -> {
+            if ("a".equals(value)) {
+                throw new IllegalArgumentException("Intentionally thrown in test");
+            }
+            return value + value;
+        });
+        stream.onValue("path", specification, "a", "b");
+
+        verify(delegate).onValue("path", specification, null, "bb");
+    }
+
+    @Test
+    public void transformationException() {
+        stream.swap(value -> {
+            throw new IllegalArgumentException("Intentionally thrown in test");
+        });
+
+        stream.onValue("path", specification, null, "a");
+
+        verify(delegate).onTransformationException(
+            eq("path"),
+            eq(specification),
+            eq("a"),
+            isA(TransformationException.class));
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void delegateException() {
+        doThrow(new RuntimeException("Intentionally thrown in test"))
+            .when(delegate)
+            .onValue("path", specification, null, "A");
+
+        stream.onValue("path", specification, null, "a");
+        stream.onValue("path", specification, "a", "b");
+
+        verify(delegate).onValue("path", specification, "A", "B");
+    }
+
+    @Test
+    public void onUnsubscription() {
+        stream.onSubscription("path", specification);
+        stream.onValue("path", specification, null, "a");
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        stream.onValue("path", specification, "a", "b");
+
+        verify(delegate).onSubscription("path", specification);
+        verify(delegate).onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        verify(delegate).onValue("path", specification, null, "B");
+    }
+
+    @Test
+    public void onClose() {
+        stream.onClose();
+
+        verify(delegate).onClose();
+    }
+
+    @Test
+    public void onSessionClosed() {
+        stream.onError(ErrorReason.SESSION_CLOSED);
+
+        verify(delegate).onClose();
+    }
+
+    @Test
+    public void onError() {
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+
+        verify(delegate).onError(ErrorReason.COMMUNICATION_FAILURE);
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link SwappableStreamHandleImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SwappableStreamHandleImplTest {
+    @Mock
+    private StreamHandle handle;
+    @Mock
+    private TransformedStream<String, String> delegate;
+    @Mock
+    private TopicSpecification specification;
+
+    private SwappableStreamAdapter<String, String> adapter;
+    private SwappableStreamHandle<String, String> swappableHandle;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        adapter = new SwappableStreamAdapter<>(value -> value, delegate);
+        swappableHandle = new SwappableStreamHandleImpl<>(handle, adapter);
+    }
+
+    @After
+    public void postConditions() {
+        verifyNoMoreInteractions(handle);
+    }
+
+    @Test
+    public void close() {
+        swappableHandle.close();
+
+        verify(handle).close();
+    }
+
+    @Test
+    public void swap() {
+        swappableHandle.swap(String::toUpperCase);
+        adapter.onValue("path", specification, null, "a");
+
+        verify(delegate).onValue("path", specification, null, "A");
+    }
+}
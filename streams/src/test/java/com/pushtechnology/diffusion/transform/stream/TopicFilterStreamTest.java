@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.client.topics.details.TopicType;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link TopicFilterStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class TopicFilterStreamTest {
+    @Mock
+    private Topics.ValueStream<String> delegate;
+    @Mock
+    private TopicSpecification accepted;
+    @Mock
+    private TopicSpecification rejected;
+
+    private TopicFilterStream<String> stream;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(accepted.getType()).thenReturn(TopicType.STRING);
+        when(rejected.getType()).thenReturn(TopicType.JSON);
+
+        stream = new TopicFilterStream<>(
+            (topicPath, specification) -> TopicType.STRING.equals(specification.getType()),
+            delegate);
+    }
+
+    @Test
+    public void onValue() {
+        stream.onValue("path", accepted, null, "value");
+        stream.onValue("path", rejected, null, "value");
+
+        verify(delegate).onValue("path", accepted, null, "value");
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void onSubscription() {
+        stream.onSubscription("path", accepted);
+        stream.onSubscription("path", rejected);
+
+        verify(delegate).onSubscription("path", accepted);
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void onUnsubscription() {
+        stream.onUnsubscription("path", accepted, Topics.UnsubscribeReason.REQUESTED);
+        stream.onUnsubscription("path", rejected, Topics.UnsubscribeReason.REQUESTED);
+
+        verify(delegate).onUnsubscription("path", accepted, Topics.UnsubscribeReason.REQUESTED);
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void onClose() {
+        stream.onClose();
+
+        verify(delegate).onClose();
+    }
+
+    @Test
+    public void onError() {
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+
+        verify(delegate).onError(ErrorReason.COMMUNICATION_FAILURE);
+    }
+}
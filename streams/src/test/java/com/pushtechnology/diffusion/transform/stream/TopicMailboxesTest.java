@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TopicMailboxes}.
+ *
+ * @author Push Technology Limited
+ */
+public final class TopicMailboxesTest {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final List<String> delivered = new ArrayList<>();
+
+    private TopicMailboxes mailboxes;
+
+    @Before
+    public void setUp() {
+        tasks.clear();
+        delivered.clear();
+        mailboxes = new TopicMailboxes(tasks::add, "handler");
+    }
+
+    @Test
+    public void oneTaskPerTopic() {
+        mailboxes.deliver("pathOne", () -> delivered.add("one-a"), false);
+        mailboxes.deliver("pathTwo", () -> delivered.add("two"), false);
+        mailboxes.deliver("pathOne", () -> delivered.add("one-b"), false);
+
+        assertEquals(2, tasks.size());
+        runTasks();
+
+        assertEquals(asList("one-a", "one-b", "two"), delivered);
+        assertEquals(2, mailboxes.size());
+    }
+
+    @Test
+    public void removeWhenDrained() {
+        mailboxes.deliver("path", () -> delivered.add("first"), true);
+        assertEquals(1, mailboxes.size());
+
+        runTasks();
+        assertEquals(0, mailboxes.size());
+        assertFalse(mailboxes.deliverIfPresent("path", () -> delivered.add("second")));
+        assertEquals(asList("first"), delivered);
+    }
+
+    @Test
+    public void laterDeliveryKeepsMailbox() {
+        mailboxes.deliver("path", () -> delivered.add("first"), true);
+        mailboxes.deliver("path", () -> delivered.add("second"), false);
+
+        runTasks();
+        assertEquals(1, mailboxes.size());
+    }
+
+    @Test
+    public void deliverIfPresent() {
+        mailboxes.deliver("path", () -> delivered.add("first"), true);
+        assertTrue(mailboxes.deliverIfPresent("path", () -> delivered.add("second")));
+
+        runTasks();
+        assertEquals(asList("first", "second"), delivered);
+        assertEquals(0, mailboxes.size());
+    }
+
+    @Test
+    public void directExecutor() {
+        final TopicMailboxes direct = new TopicMailboxes(Runnable::run, "handler");
+
+        direct.deliver("path", () -> delivered.add("first"), true);
+        direct.deliver("path", () -> delivered.add("second"), false);
+        direct.deliver("path", () -> delivered.add("third"), true);
+
+        assertEquals(asList("first", "second", "third"), delivered);
+        assertEquals(0, direct.size());
+    }
+
+    @Test
+    public void directExecutorReentrantDelivery() {
+        final TopicMailboxes direct = new TopicMailboxes(Runnable::run, "handler");
+
+        direct.deliver("path", () -> {
+            delivered.add("outer");
+            direct.deliver("path", () -> delivered.add("inner"), true);
+            delivered.add("outer-end");
+        }, true);
+
+        assertEquals(asList("outer", "outer-end", "inner"), delivered);
+        assertEquals(0, direct.size());
+    }
+
+    @Test
+    public void notificationException() {
+        mailboxes.deliver("path", () -> {
+            throw new IllegalStateException("Intentionally thrown in test");
+        }, false);
+        mailboxes.deliver("path", () -> delivered.add("second"), false);
+
+        runTasks();
+        assertEquals(asList("second"), delivered);
+    }
+
+    @Test
+    public void discardAll() {
+        mailboxes.deliver("path", () -> delivered.add("first"), false);
+        mailboxes.discardAll();
+        mailboxes.deliverToStream(() -> delivered.add("closed"));
+
+        runTasks();
+        assertEquals(asList("closed"), delivered);
+        assertEquals(0, mailboxes.size());
+    }
+
+    @Test
+    public void deliverAfterDiscardAll() {
+        mailboxes.deliver("path", () -> delivered.add("first"), false);
+        mailboxes.discardAll();
+        mailboxes.deliver("path", () -> delivered.add("second"), false);
+
+        assertEquals(2, tasks.size());
+        runTasks();
+        assertEquals(asList("second"), delivered);
+        assertEquals(1, mailboxes.size());
+    }
+
+    private void runTasks() {
+        Runnable task = tasks.poll();
+        while (task != null) {
+            task.run();
+            task = tasks.poll();
+        }
+    }
+}
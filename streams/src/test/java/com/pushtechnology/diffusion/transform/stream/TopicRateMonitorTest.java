@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link TopicRateMonitor}.
+ *
+ * @author Push Technology Limited
+ */
+public final class TopicRateMonitorTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Mock
+    private ScheduledFuture<?> reportFuture;
+    @Mock
+    private TopicMetricsReporter reporter;
+    @Captor
+    private ArgumentCaptor<List<TopicMetrics>> metrics;
+
+    private long now;
+    private TopicRateMonitor monitor;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        doReturn(reportFuture)
+            .when(scheduler)
+            .scheduleAtFixedRate(any(Runnable.class), anyLong(), anyLong(), eq(NANOSECONDS));
+
+        now = 0L;
+        monitor = new TopicRateMonitor(scheduler, 2, SECOND, 5.0, 0L, reporter, () -> now);
+    }
+
+    @Test
+    public void start() {
+        monitor.start();
+
+        verify(scheduler).scheduleAtFixedRate(any(Runnable.class), eq(SECOND), eq(SECOND), eq(NANOSECONDS));
+    }
+
+    @Test
+    public void reportTopTopics() {
+        record("a", 10, 100L);
+        record("b", 3, 10L);
+        record("c", 6, 10L);
+
+        now = 2 * SECOND;
+        monitor.report();
+
+        verify(reporter).report(metrics.capture(), eq(19L));
+        final List<TopicMetrics> hotTopics = metrics.getValue();
+        assertEquals(2, hotTopics.size());
+        assertEquals("a", hotTopics.get(0).getTopicPath());
+        assertEquals(10L, hotTopics.get(0).getUpdates());
+        assertEquals(5.0, hotTopics.get(0).getUpdateRate(), 0.0);
+        assertEquals(1000L, hotTopics.get(0).getCost());
+        assertEquals(100.0, hotTopics.get(0).getMeanCost(), 0.0);
+        assertTrue(hotTopics.get(0).isHot());
+        assertEquals("c", hotTopics.get(1).getTopicPath());
+        assertFalse(hotTopics.get(1).isHot());
+        assertEquals(hotTopics, monitor.getHotTopics());
+    }
+
+    @Test
+    public void replaceSmallestTopic() {
+        record("a", 5, 1L);
+        record("b", 3, 1L);
+        record("c", 4, 1L);
+        record("a", 5, 1L);
+        record("b", 10, 1L);
+
+        monitor.report();
+
+        verify(reporter).report(metrics.capture(), eq(27L));
+        final List<TopicMetrics> hotTopics = metrics.getValue();
+        assertEquals(2, hotTopics.size());
+        assertEquals("b", hotTopics.get(0).getTopicPath());
+        assertEquals(13L, hotTopics.get(0).getUpdates());
+        assertEquals("a", hotTopics.get(1).getTopicPath());
+        assertEquals(10L, hotTopics.get(1).getUpdates());
+    }
+
+    @Test
+    public void hotUntilNextReport() {
+        record("a", 10, 1L);
+        now = SECOND;
+        monitor.report();
+
+        assertTrue(monitor.isHot("a"));
+        assertFalse(monitor.isHot("b"));
+
+        now = 2 * SECOND;
+        monitor.report();
+
+        assertFalse(monitor.isHot("a"));
+    }
+
+    @Test
+    public void resetEachInterval() {
+        record("a", 10, 1L);
+        assertEquals(10L, monitor.estimateUpdates("a"));
+        assertEquals(10L, monitor.estimateCost("a"));
+
+        monitor.report();
+
+        assertEquals(0L, monitor.estimateUpdates("a"));
+        assertEquals(0L, monitor.estimateCost("a"));
+    }
+
+    @Test
+    public void close() {
+        monitor.start();
+        record("a", 10, 1L);
+        now = SECOND;
+        monitor.report();
+
+        monitor.close();
+
+        verify(reportFuture).cancel(false);
+        assertFalse(monitor.isHot("a"));
+    }
+
+    @Test
+    public void reporterException() {
+        doThrow(new RuntimeException("Intentionally thrown in test"))
+            .when(reporter)
+            .report(anyListOf(TopicMetrics.class), anyLong());
+        record("a", 10, 1L);
+        now = SECOND;
+
+        monitor.report();
+
+        assertTrue(monitor.isHot("a"));
+    }
+
+    private void record(String topicPath, int updates, long cost) {
+        for (int i = 0; i < updates; i++) {
+            monitor.record(topicPath, 1, cost);
+        }
+    }
+}
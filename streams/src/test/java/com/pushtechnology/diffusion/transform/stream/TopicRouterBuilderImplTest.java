@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link TopicRouterBuilderImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class TopicRouterBuilderImplTest {
+    @Mock
+    private Session session;
+    @Mock
+    private Topics topics;
+    @Mock
+    private Topics.ValueStream<String> priceStream;
+    @Mock
+    private Topics.ValueStream<Integer> lengthStream;
+    @Mock
+    private TopicSpecification specification;
+    @Captor
+    private ArgumentCaptor<Topics.ValueStream<String>> streamCaptor;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(session.feature(Topics.class)).thenReturn(topics);
+    }
+
+    @Test
+    public void route() {
+        final TopicRouterBuilder<String> builder = new TopicRouterBuilderImpl<>(String.class);
+
+        assertNotSame(builder, builder.route(new TopicRoute<>("a", priceStream)));
+    }
+
+    @Test
+    public void register() {
+        new TopicRouterBuilderImpl<>(String.class)
+            .route(StreamBuilders.newStringStreamBuilder().route("trades/*/price", priceStream))
+            .route(StreamBuilders.newStringStreamBuilder()
+                .transform(String::length)
+                .route("trades/*/name", lengthStream))
+            .register(session, "?trades//");
+
+        verify(topics).addStream(eq("?trades//"), eq(String.class), streamCaptor.capture());
+        final Topics.ValueStream<String> stream = streamCaptor.getValue();
+        stream.onValue("trades/a/name", specification, null, "name");
+
+        verify(lengthStream).onValue("trades/a/name", specification, null, 4);
+        verifyZeroInteractions(priceStream);
+    }
+
+    @Test
+    public void registerStream() {
+        new TopicRouterBuilderImpl<>(String.class).register(topics, "?trades//");
+
+        verify(topics).addStream(eq("?trades//"), eq(String.class), isA(RoutingStream.class));
+    }
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.pushtechnology.diffusion.client.features.TimeSeries.Event;
+import com.pushtechnology.diffusion.client.features.TimeSeries.QueryResult;
+import com.pushtechnology.diffusion.client.features.TimeSeries.RangeQuery;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link TransformedRangeQueryImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class TransformedRangeQueryImplTest {
+    @Mock
+    private RangeQuery<String> query;
+    @Mock
+    private RangeQuery<String> firstPageQuery;
+    @Mock
+    private RangeQuery<String> secondPageAnchor;
+    @Mock
+    private RangeQuery<String> secondPageQuery;
+    @Mock
+    private QueryResult<String> firstResult;
+    @Mock
+    private QueryResult<String> secondResult;
+
+    private TransformedRangeQuery<String> rangeQuery;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        rangeQuery = new TransformedRangeQueryImpl<String, String>(query, String::toUpperCase)
+            .transformWith(Runnable::run)
+            .pageSize(2);
+
+        when(query.limit(2)).thenReturn(firstPageQuery);
+        when(firstPageQuery.selectFrom("path")).thenReturn(completedFuture(firstResult));
+        when(query.from(2)).thenReturn(secondPageAnchor);
+        when(secondPageAnchor.limit(2)).thenReturn(secondPageQuery);
+        when(secondPageQuery.selectFrom("path")).thenReturn(completedFuture(secondResult));
+    }
+
+    @Test
+    public void singlePage() {
+        when(firstResult.isComplete()).thenReturn(true);
+        when(firstResult.stream()).thenReturn(Stream.of(event(0, "a"), event(1, "b")));
+
+        final List<Event<String>> events = toList(rangeQuery.selectFrom("path"));
+
+        assertEquals(2, events.size());
+        assertEquals("A", events.get(0).value());
+        assertEquals("B", events.get(1).value());
+        verify(query, never()).from(2);
+    }
+
+    @Test
+    public void multiplePages() {
+        when(firstResult.isComplete()).thenReturn(false);
+        when(firstResult.stream()).thenReturn(Stream.of(event(0, "a"), event(1, "b")));
+        when(secondResult.isComplete()).thenReturn(true);
+        when(secondResult.stream()).thenReturn(Stream.of(event(2, "c")));
+
+        final List<Event<String>> events = toList(rangeQuery.selectFrom("path"));
+
+        assertEquals(3, events.size());
+        assertEquals("C", events.get(2).value());
+    }
+
+    @Test
+    public void limit() {
+        @SuppressWarnings("unchecked")
+        final RangeQuery<String> lastPageQuery = mock(RangeQuery.class);
+        when(firstResult.isComplete()).thenReturn(false);
+        when(firstResult.stream()).thenReturn(Stream.of(event(0, "a"), event(1, "b")));
+        when(secondPageAnchor.limit(1)).thenReturn(lastPageQuery);
+        when(lastPageQuery.selectFrom("path")).thenReturn(completedFuture(secondResult));
+        when(secondResult.isComplete()).thenReturn(false);
+        when(secondResult.stream()).thenReturn(Stream.of(event(2, "c")));
+
+        final List<Event<String>> events = toList(rangeQuery.limit(3).selectFrom("path"));
+
+        assertEquals(3, events.size());
+        verify(secondPageAnchor, never()).limit(2);
+    }
+
+    @Test
+    public void anchorAndSpan() {
+        @SuppressWarnings("unchecked")
+        final RangeQuery<String> anchored = mock(RangeQuery.class);
+        @SuppressWarnings("unchecked")
+        final RangeQuery<String> spanned = mock(RangeQuery.class);
+        when(query.from(5)).thenReturn(anchored);
+        when(anchored.to(10)).thenReturn(spanned);
+        when(spanned.limit(2)).thenReturn(firstPageQuery);
+        when(firstResult.isComplete()).thenReturn(true);
+        when(firstResult.stream()).thenReturn(Stream.of(event(5, "a")));
+
+        final List<Event<String>> events = toList(rangeQuery.from(5).to(10).selectFrom("path"));
+
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void transformationFailure() {
+        when(firstResult.isComplete()).thenReturn(true);
+        when(firstResult.stream()).thenReturn(Stream.of(event(0, "a")));
+
+        final Iterator<Event<String>> iterator = new TransformedRangeQueryImpl<String, String>(query, value -> {
+            throw new TransformationException("Intentionally thrown in test");
+        })
+            .transformWith(Runnable::run)
+            .pageSize(2)
+            .selectFrom("path");
+
+        try {
+            iterator.hasNext();
+            fail("Expected RangeQueryException");
+        }
+        catch (RangeQueryException e) {
+            assertTrue(e.getCause() instanceof TransformationException);
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Event<String> event(long sequence, String value) {
+        final Event<String> event = mock(Event.class);
+        when(event.sequence()).thenReturn(sequence);
+        when(event.value()).thenReturn(value);
+        return event;
+    }
+
+    private static List<Event<String>> toList(Iterator<Event<String>> iterator) {
+        final List<Event<String>> events = new ArrayList<>();
+        iterator.forEachRemaining(events::add);
+        return events;
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.function.Function;
+
+import com.pushtechnology.diffusion.client.features.Topics.ValueStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Unit tests for {@link ValuePublisher}.
+ *
+ * @author Push Technology Limited
+ */
+public final class ValuePublisherTest {
+    @Mock
+    private Function<ValueStream<String>, StreamHandle> registration;
+    @Mock
+    private StreamHandle handle;
+    @Mock
+    private Subscriber<TopicValue<Integer>> subscriber;
+
+    private ValuePublisher<String, Integer> publisher;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(registration.apply(any())).thenReturn(handle);
+
+        publisher = new ValuePublisher<>(registration, String::length, OverflowStrategy.conflate());
+    }
+
+    @Test
+    public void subscribe() {
+        publisher.subscribe(subscriber);
+
+        verify(subscriber).onSubscribe(isA(ValueSubscription.class));
+        verify(registration).apply(isA(ValueSubscription.class));
+    }
+
+    @Test
+    public void cancelOnSubscribe() {
+        doAnswer(invocation -> {
+            ((Subscription) invocation.getArguments()[0]).cancel();
+            return null;
+        }).when(subscriber).onSubscribe(any());
+
+        publisher.subscribe(subscriber);
+
+        verify(handle).close();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void subscribeNull() {
+        try {
+            publisher.subscribe(null);
+        }
+        finally {
+            verifyZeroInteractions(registration);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Unit tests for {@link ValueSubscription}.
+ *
+ * @author Push Technology Limited
+ */
+public final class ValueSubscriptionTest {
+    @Mock
+    private StreamHandle handle;
+    @Mock
+    private TopicSpecification specification;
+
+    private RecordingSubscriber subscriber;
+    private int transformations;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        subscriber = new RecordingSubscriber();
+        transformations = 0;
+    }
+
+    @Test
+    public void deliverRequested() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.buffer(10));
+
+        subscription.onValue("path", specification, null, "a");
+        subscription.onValue("path", specification, "a", "bb");
+        assertEquals(emptyList(), subscriber.values);
+
+        subscription.request(1);
+        assertEquals(singletonList("path=1"), subscriber.values);
+
+        subscription.request(5);
+        subscription.onValue("path", specification, "bb", "ccc");
+        assertEquals(asList("path=1", "path=2", "path=3"), subscriber.values);
+    }
+
+    @Test
+    public void drop() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.drop());
+
+        subscription.onValue("path", specification, null, "a");
+        subscription.request(1);
+        subscription.onValue("path", specification, "a", "bb");
+        subscription.onValue("path", specification, "bb", "ccc");
+
+        assertEquals(singletonList("path=2"), subscriber.values);
+        assertEquals(1, transformations);
+    }
+
+    @Test
+    public void bufferFull() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.buffer(1));
+
+        subscription.onValue("path", specification, null, "a");
+        subscription.onValue("path", specification, "a", "bb");
+        subscription.request(2);
+
+        assertEquals(singletonList("path=1"), subscriber.values);
+        assertEquals(1, transformations);
+    }
+
+    @Test
+    public void conflate() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.conflate());
+
+        subscription.onValue("pathOne", specification, null, "a");
+        subscription.onValue("pathTwo", specification, null, "bb");
+        subscription.onValue("pathOne", specification, "a", "ccc");
+        subscription.request(Long.MAX_VALUE);
+
+        assertEquals(asList("pathOne=3", "pathTwo=2"), subscriber.values);
+        assertEquals(2, transformations);
+    }
+
+    @Test
+    public void requestFromOnNext() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.buffer(10));
+        subscriber.requestOnNext = subscription;
+
+        subscription.onValue("path", specification, null, "a");
+        subscription.onValue("path", specification, "a", "bb");
+        subscription.request(1);
+
+        assertEquals(asList("path=1", "path=2"), subscriber.values);
+    }
+
+    @Test
+    public void onUnsubscription() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.conflate());
+
+        subscription.onValue("path", specification, null, "a");
+        subscription.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        subscription.request(1);
+
+        assertEquals(emptyList(), subscriber.values);
+    }
+
+    @Test
+    public void onClose() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.buffer(10));
+
+        subscription.onValue("path", specification, null, "a");
+        subscription.onClose();
+        assertFalse(subscriber.completed);
+
+        subscription.request(1);
+        assertEquals(singletonList("path=1"), subscriber.values);
+        assertTrue(subscriber.completed);
+        verify(handle).close();
+    }
+
+    @Test
+    public void onError() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.buffer(10));
+
+        subscription.onError(ErrorReason.COMMUNICATION_FAILURE);
+
+        assertTrue(subscriber.failure instanceof IllegalStateException);
+        verify(handle).close();
+    }
+
+    @Test
+    public void onSessionClosed() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.buffer(10));
+
+        subscription.onError(ErrorReason.SESSION_CLOSED);
+
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.failure);
+    }
+
+    @Test
+    public void transformationFailure() {
+        final ValueSubscription<String, Integer> subscription = new ValueSubscription<>(
+            subscriber,
+            value -> {
+                throw new TransformationException("Intentionally thrown in test");
+            },
+            OverflowStrategy.drop().createQueue());
+        subscription.registered(handle);
+
+        subscription.request(1);
+        subscription.onValue("path", specification, null, "a");
+
+        assertTrue(subscriber.failure instanceof TransformationException);
+        assertEquals(emptyList(), subscriber.values);
+        verify(handle).close();
+    }
+
+    @Test
+    public void invalidRequest() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.drop());
+
+        subscription.request(0);
+
+        assertTrue(subscriber.failure instanceof IllegalArgumentException);
+        verify(handle).close();
+    }
+
+    @Test
+    public void cancel() {
+        final ValueSubscription<String, Integer> subscription = subscription(OverflowStrategy.buffer(10));
+
+        subscription.onValue("path", specification, null, "a");
+        subscription.cancel();
+        subscription.request(1);
+
+        verify(handle).close();
+        assertEquals(emptyList(), subscriber.values);
+        assertEquals(0, transformations);
+    }
+
+    @Test
+    public void cancelBeforeRegistered() {
+        final ValueSubscription<String, Integer> subscription = new ValueSubscription<>(
+            subscriber,
+            String::length,
+            OverflowStrategy.drop().createQueue());
+
+        subscription.cancel();
+        verify(handle, never()).close();
+        subscription.registered(handle);
+
+        verify(handle).close();
+    }
+
+    private ValueSubscription<String, Integer> subscription(OverflowStrategy strategy) {
+        final ValueSubscription<String, Integer> subscription = new ValueSubscription<>(
+            subscriber,
+            value -> {
+                transformations += 1;
+                return value.length();
+            },
+            strategy.createQueue());
+        subscription.registered(handle);
+        return subscription;
+    }
+
+    /**
+     * Subscriber that records the notifications it receives.
+     */
+    private static final class RecordingSubscriber implements Subscriber<TopicValue<Integer>> {
+        private final List<String> values = new ArrayList<>();
+        private Subscription requestOnNext;
+        private boolean completed;
+        private Throwable failure;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        public void onNext(TopicValue<Integer> topicValue) {
+            values.add(topicValue.getTopicPath() + "=" + topicValue.getValue());
+            if (requestOnNext != null) {
+                requestOnNext.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failure = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.session.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link WindowedAggregationBuilderImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class WindowedAggregationBuilderImplTest {
+    @Mock
+    private Session session;
+    @Mock
+    private Topics topics;
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Mock
+    private ScheduledFuture<?> emission;
+    @Captor
+    private ArgumentCaptor<Runnable> emitter;
+    @Captor
+    private ArgumentCaptor<Long> delay;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(session.feature(Topics.class)).thenReturn(topics);
+        doReturn(emission)
+            .when(scheduler)
+            .scheduleAtFixedRate(any(Runnable.class), eq(250L), eq(250L), eq(MILLISECONDS));
+        doReturn(emission)
+            .when(scheduler)
+            .schedule(any(Runnable.class), anyLong(), eq(MILLISECONDS));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void register() {
+        final StreamHandle handle = StreamBuilders.newStringStreamBuilder()
+            .aggregate(String::length, scheduler)
+            .sliding(Duration.ofSeconds(1), Duration.ofMillis(250))
+            .groupByPathPrefix(2)
+            .register(session, "?path//", aggregate -> { });
+
+        verify(topics).addStream(eq("?path//"), eq(String.class), isA(SafeStreamAdapter.class));
+        verify(scheduler).scheduleAtFixedRate(any(Runnable.class), eq(250L), eq(250L), eq(MILLISECONDS));
+
+        handle.close();
+
+        verify(emission).cancel(false);
+        verify(topics).removeStream(isA(SafeStreamAdapter.class));
+    }
+
+    @Test
+    public void registerTumbling() {
+        final StreamHandle handle = StreamBuilders.newStringStreamBuilder()
+            .aggregate(String::length, scheduler)
+            .tumbling(Duration.ofSeconds(1))
+            .register(session, "?path//", aggregate -> { });
+
+        verify(scheduler).schedule(emitter.capture(), delay.capture(), eq(MILLISECONDS));
+        assertTrue(delay.getValue() > 0L && delay.getValue() <= 1000L);
+
+        // Each emission schedules the next for the end of the following window
+        emitter.getValue().run();
+        verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), eq(MILLISECONDS));
+
+        handle.close();
+
+        verify(emission).cancel(false);
+        emitter.getValue().run();
+        verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), eq(MILLISECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyWindow() {
+        StreamBuilders.newStringStreamBuilder()
+            .aggregate(String::length, scheduler)
+            .tumbling(Duration.ZERO);
+    }
+
+    @Test
+    public void pathPrefix() {
+        assertEquals("a/b", WindowedAggregationBuilderImpl.pathPrefix("a/b/c", 2));
+        assertEquals("a/b", WindowedAggregationBuilderImpl.pathPrefix("a/b", 2));
+        assertEquals("a", WindowedAggregationBuilderImpl.pathPrefix("a", 3));
+    }
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.Topics;
+import com.pushtechnology.diffusion.client.topics.details.TopicSpecification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link WindowedAggregationStream}.
+ *
+ * @author Push Technology Limited
+ */
+public final class WindowedAggregationStreamTest {
+    @Mock
+    private TopicSpecification specification;
+
+    private final List<WindowAggregate> aggregates = new ArrayList<>();
+    private long now;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        aggregates.clear();
+        now = 1000L;
+    }
+
+    @Test
+    public void emitPerTopic() {
+        final WindowedAggregationStream<String, Integer> stream = createStream(null);
+
+        stream.onValue("a/one", specification, null, 1);
+        stream.onValue("a/one", specification, 1, 3);
+        stream.onValue("a/two", specification, null, 5);
+        now = 1050L;
+        stream.emit();
+
+        assertEquals(2, aggregates.size());
+        final WindowAggregate one = aggregateFor("a/one");
+        assertEquals(2L, one.getCount());
+        assertEquals(4.0, one.getSum(), 0.0);
+        assertEquals(950L, one.getWindowStart());
+        assertEquals(1050L, one.getWindowEnd());
+        assertEquals(5.0, aggregateFor("a/two").getMax(), 0.0);
+    }
+
+    @Test
+    public void evictOldSamples() {
+        final WindowedAggregationStream<String, Integer> stream = createStream(null);
+
+        stream.onValue("path", specification, null, 1);
+        now = 1100L;
+        stream.onValue("path", specification, 1, 2);
+        stream.emit();
+
+        assertEquals(1, aggregates.size());
+        assertEquals(1L, aggregates.get(0).getCount());
+        assertEquals(2.0, aggregates.get(0).getSum(), 0.0);
+
+        now = 1200L;
+        stream.emit();
+        assertEquals(1, aggregates.size());
+    }
+
+    @Test
+    public void tumblingWindowsAligned() {
+        now = 1050L;
+        final WindowedAggregationStream<String, Integer> stream = createStream(null);
+
+        stream.onValue("path", specification, null, 1);
+        now = 1099L;
+        stream.onValue("path", specification, 1, 2);
+        now = 1100L;
+        stream.onValue("path", specification, 2, 4);
+
+        assertEquals(100L, stream.emitClosedWindows());
+        assertEquals(1, aggregates.size());
+        assertEquals(3.0, aggregates.get(0).getSum(), 0.0);
+        assertEquals(1000L, aggregates.get(0).getWindowStart());
+        assertEquals(1100L, aggregates.get(0).getWindowEnd());
+    }
+
+    @Test
+    public void tumblingWindowsSchedulerLate() {
+        final WindowedAggregationStream<String, Integer> stream = createStream(null);
+
+        stream.onValue("path", specification, null, 1);
+        now = 1130L;
+        stream.onValue("path", specification, 1, 2);
+        now = 1170L;
+        assertEquals(30L, stream.emitClosedWindows());
+
+        now = 1210L;
+        stream.onValue("path", specification, 2, 4);
+        now = 1360L;
+        stream.onValue("path", specification, 4, 8);
+        assertEquals(40L, stream.emitClosedWindows());
+
+        assertEquals(3, aggregates.size());
+        assertEquals(1.0, aggregates.get(0).getSum(), 0.0);
+        assertEquals(1000L, aggregates.get(0).getWindowStart());
+        assertEquals(1100L, aggregates.get(0).getWindowEnd());
+        assertEquals(2.0, aggregates.get(1).getSum(), 0.0);
+        assertEquals(1100L, aggregates.get(1).getWindowStart());
+        assertEquals(1200L, aggregates.get(1).getWindowEnd());
+        assertEquals(4.0, aggregates.get(2).getSum(), 0.0);
+        assertEquals(1200L, aggregates.get(2).getWindowStart());
+        assertEquals(1300L, aggregates.get(2).getWindowEnd());
+
+        now = 1400L;
+        assertEquals(100L, stream.emitClosedWindows());
+        assertEquals(4, aggregates.size());
+        assertEquals(8.0, aggregates.get(3).getSum(), 0.0);
+    }
+
+    @Test
+    public void tumblingWindowsSchedulerEarly() {
+        final WindowedAggregationStream<String, Integer> stream = createStream(null);
+
+        stream.onValue("path", specification, null, 1);
+        now = 1095L;
+
+        assertEquals(5L, stream.emitClosedWindows());
+        assertTrue(aggregates.isEmpty());
+    }
+
+    @Test
+    public void emitPerGroup() {
+        final WindowedAggregationStream<String, Integer> stream =
+            createStream(path -> WindowedAggregationBuilderImpl.pathPrefix(path, 1));
+
+        stream.onValue("a/one", specification, null, 1);
+        stream.onValue("a/two", specification, null, 3);
+        stream.onValue("b/one", specification, null, 5);
+        stream.emit();
+
+        assertEquals(2, aggregates.size());
+        final WindowAggregate a = aggregateFor("a");
+        assertEquals(2L, a.getCount());
+        assertEquals(2.0, a.getMean(), 0.0);
+        assertEquals(1L, aggregateFor("b").getCount());
+    }
+
+    @Test
+    public void onUnsubscription() {
+        final WindowedAggregationStream<String, Integer> stream = createStream(null);
+
+        stream.onValue("path", specification, null, 1);
+        stream.onUnsubscription("path", specification, Topics.UnsubscribeReason.REQUESTED);
+        stream.emit();
+
+        assertTrue(aggregates.isEmpty());
+    }
+
+    @Test
+    public void onError() {
+        final WindowedAggregationStream<String, Integer> stream = createStream(null);
+
+        stream.onValue("path", specification, null, 1);
+        stream.onError(ErrorReason.COMMUNICATION_FAILURE);
+        stream.emit();
+
+        assertTrue(aggregates.isEmpty());
+    }
+
+    @Test
+    public void onListenerException() {
+        final WindowedAggregationStream<String, Integer> stream = new WindowedAggregationStream<>(
+            Integer::doubleValue,
+            null,
+            100L,
+            aggregate -> {
+                aggregates.add(aggregate);
+                throw new IllegalStateException("Intentionally thrown in test");
+            },
+            () -> now);
+
+        stream.onValue("a", specification, null, 1);
+        stream.onValue("b", specification, null, 2);
+        stream.emit();
+
+        assertEquals(2, aggregates.size());
+    }
+
+    private WindowedAggregationStream<String, Integer> createStream(
+            Function<String, String> groupKey) {
+        return new WindowedAggregationStream<>(Integer::doubleValue, groupKey, 100L, aggregates::add, () -> now);
+    }
+
+    private WindowAggregate aggregateFor(String key) {
+        return aggregates
+            .stream()
+            .filter(aggregate -> aggregate.getKey().equals(key))
+            .findFirst()
+            .orElseThrow(AssertionError::new);
+    }
+}
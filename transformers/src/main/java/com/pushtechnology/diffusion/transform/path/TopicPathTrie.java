@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.path;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A trie of topic path patterns that finds the values associated with the patterns that match a topic path.
+ * <p>
+ * Patterns are made of segments separated by {@code /}. Each segment of a pattern is one of:
+ * <ul>
+ * <li>{@code *} matches exactly one segment of the path</li>
+ * <li>{@code **} matches zero or more segments of the path</li>
+ * <li>{@code {regex}} matches one segment of the path that matches the regular expression, the regular expression
+ * cannot contain {@code /}</li>
+ * <li>any other text matches one segment of the path that is equal to the text</li>
+ * </ul>
+ * <p>
+ * Tries are immutable and can be shared between threads. The cost of matching a path depends on the number of
+ * segments in the path and the number of wildcard and regular expression segments in the patterns, not on the number
+ * of patterns.
+ *
+ * @param <R> the type of the values associated with the patterns
+ * @author Push Technology Limited
+ */
+public final class TopicPathTrie<R> {
+    private static final String SEPARATOR = "/";
+    private static final String ANY_SEGMENT = "*";
+    private static final String ANY_SEGMENTS = "**";
+
+    private final Node root;
+    private final List<R> values;
+
+    private TopicPathTrie(Node root, List<R> values) {
+        this.root = root;
+        this.values = values;
+    }
+
+    /**
+     * Find the values associated with the patterns that match a topic path.
+     *
+     * @param topicPath the topic path
+     * @return the values in the order their patterns were added, empty if no pattern matches
+     */
+    public List<R> match(String topicPath) {
+        final BitSet matched = new BitSet(values.size());
+        root.match(topicPath.split(SEPARATOR, -1), 0, matched);
+        if (matched.isEmpty()) {
+            return emptyList();
+        }
+
+        final List<R> result = new ArrayList<>(matched.cardinality());
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            result.add(values.get(i));
+        }
+        return unmodifiableList(result);
+    }
+
+    /**
+     * @return the values of every pattern in the order they were added
+     */
+    public List<R> values() {
+        return values;
+    }
+
+    /**
+     * @param <R> the type of the values associated with the patterns
+     * @return a new builder
+     */
+    public static <R> Builder<R> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Builder of {@link TopicPathTrie}s.
+     *
+     * @param <R> the type of the values associated with the patterns
+     */
+    public static final class Builder<R> {
+        private final Node root = new Node();
+        private final List<R> values = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Add a pattern. A value may be added for more than one pattern and a pattern may have more than one value.
+         *
+         * @param pattern the topic path pattern
+         * @param value the value associated with the pattern
+         * @return this builder
+         * @throws IllegalArgumentException if a regular expression segment of the pattern is not valid or contains
+         * {@code /}
+         */
+        public Builder<R> add(String pattern, R value) {
+            Node node = root;
+            for (final String segment : pattern.split(SEPARATOR, -1)) {
+                if (segment.startsWith("{") && !segment.endsWith("}")) {
+                    // The pattern was split inside a regular expression, which would never match a single segment
+                    throw new IllegalArgumentException(
+                        "The regular expression segments of " + pattern + " cannot contain " + SEPARATOR);
+                }
+                node = node.child(segment);
+            }
+            node.terminals.set(values.size());
+            values.add(value);
+            return this;
+        }
+
+        /**
+         * @return a new trie containing the patterns added so far
+         */
+        public TopicPathTrie<R> build() {
+            return new TopicPathTrie<>(root.copy(), unmodifiableList(new ArrayList<>(values)));
+        }
+    }
+
+    /**
+     * A node of the trie.
+     */
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private final List<RegexChild> regexes = new ArrayList<>();
+        private final BitSet terminals = new BitSet();
+        private Node anySegment;
+        private Node anySegments;
+
+        private Node child(String segment) {
+            if (ANY_SEGMENT.equals(segment)) {
+                if (anySegment == null) {
+                    anySegment = new Node();
+                }
+                return anySegment;
+            }
+            else if (ANY_SEGMENTS.equals(segment)) {
+                if (anySegments == null) {
+                    anySegments = new Node();
+                }
+                return anySegments;
+            }
+            else if (segment.length() > 1 && segment.startsWith("{") && segment.endsWith("}")) {
+                final String regex = segment.substring(1, segment.length() - 1);
+                for (final RegexChild child : regexes) {
+                    if (child.pattern.pattern().equals(regex)) {
+                        return child.node;
+                    }
+                }
+                final RegexChild child = new RegexChild(Pattern.compile(regex), new Node());
+                regexes.add(child);
+                return child.node;
+            }
+            else {
+                return literals.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+
+        private void match(String[] segments, int index, BitSet matched) {
+            if (anySegments != null) {
+                for (int i = index; i <= segments.length; i++) {
+                    anySegments.match(segments, i, matched);
+                }
+            }
+
+            if (index == segments.length) {
+                matched.or(terminals);
+                return;
+            }
+
+            final String segment = segments[index];
+            final Node literal = literals.get(segment);
+            if (literal != null) {
+                literal.match(segments, index + 1, matched);
+            }
+            if (anySegment != null) {
+                anySegment.match(segments, index + 1, matched);
+            }
+            for (final RegexChild child : regexes) {
+                if (child.pattern.matcher(segment).matches()) {
+                    child.node.match(segments, index + 1, matched);
+                }
+            }
+        }
+
+        private Node copy() {
+            final Node copy = new Node();
+            literals.forEach((segment, node) -> copy.literals.put(segment, node.copy()));
+            regexes.forEach(child -> copy.regexes.add(new RegexChild(child.pattern, child.node.copy())));
+            copy.terminals.or(terminals);
+            copy.anySegment = anySegment == null ? null : anySegment.copy();
+            copy.anySegments = anySegments == null ? null : anySegments.copy();
+            return copy;
+        }
+    }
+
+    /**
+     * A regular expression segment and the node it leads to.
+     */
+    private static final class RegexChild {
+        private final Pattern pattern;
+        private final Node node;
+
+        private RegexChild(Pattern pattern, Node node) {
+            this.pattern = pattern;
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.session;
+
+import com.pushtechnology.diffusion.client.session.Session;
+
+/**
+ * The load placed on a session of a {@link SessionPool}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SessionLoad {
+    private final Session session;
+    private final int bindings;
+    private final long operations;
+
+    /**
+     * Constructor.
+     *
+     * @param session the session
+     * @param bindings the number of bindings to the session
+     * @param operations the number of operations routed to the session
+     */
+    public SessionLoad(Session session, int bindings, long operations) {
+        this.session = session;
+        this.bindings = bindings;
+        this.operations = operations;
+    }
+
+    /**
+     * @return the session
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * @return the number of streams and update sources bound to the session
+     */
+    public int getBindings() {
+        return bindings;
+    }
+
+    /**
+     * @return the number of operations, such as updates and requests, routed to the session
+     */
+    public long getOperations() {
+        return operations;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionLoad [session=" + session
+            + ", bindings=" + bindings
+            + ", operations=" + operations + "]";
+    }
+}
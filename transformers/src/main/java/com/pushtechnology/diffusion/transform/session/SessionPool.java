@@ -0,0 +1,349 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.session;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.pushtechnology.diffusion.client.session.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of sessions that work is spread across.
+ * <p>
+ * Each piece of work, such as a stream, an update source or an update, is identified by a key such as a topic
+ * selector or a topic path. Keys are assigned to sessions by consistent hashing so the same key is always assigned to
+ * the same session. Each session is placed on a hash ring many times so the keys are spread evenly.
+ * <p>
+ * When a session of the pool is closed it is removed from the ring. Only the keys that were assigned to it are
+ * reassigned and the {@link Binding}s to it are moved to the sessions their keys are now assigned to.
+ * <p>
+ * Pools can be shared between threads.
+ *
+ * @author Push Technology Limited
+ */
+public final class SessionPool implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(SessionPool.class);
+    private static final int POINTS_PER_SESSION = 128;
+    private final Map<Session, LongAdder> operations = new IdentityHashMap<>();
+    private final List<Consumer<Session>> lossListeners = new CopyOnWriteArrayList<>();
+    private final List<Session> sessions;
+    private final Session.Listener sessionListener = this::onSessionStateChanged;
+    // Guarded by this
+    private final Set<BindingImpl> bindings = new HashSet<>();
+    private volatile NavigableMap<Integer, Session> ring;
+    // Guarded by this
+    private boolean closed;
+
+    private SessionPool(List<Session> sessions) {
+        this.sessions = sessions;
+        sessions.forEach(session -> operations.put(session, new LongAdder()));
+        ring = createRing(sessions, operations.keySet());
+    }
+
+    /**
+     * Create a pool from sessions.
+     *
+     * @param sessions the sessions, the order of the sessions determines how keys are assigned to them
+     * @return the pool
+     */
+    public static SessionPool of(Collection<Session> sessions) {
+        if (sessions.isEmpty()) {
+            throw new IllegalArgumentException("A session pool must have at least one session");
+        }
+
+        final SessionPool pool = new SessionPool(unmodifiableList(new ArrayList<>(sessions)));
+        sessions.forEach(session -> session.addListener(pool.sessionListener));
+        sessions
+            .stream()
+            .filter(session -> session.getState().isClosed())
+            .forEach(pool::onSessionLost);
+        return pool;
+    }
+
+    /**
+     * Get the session a key is assigned to.
+     * <p>
+     * Each call is counted as an operation routed to the session.
+     *
+     * @param key the key
+     * @return the session
+     * @throws IllegalStateException if every session of the pool has been closed
+     */
+    public Session sessionFor(String key) {
+        final Session session = assign(key);
+        operations.get(session).increment();
+        return session;
+    }
+
+    /**
+     * Bind a piece of work to the session its key is assigned to. If the session is closed the work is bound to the
+     * session the key is then assigned to.
+     *
+     * @param key the key
+     * @param binder the function that binds the work to a session and returns a task that unbinds it
+     * @return the binding
+     * @throws IllegalStateException if every session of the pool has been closed
+     */
+    public Binding bind(String key, Function<Session, Runnable> binder) {
+        final BindingImpl binding = new BindingImpl(key, binder);
+        final Session session;
+        synchronized (this) {
+            // Assigned while holding the lock so the binding is moved if the session is lost before it is bound
+            session = assign(key);
+            binding.assignTo(session);
+            bindings.add(binding);
+        }
+        binding.bindTo(session);
+        return binding;
+    }
+
+    /**
+     * Add a listener that is notified when a session of the pool is closed. The listener is notified after the
+     * bindings to the session have been moved.
+     *
+     * @param listener the listener
+     */
+    public void addLossListener(Consumer<Session> listener) {
+        lossListeners.add(listener);
+    }
+
+    /**
+     * @return the sessions of the pool that have not been closed
+     */
+    public Collection<Session> getSessions() {
+        return new HashSet<>(ring.values());
+    }
+
+    /**
+     * @return the load placed on each session of the pool that has not been closed
+     */
+    public synchronized List<SessionLoad> getLoad() {
+        final Collection<Session> openSessions = getSessions();
+        final Map<Session, Integer> bindingCounts = new IdentityHashMap<>();
+        bindings.forEach(binding -> {
+            final Session session = binding.getSession();
+            if (session != null) {
+                bindingCounts.merge(session, 1, Integer::sum);
+            }
+        });
+
+        final List<SessionLoad> load = new ArrayList<>();
+        for (Session session : sessions) {
+            if (openSessions.contains(session)) {
+                load.add(new SessionLoad(
+                    session,
+                    bindingCounts.getOrDefault(session, 0),
+                    operations.get(session).sum()));
+            }
+        }
+        return load;
+    }
+
+    /**
+     * Close the pool and all of its sessions.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            bindings.clear();
+        }
+        sessions.forEach(session -> {
+            session.removeListener(sessionListener);
+            session.close();
+        });
+    }
+
+    private Session assign(String key) {
+        final NavigableMap<Integer, Session> currentRing = ring;
+        if (currentRing.isEmpty()) {
+            throw new IllegalStateException("Every session of the pool has been closed");
+        }
+
+        final Map.Entry<Integer, Session> entry = currentRing.ceilingEntry(hash(key));
+        return entry == null ? currentRing.firstEntry().getValue() : entry.getValue();
+    }
+
+    private void onSessionStateChanged(Session session, Session.State oldState, Session.State newState) {
+        if (newState.isClosed()) {
+            onSessionLost(session);
+        }
+    }
+
+    private void onSessionLost(Session session) {
+        final List<BindingImpl> moved = new ArrayList<>();
+        synchronized (this) {
+            if (closed || !ring.containsValue(session)) {
+                return;
+            }
+
+            final Set<Session> remaining = new HashSet<>(ring.values());
+            remaining.remove(session);
+            ring = createRing(sessions, remaining);
+            bindings
+                .stream()
+                .filter(binding -> binding.getSession() == session)
+                .forEach(moved::add);
+        }
+
+        LOG.info("Session {} of pool lost, moving {} bindings", session, moved.size());
+        moved.forEach(binding -> binding.rebind(session));
+        lossListeners.forEach(listener -> listener.accept(session));
+    }
+
+    private static NavigableMap<Integer, Session> createRing(List<Session> sessions, Set<Session> included) {
+        final NavigableMap<Integer, Session> ring = new TreeMap<>();
+        for (int i = 0; i < sessions.size(); i++) {
+            final Session session = sessions.get(i);
+            if (included.contains(session)) {
+                for (int point = 0; point < POINTS_PER_SESSION; point++) {
+                    ring.put(hash(i + "#" + point), session);
+                }
+            }
+        }
+        return ring;
+    }
+
+    /**
+     * Spread the bits of the string hash code with the MurmurHash3 finalizer.
+     */
+    private static int hash(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * A piece of work bound to a session of a pool.
+     */
+    public interface Binding extends AutoCloseable {
+        /**
+         * @return the session the work is bound to, {@code null} if every session of the pool has been closed
+         */
+        Session getSession();
+
+        /**
+         * Unbind the work from the session.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Implementation of {@link Binding}.
+     */
+    private final class BindingImpl implements Binding {
+        private final String key;
+        private final Function<Session, Runnable> binder;
+        // Guarded by this
+        private Session session;
+        // Guarded by this
+        private Runnable unbinder;
+        // Guarded by this
+        private boolean unbound;
+
+        private BindingImpl(String key, Function<Session, Runnable> binder) {
+            this.key = key;
+            this.binder = binder;
+        }
+
+        @Override
+        public synchronized Session getSession() {
+            return session;
+        }
+
+        private synchronized void assignTo(Session newSession) {
+            session = newSession;
+        }
+
+        /**
+         * Bind the work to a session. Does nothing if the binding has since been assigned to another session, as the
+         * session has been lost, or the work is already bound.
+         */
+        private synchronized void bindTo(Session newSession) {
+            if (unbound || session != newSession || unbinder != null) {
+                return;
+            }
+            unbinder = binder.apply(newSession);
+        }
+
+        /**
+         * Bind to the session the key is now assigned to. The session the work was bound to has been closed so the
+         * work is not unbound from it.
+         *
+         * @param lostSession the session that has been closed
+         */
+        private void rebind(Session lostSession) {
+            final Session newSession;
+            synchronized (this) {
+                if (session != lostSession) {
+                    return;
+                }
+                unbinder = null;
+
+                try {
+                    session = assign(key);
+                }
+                catch (IllegalStateException e) {
+                    session = null;
+                    LOG.warn("Binding for '{}' not moved, {}", key, e.getMessage());
+                    return;
+                }
+                newSession = session;
+            }
+
+            bindTo(newSession);
+        }
+
+        @Override
+        public void close() {
+            synchronized (SessionPool.this) {
+                bindings.remove(this);
+            }
+
+            final Runnable task;
+            synchronized (this) {
+                unbound = true;
+                task = unbinder;
+                session = null;
+                unbinder = null;
+            }
+            if (task != null) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.pushtechnology.diffusion.client.session.Session;
+
+/**
+ * A resource created for each session of a {@link SessionPool}, such as an updater or a request sender. The resource
+ * for a session is created when a key is first assigned to it and discarded when the session is closed.
+ *
+ * @param <R> the type of the resource
+ * @author Push Technology Limited
+ */
+public final class SessionShards<R> {
+    private final Map<Session, R> shards = new ConcurrentHashMap<>();
+    private final SessionPool pool;
+    private final Function<Session, R> factory;
+
+    /**
+     * Constructor.
+     *
+     * @param pool the session pool
+     * @param factory the function that creates the resource for a session
+     */
+    public SessionShards(SessionPool pool, Function<Session, R> factory) {
+        this.pool = pool;
+        this.factory = factory;
+        pool.addLossListener(shards::remove);
+    }
+
+    /**
+     * Get the resource for the session a key is assigned to.
+     *
+     * @param key the key
+     * @return the resource
+     * @throws IllegalStateException if every session of the pool has been closed
+     */
+    public R forKey(String key) {
+        return shards.computeIfAbsent(pool.sessionFor(key), factory);
+    }
+
+    /**
+     * @return the resources for every session of the pool that has not been closed
+     */
+    public Collection<R> all() {
+        final Collection<R> resources = new ArrayList<>();
+        pool.getSessions().forEach(session -> resources.add(shards.computeIfAbsent(session, factory)));
+        return resources;
+    }
+}
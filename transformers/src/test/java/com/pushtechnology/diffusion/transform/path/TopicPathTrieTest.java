@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.path;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TopicPathTrie}.
+ *
+ * @author Push Technology Limited
+ */
+public final class TopicPathTrieTest {
+
+    @Test
+    public void literal() {
+        final TopicPathTrie<String> trie = TopicPathTrie.<String>builder()
+            .add("a/b/c", "abc")
+            .add("a/b", "ab")
+            .build();
+
+        assertEquals(singletonList("abc"), trie.match("a/b/c"));
+        assertEquals(singletonList("ab"), trie.match("a/b"));
+        assertEquals(emptyList(), trie.match("a"));
+        assertEquals(emptyList(), trie.match("a/b/c/d"));
+    }
+
+    @Test
+    public void anySegment() {
+        final TopicPathTrie<String> trie = TopicPathTrie.<String>builder()
+            .add("a/*/c", "a*c")
+            .build();
+
+        assertEquals(singletonList("a*c"), trie.match("a/b/c"));
+        assertEquals(singletonList("a*c"), trie.match("a/x/c"));
+        assertEquals(emptyList(), trie.match("a/c"));
+        assertEquals(emptyList(), trie.match("a/b/b/c"));
+    }
+
+    @Test
+    public void anySegments() {
+        final TopicPathTrie<String> trie = TopicPathTrie.<String>builder()
+            .add("a/**", "a**")
+            .add("**/c", "**c")
+            .build();
+
+        assertEquals(singletonList("a**"), trie.match("a"));
+        assertEquals(asList("a**", "**c"), trie.match("a/b/c"));
+        assertEquals(singletonList("**c"), trie.match("c"));
+        assertEquals(singletonList("**c"), trie.match("x/y/c"));
+        assertEquals(emptyList(), trie.match("x/y"));
+    }
+
+    @Test
+    public void regex() {
+        final TopicPathTrie<String> trie = TopicPathTrie.<String>builder()
+            .add("prices/{[A-Z]{3}}", "currency")
+            .build();
+
+        assertEquals(singletonList("currency"), trie.match("prices/GBP"));
+        assertEquals(emptyList(), trie.match("prices/gbp"));
+        assertEquals(emptyList(), trie.match("prices/GBPX"));
+    }
+
+    @Test
+    public void matchesInOrderAdded() {
+        final TopicPathTrie<String> trie = TopicPathTrie.<String>builder()
+            .add("**", "all")
+            .add("a/b", "exact")
+            .add("a/*", "wildcard")
+            .add("a/b", "exactAgain")
+            .build();
+
+        assertEquals(asList("all", "exact", "wildcard", "exactAgain"), trie.match("a/b"));
+    }
+
+    @Test
+    public void values() {
+        final TopicPathTrie<String> trie = TopicPathTrie.<String>builder()
+            .add("a/**", "first")
+            .add("{b}", "second")
+            .build();
+
+        assertEquals(asList("first", "second"), trie.values());
+    }
+
+    @Test
+    public void buildIsIsolated() {
+        final TopicPathTrie.Builder<String> builder = TopicPathTrie.<String>builder().add("a", "first");
+        final TopicPathTrie<String> trie = builder.build();
+        builder.add("a", "second");
+
+        assertEquals(singletonList("first"), trie.match("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRegex() {
+        TopicPathTrie.builder().add("{[}", "invalid");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void regexWithSeparator() {
+        TopicPathTrie.builder().add("prices/{[^/]+}", "invalid");
+    }
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.session;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pushtechnology.diffusion.client.session.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link SessionPool}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SessionPoolTest {
+    @Mock
+    private Session sessionOne;
+    @Mock
+    private Session sessionTwo;
+    @Mock
+    private Session sessionThree;
+    @Captor
+    private ArgumentCaptor<Session.Listener> listener;
+
+    private SessionPool pool;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(sessionOne.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+        when(sessionTwo.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+        when(sessionThree.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+
+        pool = SessionPool.of(asList(sessionOne, sessionTwo, sessionThree));
+    }
+
+    @Test
+    public void sameKeySameSession() {
+        assertSame(pool.sessionFor("a/b/c"), pool.sessionFor("a/b/c"));
+    }
+
+    @Test
+    public void spreadKeys() {
+        final Map<Session, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(pool.sessionFor("topic/" + i), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue("Unbalanced " + counts, count > 600 && count < 1400));
+    }
+
+    @Test
+    public void sessionLossMovesOnlyItsKeys() {
+        final Map<String, Session> before = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            before.put("topic/" + i, pool.sessionFor("topic/" + i));
+        }
+
+        lose(sessionOne);
+
+        before.forEach((key, session) -> {
+            if (session == sessionOne) {
+                assertNotSame(sessionOne, pool.sessionFor(key));
+            }
+            else {
+                assertSame(session, pool.sessionFor(key));
+            }
+        });
+        assertEquals(2, pool.getSessions().size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void allSessionsLost() {
+        lose(sessionOne);
+        lose(sessionTwo);
+        lose(sessionThree);
+
+        pool.sessionFor("a");
+    }
+
+    @Test
+    public void rebindOnSessionLoss() {
+        final List<Session> boundTo = new ArrayList<>();
+        final AtomicInteger unbound = new AtomicInteger();
+        final SessionPool.Binding binding = pool.bind("key", session -> {
+            boundTo.add(session);
+            return unbound::incrementAndGet;
+        });
+        final Session first = binding.getSession();
+
+        lose(first);
+
+        assertEquals(2, boundTo.size());
+        assertSame(first, boundTo.get(0));
+        assertSame(binding.getSession(), boundTo.get(1));
+        assertNotSame(first, binding.getSession());
+        assertEquals(0, unbound.get());
+
+        binding.close();
+
+        assertEquals(1, unbound.get());
+        assertNull(binding.getSession());
+    }
+
+    @Test
+    public void rebindOnSessionLossWhileBinding() throws InterruptedException {
+        final List<Session> boundTo = new ArrayList<>();
+        final Thread[] loser = new Thread[1];
+        final SessionPool.Binding binding = pool.bind("key", session -> {
+            boundTo.add(session);
+            if (loser[0] == null) {
+                verify(session).addListener(listener.capture());
+                final Session.Listener sessionListener = listener.getValue();
+                loser[0] = new Thread(() -> sessionListener.onSessionStateChanged(
+                    session,
+                    Session.State.CONNECTED_ACTIVE,
+                    Session.State.CLOSED_BY_SERVER));
+                loser[0].start();
+            }
+            return () -> { };
+        });
+        loser[0].join();
+
+        assertEquals(2, boundTo.size());
+        assertSame(binding.getSession(), boundTo.get(1));
+        assertNotSame(boundTo.get(0), binding.getSession());
+    }
+
+    @Test
+    public void load() {
+        final SessionPool.Binding binding = pool.bind("key", session -> () -> { });
+        pool.sessionFor("key");
+        pool.sessionFor("key");
+
+        final List<SessionLoad> load = pool.getLoad();
+        assertEquals(3, load.size());
+        for (SessionLoad sessionLoad : load) {
+            if (sessionLoad.getSession() == binding.getSession()) {
+                assertEquals(1, sessionLoad.getBindings());
+                assertEquals(2L, sessionLoad.getOperations());
+            }
+            else {
+                assertEquals(0, sessionLoad.getBindings());
+                assertEquals(0L, sessionLoad.getOperations());
+            }
+        }
+    }
+
+    @Test
+    public void close() {
+        pool.close();
+
+        verify(sessionOne).close();
+        verify(sessionTwo).close();
+        verify(sessionThree).close();
+    }
+
+    private void lose(Session session) {
+        verify(session).addListener(listener.capture());
+        listener.getValue().onSessionStateChanged(
+            session,
+            Session.State.CONNECTED_ACTIVE,
+            Session.State.CLOSED_BY_SERVER);
+    }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.session;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pushtechnology.diffusion.client.session.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link SessionShards}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SessionShardsTest {
+    @Mock
+    private Session sessionOne;
+    @Mock
+    private Session sessionTwo;
+    @Captor
+    private ArgumentCaptor<Session.Listener> listener;
+
+    private final AtomicInteger created = new AtomicInteger();
+    private SessionShards<String> shards;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(sessionOne.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+        when(sessionTwo.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+
+        created.set(0);
+        shards = new SessionShards<>(
+            SessionPool.of(asList(sessionOne, sessionTwo)),
+            session -> (session == sessionOne ? "one-" : "two-") + created.incrementAndGet());
+    }
+
+    @Test
+    public void createOncePerSession() {
+        final String shard = shards.forKey("key");
+
+        assertSame(shard, shards.forKey("key"));
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void all() {
+        assertEquals(2, new HashSet<>(shards.all()).size());
+        assertEquals(2, shards.all().size());
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void discardOnSessionLoss() {
+        final String shard = shards.forKey("key");
+        final Session lost = shard.startsWith("one") ? sessionOne : sessionTwo;
+
+        verify(lost).addListener(listener.capture());
+        listener.getValue().onSessionStateChanged(lost, Session.State.CONNECTED_ACTIVE, Session.State.CLOSED_FAILED);
+
+        assertEquals(1, shards.all().size());
+        assertEquals(shard.startsWith("one") ? "two" : "one", shards.forKey("key").substring(0, 3));
+    }
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An updater that transforms and sends values on worker threads. The caller only adds the value to a queue.
+ * <p>
+ * Topic paths are assigned to workers by hashing, so the updates of a topic are transformed and sent in the order they
+ * were made. Each worker has a bounded queue. The {@link UpdateOverflowPolicy} determines what happens when an update
+ * is made while the queue is full.
+ *
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+public interface AsyncUpdater<T> extends AutoCloseable {
+
+    /**
+     * Queue an update of a topic.
+     *
+     * @param topicPath the topic path
+     * @param value the new value for the topic
+     * @return a future that completes when the topic is updated. It completes exceptionally with a
+     * {@link com.pushtechnology.diffusion.transform.transformer.TransformationException} if the value cannot be
+     * transformed, an {@link UpdateFailedException} if the server rejects the update or a
+     * {@link RejectedExecutionException} if the update is discarded because the queue is full or the updater is closed.
+     * @throws IllegalArgumentException if any arguments are null
+     */
+    CompletableFuture<Void> update(String topicPath, T value) throws IllegalArgumentException;
+
+    /**
+     * @return the number of updates discarded because a queue was full
+     */
+    long getDropped();
+
+    /**
+     * Stop accepting updates. The updates already queued are sent and then the worker threads stop.
+     */
+    @Override
+    void close();
+}
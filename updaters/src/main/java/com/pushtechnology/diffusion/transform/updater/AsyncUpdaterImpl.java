@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementation of {@link AsyncUpdater}. Each stripe has a bounded queue and a single worker thread that passes the
+ * queued updates to a {@link TransformedUpdater}, so transformation happens on the worker.
+ *
+ * @param <S> The type of value understood by the topic
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+/*package*/ final class AsyncUpdaterImpl<S, T> implements AsyncUpdater<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncUpdaterImpl.class);
+    private static final long CLOSE_CHECK_MILLIS = 100L;
+    private static final AtomicInteger UPDATER_COUNT = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final TransformedUpdater<S, T> delegate;
+    private final UpdateOverflowPolicy overflowPolicy;
+    private final List<Stripe> stripes;
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ AsyncUpdaterImpl(
+            TransformedUpdater<S, T> delegate,
+            int stripeCount,
+            int queueCapacity,
+            UpdateOverflowPolicy overflowPolicy,
+            ThreadFactory threadFactory) {
+
+        if (stripeCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The number of stripes and the queue capacity must be positive");
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        this.delegate = delegate;
+        this.overflowPolicy = overflowPolicy;
+        stripes = new ArrayList<>(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            final Stripe stripe = new Stripe(queueCapacity);
+            stripes.add(stripe);
+            threadFactory.newThread(stripe).start();
+        }
+    }
+
+    /**
+     * Constructor. The worker threads are daemon threads.
+     */
+    /*package*/ AsyncUpdaterImpl(
+            TransformedUpdater<S, T> delegate,
+            int stripeCount,
+            int queueCapacity,
+            UpdateOverflowPolicy overflowPolicy) {
+
+        this(delegate, stripeCount, queueCapacity, overflowPolicy, daemonThreads());
+    }
+
+    @Override
+    public CompletableFuture<Void> update(String topicPath, T value) {
+        if (topicPath == null || value == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        final PendingUpdate update = new PendingUpdate(topicPath, value);
+        if (closed) {
+            update.completeExceptionally(new RejectedExecutionException("The updater is closed"));
+            return update;
+        }
+
+        final Stripe stripe = stripes.get((topicPath.hashCode() & Integer.MAX_VALUE) % stripes.size());
+        try {
+            overflowPolicy.enqueue(stripe.queue, update, this::drop);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            update.completeExceptionally(new RejectedExecutionException("Interrupted while waiting to queue", e));
+            return update;
+        }
+
+        // The worker may have stopped if the updater was closed while the update was being queued
+        if (closed && stripe.queue.remove(update)) {
+            update.completeExceptionally(new RejectedExecutionException("The updater is closed"));
+        }
+        return update;
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private void drop(PendingUpdate update) {
+        dropped.increment();
+        update.completeExceptionally(new RejectedExecutionException("The queue for " + update.topicPath + " is full"));
+    }
+
+    private static ThreadFactory daemonThreads() {
+        final int updater = UPDATER_COUNT.incrementAndGet();
+        final AtomicInteger workerCount = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(
+                runnable,
+                "async-updater-" + updater + "-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * An update waiting to be sent.
+     */
+    private final class PendingUpdate extends CompletableFuture<Void> implements UpdateCallback {
+        private final String topicPath;
+        private final T value;
+
+        private PendingUpdate(String topicPath, T value) {
+            this.topicPath = topicPath;
+            this.value = value;
+        }
+
+        private void send() {
+            try {
+                delegate.update(topicPath, value, this);
+            }
+            catch (TransformationException e) {
+                completeExceptionally(e);
+            }
+            // CHECKSTYLE.OFF: IllegalCatch
+            catch (RuntimeException e) {
+                completeExceptionally(e);
+            }
+            // CHECKSTYLE.ON: IllegalCatch
+        }
+
+        @Override
+        public void onSuccess() {
+            complete(null);
+        }
+
+        @Override
+        public void onError(ErrorReason errorReason) {
+            completeExceptionally(new UpdateFailedException(topicPath, errorReason));
+        }
+    }
+
+    /**
+     * A queue of updates and the worker that sends them.
+     */
+    private final class Stripe implements Runnable {
+        private final BlockingQueue<PendingUpdate> queue;
+
+        private Stripe(int queueCapacity) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        @Override
+        public void run() {
+            // The queue is drained after closing so no accepted update is left incomplete
+            while (true) {
+                final boolean stopping = closed;
+                final PendingUpdate update;
+                try {
+                    update = stopping ? queue.poll() : queue.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e) {
+                    // Only the owner of the updater should stop its workers
+                    LOG.warn("Worker of {} interrupted, closing", AsyncUpdaterImpl.this);
+                    closed = true;
+                    continue;
+                }
+
+                if (update == null) {
+                    if (stopping) {
+                        return;
+                    }
+                    continue;
+                }
+
+                update.send();
+            }
+        }
+    }
+}
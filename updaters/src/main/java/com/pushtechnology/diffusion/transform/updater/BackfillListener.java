@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+/**
+ * Service provider interface for observing the progress of a
+ * {@link TimeSeriesUpdater#backfill(String, Iterable, BackfillOptions)}.
+ * <p>
+ * The listener is called by the thread that completes an append and should not block.
+ *
+ * @author Push Technology Limited
+ */
+@FunctionalInterface
+public interface BackfillListener {
+
+    /**
+     * Notified each time the configured number of appends have completed.
+     *
+     * @param status the status of the backfill
+     */
+    void onProgress(BackfillStatus status);
+}
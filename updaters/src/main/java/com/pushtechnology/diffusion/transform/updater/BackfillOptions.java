@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+/**
+ * The options of a {@link TimeSeriesUpdater#backfill(String, Iterable, BackfillOptions)}.
+ *
+ * @author Push Technology Limited
+ */
+public final class BackfillOptions {
+    private static final BackfillOptions DEFAULTS = builder().build();
+    private final int maxInFlight;
+    private final int initialInFlight;
+    private final boolean adaptive;
+    private final boolean skipFailures;
+    private final int progressInterval;
+    private final BackfillListener listener;
+
+    private BackfillOptions(
+            int maxInFlight,
+            int initialInFlight,
+            boolean adaptive,
+            boolean skipFailures,
+            int progressInterval,
+            BackfillListener listener) {
+        this.maxInFlight = maxInFlight;
+        this.initialInFlight = initialInFlight;
+        this.adaptive = adaptive;
+        this.skipFailures = skipFailures;
+        this.progressInterval = progressInterval;
+        this.listener = listener;
+    }
+
+    /**
+     * @return the default options
+     */
+    public static BackfillOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @return a new builder of options
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /*package*/ int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /*package*/ int getInitialInFlight() {
+        return initialInFlight;
+    }
+
+    /*package*/ boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /*package*/ boolean isSkipFailures() {
+        return skipFailures;
+    }
+
+    /*package*/ int getProgressInterval() {
+        return progressInterval;
+    }
+
+    /*package*/ BackfillListener getListener() {
+        return listener;
+    }
+
+    @Override
+    public String toString() {
+        return "BackfillOptions [maxInFlight=" + maxInFlight
+            + ", initialInFlight=" + initialInFlight
+            + ", adaptive=" + adaptive
+            + ", skipFailures=" + skipFailures + "]";
+    }
+
+    /**
+     * Builder of {@link BackfillOptions}.
+     */
+    public static final class Builder {
+        private static final BackfillListener NO_LISTENER = status -> { };
+        private int maxInFlight = 256;
+        private int initialInFlight = 16;
+        private boolean adaptive = true;
+        private boolean skipFailures;
+        private int progressInterval = 1000;
+        private BackfillListener listener = NO_LISTENER;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the maximum number of appends in flight. Defaults to 256.
+         *
+         * @param newMaxInFlight the number of appends
+         * @return this builder
+         * @throws IllegalArgumentException if the number is not positive
+         */
+        public Builder maxInFlight(int newMaxInFlight) {
+            if (newMaxInFlight <= 0) {
+                throw new IllegalArgumentException("The number of appends in flight must be positive");
+            }
+            maxInFlight = newMaxInFlight;
+            return this;
+        }
+
+        /**
+         * Set the number of appends in flight when the backfill starts. Defaults to 16. Limited to the maximum number
+         * of appends in flight.
+         *
+         * @param newInitialInFlight the number of appends
+         * @return this builder
+         * @throws IllegalArgumentException if the number is not positive
+         */
+        public Builder initialInFlight(int newInitialInFlight) {
+            if (newInitialInFlight <= 0) {
+                throw new IllegalArgumentException("The number of appends in flight must be positive");
+            }
+            initialInFlight = newInitialInFlight;
+            return this;
+        }
+
+        /**
+         * Set if the number of appends in flight adapts to the latency of the appends. Defaults to true.
+         * <p>
+         * An adaptive backfill opens the window by one append for each window of appends that complete within twice
+         * the lowest latency seen, up to the maximum. It halves the window, at most once per window of appends, when
+         * the latency rises above that or an append fails. A backfill that does not adapt keeps the initial number of
+         * appends in flight.
+         *
+         * @param newAdaptive if the number of appends in flight adapts
+         * @return this builder
+         */
+        public Builder adaptive(boolean newAdaptive) {
+            adaptive = newAdaptive;
+            return this;
+        }
+
+        /**
+         * Set if events that fail to be appended are skipped. Defaults to false, the backfill stops sending events
+         * after the first failure.
+         *
+         * @param newSkipFailures if failures are skipped
+         * @return this builder
+         */
+        public Builder skipFailures(boolean newSkipFailures) {
+            skipFailures = newSkipFailures;
+            return this;
+        }
+
+        /**
+         * Set the listener notified of the progress of the backfill. By default progress is not reported.
+         *
+         * @param interval the number of appends completed between each notification
+         * @param newListener the listener
+         * @return this builder
+         * @throws IllegalArgumentException if the interval is not positive
+         */
+        public Builder progress(int interval, BackfillListener newListener) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("The progress interval must be positive");
+            }
+            progressInterval = interval;
+            listener = newListener;
+            return this;
+        }
+
+        /**
+         * @return the options
+         */
+        public BackfillOptions build() {
+            return new BackfillOptions(
+                maxInFlight,
+                Math.min(initialInFlight, maxInFlight),
+                adaptive,
+                skipFailures,
+                progressInterval,
+                listener);
+        }
+    }
+}
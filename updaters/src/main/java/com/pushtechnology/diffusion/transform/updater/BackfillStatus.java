@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+/**
+ * The status of a {@link TimeSeriesUpdater#backfill(String, Iterable, BackfillOptions)}.
+ *
+ * @author Push Technology Limited
+ */
+public final class BackfillStatus {
+    private static final double NANOS_PER_SECOND = 1e9;
+    private final long appended;
+    private final long failed;
+    private final int inFlightLimit;
+    private final long elapsedNanos;
+    private final Throwable firstFailure;
+    private final boolean stopped;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ BackfillStatus(
+            long appended,
+            long failed,
+            int inFlightLimit,
+            long elapsedNanos,
+            Throwable firstFailure,
+            boolean stopped) {
+        this.appended = appended;
+        this.failed = failed;
+        this.inFlightLimit = inFlightLimit;
+        this.elapsedNanos = elapsedNanos;
+        this.firstFailure = firstFailure;
+        this.stopped = stopped;
+    }
+
+    /**
+     * @return the number of events appended
+     */
+    public long getAppended() {
+        return appended;
+    }
+
+    /**
+     * @return the number of events that failed to be appended
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of appends allowed in flight
+     */
+    public int getInFlightLimit() {
+        return inFlightLimit;
+    }
+
+    /**
+     * @return the time in nanoseconds since the backfill started
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the number of events appended per second since the backfill started
+     */
+    public double getEventsPerSecond() {
+        return elapsedNanos <= 0L ? 0.0 : appended * NANOS_PER_SECOND / elapsedNanos;
+    }
+
+    /**
+     * @return the first failure, or null if no append has failed
+     */
+    public Throwable getFirstFailure() {
+        return firstFailure;
+    }
+
+    /**
+     * @return if the backfill stopped sending events because an append failed
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public String toString() {
+        return "BackfillStatus [appended=" + appended
+            + ", failed=" + failed
+            + ", inFlightLimit=" + inFlightLimit
+            + ", eventsPerSecond=" + (long) getEventsPerSecond()
+            + ", stopped=" + stopped + "]";
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.Map;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+/**
+ * The result of updating many topics with {@link TransformedUpdater#updateAll(Map, int)}.
+ *
+ * @author Push Technology Limited
+ */
+public final class BatchUpdateResult {
+    private final int succeeded;
+    private final Map<String, ErrorReason> errors;
+    private final Map<String, TransformationException> transformationFailures;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ BatchUpdateResult(
+            int succeeded,
+            Map<String, ErrorReason> errors,
+            Map<String, TransformationException> transformationFailures) {
+        this.succeeded = succeeded;
+        this.errors = unmodifiableMap(errors);
+        this.transformationFailures = unmodifiableMap(transformationFailures);
+    }
+
+    /**
+     * @return the number of topics updated
+     */
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return the reasons the server rejected updates, by topic path
+     */
+    public Map<String, ErrorReason> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the values that could not be transformed, by topic path
+     */
+    public Map<String, TransformationException> getTransformationFailures() {
+        return transformationFailures;
+    }
+
+    /**
+     * @return if every topic was updated
+     */
+    public boolean isSuccessful() {
+        return errors.isEmpty() && transformationFailures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchUpdateResult [succeeded=" + succeeded
+            + ", errors=" + errors.size()
+            + ", transformationFailures=" + transformationFailures.size() + "]";
+    }
+}
@@ -31,6 +31,15 @@ public interface BoundSafeUpdaterBuilder<S, T> extends
     @Override
     <R> BoundSafeUpdaterBuilder<S, R> transform(Function<R, T> newTransformer);
 
+    @Override
+    BoundSafeUpdaterBuilder<S, T> deduplicate(boolean compareBytes);
+
+    @Override
+    BoundSafeUpdaterBuilder<S, T> rateLimit(UpdateRateLimiter limiter);
+
+    @Override
+    BoundSafeUpdaterBuilder<S, T> journal(OutboundJournal journal);
+
     @Override
     SafeTransformedUpdater<S, T> create();
 
@@ -15,6 +15,8 @@
 
 package com.pushtechnology.diffusion.transform.updater;
 
+import static com.pushtechnology.diffusion.transform.transformer.Transformers.toTransformer;
+
 import java.util.function.Function;
 
 import com.pushtechnology.diffusion.client.features.TimeSeries;
@@ -33,14 +35,17 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
     private final Session session;
     private final Class<S> valueType;
     private final Function<T, S> transformer;
+    private final UpdaterStage<S> stages;
 
     BoundSafeUpdaterBuilderImpl(
             Session session,
             Class<S> valueType,
-            Function<T, S> transformer) {
+            Function<T, S> transformer,
+            UpdaterStage<S> stages) {
         this.session = session;
         this.valueType = valueType;
         this.transformer = transformer;
+        this.stages = stages;
     }
 
     @Override
@@ -48,7 +53,8 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         return new BoundTransformedUpdaterBuilderImpl<>(
             session,
             valueType,
-            newTransformer.chain(transformer));
+            newTransformer.chain(transformer),
+            stages);
     }
 
     @Override
@@ -58,18 +64,53 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         return new BoundTransformedUpdaterBuilderImpl<>(
             session,
             valueType,
-            newTransformer.chain(transformer));
+            newTransformer.chain(transformer),
+            stages);
     }
 
     @Override
     public <R> BoundSafeUpdaterBuilder<S, R> transform(Function<R, T> newTransformer) {
-        return new BoundSafeUpdaterBuilderImpl<>(session, valueType, newTransformer.andThen(transformer));
+        return new BoundSafeUpdaterBuilderImpl<>(session, valueType, newTransformer.andThen(transformer), stages);
+    }
+
+    @Override
+    public BoundSafeUpdaterBuilder<S, T> deduplicate(boolean compareBytes) {
+        return withStage(UpdaterStage.deduplicate(valueType, compareBytes));
+    }
+
+    @Override
+    public BoundSafeUpdaterBuilder<S, T> rateLimit(UpdateRateLimiter limiter) {
+        return withStage(UpdaterStage.rateLimit(valueType, limiter));
+    }
+
+    @Override
+    public BoundSafeUpdaterBuilder<S, T> journal(OutboundJournal journal) {
+        return withStage(UpdaterStage.journal(valueType, journal));
     }
 
     @Override
     public SafeTransformedUpdater<S, T> create() {
-        final TopicUpdateControl updateControl = session.feature(TopicUpdateControl.class);
-        return new SafeTransformedUpdaterImpl<>(updateControl.updater().valueUpdater(valueType), transformer);
+        return new SafeTransformedUpdaterImpl<>(valueUpdater(), transformer);
+    }
+
+    @Override
+    public SwappableUpdater<S, T> createSwappable() {
+        return new SwappableUpdaterImpl<>(valueUpdater(), toTransformer(transformer));
+    }
+
+    @Override
+    public ConflatingUpdater<S, T> createConflating() {
+        return new ConflatingUpdaterImpl<>(create());
+    }
+
+    @Override
+    public CachingUpdater<S, T> createCaching(int capacity) {
+        return new CachingUpdaterImpl<>(create(), capacity);
+    }
+
+    @Override
+    public AsyncUpdater<T> createAsync(int workers, int queueCapacity, UpdateOverflowPolicy overflowPolicy) {
+        return new AsyncUpdaterImpl<>(create(), workers, queueCapacity, overflowPolicy);
     }
 
     @Override
@@ -79,7 +120,7 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
     @Override
     public UnboundSafeUpdaterBuilder<S, T> unbind() {
-        return new UnboundSafeUpdaterBuilderImpl<>(valueType, transformer);
+        return new UnboundSafeUpdaterBuilderImpl<>(valueType, transformer, stages);
     }
 
     @Override
@@ -89,6 +130,22 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         final TopicUpdateControl updateControl = session.feature(TopicUpdateControl.class);
         updateControl.registerUpdateSource(
             topicPath,
-            new SafeUpdateSourceAdapter<>(new UpdateControlValueCache(updateControl), this.unbind(), updateSource));
+            new SafeUpdateSourceAdapter<>(new UpdateControlValueCache(updateControl), this::create, updateSource));
+    }
+
+    private BoundSafeUpdaterBuilder<S, T> withStage(UpdaterStage<S> stage) {
+        return new BoundSafeUpdaterBuilderImpl<>(session, valueType, transformer, stages.andThen(stage));
+    }
+
+    /**
+     * Create the updater of an update source.
+     */
+    private SafeTransformedUpdater<S, T> create(TopicUpdateControl.Updater updater) {
+        return new SafeTransformedUpdaterImpl<>(stages.apply(session, updater.valueUpdater(valueType)), transformer);
+    }
+
+    private TopicUpdateControl.ValueUpdater<S> valueUpdater() {
+        final TopicUpdateControl updateControl = session.feature(TopicUpdateControl.class);
+        return stages.apply(session, updateControl.updater().valueUpdater(valueType));
     }
 }
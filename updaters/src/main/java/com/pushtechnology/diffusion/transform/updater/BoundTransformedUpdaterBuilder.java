@@ -29,6 +29,15 @@ public interface BoundTransformedUpdaterBuilder<S, T> extends
     @Override
     TransformedUpdater<S, T> create();
 
+    @Override
+    BoundTransformedUpdaterBuilder<S, T> deduplicate(boolean compareBytes);
+
+    @Override
+    BoundTransformedUpdaterBuilder<S, T> rateLimit(UpdateRateLimiter limiter);
+
+    @Override
+    BoundTransformedUpdaterBuilder<S, T> journal(OutboundJournal journal);
+
     @Override
     UnboundTransformedUpdaterBuilder<S, T> unbind();
 }
@@ -31,14 +31,17 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
     private final Session session;
     private final Class<S> valueType;
     private final UnsafeTransformer<T, S> transformer;
+    private final UpdaterStage<S> stages;
 
     BoundTransformedUpdaterBuilderImpl(
             Session session,
             Class<S> valueType,
-            UnsafeTransformer<T, S> transformer) {
+            UnsafeTransformer<T, S> transformer,
+            UpdaterStage<S> stages) {
         this.session = session;
         this.valueType = valueType;
         this.transformer = transformer;
+        this.stages = stages;
     }
 
     @Override
@@ -46,7 +49,8 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         return new BoundTransformedUpdaterBuilderImpl<>(
             session,
             valueType,
-            newTransformer.chainUnsafe(transformer));
+            newTransformer.chainUnsafe(transformer),
+            stages);
     }
 
     @Override
@@ -55,13 +59,48 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         return new BoundTransformedUpdaterBuilderImpl<>(
             session,
             valueType,
-            newTransformer.chainUnsafe(transformer));
+            newTransformer.chainUnsafe(transformer),
+            stages);
+    }
+
+    @Override
+    public BoundTransformedUpdaterBuilder<S, T> deduplicate(boolean compareBytes) {
+        return withStage(UpdaterStage.deduplicate(valueType, compareBytes));
+    }
+
+    @Override
+    public BoundTransformedUpdaterBuilder<S, T> rateLimit(UpdateRateLimiter limiter) {
+        return withStage(UpdaterStage.rateLimit(valueType, limiter));
+    }
+
+    @Override
+    public BoundTransformedUpdaterBuilder<S, T> journal(OutboundJournal journal) {
+        return withStage(UpdaterStage.journal(valueType, journal));
     }
 
     @Override
     public TransformedUpdater<S, T> create() {
-        final TopicUpdateControl updateControl = session.feature(TopicUpdateControl.class);
-        return new TransformedUpdaterImpl<>(updateControl.updater().valueUpdater(valueType), transformer);
+        return new TransformedUpdaterImpl<>(valueUpdater(), transformer);
+    }
+
+    @Override
+    public SwappableUpdater<S, T> createSwappable() {
+        return new SwappableUpdaterImpl<>(valueUpdater(), transformer);
+    }
+
+    @Override
+    public ConflatingUpdater<S, T> createConflating() {
+        return new ConflatingUpdaterImpl<>(create());
+    }
+
+    @Override
+    public CachingUpdater<S, T> createCaching(int capacity) {
+        return new CachingUpdaterImpl<>(create(), capacity);
+    }
+
+    @Override
+    public AsyncUpdater<T> createAsync(int workers, int queueCapacity, UpdateOverflowPolicy overflowPolicy) {
+        return new AsyncUpdaterImpl<>(create(), workers, queueCapacity, overflowPolicy);
     }
 
     @Override
@@ -71,7 +110,7 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
     @Override
     public UnboundTransformedUpdaterBuilder<S, T> unbind() {
-        return new UnboundTransformedUpdaterBuilderImpl<>(valueType, transformer);
+        return new UnboundTransformedUpdaterBuilderImpl<>(valueType, transformer, stages);
     }
 
     @Override
@@ -79,6 +118,22 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         final TopicUpdateControl updateControl = session.feature(TopicUpdateControl.class);
         updateControl.registerUpdateSource(
             topicPath,
-            new UpdateSourceAdapter<>(new UpdateControlValueCache(updateControl), this.unbind(), updateSource));
+            new UpdateSourceAdapter<>(new UpdateControlValueCache(updateControl), this::create, updateSource));
+    }
+
+    private BoundTransformedUpdaterBuilder<S, T> withStage(UpdaterStage<S> stage) {
+        return new BoundTransformedUpdaterBuilderImpl<>(session, valueType, transformer, stages.andThen(stage));
+    }
+
+    /**
+     * Create the updater of an update source.
+     */
+    private TransformedUpdater<S, T> create(TopicUpdateControl.Updater updater) {
+        return new TransformedUpdaterImpl<>(stages.apply(session, updater.valueUpdater(valueType)), transformer);
+    }
+
+    private TopicUpdateControl.ValueUpdater<S> valueUpdater() {
+        final TopicUpdateControl updateControl = session.feature(TopicUpdateControl.class);
+        return stages.apply(session, updateControl.updater().valueUpdater(valueType));
     }
 }
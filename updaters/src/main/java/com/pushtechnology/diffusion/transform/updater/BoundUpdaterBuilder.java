@@ -19,6 +19,9 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
 /**
  * An extension to {@link UpdaterBuilder} that is bound to a session.
+ * <p>
+ * The stages added to the builder are included in every updater it creates, including the caching and
+ * asynchronous updaters.
  *
  * @param <S> The type of value understood by the topic
  * @param <T> The type of value updates are provided as
@@ -35,6 +38,34 @@ public interface BoundUpdaterBuilder<S, T, U extends TransformedUpdater<S, T>, V
     @Override
     <R> BoundTransformedUpdaterBuilder<S, R> unsafeTransform(UnsafeTransformer<R, T> newTransformer, Class<R> type);
 
+    /**
+     * Add a stage that does not send a value that is the same as the last value successfully sent to a topic.
+     *
+     * @param compareBytes if the serialised values are also kept and compared in full, so a hash collision cannot cause
+     * an update to be skipped
+     * @return a new updater builder
+     * @see UnboundUpdaterBuilder#deduplicate(boolean)
+     */
+    BoundUpdaterBuilder<S, T, U, V> deduplicate(boolean compareBytes);
+
+    /**
+     * Add a stage that sends values within the rate limits of an {@link UpdateRateLimiter}.
+     *
+     * @param limiter the limiter
+     * @return a new updater builder
+     * @see UnboundUpdaterBuilder#rateLimit(UpdateRateLimiter)
+     */
+    BoundUpdaterBuilder<S, T, U, V> rateLimit(UpdateRateLimiter limiter);
+
+    /**
+     * Add a stage that writes updates to an {@link OutboundJournal} while the session is not connected.
+     *
+     * @param journal the journal, it should not be used by other builders
+     * @return a new updater builder
+     * @see UnboundUpdaterBuilder#journal(OutboundJournal)
+     */
+    BoundUpdaterBuilder<S, T, U, V> journal(OutboundJournal journal);
+
     /**
      * Create the updater.
      *
@@ -42,6 +73,46 @@ public interface BoundUpdaterBuilder<S, T, U extends TransformedUpdater<S, T>, V
      */
     U create();
 
+    /**
+     * Create an updater whose transformation can be replaced while it is in use.
+     *
+     * @return a transformed non-exclusive updater that can swap its transformation
+     */
+    SwappableUpdater<S, T> createSwappable();
+
+    /**
+     * Create an updater that conflates the updates of each topic while an update is in flight.
+     *
+     * @return a transformed non-exclusive updater that conflates updates
+     */
+    ConflatingUpdater<S, T> createConflating();
+
+    /**
+     * Create an updater that keeps the last value successfully published to each topic in a {@link LocalValueCache}.
+     *
+     * @param capacity the maximum number of topics with a cached value
+     * @return a transformed non-exclusive updater that caches published values
+     * @throws IllegalArgumentException if the capacity is not positive
+     * @see UnboundUpdaterBuilder#createCaching(com.pushtechnology.diffusion.client.session.Session, int)
+     */
+    CachingUpdater<S, T> createCaching(int capacity) throws IllegalArgumentException;
+
+    /**
+     * Create an updater that transforms and sends values on its own worker threads.
+     *
+     * @param workers the number of worker threads
+     * @param queueCapacity the maximum number of updates queued for each worker
+     * @param overflowPolicy the policy applied to an update made when the queue is full
+     * @return an asynchronous transformed non-exclusive updater
+     * @throws IllegalArgumentException if the number of workers or queue capacity is not positive
+     * @see UnboundUpdaterBuilder#createAsync(com.pushtechnology.diffusion.client.session.Session, int, int,
+     * UpdateOverflowPolicy)
+     */
+    AsyncUpdater<T> createAsync(
+        int workers,
+        int queueCapacity,
+        UpdateOverflowPolicy overflowPolicy) throws IllegalArgumentException;
+
     /**
      * Create the updater for time series topics.
      *
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+/**
+ * A {@link TransformedUpdater} that keeps the last value successfully published to each topic in a
+ * {@link LocalValueCache}.
+ *
+ * @param <S> The type of value understood by the topic
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+public interface CachingUpdater<S, T> extends TransformedUpdater<S, T> {
+    /**
+     * @return the cache of the values published by the updater, in the type they were provided as
+     */
+    LocalValueCache<T> localValueCache();
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+/**
+ * Implementation of {@link CachingUpdater}. Delegates the transformation and sending of values to another
+ * {@link TransformedUpdater} and caches each value when its update succeeds.
+ * <p>
+ * Each update has a sequence number, issued by the cache, so that a late acknowledgement of an earlier update of a
+ * topic does not replace a later value or cache a value that has since been removed.
+ *
+ * @param <S> The type of value understood by the topic
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+/*package*/ final class CachingUpdaterImpl<S, T> implements CachingUpdater<S, T> {
+    private final TransformedUpdater<S, T> delegate;
+    private final LocalValueCacheImpl<T> cache;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ CachingUpdaterImpl(TransformedUpdater<S, T> delegate, int capacity) {
+        this.delegate = delegate;
+        cache = new LocalValueCacheImpl<>(capacity);
+    }
+
+    @Override
+    public void update(String topicPath, T value, UpdateCallback callback) throws TransformationException {
+        if (topicPath == null || value == null || callback == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        final long updateSequence = cache.startUpdate(topicPath);
+        try {
+            delegate.update(topicPath, value, new UpdateCallback() {
+                @Override
+                public void onSuccess() {
+                    cache.put(topicPath, value, updateSequence);
+                    callback.onSuccess();
+                }
+
+                @Override
+                public void onError(ErrorReason errorReason) {
+                    cache.failUpdate(topicPath);
+                    callback.onError(errorReason);
+                }
+            });
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (TransformationException | RuntimeException e) {
+            cache.failUpdate(topicPath);
+            throw e;
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+
+    @Override
+    public <C> void update(String topicPath, T value, C context, UpdateContextCallback<C> callback)
+            throws TransformationException {
+        if (topicPath == null || value == null || callback == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        final long updateSequence = cache.startUpdate(topicPath);
+        try {
+            delegate.update(topicPath, value, context, new UpdateContextCallback<C>() {
+                @Override
+                public void onSuccess(C updateContext) {
+                    cache.put(topicPath, value, updateSequence);
+                    callback.onSuccess(updateContext);
+                }
+
+                @Override
+                public void onError(C updateContext, ErrorReason errorReason) {
+                    cache.failUpdate(topicPath);
+                    callback.onError(updateContext, errorReason);
+                }
+            });
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (TransformationException | RuntimeException e) {
+            cache.failUpdate(topicPath);
+            throw e;
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+
+    @Override
+    public ValueCache<S> untransformedValueCache() {
+        return delegate.untransformedValueCache();
+    }
+
+    @Override
+    public LocalValueCache<T> localValueCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+/**
+ * A {@link TransformedUpdater} that conflates the updates of each topic while an update is in flight.
+ * <p>
+ * When a topic is updated while a previous update of the topic is waiting for a response from the server, the new
+ * value is held back. A newer value replaces the value held back. Once the response is received only the latest value
+ * is transformed and sent. The callbacks of the updates that were replaced are notified with the result of the update
+ * that replaced them.
+ * <p>
+ * If the transformation of a value that was held back fails, its callbacks are notified of an
+ * {@link com.pushtechnology.diffusion.client.callbacks.ErrorReason#INCOMPATIBLE_UPDATE} error. A value that can be sent
+ * immediately is transformed by the calling thread and a failure is thrown to the caller.
+ *
+ * @param <S> The type of value understood by the topic
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+public interface ConflatingUpdater<S, T> extends TransformedUpdater<S, T> {
+
+    /**
+     * @return the number of updates that have been replaced by a newer value without being sent
+     */
+    long getConflatedUpdates();
+}
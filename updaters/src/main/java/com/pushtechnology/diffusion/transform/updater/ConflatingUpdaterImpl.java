@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.client.session.SessionClosedException;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementation of {@link ConflatingUpdater}. Delegates the transformation and sending of values to another
+ * {@link TransformedUpdater}, so only values that are sent are transformed.
+ * <p>
+ * The state of a topic is removed once it has no update in flight. An update that finds the state it looked up has
+ * been removed looks it up again.
+ *
+ * @param <S> The type of value understood by the topic
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+/*package*/ final class ConflatingUpdaterImpl<S, T> implements ConflatingUpdater<S, T> {
+    private static final Logger LOG = LoggerFactory.getLogger(ConflatingUpdaterImpl.class);
+    private final Map<String, TopicUpdates> topics = new ConcurrentHashMap<>();
+    private final LongAdder conflatedUpdates = new LongAdder();
+    private final TransformedUpdater<S, T> delegate;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ ConflatingUpdaterImpl(TransformedUpdater<S, T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void update(String topicPath, T value, UpdateCallback callback) throws TransformationException {
+        if (topicPath == null || value == null || callback == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        while (!topics.computeIfAbsent(topicPath, TopicUpdates::new).update(value, callback)) {
+            // The state of the topic was removed, try again with new state
+            continue;
+        }
+    }
+
+    @Override
+    public <C> void update(String topicPath, T value, C context, UpdateContextCallback<C> callback)
+            throws TransformationException {
+        if (callback == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        update(topicPath, value, new UpdateCallback() {
+            @Override
+            public void onSuccess() {
+                callback.onSuccess(context);
+            }
+
+            @Override
+            public void onError(ErrorReason errorReason) {
+                callback.onError(context, errorReason);
+            }
+        });
+    }
+
+    @Override
+    public ValueCache<S> untransformedValueCache() {
+        return delegate.untransformedValueCache();
+    }
+
+    @Override
+    public long getConflatedUpdates() {
+        return conflatedUpdates.sum();
+    }
+
+    /**
+     * @return the number of topics with an update in flight
+     */
+    /*package*/ int activeTopicCount() {
+        return topics.size();
+    }
+
+    /**
+     * The update in flight and the value held back for a single topic.
+     */
+    private final class TopicUpdates {
+        private final String topicPath;
+        // Guarded by this
+        private boolean inFlight;
+        // Guarded by this
+        private T pendingValue;
+        // Guarded by this
+        private List<UpdateCallback> pendingCallbacks = new ArrayList<>();
+        // Guarded by this
+        private boolean removed;
+
+        private TopicUpdates(String topicPath) {
+            this.topicPath = topicPath;
+        }
+
+        /**
+         * Send the value if there is no update in flight, otherwise hold it back.
+         *
+         * @return false if the state of the topic has been removed and the value was not sent or held back
+         */
+        private boolean update(T value, UpdateCallback callback) throws TransformationException {
+            synchronized (this) {
+                if (removed) {
+                    return false;
+                }
+                if (inFlight) {
+                    if (pendingValue != null) {
+                        conflatedUpdates.increment();
+                    }
+                    pendingValue = value;
+                    pendingCallbacks.add(callback);
+                    return true;
+                }
+                inFlight = true;
+            }
+
+            final List<UpdateCallback> callbacks = Collections.singletonList(callback);
+            try {
+                delegate.update(topicPath, value, new Completion(callbacks));
+            }
+            catch (TransformationException | RuntimeException e) {
+                sendPending();
+                throw e;
+            }
+            return true;
+        }
+
+        /**
+         * Send the value held back, if any, once the update in flight has completed.
+         */
+        private void sendPending() {
+            while (true) {
+                final T value;
+                final List<UpdateCallback> callbacks;
+                synchronized (this) {
+                    if (pendingValue == null) {
+                        inFlight = false;
+                        removed = true;
+                        topics.remove(topicPath, this);
+                        return;
+                    }
+                    value = pendingValue;
+                    callbacks = pendingCallbacks;
+                    pendingValue = null;
+                    pendingCallbacks = new ArrayList<>();
+                }
+
+                try {
+                    delegate.update(topicPath, value, new Completion(callbacks));
+                    return;
+                }
+                catch (TransformationException e) {
+                    LOG.warn("Failed to transform the value of topic '{}' held back by conflation", topicPath, e);
+                    notifyError(callbacks, ErrorReason.INCOMPATIBLE_UPDATE);
+                }
+                catch (SessionClosedException e) {
+                    notifyError(callbacks, ErrorReason.SESSION_CLOSED);
+                }
+                // CHECKSTYLE.OFF: IllegalCatch
+                catch (RuntimeException e) {
+                    LOG.warn("Failed to send the value of topic '{}' held back by conflation", topicPath, e);
+                    notifyError(callbacks, ErrorReason.INCOMPATIBLE_UPDATE);
+                }
+                // CHECKSTYLE.ON: IllegalCatch
+            }
+        }
+
+        private void notifyError(List<UpdateCallback> callbacks, ErrorReason errorReason) {
+            callbacks.forEach(callback -> callback.onError(errorReason));
+        }
+
+        /**
+         * Notifies the callbacks of the values sent by an update and sends the value held back.
+         */
+        private final class Completion implements UpdateCallback {
+            private final List<UpdateCallback> callbacks;
+
+            private Completion(List<UpdateCallback> callbacks) {
+                this.callbacks = callbacks;
+            }
+
+            @Override
+            public void onSuccess() {
+                try {
+                    callbacks.forEach(UpdateCallback::onSuccess);
+                }
+                finally {
+                    sendPending();
+                }
+            }
+
+            @Override
+            public void onError(ErrorReason errorReason) {
+                try {
+                    notifyError(callbacks, errorReason);
+                }
+                finally {
+                    sendPending();
+                }
+            }
+        }
+    }
+}
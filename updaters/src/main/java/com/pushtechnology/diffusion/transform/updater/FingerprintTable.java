@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash table from the 64-bit hash of a topic path to the fingerprint of the last value sent to the
+ * topic. The optional bytes of the value allow a full comparison.
+ * <p>
+ * Each value is stored when it is sent with the sequence number of the update and confirmed when the update succeeds.
+ * Only confirmed values match. A confirmation for an earlier update of a topic is ignored once a later update has been
+ * sent.
+ *
+ * @author Push Technology Limited
+ */
+/*package*/ final class FingerprintTable {
+    private static final int MIN_CAPACITY = 16;
+    private static final long EMPTY = 0L;
+
+    // Guarded by this
+    private long[] keys;
+    // Guarded by this
+    private long[] fingerprints;
+    // Guarded by this
+    private long[] sequences;
+    // Guarded by this
+    private boolean[] confirmed;
+    // Guarded by this
+    private byte[][] values;
+    // Guarded by this
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ FingerprintTable() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * @return if the confirmed value of the topic has the fingerprint and, if provided, the bytes
+     */
+    /*package*/ synchronized boolean matches(long key, long fingerprint, byte[] bytes) {
+        final int slot = find(key);
+        return slot >= 0
+            && confirmed[slot]
+            && fingerprints[slot] == fingerprint
+            && (bytes == null || Arrays.equals(values[slot], bytes));
+    }
+
+    /**
+     * Store the value of an update that has been sent. The value does not match until it is confirmed.
+     */
+    /*package*/ synchronized void sent(long key, long sequence, long fingerprint, byte[] bytes) {
+        int slot = find(key);
+        if (slot < 0) {
+            if ((size + 1) * 3 > keys.length * 2) {
+                resize(keys.length * 2);
+                slot = find(key);
+            }
+            slot = -slot - 1;
+            keys[slot] = key;
+            size += 1;
+        }
+
+        sequences[slot] = sequence;
+        fingerprints[slot] = fingerprint;
+        confirmed[slot] = false;
+        values[slot] = bytes;
+    }
+
+    /**
+     * Confirm the value of a successful update if no later update of the topic has been sent.
+     */
+    /*package*/ synchronized void confirm(long key, long sequence) {
+        final int slot = find(key);
+        if (slot >= 0 && sequences[slot] == sequence) {
+            confirmed[slot] = true;
+        }
+    }
+
+    /**
+     * Remove the value of a failed update if no later update of the topic has been sent.
+     */
+    /*package*/ synchronized void failed(long key, long sequence) {
+        final int slot = find(key);
+        if (slot >= 0 && sequences[slot] == sequence) {
+            removeSlot(slot);
+        }
+    }
+
+    /**
+     * Remove every value.
+     */
+    /*package*/ synchronized void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * @return the number of topics with a value
+     */
+    /*package*/ synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the slot of the key or, if it is not present, minus one minus the slot to insert it at
+     */
+    private int find(long key) {
+        final int mask = keys.length - 1;
+        int slot = (int) key & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    /**
+     * Remove a slot, shifting back the following keys of the probe sequence to fill the gap.
+     */
+    private void removeSlot(int slot) {
+        final int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            final int home = (int) keys[next] & mask;
+            // Move the key back if its home slot is not between the gap and its current slot
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                move(next, gap);
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        keys[gap] = EMPTY;
+        values[gap] = null;
+        size -= 1;
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        sequences[to] = sequences[from];
+        fingerprints[to] = fingerprints[from];
+        confirmed[to] = confirmed[from];
+        values[to] = values[from];
+    }
+
+    private void resize(int capacity) {
+        final long[] oldKeys = keys;
+        final long[] oldSequences = sequences;
+        final long[] oldFingerprints = fingerprints;
+        final boolean[] oldConfirmed = confirmed;
+        final byte[][] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                final int slot = -find(oldKeys[i]) - 1;
+                keys[slot] = oldKeys[i];
+                sequences[slot] = oldSequences[i];
+                fingerprints[slot] = oldFingerprints[i];
+                confirmed[slot] = oldConfirmed[i];
+                values[slot] = oldValues[i];
+                size += 1;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        sequences = new long[capacity];
+        fingerprints = new long[capacity];
+        confirmed = new boolean[capacity];
+        values = new byte[capacity][];
+        size = 0;
+    }
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.pushtechnology.diffusion.client.Diffusion;
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.client.topics.TopicSelector;
+import com.pushtechnology.diffusion.datatype.DataType;
+
+/**
+ * A {@link TopicUpdateControl.ValueUpdater} that does not send a value that is the same as the last value successfully
+ * sent to the topic. The callback of an update that is not sent is notified of success immediately.
+ * <p>
+ * The serialised bytes of each value are fingerprinted with a 64-bit hash. The bytes can also be kept to compare them
+ * in full, so a hash collision cannot cause an update to be skipped. Removing cached values removes the fingerprints
+ * of every topic, so the next update of each topic is sent.
+ *
+ * @param <S> The type of value understood by the topic
+ * @author Push Technology Limited
+ */
+/*package*/ final class FingerprintingValueUpdater<S> implements TopicUpdateControl.ValueUpdater<S> {
+    private static final long SEED = 0x9e3779b97f4a7c15L;
+    private final FingerprintTable table = new FingerprintTable();
+    private final AtomicLong sequence = new AtomicLong();
+    private final TopicUpdateControl.ValueUpdater<S> delegate;
+    private final DataType<S> dataType;
+    private final boolean compareBytes;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ FingerprintingValueUpdater(
+            TopicUpdateControl.ValueUpdater<S> delegate,
+            DataType<S> dataType,
+            boolean compareBytes) {
+        this.delegate = delegate;
+        this.dataType = dataType;
+        this.compareBytes = compareBytes;
+    }
+
+    /**
+     * Create an updater for a value type supported by Diffusion.
+     */
+    /*package*/ static <S> FingerprintingValueUpdater<S> create(
+            TopicUpdateControl.ValueUpdater<S> delegate,
+            Class<S> valueType,
+            boolean compareBytes) {
+        return new FingerprintingValueUpdater<>(delegate, Diffusion.dataTypes().getByClass(valueType), compareBytes);
+    }
+
+    @Override
+    public void update(String topicPath, S value, UpdateCallback callback) {
+        final Update update = new Update(topicPath, value);
+        if (update.isUnchanged()) {
+            callback.onSuccess();
+            return;
+        }
+
+        update.sent();
+        delegate.update(topicPath, value, new UpdateCallback() {
+            @Override
+            public void onSuccess() {
+                update.confirm();
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onError(ErrorReason errorReason) {
+                update.failed();
+                callback.onError(errorReason);
+            }
+        });
+    }
+
+    @Override
+    public <C> void update(String topicPath, S value, C context, UpdateContextCallback<C> callback) {
+        final Update update = new Update(topicPath, value);
+        if (update.isUnchanged()) {
+            callback.onSuccess(context);
+            return;
+        }
+
+        update.sent();
+        delegate.update(topicPath, value, context, new UpdateContextCallback<C>() {
+            @Override
+            public void onSuccess(C updateContext) {
+                update.confirm();
+                callback.onSuccess(updateContext);
+            }
+
+            @Override
+            public void onError(C updateContext, ErrorReason errorReason) {
+                update.failed();
+                callback.onError(updateContext, errorReason);
+            }
+        });
+    }
+
+    @Override
+    public S getCachedValue(String topicPath) {
+        return delegate.getCachedValue(topicPath);
+    }
+
+    @Override
+    public void removeCachedValues(String selector) {
+        table.clear();
+        delegate.removeCachedValues(selector);
+    }
+
+    @Override
+    public void removeCachedValues(TopicSelector selector) {
+        table.clear();
+        delegate.removeCachedValues(selector);
+    }
+
+    /**
+     * @return the number of topics with a fingerprint
+     */
+    /*package*/ int fingerprintCount() {
+        return table.size();
+    }
+
+    /**
+     * A 64-bit hash of a topic path. Never zero, which marks an empty slot of the table.
+     */
+    /*package*/ static long hashPath(String topicPath) {
+        long hash = SEED;
+        for (int i = 0; i < topicPath.length(); i++) {
+            hash = (hash ^ topicPath.charAt(i)) * 0x100000001b3L;
+        }
+        final long mixed = mix(hash);
+        return mixed == 0L ? 1L : mixed;
+    }
+
+    /**
+     * A 64-bit hash of serialised bytes. Eight bytes are combined at a time.
+     */
+    /*package*/ static long hashBytes(byte[] bytes) {
+        long hash = SEED ^ bytes.length;
+        int i = 0;
+        for (; i + 8 <= bytes.length; i += 8) {
+            long word = 0L;
+            for (int j = 0; j < 8; j++) {
+                word = (word << 8) | (bytes[i + j] & 0xffL);
+            }
+            hash = Long.rotateLeft(hash ^ mix(word), 27) * 0x9e3779b97f4a7c15L;
+        }
+        long tail = 0L;
+        for (; i < bytes.length; i++) {
+            tail = (tail << 8) | (bytes[i] & 0xffL);
+        }
+        return mix(hash ^ mix(tail));
+    }
+
+    /**
+     * The 64-bit finaliser of MurmurHash3.
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * The fingerprint of a single update.
+     */
+    private final class Update {
+        private final long key;
+        private final long fingerprint;
+        private final byte[] bytes;
+        private final long updateSequence;
+
+        private Update(String topicPath, S value) {
+            final byte[] serialised = dataType.toBytes(value).toByteArray();
+            key = hashPath(topicPath);
+            fingerprint = hashBytes(serialised);
+            bytes = compareBytes ? serialised : null;
+            updateSequence = sequence.incrementAndGet();
+        }
+
+        private boolean isUnchanged() {
+            return table.matches(key, fingerprint, bytes);
+        }
+
+        private void sent() {
+            table.sent(key, updateSequence, fingerprint, bytes);
+        }
+
+        private void confirm() {
+            table.confirm(key, updateSequence);
+        }
+
+        private void failed() {
+            table.failed(key, updateSequence);
+        }
+    }
+}
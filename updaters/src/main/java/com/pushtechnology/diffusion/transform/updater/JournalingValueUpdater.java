@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.pushtechnology.diffusion.client.Diffusion;
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.client.session.SessionClosedException;
+import com.pushtechnology.diffusion.client.topics.TopicSelector;
+import com.pushtechnology.diffusion.datatype.DataType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TopicUpdateControl.ValueUpdater} that writes updates to an {@link OutboundJournal} while the session is
+ * not connected.
+ * <p>
+ * When the session reconnects the journal is replayed through a {@link PipelinedUpdate}, one segment at a time.
+ * Updates made during the replay are journaled after the updates being replayed, so the updates of each topic are sent
+ * in order. Each segment is deleted once it has been replayed and the journal replayed until it is empty, then updates
+ * are sent directly. If a replay fails it is retried after a backoff while the session stays connected, updates are
+ * journaled meanwhile. Segments that cannot be read are quarantined by the journal. The callback
+ * of a journaled update is notified of success when it is written to the journal, or of a
+ * {@link ErrorReason#COMMUNICATION_FAILURE} if the journal is full.
+ * <p>
+ * When another updater is created with the journal this updater is detached from it. It sends updates directly and
+ * stops following the state of the session. A replay in progress finishes the segment being replayed and then hands
+ * the replay over to the new updater.
+ *
+ * @param <S> The type of value understood by the topic
+ * @author Push Technology Limited
+ */
+/*package*/ final class JournalingValueUpdater<S> implements TopicUpdateControl.ValueUpdater<S>, Session.Listener {
+    private static final Logger LOG = LoggerFactory.getLogger(JournalingValueUpdater.class);
+    private final Session session;
+    private final TopicUpdateControl.ValueUpdater<S> delegate;
+    private final DataType<S> dataType;
+    private final OutboundJournal journal;
+    private final TransformedUpdater<S, byte[]> replayUpdater;
+    // Guarded by this
+    private boolean connected;
+    // Guarded by this
+    private boolean direct;
+    // Guarded by this
+    private boolean replaying;
+    // Guarded by this
+    private long disconnections;
+    // Guarded by this
+    private int consecutiveFailures;
+    // Guarded by this
+    private boolean detached;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ JournalingValueUpdater(
+            Session session,
+            TopicUpdateControl.ValueUpdater<S> delegate,
+            DataType<S> dataType,
+            OutboundJournal journal) {
+        this.session = session;
+        this.delegate = delegate;
+        this.dataType = dataType;
+        this.journal = journal;
+        replayUpdater = new SafeTransformedUpdaterImpl<>(delegate, bytes -> {
+            journal.recordReplayed();
+            return dataType.readValue(bytes);
+        });
+    }
+
+    /**
+     * Create an updater for a value type supported by Diffusion that follows the state of a session and make it the
+     * user of the journal.
+     */
+    /*package*/ static <S> JournalingValueUpdater<S> create(
+            Session session,
+            TopicUpdateControl.ValueUpdater<S> delegate,
+            Class<S> valueType,
+            OutboundJournal journal) {
+
+        final JournalingValueUpdater<S> updater =
+            new JournalingValueUpdater<>(session, delegate, Diffusion.dataTypes().getByClass(valueType), journal);
+        final JournalingValueUpdater<?> previous = journal.attach(updater);
+        if (previous != null) {
+            previous.detach();
+        }
+        session.addListener(updater);
+        final Session.State state = session.getState();
+        updater.onSessionStateChanged(session, state, state);
+        return updater;
+    }
+
+    @Override
+    public void update(String topicPath, S value, UpdateCallback callback) {
+        if (topicPath == null || value == null || callback == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        final boolean send;
+        final boolean journaled;
+        synchronized (this) {
+            send = direct || detached;
+            journaled = !send && journal.append(topicPath, dataType.toBytes(value).toByteArray());
+        }
+
+        if (journaled) {
+            callback.onSuccess();
+        }
+        else if (!send) {
+            callback.onError(ErrorReason.COMMUNICATION_FAILURE);
+        }
+        else {
+            try {
+                delegate.update(topicPath, value, callback);
+            }
+            catch (SessionClosedException e) {
+                if (!disconnected()) {
+                    throw e;
+                }
+                update(topicPath, value, callback);
+            }
+        }
+    }
+
+    @Override
+    public <C> void update(String topicPath, S value, C context, UpdateContextCallback<C> callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        update(topicPath, value, new UpdateCallback() {
+            @Override
+            public void onSuccess() {
+                callback.onSuccess(context);
+            }
+
+            @Override
+            public void onError(ErrorReason errorReason) {
+                callback.onError(context, errorReason);
+            }
+        });
+    }
+
+    @Override
+    public S getCachedValue(String topicPath) {
+        return delegate.getCachedValue(topicPath);
+    }
+
+    @Override
+    public void removeCachedValues(String selector) {
+        delegate.removeCachedValues(selector);
+    }
+
+    @Override
+    public void removeCachedValues(TopicSelector selector) {
+        delegate.removeCachedValues(selector);
+    }
+
+    @Override
+    public void onSessionStateChanged(Session changedSession, Session.State oldState, Session.State newState) {
+        if (newState == Session.State.CONNECTED_ACTIVE) {
+            synchronized (this) {
+                connected = true;
+            }
+            replayIfIdle();
+        }
+        else {
+            disconnected();
+        }
+    }
+
+    /**
+     * Stop using the journal because another updater has been created with it.
+     */
+    private void detach() {
+        session.removeListener(this);
+        synchronized (this) {
+            detached = true;
+        }
+    }
+
+    /**
+     * @return if updates are journaled, false if the updater is detached from the journal
+     */
+    private synchronized boolean disconnected() {
+        if (connected) {
+            disconnections += 1L;
+        }
+        connected = false;
+        direct = false;
+        return !detached;
+    }
+
+    /**
+     * Replay the oldest segment of the journal, or send updates directly if it is empty.
+     */
+    private void replayNext() {
+        final Path segment;
+        final long replayDisconnections;
+        final boolean handOver;
+        synchronized (this) {
+            handOver = detached;
+            if (detached || !connected || journal.isEmpty()) {
+                direct = connected;
+                replaying = false;
+                journal.stopReplaying();
+                segment = null;
+                replayDisconnections = 0L;
+            }
+            else {
+                segment = journal.nextReplaySegment();
+                replayDisconnections = disconnections;
+            }
+        }
+        if (segment == null) {
+            if (handOver) {
+                handOverReplay();
+            }
+            return;
+        }
+
+        final List<Path> segments = new ArrayList<>(1);
+        segments.add(segment);
+        final OutboundJournal.Records records = journal.records(segments);
+        final Iterator<Map.Entry<String, byte[]>> values = journal.isConflateReplay() ? conflate(records) : records;
+        new PipelinedUpdate<>(replayUpdater, values, journal.getReplayMaxInFlight())
+            .start()
+            .whenComplete((result, e) -> {
+                final boolean interrupted;
+                synchronized (this) {
+                    // Updates sent while the session was disconnected may have been lost
+                    interrupted = disconnections != replayDisconnections;
+                }
+
+                if (interrupted) {
+                    LOG.info("The session disconnected while replaying the journal, replaying it again");
+                    stopReplaying();
+                    replayIfIdle();
+                    return;
+                }
+                if (e != null) {
+                    retryLater(e);
+                    return;
+                }
+
+                journal.recordFailedReplays(result.getErrors().size() + result.getTransformationFailures().size());
+                if (!result.isSuccessful()) {
+                    LOG.warn("Failed to replay some journaled updates: {}", result);
+                }
+                final List<Path> unreadable = records.getUnreadableSegments();
+                if (unreadable.isEmpty()) {
+                    journal.delete(segments);
+                }
+                else {
+                    journal.quarantine(unreadable);
+                }
+                synchronized (this) {
+                    consecutiveFailures = 0;
+                }
+                replayNext();
+            });
+    }
+
+    /**
+     * Stop replaying and schedule the replay to be tried again.
+     */
+    private void retryLater(Throwable e) {
+        final long delay;
+        synchronized (this) {
+            consecutiveFailures += 1;
+            delay = journal.retryDelay(consecutiveFailures);
+        }
+
+        LOG.warn("Failed to replay the journal, retrying in {} ms", delay, e);
+        stopReplaying();
+        journal.getScheduler().schedule(this::replayIfIdle, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopReplaying() {
+        final boolean handOver;
+        synchronized (this) {
+            replaying = false;
+            journal.stopReplaying();
+            handOver = detached;
+        }
+        if (handOver) {
+            handOverReplay();
+        }
+    }
+
+    /**
+     * Start replaying the journal if the session is connected and it is not already being replayed.
+     */
+    private void replayIfIdle() {
+        synchronized (this) {
+            if (!connected || replaying || detached || !journal.startReplaying()) {
+                // A detached updater that is still replaying the journal hands the replay over when it stops
+                return;
+            }
+            replaying = true;
+        }
+        replayNext();
+    }
+
+    /**
+     * Let the user of the journal replay it, once this updater has been detached and stopped replaying.
+     */
+    private void handOverReplay() {
+        final JournalingValueUpdater<?> user = journal.getUpdater();
+        if (user != null && user != this) {
+            user.replayIfIdle();
+        }
+    }
+
+    /**
+     * @return the latest update of each topic
+     */
+    private static Iterator<Map.Entry<String, byte[]>> conflate(Iterator<Map.Entry<String, byte[]>> records) {
+        final Map<String, byte[]> latest = new LinkedHashMap<>();
+        while (records.hasNext()) {
+            final Map.Entry<String, byte[]> record = records.next();
+            // Move the topic to the position of its latest update
+            latest.remove(record.getKey());
+            latest.put(record.getKey(), record.getValue());
+        }
+        return latest.entrySet().iterator();
+    }
+}
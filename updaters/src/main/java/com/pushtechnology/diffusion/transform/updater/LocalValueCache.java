@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+/**
+ * A producer-local cache of the last values successfully published to topics, in the type they were provided as.
+ * <p>
+ * A value is cached when the server acknowledges its update. The cache is bounded, when it is full the topics that
+ * have not been read recently are evicted first. Reading a value does not block and does not contact the server.
+ *
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+public interface LocalValueCache<T> {
+    /**
+     * Get the last value successfully published to a topic.
+     *
+     * @param topicPath the topic path
+     * @return the value, or null if no value is cached for the topic
+     */
+    T get(String topicPath);
+
+    /**
+     * Remove the value of a topic.
+     *
+     * @param topicPath the topic path
+     */
+    void remove(String topicPath);
+
+    /**
+     * Remove every value.
+     */
+    void clear();
+
+    /**
+     * @return the number of topics with a cached value
+     */
+    int size();
+
+    /**
+     * @return the number of values evicted to make space for other topics
+     */
+    long getEvictions();
+}
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of {@link LocalValueCache}. Evicts with the CLOCK algorithm.
+ * <p>
+ * Each topic occupies a slot of a ring. Reading a value marks it as referenced without locking. When the cache is full
+ * the hand sweeps the ring, clearing the mark of referenced values, and evicts the first value that is not marked.
+ * Values are only written by the completion of updates, which holds the lock of the cache.
+ * <p>
+ * Each update has a sequence number. While updates of a topic are in flight the cache remembers the latest sequence
+ * number sent for it. Removing, clearing or evicting the value of the topic rejects the values of the updates sent
+ * before, so a late acknowledgement does not cache a stale value again.
+ *
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+/*package*/ final class LocalValueCacheImpl<T> implements LocalValueCache<T> {
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+    // Guarded by this
+    private final Map<String, InFlight> inFlight = new HashMap<>();
+    // Guarded by this
+    private final String[] ring;
+    // Guarded by this
+    private final int[] freeSlots;
+    // Guarded by this
+    private int freeCount;
+    // Guarded by this
+    private int hand;
+    // Guarded by this
+    private long sequence;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ LocalValueCacheImpl(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+
+        ring = new String[capacity];
+        freeSlots = new int[capacity];
+        resetFreeSlots();
+    }
+
+    @Override
+    public T get(String topicPath) {
+        final Entry<T> entry = entries.get(topicPath);
+        if (entry == null) {
+            return null;
+        }
+        // Avoid writing to the shared entry when it is already marked
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Start an update of a topic.
+     *
+     * @return the sequence number of the update
+     */
+    /*package*/ synchronized long startUpdate(String topicPath) {
+        final InFlight updates = inFlight.computeIfAbsent(topicPath, path -> new InFlight());
+        updates.count++;
+        updates.latest = ++sequence;
+        return sequence;
+    }
+
+    /**
+     * Complete an update of a topic that failed.
+     */
+    /*package*/ synchronized void failUpdate(String topicPath) {
+        endUpdate(topicPath);
+    }
+
+    /**
+     * Cache the value of a successful update if no later update of the topic has been cached and the value of the
+     * topic has not been discarded since the update was sent.
+     */
+    /*package*/ synchronized void put(String topicPath, T value, long sequence) {
+        final InFlight updates = endUpdate(topicPath);
+        if (updates != null && sequence <= updates.discarded) {
+            return;
+        }
+
+        final Entry<T> current = entries.get(topicPath);
+        if (current != null) {
+            if (current.sequence < sequence) {
+                final Entry<T> replacement = new Entry<>(value, sequence, current.slot);
+                replacement.referenced = current.referenced;
+                entries.put(topicPath, replacement);
+            }
+            return;
+        }
+
+        final int slot = freeCount > 0 ? freeSlots[--freeCount] : evict();
+        ring[slot] = topicPath;
+        entries.put(topicPath, new Entry<>(value, sequence, slot));
+    }
+
+    @Override
+    public synchronized void remove(String topicPath) {
+        final Entry<T> entry = entries.remove(topicPath);
+        if (entry != null) {
+            ring[entry.slot] = null;
+            freeSlots[freeCount++] = entry.slot;
+        }
+        final InFlight updates = inFlight.get(topicPath);
+        if (updates != null) {
+            updates.discarded = updates.latest;
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        inFlight.values().forEach(updates -> updates.discarded = updates.latest);
+        Arrays.fill(ring, null);
+        resetFreeSlots();
+        hand = 0;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Evict the first value after the hand that has not been referenced since the hand last passed it.
+     *
+     * @return the slot of the evicted value
+     */
+    private int evict() {
+        while (true) {
+            final int slot = hand;
+            hand = (hand + 1) % ring.length;
+
+            final Entry<T> entry = entries.get(ring[slot]);
+            if (entry.referenced) {
+                entry.referenced = false;
+            }
+            else {
+                entries.remove(ring[slot]);
+                final InFlight updates = inFlight.get(ring[slot]);
+                if (updates != null) {
+                    // Updates sent before the evicted value are stale
+                    updates.discarded = Math.max(updates.discarded, entry.sequence);
+                }
+                ring[slot] = null;
+                evictions.increment();
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * @return the updates in flight for the topic, removed if this was the last
+     */
+    // Guarded by this
+    private InFlight endUpdate(String topicPath) {
+        final InFlight updates = inFlight.get(topicPath);
+        if (updates != null && --updates.count == 0) {
+            inFlight.remove(topicPath);
+        }
+        return updates;
+    }
+
+    private void resetFreeSlots() {
+        for (int i = 0; i < freeSlots.length; i++) {
+            freeSlots[i] = freeSlots.length - 1 - i;
+        }
+        freeCount = freeSlots.length;
+    }
+
+    @Override
+    public String toString() {
+        return "LocalValueCache [size=" + size() + ", capacity=" + ring.length + ", evictions=" + getEvictions() + "]";
+    }
+
+    /**
+     * A cached value.
+     */
+    private static final class Entry<T> {
+        private final T value;
+        private final long sequence;
+        private final int slot;
+        private volatile boolean referenced;
+
+        private Entry(T value, long sequence, int slot) {
+            this.value = value;
+            this.sequence = sequence;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * The updates of a topic waiting for a response.
+     */
+    private static final class InFlight {
+        private int count;
+        // The sequence number of the latest update sent
+        private long latest;
+        // The values of updates with this sequence number or earlier are not cached
+        private long discarded;
+    }
+}
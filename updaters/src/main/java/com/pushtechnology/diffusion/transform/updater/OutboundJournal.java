@@ -0,0 +1,635 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local journal of the updates made while a session is not connected. Created by {@link #builder()} and passed to
+ * {@link UnboundUpdaterBuilder#journal(OutboundJournal)}.
+ * <p>
+ * The serialised values are written to memory-mapped segment files in a directory. A segment is a file of a fixed
+ * size containing a sequence of records. Each record is written as:
+ * <ol>
+ * <li>the length of the rest of the record as an int, a length of zero marks the end of the segment</li>
+ * <li>the length of the topic path as an unsigned short followed by the UTF-8 bytes of the topic path</li>
+ * <li>the length of the value as an int followed by the bytes of the value</li>
+ * </ol>
+ * When the session reconnects the segments are replayed in order and each is deleted once it has been replayed. A
+ * replay that fails is retried with an exponential backoff while the session stays connected. A segment that cannot
+ * be read is moved aside with the suffix {@code .quarantined} and the replay continues with the next segment. The
+ * number of segments is bounded, updates that do not fit in the journal are rejected. Opening a journal in a
+ * directory that already contains segments replays them when the updater is next connected, so updates are not lost
+ * if the process stops while disconnected. Updates may be replayed more than once if the connection is lost or the
+ * replay fails.
+ * <p>
+ * A journal is used by the updater most recently created with it. An updater created before it stops journaling,
+ * finishes replaying the segment it is replaying and then hands the replay over.
+ *
+ * @author Push Technology Limited
+ */
+public final class OutboundJournal implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboundJournal.class);
+    private static final int MIN_SEGMENT_SIZE = 4096;
+    private static final int FIXED_RECORD_LENGTH = 4 + 2 + 4;
+    private static final int MAX_PATH_LENGTH = 0xFFFF;
+    private static final String SEGMENT_SUFFIX = ".outbound";
+    private static final String QUARANTINE_SUFFIX = ".quarantined";
+    private final LongAdder journaledUpdates = new LongAdder();
+    private final LongAdder rejectedUpdates = new LongAdder();
+    private final LongAdder replayedUpdates = new LongAdder();
+    private final LongAdder failedReplays = new LongAdder();
+    private final LongAdder quarantinedSegments = new LongAdder();
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean conflateReplay;
+    private final int replayMaxInFlight;
+    private final ScheduledExecutorService scheduler;
+    private final long initialRetryDelay;
+    private final long maxRetryDelay;
+    private volatile boolean replaying;
+    // Guarded by this
+    private JournalingValueUpdater<?> updater;
+    // Guarded by this
+    private final Deque<Path> segments;
+    // Guarded by this
+    private long nextSegmentIndex;
+    // Guarded by this
+    private MappedByteBuffer segment;
+    // Guarded by this
+    private boolean closed;
+
+    private OutboundJournal(
+            Path directory,
+            int segmentSize,
+            int maxSegments,
+            boolean conflateReplay,
+            int replayMaxInFlight,
+            ScheduledExecutorService scheduler,
+            long initialRetryDelay,
+            long maxRetryDelay,
+            List<Path> existingSegments) {
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.conflateReplay = conflateReplay;
+        this.replayMaxInFlight = replayMaxInFlight;
+        this.scheduler = scheduler;
+        this.initialRetryDelay = initialRetryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        segments = new ArrayDeque<>(existingSegments);
+        nextSegmentIndex = existingSegments.isEmpty() ?
+            0L :
+            segmentIndex(existingSegments.get(existingSegments.size() - 1)) + 1L;
+    }
+
+    /**
+     * @return a new builder of journals
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Append an update to the journal.
+     *
+     * @return if the update was journaled, false if the journal is full or closed
+     */
+    /*package*/ synchronized boolean append(String topicPath, byte[] value) {
+        final byte[] path = topicPath.getBytes(UTF_8);
+        final int length = FIXED_RECORD_LENGTH + path.length + value.length;
+        if (closed || path.length > MAX_PATH_LENGTH || length > segmentSize) {
+            rejectedUpdates.increment();
+            return false;
+        }
+
+        if ((segment == null || segment.remaining() < length) && !nextSegment()) {
+            rejectedUpdates.increment();
+            return false;
+        }
+
+        final int start = segment.position();
+        segment.position(start + 4);
+        segment.putShort((short) path.length);
+        segment.put(path);
+        segment.putInt(value.length);
+        segment.put(value);
+        // The length is written last so a partially written record marks the end of the segment
+        segment.putInt(start, length - 4);
+        journaledUpdates.increment();
+        return true;
+    }
+
+    /**
+     * @return if the journal contains no updates
+     */
+    /*package*/ synchronized boolean isEmpty() {
+        return segments.isEmpty() || segments.size() == 1 && segment != null && segment.position() == 0;
+    }
+
+    /**
+     * Complete the current segment so the following updates are appended to a new segment.
+     *
+     * @return the segments that contain updates, in the order they were written
+     */
+    /*package*/ synchronized List<Path> seal() {
+        final List<Path> sealed = new ArrayList<>(segments);
+        if (segment != null) {
+            if (segment.position() == 0) {
+                // The current segment is empty, keep appending to it
+                sealed.remove(sealed.size() - 1);
+            }
+            else {
+                segment.force();
+                segment = null;
+            }
+        }
+        return sealed;
+    }
+
+    /**
+     * Get the next segment to replay. The current segment is only completed if it is the last segment that contains
+     * updates, so segments are not split while older segments are being replayed.
+     *
+     * @return the oldest segment, {@code null} if there are none
+     */
+    /*package*/ synchronized Path nextReplaySegment() {
+        if (segments.size() == 1 && segment != null) {
+            segment.force();
+            segment = null;
+        }
+        return segments.peekFirst();
+    }
+
+    /**
+     * Delete segments that have been replayed.
+     */
+    /*package*/ synchronized void delete(List<Path> replayed) {
+        for (Path file : replayed) {
+            segments.remove(file);
+            try {
+                Files.deleteIfExists(file);
+            }
+            catch (IOException e) {
+                LOG.warn("Failed to delete the replayed journal segment '{}'", file, e);
+            }
+        }
+    }
+
+    /**
+     * Move segments that could not be read aside so they are not replayed again.
+     */
+    /*package*/ synchronized void quarantine(List<Path> unreadable) {
+        for (Path file : unreadable) {
+            segments.remove(file);
+            final Path target = file.resolveSibling(file.getFileName() + QUARANTINE_SUFFIX);
+            try {
+                Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+                LOG.error("Moved the unreadable journal segment '{}' to '{}'", file, target);
+            }
+            catch (IOException e) {
+                LOG.error("Failed to move the unreadable journal segment '{}' aside", file, e);
+            }
+            quarantinedSegments.increment();
+        }
+    }
+
+    /**
+     * @return the updates of the segments in the order they were written
+     */
+    /*package*/ Records records(List<Path> sealed) {
+        return new Records(sealed);
+    }
+
+    /**
+     * @return if the updates of each topic are conflated when replayed
+     */
+    /*package*/ boolean isConflateReplay() {
+        return conflateReplay;
+    }
+
+    /**
+     * @return the maximum number of replayed updates waiting for a response from the server
+     */
+    /*package*/ int getReplayMaxInFlight() {
+        return replayMaxInFlight;
+    }
+
+    /*package*/ ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @param failures the number of consecutive failed replays
+     * @return the delay in milliseconds before the replay is retried
+     */
+    /*package*/ long retryDelay(int failures) {
+        final int doublings = Math.min(failures - 1, Long.numberOfLeadingZeros(initialRetryDelay) - 1);
+        return Math.min(maxRetryDelay, initialRetryDelay << doublings);
+    }
+
+    /**
+     * Make an updater the user of the journal.
+     *
+     * @return the previous user of the journal, {@code null} if there was none
+     */
+    /*package*/ synchronized JournalingValueUpdater<?> attach(JournalingValueUpdater<?> newUpdater) {
+        final JournalingValueUpdater<?> previous = updater;
+        updater = newUpdater;
+        return previous;
+    }
+
+    /**
+     * @return the user of the journal, {@code null} if there is none
+     */
+    /*package*/ synchronized JournalingValueUpdater<?> getUpdater() {
+        return updater;
+    }
+
+    /**
+     * Start replaying the journal.
+     *
+     * @return if the replay was started, false if it is already being replayed
+     */
+    /*package*/ synchronized boolean startReplaying() {
+        if (replaying) {
+            return false;
+        }
+        replaying = true;
+        return true;
+    }
+
+    /*package*/ synchronized void stopReplaying() {
+        replaying = false;
+    }
+
+    /*package*/ void recordReplayed() {
+        replayedUpdates.increment();
+    }
+
+    /*package*/ void recordFailedReplays(int failed) {
+        failedReplays.add(failed);
+    }
+
+    /**
+     * @return the number of updates written to the journal
+     */
+    public long getJournaledUpdates() {
+        return journaledUpdates.sum();
+    }
+
+    /**
+     * @return the number of updates rejected because the journal was full or closed
+     */
+    public long getRejectedUpdates() {
+        return rejectedUpdates.sum();
+    }
+
+    /**
+     * @return the number of updates sent to the server by replays
+     */
+    public long getReplayedUpdates() {
+        return replayedUpdates.sum();
+    }
+
+    /**
+     * @return the number of replayed updates the server rejected or that could not be read
+     */
+    public long getFailedReplays() {
+        return failedReplays.sum();
+    }
+
+    /**
+     * @return the number of segments moved aside because they could not be read
+     */
+    public long getQuarantinedSegments() {
+        return quarantinedSegments.sum();
+    }
+
+    /**
+     * @return if the journal is being replayed
+     */
+    public boolean isReplaying() {
+        return replaying;
+    }
+
+    /**
+     * @return the number of bytes of disk used by the segments
+     */
+    public synchronized long getDiskUsage() {
+        return segments.size() * (long) segmentSize;
+    }
+
+    /**
+     * Flush the journal to disk and close it. Updates that are not journaled after the journal is closed are rejected.
+     * The segments are kept so they can be replayed by a journal opened in the same directory.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    // Guarded by this
+    private boolean nextSegment() {
+        if (segments.size() >= maxSegments) {
+            return false;
+        }
+
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+
+        final Path file = directory.resolve(String.format("%019d%s", nextSegmentIndex, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+            // The mapping remains valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0L, segmentSize);
+        }
+        catch (IOException e) {
+            LOG.warn("Failed to create the journal segment '{}'", file, e);
+            return false;
+        }
+        segments.add(file);
+        nextSegmentIndex += 1L;
+        return true;
+    }
+
+    private static long segmentIndex(Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @Override
+    public String toString() {
+        return "OutboundJournal [directory=" + directory + ", segmentSize=" + segmentSize + ", maxSegments=" +
+            maxSegments + "]";
+    }
+
+    /**
+     * The updates recorded in a sequence of segments, read as they are iterated. A segment that cannot be opened or
+     * contains a malformed record is skipped from that point and is available from {@link #getUnreadableSegments()}.
+     */
+    /*package*/ static final class Records implements Iterator<Map.Entry<String, byte[]>> {
+        private final Iterator<Path> files;
+        private final List<Path> unreadable = new ArrayList<>();
+        private Path currentFile;
+        private ByteBuffer current;
+        private Map.Entry<String, byte[]> nextRecord;
+
+        private Records(List<Path> files) {
+            this.files = files.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextRecord == null) {
+                if (current != null && current.remaining() >= 4) {
+                    final int length = current.getInt();
+                    if (length != 0) {
+                        nextRecord = readRecord(length);
+                        if (nextRecord != null) {
+                            return true;
+                        }
+                        unreadable.add(currentFile);
+                    }
+                }
+
+                if (!files.hasNext()) {
+                    current = null;
+                    return false;
+                }
+
+                currentFile = files.next();
+                try (FileChannel channel = FileChannel.open(currentFile, READ)) {
+                    current = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+                }
+                catch (IOException e) {
+                    LOG.error("Failed to read the journal segment '{}'", currentFile, e);
+                    unreadable.add(currentFile);
+                    current = null;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<String, byte[]> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<String, byte[]> record = nextRecord;
+            nextRecord = null;
+            return record;
+        }
+
+        /**
+         * @return the segments that could not be read
+         */
+        /*package*/ List<Path> getUnreadableSegments() {
+            return unreadable;
+        }
+
+        /**
+         * @return the record of the given length at the position of the current segment, or null if it is malformed
+         */
+        private Map.Entry<String, byte[]> readRecord(int length) {
+            if (length < FIXED_RECORD_LENGTH - 4 || length > current.remaining()) {
+                return null;
+            }
+
+            final int end = current.position() + length;
+            final int pathLength = current.getShort() & 0xFFFF;
+            if (pathLength > length - FIXED_RECORD_LENGTH + 4) {
+                return null;
+            }
+            final String topicPath = new String(getBytes(current, pathLength), UTF_8);
+            final int valueLength = current.getInt();
+            if (valueLength != end - current.position()) {
+                return null;
+            }
+            return new SimpleImmutableEntry<>(topicPath, getBytes(current, valueLength));
+        }
+
+        private static byte[] getBytes(ByteBuffer buffer, int length) {
+            final byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * Builder of {@link OutboundJournal}s.
+     */
+    public static final class Builder {
+        private int segmentSize = 1 << 20;
+        private long maxBytes = 64L << 20;
+        private boolean conflateReplay;
+        private int replayMaxInFlight = 256;
+        private long initialRetryDelay = 100L;
+        private long maxRetryDelay = 30000L;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the size of each segment in bytes. Defaults to 1 MiB.
+         *
+         * @param size the size
+         * @return this builder
+         * @throws IllegalArgumentException if the size is less than 4096 bytes
+         */
+        public Builder segmentSize(int size) {
+            if (size < MIN_SEGMENT_SIZE) {
+                throw new IllegalArgumentException("The segment size must be at least " + MIN_SEGMENT_SIZE + " bytes");
+            }
+            segmentSize = size;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of bytes of disk the segments can use. Defaults to 64 MiB.
+         *
+         * @param bytes the number of bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the number of bytes is not positive
+         */
+        public Builder maxBytes(long bytes) {
+            if (bytes < 1L) {
+                throw new IllegalArgumentException("The maximum number of bytes must be positive");
+            }
+            maxBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Set if only the latest update of each topic is replayed. Defaults to false, replaying every update in the
+         * order it was made.
+         *
+         * @param conflate if the updates of each topic are conflated
+         * @return this builder
+         */
+        public Builder conflateReplay(boolean conflate) {
+            conflateReplay = conflate;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of replayed updates waiting for a response from the server. Defaults to 256.
+         *
+         * @param maxInFlight the number of updates
+         * @return this builder
+         * @throws IllegalArgumentException if the number is not positive
+         */
+        public Builder replayMaxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("The number of updates in flight must be positive");
+            }
+            replayMaxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Set the delay before a replay that failed is retried. The delay doubles after each consecutive failure up
+         * to the maximum. Defaults to 100 milliseconds, increasing up to 30 seconds.
+         *
+         * @param initialDelay the delay after the first failure
+         * @param maxDelay the maximum delay
+         * @param unit the unit of the delays
+         * @return this builder
+         * @throws IllegalArgumentException if the initial delay is less than a millisecond or greater than the
+         * maximum
+         */
+        public Builder replayRetryDelay(long initialDelay, long maxDelay, TimeUnit unit) {
+            final long initial = unit.toMillis(initialDelay);
+            final long max = unit.toMillis(maxDelay);
+            if (initial < 1L || initial > max) {
+                throw new IllegalArgumentException(
+                    "The initial delay must be at least a millisecond and no greater than the maximum delay");
+            }
+            initialRetryDelay = initial;
+            maxRetryDelay = max;
+            return this;
+        }
+
+        /**
+         * Open the journal.
+         *
+         * @param directory the directory to write the segments to, it is created if it does not exist
+         * @param scheduler the executor used to retry replays that failed
+         * @return the journal
+         * @throws IOException if the directory could not be created or read
+         * @throws IllegalArgumentException if the maximum number of bytes is smaller than a segment
+         */
+        public OutboundJournal open(Path directory, ScheduledExecutorService scheduler) throws IOException {
+            if (maxBytes < segmentSize) {
+                throw new IllegalArgumentException("The maximum number of bytes must be at least the segment size");
+            }
+
+            Files.createDirectories(directory);
+            final List<Path> existingSegments;
+            try (Stream<Path> files = Files.list(directory)) {
+                existingSegments = files
+                    .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+            }
+
+            return new OutboundJournal(
+                directory,
+                segmentSize,
+                (int) Math.min(Integer.MAX_VALUE, maxBytes / segmentSize),
+                conflateReplay,
+                replayMaxInFlight,
+                scheduler,
+                initialRetryDelay,
+                maxRetryDelay,
+                existingSegments);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import com.pushtechnology.diffusion.client.features.TimeSeries.EventMetadata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends many events to a time series topic through a {@link TimeSeriesUpdater} keeping a bounded number of appends
+ * in flight.
+ * <p>
+ * Events are sent in the order of the iterator. Each completed append allows the next event to be sent, from the
+ * thread that completed it. Only one thread sends events at a time. The number of appends allowed in flight can adapt
+ * to the latency of the appends, see {@link BackfillOptions.Builder#adaptive(boolean)}.
+ *
+ * @param <V> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+/*package*/ final class PipelinedAppend<V> {
+    private static final Logger LOG = LoggerFactory.getLogger(PipelinedAppend.class);
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private final CompletableFuture<BackfillStatus> result = new CompletableFuture<>();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final TimeSeriesUpdater<V> updater;
+    private final String path;
+    private final Iterator<? extends V> values;
+    private final BackfillOptions options;
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+    private volatile boolean exhausted;
+    private volatile int window;
+
+    // Guarded by this
+    private double limit;
+    // Guarded by this
+    private long minLatency = Long.MAX_VALUE;
+    // Guarded by this
+    private long completedSinceDecrease;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ PipelinedAppend(
+            TimeSeriesUpdater<V> updater,
+            String path,
+            Iterator<? extends V> values,
+            BackfillOptions options,
+            LongSupplier nanoClock) {
+
+        this.updater = updater;
+        this.path = path;
+        this.values = values;
+        this.options = options;
+        this.nanoClock = nanoClock;
+        startNanos = nanoClock.getAsLong();
+        limit = options.getInitialInFlight();
+        window = options.getInitialInFlight();
+    }
+
+    /**
+     * Start sending events.
+     *
+     * @return the final status of the backfill
+     */
+    /*package*/ CompletableFuture<BackfillStatus> start() {
+        send();
+        return result;
+    }
+
+    /**
+     * @return the current status of the backfill
+     */
+    /*package*/ BackfillStatus status() {
+        final Throwable failure = firstFailure.get();
+        return new BackfillStatus(
+            appended.get(),
+            failed.get(),
+            window,
+            nanoClock.getAsLong() - startNanos,
+            failure,
+            failure != null && !options.isSkipFailures());
+    }
+
+    /**
+     * Send events until the window is full or there are no more events. A thread that finds another thread sending
+     * leaves it to send again on its behalf.
+     */
+    private void send() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        do {
+            while (!exhausted && inFlight.get() < window) {
+                final V value;
+                try {
+                    if (!values.hasNext()) {
+                        exhausted = true;
+                        break;
+                    }
+                    value = values.next();
+                }
+                // CHECKSTYLE.OFF: IllegalCatch
+                catch (RuntimeException e) {
+                    exhausted = true;
+                    result.completeExceptionally(e);
+                    break;
+                }
+                // CHECKSTYLE.ON: IllegalCatch
+
+                appendNext(value);
+            }
+
+            if (exhausted && inFlight.get() == 0) {
+                result.complete(status());
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+    private void appendNext(V value) {
+        inFlight.incrementAndGet();
+        final long sentNanos = nanoClock.getAsLong();
+        CompletableFuture<EventMetadata> append;
+        try {
+            append = updater.append(path, value);
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (RuntimeException e) {
+            append = new CompletableFuture<>();
+            append.completeExceptionally(e);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+
+        append.whenComplete((metadata, error) -> onComplete(sentNanos, error));
+    }
+
+    private void onComplete(long sentNanos, Throwable error) {
+        final long latency = nanoClock.getAsLong() - sentNanos;
+        if (error == null) {
+            appended.incrementAndGet();
+        }
+        else {
+            failed.incrementAndGet();
+            firstFailure.compareAndSet(null, error instanceof CompletionException ? error.getCause() : error);
+            if (!options.isSkipFailures()) {
+                exhausted = true;
+            }
+        }
+
+        if (options.isAdaptive()) {
+            adapt(latency, error != null);
+        }
+
+        if (completed.incrementAndGet() % options.getProgressInterval() == 0) {
+            reportProgress();
+        }
+
+        inFlight.decrementAndGet();
+        send();
+    }
+
+    private synchronized void adapt(long latency, boolean failure) {
+        // A failure can complete faster than any successful append, it must not lower the baseline latency
+        if (!failure) {
+            minLatency = Math.min(minLatency, latency);
+        }
+        completedSinceDecrease += 1;
+
+        if (!failure && latency <= minLatency * LATENCY_TOLERANCE) {
+            limit = Math.min(options.getMaxInFlight(), limit + 1.0 / limit);
+        }
+        else if (completedSinceDecrease >= limit) {
+            limit = Math.max(1.0, limit / 2.0);
+            completedSinceDecrease = 0;
+        }
+        window = (int) limit;
+    }
+
+    private void reportProgress() {
+        try {
+            options.getListener().onProgress(status());
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (RuntimeException e) {
+            LOG.warn("RuntimeException thrown by backfill listener '{}'", options.getListener(), e);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+/**
+ * Updates many topics through a {@link TransformedUpdater} keeping a bounded number of updates in flight.
+ * <p>
+ * Values are transformed as they are sent. Each completed update allows the next value to be sent, from the thread
+ * that notified the completion. Only one thread sends values at a time. Updates that fail are recorded in the result
+ * and do not stop the remaining values being sent. An exception other than a {@link TransformationException} thrown
+ * by the updater, for example because the session is closed, or by the iterator of the values stops any more values
+ * being sent and completes the result exceptionally.
+ *
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+/*package*/ final class PipelinedUpdate<T> implements UpdateContextCallback<String> {
+    private final CompletableFuture<BatchUpdateResult> result = new CompletableFuture<>();
+    private final Map<String, ErrorReason> errors = new ConcurrentHashMap<>();
+    private final Map<String, TransformationException> transformationFailures = new ConcurrentHashMap<>();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final TransformedUpdater<?, T> updater;
+    private final Iterator<? extends Map.Entry<String, ? extends T>> values;
+    private final int maxInFlight;
+    private volatile boolean exhausted;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ PipelinedUpdate(
+            TransformedUpdater<?, T> updater,
+            Iterator<? extends Map.Entry<String, ? extends T>> values,
+            int maxInFlight) {
+
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("The number of updates in flight must be positive");
+        }
+
+        this.updater = updater;
+        this.values = values;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Start sending values.
+     *
+     * @return the result of the updates
+     */
+    /*package*/ CompletableFuture<BatchUpdateResult> start() {
+        send();
+        return result;
+    }
+
+    @Override
+    public void onSuccess(String topicPath) {
+        succeeded.incrementAndGet();
+        onComplete();
+    }
+
+    @Override
+    public void onError(String topicPath, ErrorReason errorReason) {
+        errors.put(topicPath, errorReason);
+        onComplete();
+    }
+
+    private void onComplete() {
+        inFlight.decrementAndGet();
+        send();
+    }
+
+    /**
+     * Send values until the window is full or there are no more values. A thread that finds another thread sending
+     * leaves it to send again on its behalf.
+     */
+    private void send() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        do {
+            while (!exhausted && inFlight.get() < maxInFlight) {
+                final Map.Entry<String, ? extends T> entry;
+                try {
+                    if (!values.hasNext()) {
+                        exhausted = true;
+                        break;
+                    }
+                    entry = values.next();
+                }
+                // CHECKSTYLE.OFF: IllegalCatch
+                catch (RuntimeException e) {
+                    exhausted = true;
+                    result.completeExceptionally(e);
+                    break;
+                }
+                // CHECKSTYLE.ON: IllegalCatch
+
+                sendNext(entry);
+            }
+
+            if (exhausted && inFlight.get() == 0) {
+                result.complete(new BatchUpdateResult(succeeded.get(), errors, transformationFailures));
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+    private void sendNext(Map.Entry<String, ? extends T> entry) {
+        final String topicPath = entry.getKey();
+        inFlight.incrementAndGet();
+        try {
+            updater.update(topicPath, entry.getValue(), topicPath, this);
+        }
+        catch (TransformationException e) {
+            transformationFailures.put(topicPath, e);
+            inFlight.decrementAndGet();
+        }
+        // CHECKSTYLE.OFF: IllegalCatch
+        catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            exhausted = true;
+            result.completeExceptionally(e);
+        }
+        // CHECKSTYLE.ON: IllegalCatch
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.callbacks.Registration;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
+
+/**
+ * A {@link TopicUpdateControl.UpdateSource} registered with a session of a {@link SessionPool}. Keeps the
+ * registration so the update source can be closed when it is unbound from the session. If it is unbound before it
+ * has been registered the registration is closed as soon as it is received.
+ *
+ * @author Push Technology Limited
+ */
+/*package*/ final class PooledUpdateSource implements TopicUpdateControl.UpdateSource {
+    private final TopicUpdateControl.UpdateSource delegate;
+    // Guarded by this
+    private Registration registration;
+    // Guarded by this
+    private boolean unbound;
+
+    private PooledUpdateSource(TopicUpdateControl.UpdateSource delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Register an update source with the update control feature of a session.
+     *
+     * @return the task that closes the registration
+     */
+    /*package*/ static Runnable register(
+            TopicUpdateControl updateControl,
+            String topicPath,
+            TopicUpdateControl.UpdateSource source) {
+        final PooledUpdateSource pooledSource = new PooledUpdateSource(source);
+        updateControl.registerUpdateSource(topicPath, pooledSource);
+        return pooledSource::unbind;
+    }
+
+    private void unbind() {
+        final Registration currentRegistration;
+        synchronized (this) {
+            unbound = true;
+            currentRegistration = registration;
+            registration = null;
+        }
+
+        if (currentRegistration != null) {
+            currentRegistration.close();
+        }
+    }
+
+    @Override
+    public void onRegistered(String topicPath, Registration newRegistration) {
+        final boolean isUnbound;
+        synchronized (this) {
+            isUnbound = unbound;
+            if (!isUnbound) {
+                registration = newRegistration;
+            }
+        }
+
+        delegate.onRegistered(topicPath, newRegistration);
+        if (isUnbound) {
+            newRegistration.close();
+        }
+    }
+
+    @Override
+    public void onActive(String topicPath, TopicUpdateControl.Updater updater) {
+        delegate.onActive(topicPath, updater);
+    }
+
+    @Override
+    public void onStandby(String topicPath) {
+        delegate.onStandby(topicPath);
+    }
+
+    @Override
+    public void onClose(String topicPath) {
+        synchronized (this) {
+            registration = null;
+        }
+        delegate.onClose(topicPath);
+    }
+
+    @Override
+    public void onError(String topicPath, ErrorReason errorReason) {
+        synchronized (this) {
+            registration = null;
+        }
+        delegate.onError(topicPath, errorReason);
+    }
+}
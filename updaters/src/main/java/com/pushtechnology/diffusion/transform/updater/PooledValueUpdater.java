@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.client.topics.TopicSelector;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
+import com.pushtechnology.diffusion.transform.session.SessionShards;
+
+/**
+ * A {@link TopicUpdateControl.ValueUpdater} that updates each topic using the session of a {@link SessionPool} that
+ * the topic path is assigned to. The cached values used to calculate deltas are held by the updater of each session.
+ *
+ * @param <S> The type of value understood by the topic
+ * @author Push Technology Limited
+ */
+/*package*/ final class PooledValueUpdater<S> implements TopicUpdateControl.ValueUpdater<S> {
+    private final SessionShards<TopicUpdateControl.ValueUpdater<S>> updaters;
+
+    PooledValueUpdater(SessionPool sessionPool, Class<S> valueType) {
+        updaters = new SessionShards<>(
+            sessionPool,
+            session -> session.feature(TopicUpdateControl.class).updater().valueUpdater(valueType));
+    }
+
+    @Override
+    public void update(String topicPath, S value, UpdateCallback callback) {
+        updaters.forKey(topicPath).update(topicPath, value, callback);
+    }
+
+    @Override
+    public <C> void update(String topicPath, S value, C context, UpdateContextCallback<C> callback) {
+        updaters.forKey(topicPath).update(topicPath, value, context, callback);
+    }
+
+    @Override
+    public S getCachedValue(String topicPath) {
+        return updaters.forKey(topicPath).getCachedValue(topicPath);
+    }
+
+    @Override
+    public void removeCachedValues(String selector) {
+        updaters.all().forEach(updater -> updater.removeCachedValues(selector));
+    }
+
+    @Override
+    public void removeCachedValues(TopicSelector selector) {
+        updaters.all().forEach(updater -> updater.removeCachedValues(selector));
+    }
+}
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.pushtechnology.diffusion.client.Diffusion;
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.client.session.SessionClosedException;
+import com.pushtechnology.diffusion.client.topics.TopicSelector;
+import com.pushtechnology.diffusion.datatype.DataType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TopicUpdateControl.ValueUpdater} that sends updates within the limits of an {@link UpdateRateLimiter}.
+ * <p>
+ * An update that the limits allow is sent by the caller. A topic with held updates has a queue, the update at the
+ * head of the queue has been reserved from the limits and is sent by the scheduler of the limiter when the limits have
+ * recovered. The updates of a topic are sent in order. Values are measured in serialised bytes only if the limiter
+ * limits bytes.
+ * <p>
+ * The number of updates held for each topic is bounded by the throttle policy. If the scheduler of the limiter rejects
+ * the task that sends the held updates of a topic, they are failed.
+ *
+ * @param <S> The type of value understood by the topic
+ * @author Push Technology Limited
+ */
+/*package*/ final class RateLimitedValueUpdater<S> implements TopicUpdateControl.ValueUpdater<S> {
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimitedValueUpdater.class);
+    private final Map<String, TopicQueue> topics = new ConcurrentHashMap<>();
+    private final TopicUpdateControl.ValueUpdater<S> delegate;
+    private final DataType<S> dataType;
+    private final UpdateRateLimiter limiter;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ RateLimitedValueUpdater(
+            TopicUpdateControl.ValueUpdater<S> delegate,
+            DataType<S> dataType,
+            UpdateRateLimiter limiter) {
+        this.delegate = delegate;
+        this.dataType = dataType;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Create an updater for a value type supported by Diffusion.
+     */
+    /*package*/ static <S> RateLimitedValueUpdater<S> create(
+            TopicUpdateControl.ValueUpdater<S> delegate,
+            Class<S> valueType,
+            UpdateRateLimiter limiter) {
+        return new RateLimitedValueUpdater<>(delegate, Diffusion.dataTypes().getByClass(valueType), limiter);
+    }
+
+    @Override
+    public void update(String topicPath, S value, UpdateCallback callback) {
+        if (topicPath == null || value == null || callback == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        final int bytes = limiter.limitsBytes() ? dataType.toBytes(value).length() : 0;
+        if (!topics.containsKey(topicPath) && limiter.tryAcquire(topicPath, bytes)) {
+            delegate.update(topicPath, value, callback);
+            return;
+        }
+
+        if (limiter.getThrottlePolicy().isReject()) {
+            limiter.recordRejected();
+            throw new RejectedExecutionException("The update of " + topicPath + " exceeds the rate limits");
+        }
+
+        final HeldUpdate update = new HeldUpdate(value, bytes, callback);
+        while (!topics.computeIfAbsent(topicPath, TopicQueue::new).hold(update)) {
+            // The queue became idle and was removed, try again with a new queue
+            continue;
+        }
+    }
+
+    @Override
+    public <C> void update(String topicPath, S value, C context, UpdateContextCallback<C> callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        update(topicPath, value, new UpdateCallback() {
+            @Override
+            public void onSuccess() {
+                callback.onSuccess(context);
+            }
+
+            @Override
+            public void onError(ErrorReason errorReason) {
+                callback.onError(context, errorReason);
+            }
+        });
+    }
+
+    @Override
+    public S getCachedValue(String topicPath) {
+        return delegate.getCachedValue(topicPath);
+    }
+
+    @Override
+    public void removeCachedValues(String selector) {
+        delegate.removeCachedValues(selector);
+    }
+
+    @Override
+    public void removeCachedValues(TopicSelector selector) {
+        delegate.removeCachedValues(selector);
+    }
+
+    /**
+     * @return the number of topics with held updates
+     */
+    /*package*/ int heldTopicCount() {
+        return topics.size();
+    }
+
+    /**
+     * An update held by the limiter. Conflation replaces its value and adds callbacks.
+     */
+    private final class HeldUpdate {
+        private final long heldAt = limiter.nanoTime();
+        private final List<UpdateCallback> callbacks = new ArrayList<>(1);
+        private S value;
+        private int bytes;
+        private boolean reserved;
+
+        private HeldUpdate(S value, int bytes, UpdateCallback callback) {
+            this.value = value;
+            this.bytes = bytes;
+            callbacks.add(callback);
+        }
+
+        private void replace(HeldUpdate later) {
+            value = later.value;
+            bytes = later.bytes;
+            callbacks.addAll(later.callbacks);
+        }
+
+        private void send(String topicPath) {
+            limiter.recordThrottled(limiter.nanoTime() - heldAt);
+            try {
+                delegate.update(topicPath, value, new UpdateCallback() {
+                    @Override
+                    public void onSuccess() {
+                        callbacks.forEach(UpdateCallback::onSuccess);
+                    }
+
+                    @Override
+                    public void onError(ErrorReason errorReason) {
+                        notifyError(errorReason);
+                    }
+                });
+            }
+            catch (SessionClosedException e) {
+                notifyError(ErrorReason.SESSION_CLOSED);
+            }
+            // CHECKSTYLE.OFF: IllegalCatch
+            catch (RuntimeException e) {
+                LOG.warn("Failed to send the held update of topic '{}'", topicPath, e);
+                notifyError(ErrorReason.INCOMPATIBLE_UPDATE);
+            }
+            // CHECKSTYLE.ON: IllegalCatch
+        }
+
+        private void notifyError(ErrorReason errorReason) {
+            callbacks.forEach(callback -> callback.onError(errorReason));
+        }
+    }
+
+    /**
+     * The held updates of a single topic.
+     */
+    private final class TopicQueue implements Runnable {
+        private final String topicPath;
+        // Guarded by this
+        private final Deque<HeldUpdate> held = new ArrayDeque<>();
+        // Guarded by this
+        private boolean started;
+        // Guarded by this
+        private boolean removed;
+
+        private TopicQueue(String topicPath) {
+            this.topicPath = topicPath;
+        }
+
+        /**
+         * Hold an update.
+         *
+         * @return false if the queue has been removed
+         */
+        private synchronized boolean hold(HeldUpdate update) {
+            if (removed) {
+                return false;
+            }
+
+            final int maxHeld = limiter.getThrottlePolicy().getMaxHeld();
+            if (held.size() >= maxHeld) {
+                limiter.recordRejected();
+                throw new RejectedExecutionException(
+                    "The update of " + topicPath + " exceeds the " + maxHeld + " held updates allowed");
+            }
+
+            limiter.recordDelayed();
+            final HeldUpdate last = held.peekLast();
+            if (!started) {
+                // The queue drains until it is empty and is then removed, so it is only started once
+                started = true;
+                held.add(update);
+                try {
+                    schedule(reserveHead());
+                }
+                catch (RejectedExecutionException e) {
+                    // Only the update of the caller is held, it is rejected to the caller
+                    discard();
+                    throw e;
+                }
+            }
+            else if (limiter.getThrottlePolicy().isConflate() && last != null && !last.reserved) {
+                limiter.recordConflated();
+                last.replace(update);
+            }
+            else {
+                held.add(update);
+            }
+            return true;
+        }
+
+        /**
+         * Send the reserved update and any following updates the limits allow.
+         */
+        @Override
+        public void run() {
+            HeldUpdate update;
+            synchronized (this) {
+                update = held.poll();
+            }
+
+            while (update != null) {
+                update.send(topicPath);
+
+                final List<HeldUpdate> discarded;
+                synchronized (this) {
+                    final HeldUpdate next = held.peek();
+                    if (next == null) {
+                        removed = true;
+                        topics.remove(topicPath, this);
+                        return;
+                    }
+                    final long wait = reserveHead();
+                    if (wait <= 0L) {
+                        update = held.poll();
+                        continue;
+                    }
+
+                    try {
+                        schedule(wait);
+                        return;
+                    }
+                    catch (RejectedExecutionException e) {
+                        LOG.warn("Failed to schedule the held updates of topic '{}'", topicPath, e);
+                        discarded = discard();
+                    }
+                }
+
+                discarded.forEach(heldUpdate -> heldUpdate.notifyError(ErrorReason.COMMUNICATION_FAILURE));
+                return;
+            }
+        }
+
+        /**
+         * Remove the queue and its held updates.
+         *
+         * @return the held updates
+         */
+        // Guarded by this
+        private List<HeldUpdate> discard() {
+            final List<HeldUpdate> discarded = new ArrayList<>(held);
+            held.clear();
+            removed = true;
+            topics.remove(topicPath, this);
+            return discarded;
+        }
+
+        /**
+         * Reserve the update at the head of the queue from the limits.
+         *
+         * @return the time in nanoseconds until it can be sent
+         */
+        private long reserveHead() {
+            final HeldUpdate head = held.peek();
+            head.reserved = true;
+            return limiter.reserve(topicPath, head.bytes);
+        }
+
+        private void schedule(long wait) {
+            limiter.getScheduler().schedule(this, wait, TimeUnit.NANOSECONDS);
+        }
+    }
+}
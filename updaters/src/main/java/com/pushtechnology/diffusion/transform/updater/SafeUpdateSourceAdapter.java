@@ -15,6 +15,8 @@
 
 package com.pushtechnology.diffusion.transform.updater;
 
+import java.util.function.Function;
+
 import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
 import com.pushtechnology.diffusion.client.callbacks.Registration;
 import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
@@ -29,20 +31,20 @@ import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateCo
 /*package*/ final class SafeUpdateSourceAdapter<S, T>  implements TopicUpdateControl.UpdateSource {
     private final ValueCache valueCache;
     private final SafeTransformedUpdateSource<S, T> updateSource;
-    private final UnboundSafeUpdaterBuilder<S, T> updaterBuilder;
+    private final Function<TopicUpdateControl.Updater, SafeTransformedUpdater<S, T>> updaterFactory;
 
     SafeUpdateSourceAdapter(
             ValueCache valueCache,
-            UnboundSafeUpdaterBuilder<S, T> updaterBuilder,
+            Function<TopicUpdateControl.Updater, SafeTransformedUpdater<S, T>> updaterFactory,
             SafeTransformedUpdateSource<S, T> updateSource) {
         this.valueCache = valueCache;
-        this.updaterBuilder = updaterBuilder;
+        this.updaterFactory = updaterFactory;
         this.updateSource = updateSource;
     }
 
     @Override
     public void onActive(String topicPath, TopicUpdateControl.Updater updater) {
-        updateSource.onActive(topicPath, updaterBuilder.create(updater));
+        updateSource.onActive(topicPath, updaterFactory.apply(updater));
         valueCache.removeCachedValues(topicPath);
     }
 
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
+
+/**
+ * A {@link TransformedUpdater} that allows its transformation to be replaced while it is in use.
+ *
+ * @param <S> The type of value understood by the topic
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+public interface SwappableUpdater<S, T> extends TransformedUpdater<S, T> {
+
+    /**
+     * Replace the transformation of the updater.
+     * <p>
+     * The cache of values understood by the topics is kept, so the first update of each topic after the swap is sent
+     * as a delta from the value sent before the swap. Updates made after the swap returns are transformed by the new
+     * transformer.
+     *
+     * @param transformer the new transformer from the values updates are provided as to the values understood by
+     * the topics
+     */
+    void swap(UnsafeTransformer<T, S> transformer);
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+/**
+ * The policy used by an {@link UpdateRateLimiter} for updates that exceed its limits.
+ *
+ * @author Push Technology Limited
+ */
+public final class ThrottlePolicy {
+    private static final int DEFAULT_MAX_HELD = 1000;
+    private static final ThrottlePolicy DELAY = new ThrottlePolicy(false, false, DEFAULT_MAX_HELD);
+    private static final ThrottlePolicy CONFLATE = new ThrottlePolicy(true, false, Integer.MAX_VALUE);
+    private static final ThrottlePolicy REJECT = new ThrottlePolicy(false, true, Integer.MAX_VALUE);
+
+    private final boolean conflate;
+    private final boolean reject;
+    private final int maxHeld;
+
+    private ThrottlePolicy(boolean conflate, boolean reject, int maxHeld) {
+        this.conflate = conflate;
+        this.reject = reject;
+        this.maxHeld = maxHeld;
+    }
+
+    /**
+     * Hold excess updates and send them, in order, when the limits allow. At most 1000 updates of each topic are
+     * held, further updates are rejected by throwing a {@link java.util.concurrent.RejectedExecutionException} to the
+     * caller.
+     *
+     * @return the policy
+     */
+    public static ThrottlePolicy delay() {
+        return DELAY;
+    }
+
+    /**
+     * Hold excess updates and send them, in order, when the limits allow. Updates of a topic that already has the
+     * maximum number of updates held are rejected by throwing a {@link java.util.concurrent.RejectedExecutionException}
+     * to the caller.
+     *
+     * @param maxHeld the maximum number of updates held for each topic
+     * @return the policy
+     * @throws IllegalArgumentException if the maximum is not positive
+     */
+    public static ThrottlePolicy delay(int maxHeld) {
+        if (maxHeld < 1) {
+            throw new IllegalArgumentException("The maximum number of held updates must be positive");
+        }
+        return new ThrottlePolicy(false, false, maxHeld);
+    }
+
+    /**
+     * Hold only the latest excess update of each topic and send it when the limits allow. The callbacks of the
+     * updates it replaces are notified when it completes.
+     *
+     * @return the policy
+     */
+    public static ThrottlePolicy conflate() {
+        return CONFLATE;
+    }
+
+    /**
+     * Reject excess updates by throwing a {@link java.util.concurrent.RejectedExecutionException} to the caller.
+     *
+     * @return the policy
+     */
+    public static ThrottlePolicy reject() {
+        return REJECT;
+    }
+
+    /*package*/ boolean isConflate() {
+        return conflate;
+    }
+
+    /*package*/ boolean isReject() {
+        return reject;
+    }
+
+    /*package*/ int getMaxHeld() {
+        return maxHeld;
+    }
+
+    @Override
+    public String toString() {
+        if (reject) {
+            return "ThrottlePolicy [reject]";
+        }
+        return conflate ? "ThrottlePolicy [conflate]" : "ThrottlePolicy [delay, maxHeld=" + maxHeld + "]";
+    }
+}
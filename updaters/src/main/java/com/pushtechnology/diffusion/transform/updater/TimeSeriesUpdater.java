@@ -44,4 +44,37 @@ public interface TimeSeriesUpdater<V> {
      * @return future resolving to metadata
      */
     CompletableFuture<EventMetadata> edit(String path, long originalSequence, V value);
+
+    /**
+     * Append many events to a time series topic with the default {@link BackfillOptions}.
+     *
+     * @param path the path to update
+     * @param values the values to append, in order
+     * @return future resolving to the final status of the backfill
+     * @see #backfill(String, Iterable, BackfillOptions)
+     */
+    default CompletableFuture<BackfillStatus> backfill(String path, Iterable<? extends V> values) {
+        return backfill(path, values, BackfillOptions.defaults());
+    }
+
+    /**
+     * Append many events to a time series topic.
+     * <p>
+     * Appends are sent in the order of the values, keeping a bounded number in flight rather than waiting for each to
+     * complete. Values are transformed as they are sent, so the iterable can produce them lazily. When an append fails
+     * the backfill either stops sending values or skips the value, as configured by the options. The future completes
+     * when every append sent has completed.
+     *
+     * @param path the path to update
+     * @param values the values to append, in order
+     * @param options the options of the backfill
+     * @return future resolving to the final status of the backfill. It completes exceptionally if the iterable throws
+     * an exception.
+     */
+    default CompletableFuture<BackfillStatus> backfill(
+            String path,
+            Iterable<? extends V> values,
+            BackfillOptions options) {
+        return new PipelinedAppend<V>(this, path, values.iterator(), options, System::nanoTime).start();
+    }
 }
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+/**
+ * A token bucket that refills continuously at a fixed rate up to its capacity.
+ * <p>
+ * Tokens can be reserved when the bucket does not hold enough, leaving it in debt. The debt is repaid by the refill
+ * before any more tokens are available. Not thread safe, the owner guards access.
+ *
+ * @author Push Technology Limited
+ */
+/*package*/ final class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Constructor. The bucket starts full.
+     *
+     * @param tokensPerSecond the refill rate
+     * @param burstNanos the time the refill takes to fill an empty bucket
+     * @param now the current time in nanoseconds
+     */
+    /*package*/ TokenBucket(double tokensPerSecond, long burstNanos, long now) {
+        tokensPerNano = tokensPerSecond / 1e9;
+        capacity = Math.max(1.0, tokensPerNano * burstNanos);
+        tokens = capacity;
+        lastRefill = now;
+    }
+
+    /**
+     * @return if the bucket holds the amount, or is full when the amount is more than its capacity
+     */
+    /*package*/ boolean isAvailable(double amount, long now) {
+        refill(now);
+        return tokens >= Math.min(amount, capacity);
+    }
+
+    /**
+     * Take an amount, leaving the bucket in debt if it does not hold enough.
+     *
+     * @return the time in nanoseconds until the debt is repaid, zero if the bucket held the amount
+     */
+    /*package*/ long reserve(double amount, long now) {
+        refill(now);
+        tokens -= amount;
+        return tokens >= 0.0 ? 0L : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    private void refill(long now) {
+        final long elapsed = now - lastRefill;
+        if (elapsed > 0L) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+}
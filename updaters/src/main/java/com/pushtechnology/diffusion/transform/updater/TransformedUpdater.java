@@ -15,6 +15,10 @@
 
 package com.pushtechnology.diffusion.transform.updater;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
 import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
 import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
 import com.pushtechnology.diffusion.client.session.SessionClosedException;
@@ -75,6 +79,47 @@ public interface TransformedUpdater<S, T> {
     <C> void update(String topicPath, T value, C context, UpdateContextCallback<C> callback)
         throws IllegalArgumentException, SessionClosedException, TransformationException;
 
+    /**
+     * Updates many topics, keeping a bounded number of updates in flight.
+     * <P>
+     * Each value is transformed and sent as an update when there are fewer than {@code maxInFlight} updates
+     * waiting for a response from the server. The updates are pipelined so the time taken is not bound by the round
+     * trip to the server for each topic. A value that cannot be transformed, or an update rejected by the server, is
+     * recorded in the result and does not stop the remaining topics being updated.
+     *
+     * @param values the new values, by topic path
+     * @param maxInFlight the maximum number of updates waiting for a response from the server
+     * @return a future that completes when every topic has been updated or failed. If the updater throws an exception
+     * other than a {@link TransformationException}, for example a {@link SessionClosedException}, no more updates are
+     * sent and the future completes exceptionally.
+     * @throws IllegalArgumentException if {@code maxInFlight} is not positive
+     */
+    default CompletableFuture<BatchUpdateResult> updateAll(Map<String, ? extends T> values, int maxInFlight) {
+        return updateAll(values.entrySet().stream(), maxInFlight);
+    }
+
+    /**
+     * Updates many topics, keeping a bounded number of updates in flight.
+     * <P>
+     * The stream is consumed lazily, as updates complete, so it can supply more values than would fit in memory. The
+     * stream is closed when the future completes.
+     *
+     * @param values the pairs of topic path and new value
+     * @param maxInFlight the maximum number of updates waiting for a response from the server
+     * @return a future that completes when every topic has been updated or failed
+     * @throws IllegalArgumentException if {@code maxInFlight} is not positive
+     * @see #updateAll(Map, int)
+     */
+    default CompletableFuture<BatchUpdateResult> updateAll(
+            Stream<? extends Map.Entry<String, ? extends T>> values,
+            int maxInFlight) {
+
+        final CompletableFuture<BatchUpdateResult> result =
+            new PipelinedUpdate<T>(this, values.iterator(), maxInFlight).start();
+        result.whenComplete((batchResult, e) -> values.close());
+        return result;
+    }
+
     /**
      * @return The cache of values used by the updater for generating deltas.
      */
@@ -37,14 +37,27 @@ public interface UnboundSafeUpdaterBuilder<S, T> extends
     @Override
     <R> UnboundSafeUpdaterBuilder<S, R> transform(Function<R, T> newTransformer);
 
+    @Override
+    UnboundSafeUpdaterBuilder<S, T> deduplicate(boolean compareBytes);
+
+    @Override
+    UnboundSafeUpdaterBuilder<S, T> rateLimit(UpdateRateLimiter limiter);
+
+    @Override
+    UnboundSafeUpdaterBuilder<S, T> journal(OutboundJournal journal);
+
     /**
      * Register an update source.
      *
      * @param updateControl the update control feature
      * @param topicPath the path to register the update source for
      * @param updateSource the update source
+     * @throws IllegalStateException if a journal stage has been added to the builder
      */
-    void register(TopicUpdateControl updateControl, String topicPath, SafeTransformedUpdateSource<S, T> updateSource);
+    void register(
+        TopicUpdateControl updateControl,
+        String topicPath,
+        SafeTransformedUpdateSource<S, T> updateSource) throws IllegalStateException;
 
     @Override
     void register(Session session, String topicPath, SafeTransformedUpdateSource<S, T> updateSource);
@@ -15,11 +15,14 @@
 
 package com.pushtechnology.diffusion.transform.updater;
 
+import static com.pushtechnology.diffusion.transform.transformer.Transformers.toTransformer;
+
 import java.util.function.Function;
 
 import com.pushtechnology.diffusion.client.features.TimeSeries;
 import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
 import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
 import com.pushtechnology.diffusion.transform.transformer.TransformationException;
 import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
@@ -33,10 +36,12 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 /*package*/ final class UnboundSafeUpdaterBuilderImpl<S, T> implements UnboundSafeUpdaterBuilder<S, T> {
     private final Class<S> valueType;
     private final Function<T, S> transformer;
+    private final UpdaterStage<S> stages;
 
-    UnboundSafeUpdaterBuilderImpl(Class<S> valueType, Function<T, S> transformer) {
+    UnboundSafeUpdaterBuilderImpl(Class<S> valueType, Function<T, S> transformer, UpdaterStage<S> stages) {
         this.valueType = valueType;
         this.transformer = transformer;
+        this.stages = stages;
     }
 
     @Override
@@ -53,7 +58,7 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
                 throw new TransformationException(e);
             }
             // CHECKSTYLE.ON: IllegalCatch
-        });
+        }, stages);
     }
 
     @Override
@@ -72,22 +77,73 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
                 throw new TransformationException(e);
             }
             // CHECKSTYLE.ON: IllegalCatch
-        });
+        }, stages);
     }
 
     @Override
     public <R> UnboundSafeUpdaterBuilder<S, R> transform(Function<R, T> newTransformer) {
-        return new UnboundSafeUpdaterBuilderImpl<>(valueType, v -> transformer.apply(newTransformer.apply(v)));
+        return new UnboundSafeUpdaterBuilderImpl<>(
+            valueType,
+            v -> transformer.apply(newTransformer.apply(v)),
+            stages);
+    }
+
+    @Override
+    public UnboundSafeUpdaterBuilder<S, T> deduplicate(boolean compareBytes) {
+        return withStage(UpdaterStage.deduplicate(valueType, compareBytes));
+    }
+
+    @Override
+    public UnboundSafeUpdaterBuilder<S, T> rateLimit(UpdateRateLimiter limiter) {
+        return withStage(UpdaterStage.rateLimit(valueType, limiter));
+    }
+
+    @Override
+    public UnboundSafeUpdaterBuilder<S, T> journal(OutboundJournal journal) {
+        return withStage(UpdaterStage.journal(valueType, journal));
     }
 
     @Override
     public SafeTransformedUpdater<S, T> create(TopicUpdateControl.Updater updater) {
-        return new SafeTransformedUpdaterImpl<>(updater.valueUpdater(valueType), transformer);
+        checkSessionNotRequired();
+        return create(null, updater);
     }
 
     @Override
     public SafeTransformedUpdater<S, T> create(Session session) {
-        return create(session.feature(TopicUpdateControl.class).updater());
+        return new SafeTransformedUpdaterImpl<>(valueUpdater(session), transformer);
+    }
+
+    @Override
+    public SwappableUpdater<S, T> createSwappable(Session session) {
+        return new SwappableUpdaterImpl<>(valueUpdater(session), toTransformer(transformer));
+    }
+
+    @Override
+    public ConflatingUpdater<S, T> createConflating(Session session) {
+        return new ConflatingUpdaterImpl<>(create(session));
+    }
+
+    @Override
+    public CachingUpdater<S, T> createCaching(Session session, int capacity) {
+        return new CachingUpdaterImpl<>(create(session), capacity);
+    }
+
+    @Override
+    public AsyncUpdater<T> createAsync(
+            Session session,
+            int workers,
+            int queueCapacity,
+            UpdateOverflowPolicy overflowPolicy) {
+        return new AsyncUpdaterImpl<>(create(session), workers, queueCapacity, overflowPolicy);
+    }
+
+    @Override
+    public SafeTransformedUpdater<S, T> create(SessionPool sessionPool) {
+        checkSessionNotRequired();
+        return new SafeTransformedUpdaterImpl<>(
+            stages.apply(null, new PooledValueUpdater<>(sessionPool, valueType)),
+            transformer);
     }
 
     @Override
@@ -97,7 +153,7 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
     @Override
     public BoundSafeUpdaterBuilder<S, T> bind(Session session) {
-        return new BoundSafeUpdaterBuilderImpl<>(session, valueType, transformer);
+        return new BoundSafeUpdaterBuilderImpl<>(session, valueType, transformer, stages);
     }
 
     @Override
@@ -105,9 +161,10 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
             TopicUpdateControl updateControl,
             String topicPath,
             SafeTransformedUpdateSource<S, T> updateSource) {
+        checkSessionNotRequired();
         updateControl.registerUpdateSource(
             topicPath,
-            new SafeUpdateSourceAdapter<>(new UpdateControlValueCache(updateControl), this, updateSource));
+            new SafeUpdateSourceAdapter<>(new UpdateControlValueCache(updateControl), this::create, updateSource));
     }
 
     @Override
@@ -116,6 +173,52 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         String topicPath,
         SafeTransformedUpdateSource<S, T> updateSource) {
 
-        register(session.feature(TopicUpdateControl.class), topicPath, updateSource);
+        final TopicUpdateControl updateControl = session.feature(TopicUpdateControl.class);
+        updateControl.registerUpdateSource(
+            topicPath,
+            new SafeUpdateSourceAdapter<>(
+                new UpdateControlValueCache(updateControl),
+                updater -> create(session, updater),
+                updateSource));
+    }
+
+    @Override
+    public SessionPool.Binding register(
+            SessionPool sessionPool,
+            String topicPath,
+            SafeTransformedUpdateSource<S, T> updateSource) {
+        return sessionPool.bind(topicPath, session -> {
+            final TopicUpdateControl updateControl = session.feature(TopicUpdateControl.class);
+            return PooledUpdateSource.register(
+                updateControl,
+                topicPath,
+                new SafeUpdateSourceAdapter<>(
+                    new UpdateControlValueCache(updateControl),
+                    updater -> create(session, updater),
+                    updateSource));
+        });
+    }
+
+    private UnboundSafeUpdaterBuilder<S, T> withStage(UpdaterStage<S> stage) {
+        return new UnboundSafeUpdaterBuilderImpl<>(valueType, transformer, stages.andThen(stage));
+    }
+
+    /**
+     * Create the updater of an update source.
+     *
+     * @param session the session the update source is registered with, {@code null} if it is not known
+     */
+    private SafeTransformedUpdater<S, T> create(Session session, TopicUpdateControl.Updater updater) {
+        return new SafeTransformedUpdaterImpl<>(stages.apply(session, updater.valueUpdater(valueType)), transformer);
+    }
+
+    private void checkSessionNotRequired() {
+        if (stages.requiresSession()) {
+            throw new IllegalStateException("A journaled updater must be created from a session");
+        }
+    }
+
+    private TopicUpdateControl.ValueUpdater<S> valueUpdater(Session session) {
+        return stages.apply(session, session.feature(TopicUpdateControl.class).updater().valueUpdater(valueType));
     }
 }
@@ -32,11 +32,20 @@ public interface UnboundTransformedUpdaterBuilder<S, T> extends
     @Override
     BoundTransformedUpdaterBuilder<S, T> bind(Session session);
 
+    @Override
+    UnboundTransformedUpdaterBuilder<S, T> deduplicate(boolean compareBytes);
+
+    @Override
+    UnboundTransformedUpdaterBuilder<S, T> rateLimit(UpdateRateLimiter limiter);
+
+    @Override
+    UnboundTransformedUpdaterBuilder<S, T> journal(OutboundJournal journal);
+
     @Override
     void register(
         TopicUpdateControl updateControl,
         String topicPath,
-        TransformedUpdateSource<S, T, TransformedUpdater<S, T>> updateSource);
+        TransformedUpdateSource<S, T, TransformedUpdater<S, T>> updateSource) throws IllegalStateException;
 
     @Override
     void register(
@@ -18,6 +18,7 @@ package com.pushtechnology.diffusion.transform.updater;
 import com.pushtechnology.diffusion.client.features.TimeSeries;
 import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
 import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
 import com.pushtechnology.diffusion.transform.transformer.TransformationException;
 import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
@@ -31,10 +32,15 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 /*package*/ final class UnboundTransformedUpdaterBuilderImpl<S, T> implements UnboundTransformedUpdaterBuilder<S, T> {
     private final Class<S> valueType;
     private final UnsafeTransformer<T, S> transformer;
+    private final UpdaterStage<S> stages;
 
-    UnboundTransformedUpdaterBuilderImpl(Class<S> valueType, UnsafeTransformer<T, S> transformer) {
+    UnboundTransformedUpdaterBuilderImpl(
+            Class<S> valueType,
+            UnsafeTransformer<T, S> transformer,
+            UpdaterStage<S> stages) {
         this.valueType = valueType;
         this.transformer = transformer;
+        this.stages = stages;
     }
 
     @Override
@@ -51,7 +57,7 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
                 throw new TransformationException(e);
             }
             // CHECKSTYLE.ON: IllegalCatch
-        });
+        }, stages);
     }
 
     @Override
@@ -70,17 +76,65 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
                 throw new TransformationException(e);
             }
             // CHECKSTYLE.ON: IllegalCatch
-        });
+        }, stages);
+    }
+
+    @Override
+    public UnboundTransformedUpdaterBuilder<S, T> deduplicate(boolean compareBytes) {
+        return withStage(UpdaterStage.deduplicate(valueType, compareBytes));
+    }
+
+    @Override
+    public UnboundTransformedUpdaterBuilder<S, T> rateLimit(UpdateRateLimiter limiter) {
+        return withStage(UpdaterStage.rateLimit(valueType, limiter));
+    }
+
+    @Override
+    public UnboundTransformedUpdaterBuilder<S, T> journal(OutboundJournal journal) {
+        return withStage(UpdaterStage.journal(valueType, journal));
     }
 
     @Override
     public TransformedUpdater<S, T> create(TopicUpdateControl.Updater updater) {
-        return new TransformedUpdaterImpl<>(updater.valueUpdater(valueType), transformer);
+        checkSessionNotRequired();
+        return create(null, updater);
     }
 
     @Override
     public TransformedUpdater<S, T> create(Session session) {
-        return create(session.feature(TopicUpdateControl.class).updater());
+        return new TransformedUpdaterImpl<>(valueUpdater(session), transformer);
+    }
+
+    @Override
+    public SwappableUpdater<S, T> createSwappable(Session session) {
+        return new SwappableUpdaterImpl<>(valueUpdater(session), transformer);
+    }
+
+    @Override
+    public ConflatingUpdater<S, T> createConflating(Session session) {
+        return new ConflatingUpdaterImpl<>(create(session));
+    }
+
+    @Override
+    public CachingUpdater<S, T> createCaching(Session session, int capacity) {
+        return new CachingUpdaterImpl<>(create(session), capacity);
+    }
+
+    @Override
+    public AsyncUpdater<T> createAsync(
+            Session session,
+            int workers,
+            int queueCapacity,
+            UpdateOverflowPolicy overflowPolicy) {
+        return new AsyncUpdaterImpl<>(create(session), workers, queueCapacity, overflowPolicy);
+    }
+
+    @Override
+    public TransformedUpdater<S, T> create(SessionPool sessionPool) {
+        checkSessionNotRequired();
+        return new TransformedUpdaterImpl<>(
+            stages.apply(null, new PooledValueUpdater<>(sessionPool, valueType)),
+            transformer);
     }
 
     @Override
@@ -93,7 +147,8 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         return new BoundTransformedUpdaterBuilderImpl<>(
             session,
             valueType,
-            transformer);
+            transformer,
+            stages);
     }
 
     @Override
@@ -101,9 +156,10 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
             TopicUpdateControl updateControl,
             String topicPath,
             TransformedUpdateSource<S, T, TransformedUpdater<S, T>> updateSource) {
+        checkSessionNotRequired();
         updateControl.registerUpdateSource(
             topicPath,
-            new UpdateSourceAdapter<>(new UpdateControlValueCache(updateControl), this, updateSource));
+            new UpdateSourceAdapter<>(new UpdateControlValueCache(updateControl), this::create, updateSource));
     }
 
     @Override
@@ -112,6 +168,52 @@ import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
         String topicPath,
         TransformedUpdateSource<S, T, TransformedUpdater<S, T>> updateSource) {
 
-        register(session.feature(TopicUpdateControl.class), topicPath, updateSource);
+        final TopicUpdateControl updateControl = session.feature(TopicUpdateControl.class);
+        updateControl.registerUpdateSource(
+            topicPath,
+            new UpdateSourceAdapter<>(
+                new UpdateControlValueCache(updateControl),
+                updater -> create(session, updater),
+                updateSource));
+    }
+
+    @Override
+    public SessionPool.Binding register(
+            SessionPool sessionPool,
+            String topicPath,
+            TransformedUpdateSource<S, T, TransformedUpdater<S, T>> updateSource) {
+        return sessionPool.bind(topicPath, session -> {
+            final TopicUpdateControl updateControl = session.feature(TopicUpdateControl.class);
+            return PooledUpdateSource.register(
+                updateControl,
+                topicPath,
+                new UpdateSourceAdapter<>(
+                    new UpdateControlValueCache(updateControl),
+                    updater -> create(session, updater),
+                    updateSource));
+        });
+    }
+
+    private UnboundTransformedUpdaterBuilder<S, T> withStage(UpdaterStage<S> stage) {
+        return new UnboundTransformedUpdaterBuilderImpl<>(valueType, transformer, stages.andThen(stage));
+    }
+
+    /**
+     * Create the updater of an update source.
+     *
+     * @param session the session the update source is registered with, {@code null} if it is not known
+     */
+    private TransformedUpdater<S, T> create(Session session, TopicUpdateControl.Updater updater) {
+        return new TransformedUpdaterImpl<>(stages.apply(session, updater.valueUpdater(valueType)), transformer);
+    }
+
+    private void checkSessionNotRequired() {
+        if (stages.requiresSession()) {
+            throw new IllegalStateException("A journaled updater must be created from a session");
+        }
+    }
+
+    private TopicUpdateControl.ValueUpdater<S> valueUpdater(Session session) {
+        return stages.apply(session, session.feature(TopicUpdateControl.class).updater().valueUpdater(valueType));
     }
 }
@@ -17,10 +17,14 @@ package com.pushtechnology.diffusion.transform.updater;
 
 import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
 import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
 import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
 
 /**
  * An extension to {@link UpdaterBuilder} that is not bound to a session.
+ * <p>
+ * The stages added to the builder are included in every updater it creates, including the caching and
+ * asynchronous updaters.
  *
  * @param <S> The type of value understood by the topic
  * @param <T> The type of value updates are provided as
@@ -45,13 +49,55 @@ public interface UnboundUpdaterBuilder
      */
     BoundUpdaterBuilder<S, T, U, V> bind(Session session);
 
+    /**
+     * Add a stage that does not send a value that is the same as the last value successfully sent to a topic.
+     * <p>
+     * The transformed value is serialised and fingerprinted with a 64-bit hash for each update. If the fingerprint
+     * matches the last successful update of the topic the value is not sent and the callback is notified of success.
+     * Removing cached values from the {@link TransformedUpdater#untransformedValueCache()} also removes the
+     * fingerprints of every topic.
+     *
+     * @param compareBytes if the serialised values are also kept and compared in full, so a hash collision cannot cause
+     * an update to be skipped
+     * @return a new updater builder
+     */
+    UnboundUpdaterBuilder<S, T, U, V> deduplicate(boolean compareBytes);
+
+    /**
+     * Add a stage that sends values within the rate limits of an {@link UpdateRateLimiter}.
+     * <p>
+     * Updates that the limits allow are sent immediately. Excess updates are delayed, conflated or rejected according
+     * to the {@link ThrottlePolicy} of the limiter. The limiter can be shared with other updaters.
+     *
+     * @param limiter the limiter
+     * @return a new updater builder
+     */
+    UnboundUpdaterBuilder<S, T, U, V> rateLimit(UpdateRateLimiter limiter);
+
+    /**
+     * Add a stage that writes updates to an {@link OutboundJournal} while the session is not connected.
+     * <p>
+     * Updates are sent directly while the session is connected. When the session reconnects the journal is replayed
+     * before updates are sent directly again, so the updates of each topic are sent in order. The stage needs the
+     * session the updater is created from, creating an updater from a {@link TopicUpdateControl.Updater} or a
+     * {@link SessionPool} or registering an update source with a {@link TopicUpdateControl} fails with an
+     * {@link IllegalStateException}. The journal is used by the updater most recently created with it, updaters
+     * created before it send updates directly. Each update source registered with the stage replaces the user of the
+     * journal when it becomes active.
+     *
+     * @param journal the journal, it should not be used by other builders
+     * @return a new updater builder
+     */
+    UnboundUpdaterBuilder<S, T, U, V> journal(OutboundJournal journal);
+
     /**
      * Create the updater.
      *
      * @param updater the update to transform
      * @return a transformed non-exclusive updater
+     * @throws IllegalStateException if a journal stage has been added to the builder
      */
-    U create(TopicUpdateControl.Updater updater);
+    U create(TopicUpdateControl.Updater updater) throws IllegalStateException;
 
     /**
      * Create the updater.
@@ -61,6 +107,65 @@ public interface UnboundUpdaterBuilder
      */
     U create(Session session);
 
+    /**
+     * Create an updater whose transformation can be replaced while it is in use.
+     *
+     * @param session the session
+     * @return a transformed non-exclusive updater that can swap its transformation
+     */
+    SwappableUpdater<S, T> createSwappable(Session session);
+
+    /**
+     * Create an updater that conflates the updates of each topic while an update is in flight.
+     *
+     * @param session the session
+     * @return a transformed non-exclusive updater that conflates updates
+     */
+    ConflatingUpdater<S, T> createConflating(Session session);
+
+    /**
+     * Create an updater that keeps the last value successfully published to each topic in a {@link LocalValueCache}.
+     * <p>
+     * Values are cached in the type they were provided as when the server acknowledges the update, so producers that
+     * read, modify and write values do not need to transform them back. The updates are sent through the stages added
+     * to the builder, a value is cached when the stages report that its update succeeded.
+     *
+     * @param session the session
+     * @param capacity the maximum number of topics with a cached value
+     * @return a transformed non-exclusive updater that caches published values
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    CachingUpdater<S, T> createCaching(Session session, int capacity) throws IllegalArgumentException;
+
+    /**
+     * Create an updater that transforms and sends values on its own worker threads.
+     * <p>
+     * Each worker has a bounded queue and is assigned the topic paths that hash to it, so the updates of each topic
+     * are sent in order. The stages added to the builder are applied on the worker threads. The updater should be
+     * closed when it is no longer needed to stop the workers.
+     *
+     * @param session the session
+     * @param workers the number of worker threads
+     * @param queueCapacity the maximum number of updates queued for each worker
+     * @param overflowPolicy the policy applied to an update made when the queue is full
+     * @return an asynchronous transformed non-exclusive updater
+     * @throws IllegalArgumentException if the number of workers or queue capacity is not positive
+     */
+    AsyncUpdater<T> createAsync(
+        Session session,
+        int workers,
+        int queueCapacity,
+        UpdateOverflowPolicy overflowPolicy) throws IllegalArgumentException;
+
+    /**
+     * Create an updater that updates each topic using the session of a pool that its path is assigned to.
+     *
+     * @param sessionPool the session pool
+     * @return a transformed non-exclusive updater
+     * @throws IllegalStateException if a journal stage has been added to the builder
+     */
+    U create(SessionPool sessionPool) throws IllegalStateException;
+
     /**
      * Create the updater for time series topics.
      *
@@ -74,8 +179,9 @@ public interface UnboundUpdaterBuilder
      * @param updateControl the update control feature
      * @param topicPath the path to register the update source for
      * @param updateSource the update source
+     * @throws IllegalStateException if a journal stage has been added to the builder
      */
-    void register(TopicUpdateControl updateControl, String topicPath, V updateSource);
+    void register(TopicUpdateControl updateControl, String topicPath, V updateSource) throws IllegalStateException;
 
     /**
      * Register an update source.
@@ -85,4 +191,17 @@ public interface UnboundUpdaterBuilder
      * @param updateSource the update source
      */
     void register(Session session, String topicPath, V updateSource);
+
+    /**
+     * Register an update source using the session of a pool that the topic path is assigned to. If the session is
+     * closed the update source is registered using the session the topic path is then assigned to.
+     * <p>
+     * Closing the binding closes the registration of the update source with the session it is bound to.
+     *
+     * @param sessionPool the session pool
+     * @param topicPath the path to register the update source for
+     * @param updateSource the update source
+     * @return the binding of the update source to the pool
+     */
+    SessionPool.Binding register(SessionPool sessionPool, String topicPath, V updateSource);
 }
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+
+/**
+ * Completes the future of an update that the server did not apply.
+ *
+ * @author Push Technology Limited
+ */
+public final class UpdateFailedException extends Exception {
+    private static final long serialVersionUID = 1L;
+    private final transient ErrorReason errorReason;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ UpdateFailedException(String topicPath, ErrorReason errorReason) {
+        super("Failed to update topic " + topicPath + ": " + errorReason);
+        this.errorReason = errorReason;
+    }
+
+    /**
+     * @return the reason the update failed
+     */
+    public ErrorReason getErrorReason() {
+        return errorReason;
+    }
+}
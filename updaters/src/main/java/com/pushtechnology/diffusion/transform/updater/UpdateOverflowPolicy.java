@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * The policy used by an {@link AsyncUpdater} when an update is made while the queue of its worker is full.
+ *
+ * @author Push Technology Limited
+ */
+public final class UpdateOverflowPolicy {
+    private static final UpdateOverflowPolicy BLOCK = new UpdateOverflowPolicy(true, false);
+    private static final UpdateOverflowPolicy DROP_NEWEST = new UpdateOverflowPolicy(false, false);
+    private static final UpdateOverflowPolicy DROP_OLDEST = new UpdateOverflowPolicy(false, true);
+
+    private final boolean block;
+    private final boolean dropOldest;
+
+    private UpdateOverflowPolicy(boolean block, boolean dropOldest) {
+        this.block = block;
+        this.dropOldest = dropOldest;
+    }
+
+    /**
+     * Block the caller until there is space in the queue.
+     *
+     * @return the policy
+     */
+    public static UpdateOverflowPolicy block() {
+        return BLOCK;
+    }
+
+    /**
+     * Discard the new update. The caller is not blocked.
+     *
+     * @return the policy
+     */
+    public static UpdateOverflowPolicy dropNewest() {
+        return DROP_NEWEST;
+    }
+
+    /**
+     * Discard the oldest update in the queue to make space for the new update. The caller is not blocked.
+     *
+     * @return the policy
+     */
+    public static UpdateOverflowPolicy dropOldest() {
+        return DROP_OLDEST;
+    }
+
+    /**
+     * Add a task to a queue.
+     *
+     * @param queue the queue
+     * @param task the task
+     * @param dropped notified of each task that is discarded
+     * @param <E> the type of tasks
+     * @throws InterruptedException if interrupted while blocked
+     */
+    /*package*/ <E> void enqueue(BlockingQueue<E> queue, E task, Consumer<E> dropped) throws InterruptedException {
+        if (block) {
+            queue.put(task);
+        }
+        else if (dropOldest) {
+            while (!queue.offer(task)) {
+                final E oldest = queue.poll();
+                if (oldest != null) {
+                    dropped.accept(oldest);
+                }
+            }
+        }
+        else if (!queue.offer(task)) {
+            dropped.accept(task);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (block) {
+            return "UpdateOverflowPolicy [block]";
+        }
+        return dropOldest ? "UpdateOverflowPolicy [dropOldest]" : "UpdateOverflowPolicy [dropNewest]";
+    }
+}
@@ -0,0 +1,359 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.pushtechnology.diffusion.transform.path.TopicPathTrie;
+
+/**
+ * Token bucket limits on the rate of updates and bytes sent by updaters built with
+ * {@link UnboundUpdaterBuilder#rateLimit(UpdateRateLimiter)}.
+ * <p>
+ * A limiter can have a global limit and limits for topic path prefixes. A prefix limit applies to the topics below
+ * the prefix. Every limit that applies to a topic must allow an update before it is sent. A limiter can be shared by
+ * several updaters to limit their combined rate. The {@link ThrottlePolicy} decides what happens to excess updates.
+ * Updates are never blocked, held updates are sent by the scheduler of the limiter.
+ *
+ * @author Push Technology Limited
+ */
+public final class UpdateRateLimiter {
+    private final LongAdder throttledNanos = new LongAdder();
+    private final LongAdder delayedUpdates = new LongAdder();
+    private final LongAdder conflatedUpdates = new LongAdder();
+    private final LongAdder rejectedUpdates = new LongAdder();
+    private final Limit globalLimit;
+    private final TopicPathTrie<Limit> prefixLimits;
+    private final boolean limitsBytes;
+    private final ThrottlePolicy throttlePolicy;
+    private final ScheduledExecutorService scheduler;
+    private final LongSupplier nanoClock;
+
+    /**
+     * Constructor.
+     */
+    /*package*/ UpdateRateLimiter(
+            Limit globalLimit,
+            TopicPathTrie<Limit> prefixLimits,
+            ThrottlePolicy throttlePolicy,
+            ScheduledExecutorService scheduler,
+            LongSupplier nanoClock) {
+        this.globalLimit = globalLimit;
+        this.prefixLimits = prefixLimits;
+        this.throttlePolicy = throttlePolicy;
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+        limitsBytes = globalLimit.bytes != null
+            || prefixLimits.values().stream().anyMatch(limit -> limit.bytes != null);
+    }
+
+    /**
+     * @return a new builder of limiters
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the total time in nanoseconds that sent updates were held by the limiter
+     */
+    public long getThrottledNanos() {
+        return throttledNanos.sum();
+    }
+
+    /**
+     * @return the number of updates held by the limiter
+     */
+    public long getDelayedUpdates() {
+        return delayedUpdates.sum();
+    }
+
+    /**
+     * @return the number of held updates replaced by a later update of the topic
+     */
+    public long getConflatedUpdates() {
+        return conflatedUpdates.sum();
+    }
+
+    /**
+     * @return the number of updates rejected by the limiter
+     */
+    public long getRejectedUpdates() {
+        return rejectedUpdates.sum();
+    }
+
+    /**
+     * Take an update from every limit that applies to a topic if they all allow it.
+     *
+     * @return if the update can be sent now
+     */
+    /*package*/ boolean tryAcquire(String topicPath, int bytes) {
+        final List<Limit> limits = limitsFor(topicPath);
+        synchronized (this) {
+            final long now = nanoClock.getAsLong();
+            for (Limit limit : limits) {
+                if (!limit.isAvailable(bytes, now)) {
+                    return false;
+                }
+            }
+            for (Limit limit : limits) {
+                limit.reserve(bytes, now);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Take an update from every limit that applies to a topic, leaving them in debt if needed.
+     *
+     * @return the time in nanoseconds until the update can be sent
+     */
+    /*package*/ long reserve(String topicPath, int bytes) {
+        final List<Limit> limits = limitsFor(topicPath);
+        synchronized (this) {
+            final long now = nanoClock.getAsLong();
+            long wait = 0L;
+            for (Limit limit : limits) {
+                wait = Math.max(wait, limit.reserve(bytes, now));
+            }
+            return wait;
+        }
+    }
+
+    /*package*/ boolean limitsBytes() {
+        return limitsBytes;
+    }
+
+    /*package*/ ThrottlePolicy getThrottlePolicy() {
+        return throttlePolicy;
+    }
+
+    /*package*/ ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /*package*/ long nanoTime() {
+        return nanoClock.getAsLong();
+    }
+
+    /*package*/ void recordDelayed() {
+        delayedUpdates.increment();
+    }
+
+    /*package*/ void recordConflated() {
+        conflatedUpdates.increment();
+    }
+
+    /*package*/ void recordRejected() {
+        rejectedUpdates.increment();
+    }
+
+    /*package*/ void recordThrottled(long nanos) {
+        throttledNanos.add(nanos);
+    }
+
+    private List<Limit> limitsFor(String topicPath) {
+        final List<Limit> prefixes = prefixLimits.match(topicPath);
+        final List<Limit> limits = new ArrayList<>(prefixes.size() + 1);
+        limits.add(globalLimit);
+        limits.addAll(prefixes);
+        return limits;
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateRateLimiter [policy=" + throttlePolicy
+            + ", delayed=" + getDelayedUpdates()
+            + ", conflated=" + getConflatedUpdates()
+            + ", rejected=" + getRejectedUpdates() + "]";
+    }
+
+    /**
+     * The buckets of a single limit. A bucket is null if the limit does not restrict it.
+     * <p>
+     * Guarded by the limiter.
+     */
+    /*package*/ static final class Limit {
+        private final TokenBucket updates;
+        private final TokenBucket bytes;
+
+        /*package*/ Limit(TokenBucket updates, TokenBucket bytes) {
+            this.updates = updates;
+            this.bytes = bytes;
+        }
+
+        private boolean isAvailable(int updateBytes, long now) {
+            return (updates == null || updates.isAvailable(1.0, now))
+                && (bytes == null || bytes.isAvailable(updateBytes, now));
+        }
+
+        private long reserve(int updateBytes, long now) {
+            final long updatesWait = updates == null ? 0L : updates.reserve(1.0, now);
+            final long bytesWait = bytes == null ? 0L : bytes.reserve(updateBytes, now);
+            return Math.max(updatesWait, bytesWait);
+        }
+    }
+
+    /**
+     * Builder of {@link UpdateRateLimiter}s.
+     */
+    public static final class Builder {
+        private final Rates globalRates = new Rates();
+        private final Map<String, Rates> prefixRates = new LinkedHashMap<>();
+        private Duration burst = Duration.ofSeconds(1L);
+        private ThrottlePolicy throttlePolicy = ThrottlePolicy.delay();
+
+        private Builder() {
+        }
+
+        /**
+         * Limit the number of updates sent per second. By default the number is not limited.
+         *
+         * @param rate the number of updates per second
+         * @return this builder
+         * @throws IllegalArgumentException if the rate is not positive
+         */
+        public Builder updatesPerSecond(double rate) {
+            globalRates.updates = validate(rate);
+            return this;
+        }
+
+        /**
+         * Limit the number of bytes of serialised values sent per second. By default the number is not limited.
+         *
+         * @param rate the number of bytes per second
+         * @return this builder
+         * @throws IllegalArgumentException if the rate is not positive
+         */
+        public Builder bytesPerSecond(double rate) {
+            globalRates.bytes = validate(rate);
+            return this;
+        }
+
+        /**
+         * Limit the number of updates sent per second to the topics below a topic path prefix.
+         *
+         * @param topicPathPrefix the prefix, matching the path segments that start topic paths
+         * @param rate the number of updates per second
+         * @return this builder
+         * @throws IllegalArgumentException if the rate is not positive
+         */
+        public Builder updatesPerSecond(String topicPathPrefix, double rate) {
+            rates(topicPathPrefix).updates = validate(rate);
+            return this;
+        }
+
+        /**
+         * Limit the number of bytes of serialised values sent per second to the topics below a topic path prefix.
+         *
+         * @param topicPathPrefix the prefix, matching the path segments that start topic paths
+         * @param rate the number of bytes per second
+         * @return this builder
+         * @throws IllegalArgumentException if the rate is not positive
+         */
+        public Builder bytesPerSecond(String topicPathPrefix, double rate) {
+            rates(topicPathPrefix).bytes = validate(rate);
+            return this;
+        }
+
+        /**
+         * Set the burst allowed by each limit as the time the limit takes to refill. Defaults to 1 second.
+         *
+         * @param newBurst the burst
+         * @return this builder
+         * @throws IllegalArgumentException if the burst is not positive
+         */
+        public Builder burst(Duration newBurst) {
+            if (newBurst.isNegative() || newBurst.isZero()) {
+                throw new IllegalArgumentException("The burst must be positive");
+            }
+            burst = newBurst;
+            return this;
+        }
+
+        /**
+         * Set the policy for updates that exceed the limits. Defaults to {@link ThrottlePolicy#delay()}.
+         *
+         * @param newThrottlePolicy the policy
+         * @return this builder
+         */
+        public Builder throttlePolicy(ThrottlePolicy newThrottlePolicy) {
+            throttlePolicy = newThrottlePolicy;
+            return this;
+        }
+
+        /**
+         * Create the limiter.
+         *
+         * @param scheduler the executor used to send held updates
+         * @return the limiter
+         */
+        public UpdateRateLimiter build(ScheduledExecutorService scheduler) {
+            return build(scheduler, System::nanoTime);
+        }
+
+        /*package*/ UpdateRateLimiter build(ScheduledExecutorService scheduler, LongSupplier nanoClock) {
+            final long now = nanoClock.getAsLong();
+            final long burstNanos = burst.toNanos();
+            final TopicPathTrie.Builder<Limit> trie = TopicPathTrie.builder();
+            prefixRates.forEach((prefix, rates) -> trie.add(prefix + "/**", rates.toLimit(burstNanos, now)));
+            return new UpdateRateLimiter(
+                globalRates.toLimit(burstNanos, now),
+                trie.build(),
+                throttlePolicy,
+                scheduler,
+                nanoClock);
+        }
+
+        private Rates rates(String topicPathPrefix) {
+            String prefix = topicPathPrefix;
+            while (prefix.endsWith("/")) {
+                prefix = prefix.substring(0, prefix.length() - 1);
+            }
+            return prefixRates.computeIfAbsent(prefix, key -> new Rates());
+        }
+
+        private static double validate(double rate) {
+            if (!(rate > 0.0)) {
+                throw new IllegalArgumentException("The rate must be positive");
+            }
+            return rate;
+        }
+    }
+
+    /**
+     * The rates of a limit being built.
+     */
+    private static final class Rates {
+        private double updates = Double.POSITIVE_INFINITY;
+        private double bytes = Double.POSITIVE_INFINITY;
+
+        private Limit toLimit(long burstNanos, long now) {
+            return new Limit(bucket(updates, burstNanos, now), bucket(bytes, burstNanos, now));
+        }
+
+        private static TokenBucket bucket(double rate, long burstNanos, long now) {
+            return rate == Double.POSITIVE_INFINITY ? null : new TokenBucket(rate, burstNanos, now);
+        }
+    }
+}
@@ -15,6 +15,8 @@
 
 package com.pushtechnology.diffusion.transform.updater;
 
+import java.util.function.Function;
+
 import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
 import com.pushtechnology.diffusion.client.callbacks.Registration;
 import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
@@ -29,20 +31,20 @@ import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateCo
 /*package*/ final class UpdateSourceAdapter<S, T>  implements TopicUpdateControl.UpdateSource {
     private final ValueCache valueCache;
     private final TransformedUpdateSource<S, T, TransformedUpdater<S, T>> updateSource;
-    private final UnboundTransformedUpdaterBuilder<S, T> updaterBuilder;
+    private final Function<TopicUpdateControl.Updater, TransformedUpdater<S, T>> updaterFactory;
 
     UpdateSourceAdapter(
             ValueCache valueCache,
-            UnboundTransformedUpdaterBuilder<S, T> updaterBuilder,
+            Function<TopicUpdateControl.Updater, TransformedUpdater<S, T>> updaterFactory,
             TransformedUpdateSource<S, T, TransformedUpdater<S, T>> updateSource) {
         this.valueCache = valueCache;
-        this.updaterBuilder = updaterBuilder;
+        this.updaterFactory = updaterFactory;
         this.updateSource = updateSource;
     }
 
     @Override
     public void onActive(String topicPath, TopicUpdateControl.Updater updater) {
-        updateSource.onActive(topicPath, updaterBuilder.create(updater));
+        updateSource.onActive(topicPath, updaterFactory.apply(updater));
         valueCache.removeCachedValues(topicPath);
     }
 
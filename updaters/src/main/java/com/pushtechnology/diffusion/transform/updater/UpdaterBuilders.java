@@ -39,7 +39,8 @@ public final class UpdaterBuilders {
     public static <V> UnboundSafeUpdaterBuilder<V, V> updaterBuilder(Class<V> valueType) {
         return new UnboundSafeUpdaterBuilderImpl<>(
             valueType,
-            identity());
+            identity(),
+            UpdaterStage.none());
     }
 
     /**
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.transform.path.TopicPathTrie;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+/**
+ * Routes updates of values of different types to the {@link TransformedUpdater} registered for the topic path.
+ * <p>
+ * Routes are registered as a topic path pattern, the type of value and the updater builder that transforms it. The
+ * patterns are compiled into a {@link TopicPathTrie} when the router is built. When several patterns match a topic
+ * path the route registered first is used. The route of each topic path is cached, so after the first update of a
+ * topic finding its route is a single map lookup. When the cache is full the route of an arbitrary topic path is
+ * evicted, resolving it again only costs a match against the trie.
+ * <p>
+ * Routers can be shared between threads.
+ *
+ * @author Push Technology Limited
+ */
+public final class UpdaterRouter {
+    private static final Route<?> NO_ROUTE = new Route<>(null, null, null);
+    private final TopicPathTrie<Route<?>> routes;
+    private final Map<String, Route<?>> resolved = new ConcurrentHashMap<>();
+    private final int resolutionCacheSize;
+
+    private UpdaterRouter(TopicPathTrie<Route<?>> routes, int resolutionCacheSize) {
+        this.routes = routes;
+        this.resolutionCacheSize = resolutionCacheSize;
+    }
+
+    /**
+     * Update a topic with a value.
+     *
+     * @param topicPath the topic path
+     * @param value the value, an instance of the type registered for the route of the topic
+     * @param callback the callback to notify of the result of the update
+     * @throws TransformationException if the value cannot be transformed
+     * @throws IllegalArgumentException if no route matches the topic path or the value is not of the type of the
+     * route
+     */
+    public void update(String topicPath, Object value, UpdateCallback callback) throws TransformationException {
+        if (topicPath == null || value == null || callback == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        resolve(topicPath).update(topicPath, value, callback);
+    }
+
+    /**
+     * Update a topic with a value.
+     *
+     * @param topicPath the topic path
+     * @param value the value, an instance of the type registered for the route of the topic
+     * @param context the context passed to the callback
+     * @param callback the callback to notify of the result of the update
+     * @param <C> the type of the context
+     * @throws TransformationException if the value cannot be transformed
+     * @throws IllegalArgumentException if no route matches the topic path or the value is not of the type of the
+     * route
+     */
+    public <C> void update(
+            String topicPath,
+            Object value,
+            C context,
+            UpdateContextCallback<C> callback) throws TransformationException {
+
+        if (topicPath == null || value == null || callback == null) {
+            throw new IllegalArgumentException("Null arguments are not allowed");
+        }
+
+        resolve(topicPath).update(topicPath, value, context, callback);
+    }
+
+    /**
+     * @return the number of topic paths with a cached route
+     */
+    /*package*/ int resolvedPathCount() {
+        return resolved.size();
+    }
+
+    private Route<?> resolve(String topicPath) {
+        final Route<?> cached = resolved.get(topicPath);
+        if (cached != null) {
+            return cached;
+        }
+
+        final List<Route<?>> matches = routes.match(topicPath);
+        final Route<?> route = matches.isEmpty() ? NO_ROUTE : matches.get(0);
+        if (resolved.size() >= resolutionCacheSize) {
+            // Concurrent resolutions can briefly exceed the size, each evicts at most one path
+            final Iterator<String> paths = resolved.keySet().iterator();
+            if (paths.hasNext()) {
+                resolved.remove(paths.next());
+            }
+        }
+        resolved.put(topicPath, route);
+        return route;
+    }
+
+    /**
+     * @return a new builder of routers
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A route to an updater.
+     *
+     * @param <T> The type of value updates are provided as
+     */
+    private static final class Route<T> {
+        private final String pattern;
+        private final Class<T> valueType;
+        private final TransformedUpdater<?, T> updater;
+
+        private Route(String pattern, Class<T> valueType, TransformedUpdater<?, T> updater) {
+            this.pattern = pattern;
+            this.valueType = valueType;
+            this.updater = updater;
+        }
+
+        private void update(String topicPath, Object value, UpdateCallback callback) throws TransformationException {
+            updater.update(topicPath, cast(topicPath, value), callback);
+        }
+
+        private <C> void update(
+                String topicPath,
+                Object value,
+                C context,
+                UpdateContextCallback<C> callback) throws TransformationException {
+
+            updater.update(topicPath, cast(topicPath, value), context, callback);
+        }
+
+        private T cast(String topicPath, Object value) {
+            if (updater == null) {
+                throw new IllegalArgumentException("No route matches the topic path " + topicPath);
+            }
+            if (!valueType.isInstance(value)) {
+                throw new IllegalArgumentException("The route " + pattern + " for the topic path " + topicPath +
+                    " requires values of type " + valueType.getName() + " not " + value.getClass().getName());
+            }
+            return valueType.cast(value);
+        }
+    }
+
+    /**
+     * A route registered with a builder.
+     *
+     * @param <T> The type of value updates are provided as
+     */
+    private static final class Registration<T> {
+        private final String pattern;
+        private final Class<T> valueType;
+        private final UnboundUpdaterBuilder<?, T, ?, ?> updaterBuilder;
+
+        private Registration(String pattern, Class<T> valueType, UnboundUpdaterBuilder<?, T, ?, ?> updaterBuilder) {
+            this.pattern = pattern;
+            this.valueType = valueType;
+            this.updaterBuilder = updaterBuilder;
+        }
+
+        private Route<T> toRoute(Session session) {
+            return new Route<>(pattern, valueType, updaterBuilder.create(session));
+        }
+    }
+
+    /**
+     * Builder of {@link UpdaterRouter}s.
+     */
+    public static final class Builder {
+        private final List<Registration<?>> registrations = new ArrayList<>();
+        private int resolutionCacheSize = 10_000;
+
+        private Builder() {
+        }
+
+        /**
+         * Register a route. Routes registered earlier are used before later routes that also match a topic path.
+         *
+         * @param pattern the topic path pattern, see {@link TopicPathTrie} for the syntax
+         * @param valueType the type of value updates of the topics are provided as
+         * @param updaterBuilder the builder of the updater of the topics
+         * @param <T> The type of value updates are provided as
+         * @return this builder
+         * @throws IllegalArgumentException if any argument is null
+         */
+        public <T> Builder route(String pattern, Class<T> valueType, UnboundUpdaterBuilder<?, T, ?, ?> updaterBuilder) {
+            if (pattern == null || valueType == null || updaterBuilder == null) {
+                throw new IllegalArgumentException("Null arguments are not allowed");
+            }
+            registrations.add(new Registration<>(pattern, valueType, updaterBuilder));
+            return this;
+        }
+
+        /**
+         * Set the maximum number of topic paths with a cached route. Defaults to 10000.
+         *
+         * @param size the number of topic paths
+         * @return this builder
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Builder resolutionCacheSize(int size) {
+            if (size < 1) {
+                throw new IllegalArgumentException("The resolution cache size must be positive");
+            }
+            resolutionCacheSize = size;
+            return this;
+        }
+
+        /**
+         * Create the router. Creates an updater for each route.
+         *
+         * @param session the session to update topics with
+         * @return the router
+         */
+        public UpdaterRouter build(Session session) {
+            final TopicPathTrie.Builder<Route<?>> trie = TopicPathTrie.builder();
+            registrations.forEach(registration -> trie.add(registration.pattern, registration.toRoute(session)));
+            return new UpdaterRouter(trie.build(), resolutionCacheSize);
+        }
+    }
+}
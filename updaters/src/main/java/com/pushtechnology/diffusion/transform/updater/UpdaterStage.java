@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.client.session.Session;
+
+/**
+ * A stage added to the {@link TopicUpdateControl.ValueUpdater} of the updaters created by an {@link UpdaterBuilder}.
+ * <p>
+ * Stages wrap the value updater of the topic type, so they are kept when the builder is transformed. The stage added
+ * first is the first to receive each update.
+ *
+ * @param <S> The type of value understood by the topic
+ * @author Push Technology Limited
+ */
+@FunctionalInterface
+/*package*/ interface UpdaterStage<S> {
+    /**
+     * Add the stage to a value updater.
+     *
+     * @param session the session the updater is created from, {@code null} if it is not created from a single session
+     * @param updater the value updater to wrap
+     * @return the wrapping value updater
+     * @throws IllegalStateException if the stage requires a session and none is provided
+     */
+    TopicUpdateControl.ValueUpdater<S> apply(
+        Session session,
+        TopicUpdateControl.ValueUpdater<S> updater) throws IllegalStateException;
+
+    /**
+     * @return if the stage can only be added to an updater created from a session
+     */
+    default boolean requiresSession() {
+        return false;
+    }
+
+    /**
+     * @param stage the stage to add after this one
+     * @return the stages composed so that this stage receives each update first
+     */
+    default UpdaterStage<S> andThen(UpdaterStage<S> stage) {
+        final UpdaterStage<S> first = this;
+        return new UpdaterStage<S>() {
+            @Override
+            public TopicUpdateControl.ValueUpdater<S> apply(
+                    Session session,
+                    TopicUpdateControl.ValueUpdater<S> updater) {
+                return first.apply(session, stage.apply(session, updater));
+            }
+
+            @Override
+            public boolean requiresSession() {
+                return first.requiresSession() || stage.requiresSession();
+            }
+        };
+    }
+
+    /**
+     * @return a stage that does not wrap the updater
+     */
+    static <S> UpdaterStage<S> none() {
+        return (session, updater) -> updater;
+    }
+
+    /**
+     * @return a stage that skips values that are the same as the last value successfully sent to a topic
+     */
+    static <S> UpdaterStage<S> deduplicate(Class<S> valueType, boolean compareBytes) {
+        return (session, updater) -> FingerprintingValueUpdater.create(updater, valueType, compareBytes);
+    }
+
+    /**
+     * @return a stage that sends values within the rate limits of a limiter
+     */
+    static <S> UpdaterStage<S> rateLimit(Class<S> valueType, UpdateRateLimiter limiter) {
+        return (session, updater) -> RateLimitedValueUpdater.create(updater, valueType, limiter);
+    }
+
+    /**
+     * @return a stage that journals updates while the session is disconnected, each updater it is added to replaces
+     * the previous user of the journal
+     */
+    static <S> UpdaterStage<S> journal(Class<S> valueType, OutboundJournal journal) {
+        return new UpdaterStage<S>() {
+            @Override
+            public TopicUpdateControl.ValueUpdater<S> apply(
+                    Session session,
+                    TopicUpdateControl.ValueUpdater<S> updater) {
+                if (session == null) {
+                    throw new IllegalStateException("A journaled updater must be created from a session");
+                }
+                return JournalingValueUpdater.create(session, updater, valueType, journal);
+            }
+
+            @Override
+            public boolean requiresSession() {
+                return true;
+            }
+        };
+    }
+}
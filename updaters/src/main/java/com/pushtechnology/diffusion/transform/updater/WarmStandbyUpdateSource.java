@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.callbacks.Registration;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TransformedUpdateSource} that keeps a standby producer warm.
+ * <p>
+ * The producer publishes through {@link #getUpdater()} whether the source is active or on standby. While the source
+ * is active values are sent to the server. While it is on standby the latest value of each topic is kept in a buffer.
+ * When the source becomes active the buffer is flushed through the new updater as a pipelined batch, so the topics
+ * are brought up to date without the producer rebuilding its state. Values published during the flush are added to
+ * the buffer, so the updates of each topic are sent in order.
+ * <p>
+ * While on standby the callback of an update is notified of success when the value is buffered. The result of
+ * sending the buffered values is available from {@link #getLastFlush()}.
+ * <p>
+ * Notifications are forwarded to the wrapped source. Its {@link TransformedUpdateSource#onActive(String,
+ * TransformedUpdater)} method receives the same updater as {@link #getUpdater()}. Each instance should be registered
+ * at a single topic path.
+ *
+ * @param <S> The type of value understood by the topic
+ * @param <T> The type of value updates are provided as
+ * @author Push Technology Limited
+ */
+public final class WarmStandbyUpdateSource<S, T> implements TransformedUpdateSource<S, T, TransformedUpdater<S, T>> {
+    private static final Logger LOG = LoggerFactory.getLogger(WarmStandbyUpdateSource.class);
+    private final LongAdder conflatedUpdates = new LongAdder();
+    private final StandbyUpdater updater = new StandbyUpdater();
+    private final TransformedUpdateSource<S, T, TransformedUpdater<S, T>> delegate;
+    private final int maxInFlight;
+    // Guarded by this
+    private final Map<String, T> buffer = new LinkedHashMap<>();
+    // Guarded by this
+    private TransformedUpdater<S, T> activeUpdater;
+    // Guarded by this
+    private Flush flush;
+    private volatile CompletableFuture<BatchUpdateResult> lastFlush =
+        completedFuture(new BatchUpdateResult(0, emptyMap(), emptyMap()));
+
+    private WarmStandbyUpdateSource(TransformedUpdateSource<S, T, TransformedUpdater<S, T>> delegate, int maxInFlight) {
+        this.delegate = delegate;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Create a warm standby source.
+     *
+     * @param delegate the source to forward notifications to
+     * @param maxInFlight the maximum number of buffered values waiting for a response from the server while flushing
+     * @param <S> The type of value understood by the topic
+     * @param <T> The type of value updates are provided as
+     * @return the source
+     * @throws IllegalArgumentException if {@code maxInFlight} is not positive
+     */
+    public static <S, T> WarmStandbyUpdateSource<S, T> create(
+            TransformedUpdateSource<S, T, TransformedUpdater<S, T>> delegate,
+            int maxInFlight) {
+
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("The number of updates in flight must be positive");
+        }
+
+        return new WarmStandbyUpdateSource<>(delegate, maxInFlight);
+    }
+
+    /**
+     * @return the updater to publish values through, whether the source is active or on standby
+     */
+    public TransformedUpdater<S, T> getUpdater() {
+        return updater;
+    }
+
+    /**
+     * @return the result of flushing the buffer when the source last became active
+     */
+    public CompletableFuture<BatchUpdateResult> getLastFlush() {
+        return lastFlush;
+    }
+
+    /**
+     * @return the number of topics with a buffered value
+     */
+    public synchronized int getBufferedTopicCount() {
+        return buffer.size();
+    }
+
+    /**
+     * @return the number of buffered values replaced by a later value of the same topic
+     */
+    public long getConflatedUpdates() {
+        return conflatedUpdates.sum();
+    }
+
+    @Override
+    public void onActive(String topicPath, TransformedUpdater<S, T> newUpdater) {
+        final Flush newFlush = new Flush();
+        synchronized (this) {
+            cancelFlush();
+            activeUpdater = newUpdater;
+            flush = newFlush;
+        }
+
+        final CompletableFuture<BatchUpdateResult> result =
+            new PipelinedUpdate<>(newUpdater, newFlush, maxInFlight).start();
+        result.whenComplete((batchResult, e) -> {
+            if (e != null) {
+                LOG.warn("Failed to flush the values buffered for '{}'", topicPath, e);
+            }
+            else if (!batchResult.isSuccessful()) {
+                LOG.warn("Failed to flush some of the values buffered for '{}': {}", topicPath, batchResult);
+            }
+        });
+        lastFlush = result;
+
+        delegate.onActive(topicPath, updater);
+    }
+
+    @Override
+    public void onStandby(String topicPath) {
+        toStandby();
+        delegate.onStandby(topicPath);
+    }
+
+    @Override
+    public void onRegistered(String topicPath, Registration registration) {
+        delegate.onRegistered(topicPath, registration);
+    }
+
+    @Override
+    public void onClose(String topicPath) {
+        toStandby();
+        delegate.onClose(topicPath);
+    }
+
+    @Override
+    public void onError(String topicPath, ErrorReason errorReason) {
+        toStandby();
+        delegate.onError(topicPath, errorReason);
+    }
+
+    private synchronized void toStandby() {
+        cancelFlush();
+        activeUpdater = null;
+    }
+
+    // Guarded by this
+    private void cancelFlush() {
+        if (flush != null) {
+            flush.cancel();
+            flush = null;
+        }
+    }
+
+    /**
+     * @return the updater to send a value to, or null if the value was buffered
+     */
+    private synchronized TransformedUpdater<S, T> sendOrBuffer(String topicPath, T value) {
+        if (activeUpdater != null && flush == null) {
+            return activeUpdater;
+        }
+
+        if (buffer.put(topicPath, value) != null) {
+            conflatedUpdates.increment();
+        }
+        return null;
+    }
+
+    /**
+     * The values of a flush, taken from the buffer as they are sent. The source becomes active once the buffer is
+     * empty.
+     */
+    private final class Flush implements Iterator<Map.Entry<String, T>> {
+        // Guarded by the source
+        private Map.Entry<String, T> nextEntry;
+        // Guarded by the source
+        private boolean cancelled;
+
+        @Override
+        public boolean hasNext() {
+            synchronized (WarmStandbyUpdateSource.this) {
+                if (nextEntry != null) {
+                    return true;
+                }
+                if (cancelled) {
+                    return false;
+                }
+                if (buffer.isEmpty()) {
+                    flush = null;
+                    return false;
+                }
+
+                final Iterator<Map.Entry<String, T>> entries = buffer.entrySet().iterator();
+                final Map.Entry<String, T> entry = entries.next();
+                entries.remove();
+                nextEntry = new SimpleImmutableEntry<>(entry);
+                return true;
+            }
+        }
+
+        @Override
+        public Map.Entry<String, T> next() {
+            synchronized (WarmStandbyUpdateSource.this) {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Map.Entry<String, T> entry = nextEntry;
+                nextEntry = null;
+                return entry;
+            }
+        }
+
+        /**
+         * Stop the flush. A value taken from the buffer but not sent is returned to it.
+         */
+        // Guarded by the source
+        private void cancel() {
+            cancelled = true;
+            if (nextEntry != null) {
+                buffer.putIfAbsent(nextEntry.getKey(), nextEntry.getValue());
+                nextEntry = null;
+            }
+        }
+    }
+
+    /**
+     * The updater the producer publishes through.
+     */
+    private final class StandbyUpdater implements TransformedUpdater<S, T> {
+        @Override
+        public void update(String topicPath, T value, UpdateCallback callback) throws TransformationException {
+            if (topicPath == null || value == null || callback == null) {
+                throw new IllegalArgumentException("Null arguments are not allowed");
+            }
+
+            final TransformedUpdater<S, T> target = sendOrBuffer(topicPath, value);
+            if (target == null) {
+                callback.onSuccess();
+            }
+            else {
+                target.update(topicPath, value, callback);
+            }
+        }
+
+        @Override
+        public <C> void update(String topicPath, T value, C context, UpdateContextCallback<C> callback)
+                throws TransformationException {
+            if (topicPath == null || value == null || callback == null) {
+                throw new IllegalArgumentException("Null arguments are not allowed");
+            }
+
+            final TransformedUpdater<S, T> target = sendOrBuffer(topicPath, value);
+            if (target == null) {
+                callback.onSuccess(context);
+            }
+            else {
+                target.update(topicPath, value, context, callback);
+            }
+        }
+
+        @Override
+        public ValueCache<S> untransformedValueCache() {
+            synchronized (WarmStandbyUpdateSource.this) {
+                if (activeUpdater == null) {
+                    throw new IllegalStateException("The update source is not active");
+                }
+                return activeUpdater.untransformedValueCache();
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link AsyncUpdaterImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class AsyncUpdaterImplTest {
+    @Mock
+    private TransformedUpdater<String, String> delegate;
+    @Captor
+    private ArgumentCaptor<UpdateCallback> callback;
+
+    /**
+     * The workers are not started, each test runs them on the test thread after closing the updater.
+     */
+    private final List<Runnable> workers = new ArrayList<>();
+    private final ThreadFactory threadFactory = runnable -> new Thread(runnable) {
+        @Override
+        public synchronized void start() {
+            workers.add(runnable);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        workers.clear();
+    }
+
+    @Test
+    public void sendOnWorker() throws Exception {
+        final AsyncUpdater<String> updater = createUpdater(1, 10, UpdateOverflowPolicy.block());
+
+        updater.update("topicOne", "first");
+        updater.update("topicTwo", "second");
+        updater.update("topicOne", "third");
+
+        verifyNoMoreInteractions(delegate);
+
+        updater.close();
+        runWorkers();
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).update(eq("topicOne"), eq("first"), any(UpdateCallback.class));
+        inOrder.verify(delegate).update(eq("topicTwo"), eq("second"), any(UpdateCallback.class));
+        inOrder.verify(delegate).update(eq("topicOne"), eq("third"), any(UpdateCallback.class));
+    }
+
+    @Test
+    public void topicOrderAcrossWorkers() throws Exception {
+        final AsyncUpdater<String> updater = createUpdater(4, 100, UpdateOverflowPolicy.block());
+
+        for (int i = 0; i < 20; i++) {
+            updater.update("topic" + (i % 5), "value" + i);
+        }
+
+        updater.close();
+        runWorkers();
+
+        assertEquals(4, workers.size());
+        final InOrder inOrder = inOrder(delegate);
+        for (int i = 0; i < 20; i += 5) {
+            inOrder.verify(delegate).update(eq("topic0"), eq("value" + i), any(UpdateCallback.class));
+        }
+    }
+
+    @Test
+    public void success() throws Exception {
+        final AsyncUpdater<String> updater = createUpdater(1, 10, UpdateOverflowPolicy.block());
+
+        final CompletableFuture<Void> future = updater.update("topic", "value");
+        updater.close();
+        runWorkers();
+
+        verify(delegate).update(eq("topic"), eq("value"), callback.capture());
+        assertFalse(future.isDone());
+
+        callback.getValue().onSuccess();
+
+        assertTrue(future.isDone());
+        assertFalse(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void error() throws Exception {
+        final AsyncUpdater<String> updater = createUpdater(1, 10, UpdateOverflowPolicy.block());
+
+        final CompletableFuture<Void> future = updater.update("topic", "value");
+        updater.close();
+        runWorkers();
+
+        verify(delegate).update(eq("topic"), eq("value"), callback.capture());
+        callback.getValue().onError(ErrorReason.INCOMPATIBLE_UPDATE);
+
+        final Throwable cause = failure(future);
+        assertTrue(cause instanceof UpdateFailedException);
+        assertSame(ErrorReason.INCOMPATIBLE_UPDATE, ((UpdateFailedException) cause).getErrorReason());
+    }
+
+    @Test
+    public void transformationFailure() throws Exception {
+        final TransformationException exception = new TransformationException("Intentionally thrown in test");
+        doThrow(exception).when(delegate).update(eq("topic"), eq("value"), any(UpdateCallback.class));
+        final AsyncUpdater<String> updater = createUpdater(1, 10, UpdateOverflowPolicy.block());
+
+        final CompletableFuture<Void> future = updater.update("topic", "value");
+        final CompletableFuture<Void> next = updater.update("topic", "next");
+        updater.close();
+        runWorkers();
+
+        assertSame(exception, failure(future));
+        assertFalse(next.isDone());
+        verify(delegate).update(eq("topic"), eq("next"), any(UpdateCallback.class));
+    }
+
+    @Test
+    public void dropNewest() throws Exception {
+        final AsyncUpdater<String> updater = createUpdater(1, 1, UpdateOverflowPolicy.dropNewest());
+
+        final CompletableFuture<Void> first = updater.update("topic", "first");
+        final CompletableFuture<Void> second = updater.update("topic", "second");
+
+        assertFalse(first.isDone());
+        assertTrue(failure(second) instanceof RejectedExecutionException);
+        assertEquals(1L, updater.getDropped());
+
+        updater.close();
+        runWorkers();
+
+        verify(delegate).update(eq("topic"), eq("first"), any(UpdateCallback.class));
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void dropOldest() throws Exception {
+        final AsyncUpdater<String> updater = createUpdater(1, 1, UpdateOverflowPolicy.dropOldest());
+
+        final CompletableFuture<Void> first = updater.update("topic", "first");
+        final CompletableFuture<Void> second = updater.update("topic", "second");
+
+        assertTrue(failure(first) instanceof RejectedExecutionException);
+        assertFalse(second.isDone());
+        assertEquals(1L, updater.getDropped());
+
+        updater.close();
+        runWorkers();
+
+        verify(delegate).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void updateAfterClose() throws Exception {
+        final AsyncUpdater<String> updater = createUpdater(1, 10, UpdateOverflowPolicy.block());
+        updater.close();
+
+        final CompletableFuture<Void> future = updater.update("topic", "value");
+        runWorkers();
+
+        assertTrue(failure(future) instanceof RejectedExecutionException);
+        assertEquals(0L, updater.getDropped());
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValue() {
+        createUpdater(1, 10, UpdateOverflowPolicy.block()).update("topic", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noWorkers() {
+        createUpdater(0, 10, UpdateOverflowPolicy.block());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noCapacity() {
+        createUpdater(1, 0, UpdateOverflowPolicy.block());
+    }
+
+    private AsyncUpdater<String> createUpdater(int stripes, int queueCapacity, UpdateOverflowPolicy policy) {
+        return new AsyncUpdaterImpl<>(delegate, stripes, queueCapacity, policy, threadFactory);
+    }
+
+    private void runWorkers() {
+        workers.forEach(Runnable::run);
+    }
+
+    private static Throwable failure(CompletableFuture<Void> future) throws InterruptedException {
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            throw new AssertionError("Expected the future to fail");
+        }
+        catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+}
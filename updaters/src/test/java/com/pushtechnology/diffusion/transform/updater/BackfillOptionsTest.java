@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BackfillOptions}.
+ *
+ * @author Push Technology Limited
+ */
+public final class BackfillOptionsTest {
+    @Test
+    public void defaults() {
+        final BackfillOptions options = BackfillOptions.defaults();
+
+        assertEquals(256, options.getMaxInFlight());
+        assertEquals(16, options.getInitialInFlight());
+        assertTrue(options.isAdaptive());
+        assertFalse(options.isSkipFailures());
+    }
+
+    @Test
+    public void initialLimitedByMax() {
+        final BackfillOptions options = BackfillOptions.builder().initialInFlight(64).maxInFlight(8).build();
+
+        assertEquals(8, options.getMaxInFlight());
+        assertEquals(8, options.getInitialInFlight());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxInFlightNotPositive() {
+        BackfillOptions.builder().maxInFlight(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initialInFlightNotPositive() {
+        BackfillOptions.builder().initialInFlight(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void progressIntervalNotPositive() {
+        BackfillOptions.builder().progress(0, status -> { });
+    }
+}
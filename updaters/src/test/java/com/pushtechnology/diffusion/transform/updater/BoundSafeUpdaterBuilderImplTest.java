@@ -112,7 +112,8 @@ public final class BoundSafeUpdaterBuilderImplTest {
         when(session.feature(TopicUpdateControl.class)).thenReturn(updateControl);
         when(session.feature(TimeSeries.class)).thenReturn(timeSeries);
 
-        updaterBuilder = new BoundSafeUpdaterBuilderImpl<>(session, JSON.class, identity(JSON.class));
+        updaterBuilder =
+            new BoundSafeUpdaterBuilderImpl<>(session, JSON.class, identity(JSON.class), UpdaterStage.none());
     }
 
     @After
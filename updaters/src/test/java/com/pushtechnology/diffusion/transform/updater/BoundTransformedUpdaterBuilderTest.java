@@ -106,7 +106,8 @@ public final class BoundTransformedUpdaterBuilderTest {
         updaterBuilder = new BoundTransformedUpdaterBuilderImpl<>(
             session,
             JSON.class,
-            toTransformer(identity(JSON.class)));
+            toTransformer(identity(JSON.class)),
+            UpdaterStage.none());
     }
 
     @After
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link CachingUpdaterImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class CachingUpdaterImplTest {
+    @Mock
+    private TransformedUpdater<String, String> delegate;
+    @Mock
+    private ValueCache<String> valueCache;
+    @Mock
+    private UpdateCallback callback;
+    @Mock
+    private UpdateContextCallback<String> contextCallback;
+    @Captor
+    private ArgumentCaptor<UpdateCallback> sent;
+    @Captor
+    private ArgumentCaptor<UpdateContextCallback<String>> sentWithContext;
+
+    private CachingUpdaterImpl<String, String> updater;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        updater = new CachingUpdaterImpl<>(delegate, 10);
+    }
+
+    @Test
+    public void cacheOnSuccess() throws Exception {
+        updater.update("topic", "value", callback);
+
+        verify(delegate).update(eq("topic"), eq("value"), sent.capture());
+        assertNull(updater.localValueCache().get("topic"));
+
+        sent.getValue().onSuccess();
+
+        verify(callback).onSuccess();
+        assertEquals("value", updater.localValueCache().get("topic"));
+    }
+
+    @Test
+    public void notCachedOnError() throws Exception {
+        updater.update("topic", "value", callback);
+
+        verify(delegate).update(eq("topic"), eq("value"), sent.capture());
+        sent.getValue().onError(ErrorReason.INCOMPATIBLE_UPDATE);
+
+        verify(callback).onError(ErrorReason.INCOMPATIBLE_UPDATE);
+        assertNull(updater.localValueCache().get("topic"));
+    }
+
+    @Test
+    public void lateSuccessDoesNotReplace() throws Exception {
+        updater.update("topic", "first", callback);
+        updater.update("topic", "second", callback);
+
+        verify(delegate).update(eq("topic"), eq("first"), sent.capture());
+        final UpdateCallback first = sent.getValue();
+        verify(delegate).update(eq("topic"), eq("second"), sent.capture());
+        final UpdateCallback second = sent.getValue();
+
+        second.onSuccess();
+        first.onSuccess();
+
+        assertEquals("second", updater.localValueCache().get("topic"));
+    }
+
+    @Test
+    public void cacheOnSuccessWithContext() throws Exception {
+        updater.update("topic", "value", "context", contextCallback);
+
+        verify(delegate).update(eq("topic"), eq("value"), eq("context"), sentWithContext.capture());
+        sentWithContext.getValue().onSuccess("context");
+
+        verify(contextCallback).onSuccess("context");
+        assertEquals("value", updater.localValueCache().get("topic"));
+    }
+
+    @Test
+    public void notCachedOnErrorWithContext() throws Exception {
+        updater.update("topic", "value", "context", contextCallback);
+
+        verify(delegate).update(eq("topic"), eq("value"), eq("context"), sentWithContext.capture());
+        sentWithContext.getValue().onError("context", ErrorReason.ACCESS_DENIED);
+
+        verify(contextCallback).onError("context", ErrorReason.ACCESS_DENIED);
+        assertNull(updater.localValueCache().get("topic"));
+    }
+
+    @Test(expected = TransformationException.class)
+    public void transformationFailure() throws Exception {
+        doThrow(new TransformationException("Intentionally thrown in test"))
+            .when(delegate)
+            .update(eq("topic"), eq("value"), any(UpdateCallback.class));
+
+        updater.update("topic", "value", callback);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValue() throws Exception {
+        updater.update("topic", null, callback);
+    }
+
+    @Test
+    public void untransformedValueCache() {
+        when(delegate.untransformedValueCache()).thenReturn(valueCache);
+
+        assertSame(valueCache, updater.untransformedValueCache());
+    }
+}
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link ConflatingUpdaterImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class ConflatingUpdaterImplTest {
+    @Mock
+    private TransformedUpdater<String, String> delegate;
+    @Mock
+    private UpdateCallback callbackOne;
+    @Mock
+    private UpdateCallback callbackTwo;
+    @Mock
+    private UpdateCallback callbackThree;
+    @Mock
+    private UpdateContextCallback<String> contextCallback;
+    @Captor
+    private ArgumentCaptor<UpdateCallback> sent;
+
+    private ConflatingUpdaterImpl<String, String> updater;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        updater = new ConflatingUpdaterImpl<>(delegate);
+    }
+
+    @Test
+    public void sendWhenIdle() throws Exception {
+        updater.update("topic", "first", callbackOne);
+
+        verify(delegate).update(eq("topic"), eq("first"), sent.capture());
+        sent.getValue().onSuccess();
+
+        verify(callbackOne).onSuccess();
+        assertEquals(0L, updater.getConflatedUpdates());
+    }
+
+    @Test
+    public void conflateWhileInFlight() throws Exception {
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "second", callbackTwo);
+        updater.update("topic", "third", callbackThree);
+
+        verify(delegate).update(eq("topic"), eq("first"), sent.capture());
+        verify(delegate, never()).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+        verify(delegate, never()).update(eq("topic"), eq("third"), any(UpdateCallback.class));
+        assertEquals(1L, updater.getConflatedUpdates());
+
+        sent.getValue().onSuccess();
+
+        verify(callbackOne).onSuccess();
+        verify(delegate, never()).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+        verify(delegate).update(eq("topic"), eq("third"), sent.capture());
+
+        sent.getValue().onSuccess();
+
+        verify(callbackTwo).onSuccess();
+        verify(callbackThree).onSuccess();
+    }
+
+    @Test
+    public void topicsIndependent() throws Exception {
+        updater.update("topicOne", "first", callbackOne);
+        updater.update("topicTwo", "first", callbackTwo);
+
+        verify(delegate).update(eq("topicOne"), eq("first"), any(UpdateCallback.class));
+        verify(delegate).update(eq("topicTwo"), eq("first"), any(UpdateCallback.class));
+        assertEquals(0L, updater.getConflatedUpdates());
+    }
+
+    @Test
+    public void idleAfterCompletion() throws Exception {
+        updater.update("topic", "first", callbackOne);
+        verify(delegate).update(eq("topic"), eq("first"), sent.capture());
+        sent.getValue().onSuccess();
+
+        updater.update("topic", "second", callbackTwo);
+
+        verify(delegate).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+    }
+
+    @Test
+    public void errorSendsPending() throws Exception {
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "second", callbackTwo);
+
+        verify(delegate).update(eq("topic"), eq("first"), sent.capture());
+        sent.getValue().onError(ErrorReason.INCOMPATIBLE_UPDATE);
+
+        verify(callbackOne).onError(ErrorReason.INCOMPATIBLE_UPDATE);
+        verify(delegate).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+    }
+
+    @Test
+    public void pendingTransformationFailure() throws Exception {
+        doThrow(new TransformationException("Intentionally thrown in test"))
+            .when(delegate)
+            .update(eq("topic"), eq("bad"), any(UpdateCallback.class));
+
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "bad", callbackTwo);
+
+        verify(delegate).update(eq("topic"), eq("first"), sent.capture());
+        sent.getValue().onSuccess();
+
+        verify(callbackTwo).onError(ErrorReason.INCOMPATIBLE_UPDATE);
+
+        updater.update("topic", "second", callbackThree);
+        verify(delegate).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+    }
+
+    @Test
+    public void pendingRuntimeException() throws Exception {
+        doThrow(new IllegalStateException("Intentionally thrown in test"))
+            .when(delegate)
+            .update(eq("topic"), eq("bad"), any(UpdateCallback.class));
+
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "bad", callbackTwo);
+
+        verify(delegate).update(eq("topic"), eq("first"), sent.capture());
+        sent.getValue().onSuccess();
+
+        verify(callbackTwo).onError(ErrorReason.INCOMPATIBLE_UPDATE);
+        assertEquals(0, updater.activeTopicCount());
+
+        updater.update("topic", "second", callbackThree);
+        verify(delegate).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+    }
+
+    @Test
+    public void removeIdleTopics() throws Exception {
+        updater.update("topicOne", "first", callbackOne);
+        updater.update("topicOne", "second", callbackTwo);
+        updater.update("topicTwo", "first", callbackThree);
+        assertEquals(2, updater.activeTopicCount());
+
+        verify(delegate).update(eq("topicTwo"), eq("first"), sent.capture());
+        sent.getValue().onSuccess();
+        assertEquals(1, updater.activeTopicCount());
+
+        verify(delegate).update(eq("topicOne"), eq("first"), sent.capture());
+        sent.getValue().onSuccess();
+        assertEquals(1, updater.activeTopicCount());
+
+        verify(delegate).update(eq("topicOne"), eq("second"), sent.capture());
+        sent.getValue().onSuccess();
+        assertEquals(0, updater.activeTopicCount());
+    }
+
+    @Test(expected = TransformationException.class)
+    public void immediateTransformationFailure() throws Exception {
+        doThrow(new TransformationException("Intentionally thrown in test"))
+            .when(delegate)
+            .update(eq("topic"), eq("bad"), any(UpdateCallback.class));
+
+        try {
+            updater.update("topic", "bad", callbackOne);
+        }
+        finally {
+            updater.update("topic", "second", callbackTwo);
+            verify(delegate).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+            verifyNoMoreInteractions(callbackOne);
+        }
+    }
+
+    @Test
+    public void updateWithContext() throws Exception {
+        updater.update("topic", "first", "context", contextCallback);
+
+        verify(delegate).update(eq("topic"), eq("first"), sent.capture());
+        sent.getValue().onSuccess();
+        sent.getValue().onError(ErrorReason.ACCESS_DENIED);
+
+        verify(contextCallback).onSuccess("context");
+        verify(contextCallback).onError("context", ErrorReason.ACCESS_DENIED);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValue() throws Exception {
+        updater.update("topic", null, callbackOne);
+    }
+
+    @Test
+    public void conflatedCount() throws Exception {
+        updater.update("topic", "first", callbackOne);
+        for (int i = 0; i < 10; i++) {
+            updater.update("topic", "value" + i, callbackTwo);
+        }
+
+        assertEquals(9L, updater.getConflatedUpdates());
+        verify(delegate, times(1)).update(eq("topic"), any(String.class), any(UpdateCallback.class));
+    }
+}
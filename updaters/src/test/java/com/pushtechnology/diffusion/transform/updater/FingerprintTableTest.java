@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link FingerprintTable}.
+ *
+ * @author Push Technology Limited
+ */
+public final class FingerprintTableTest {
+    private FingerprintTable table;
+
+    @Before
+    public void setUp() {
+        table = new FingerprintTable();
+    }
+
+    @Test
+    public void matchesOnlyWhenConfirmed() {
+        table.sent(1L, 1L, 100L, null);
+        assertFalse(table.matches(1L, 100L, null));
+
+        table.confirm(1L, 1L);
+        assertTrue(table.matches(1L, 100L, null));
+        assertFalse(table.matches(1L, 101L, null));
+        assertFalse(table.matches(2L, 100L, null));
+    }
+
+    @Test
+    public void laterSendIgnoresEarlierConfirmation() {
+        table.sent(1L, 1L, 100L, null);
+        table.sent(1L, 2L, 200L, null);
+        table.confirm(1L, 1L);
+
+        assertFalse(table.matches(1L, 100L, null));
+        assertFalse(table.matches(1L, 200L, null));
+
+        table.confirm(1L, 2L);
+        assertTrue(table.matches(1L, 200L, null));
+    }
+
+    @Test
+    public void failedRemoves() {
+        table.sent(1L, 1L, 100L, null);
+        table.confirm(1L, 1L);
+        table.sent(1L, 2L, 100L, null);
+        table.failed(1L, 2L);
+
+        assertFalse(table.matches(1L, 100L, null));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void compareBytes() {
+        table.sent(1L, 1L, 100L, new byte[] {1, 2, 3});
+        table.confirm(1L, 1L);
+
+        assertTrue(table.matches(1L, 100L, new byte[] {1, 2, 3}));
+        assertFalse(table.matches(1L, 100L, new byte[] {1, 2, 4}));
+    }
+
+    @Test
+    public void clear() {
+        table.sent(1L, 1L, 100L, null);
+        table.confirm(1L, 1L);
+        table.clear();
+
+        assertFalse(table.matches(1L, 100L, null));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void growAndRemoveColliding() {
+        // Keys sharing their low bits probe the same slots
+        for (long i = 1; i <= 1000; i++) {
+            final long key = i << 32 | 7L;
+            table.sent(key, i, i, null);
+            table.confirm(key, i);
+        }
+        assertEquals(1000, table.size());
+
+        for (long i = 1; i <= 1000; i += 2) {
+            table.failed(i << 32 | 7L, i);
+        }
+        assertEquals(500, table.size());
+
+        for (long i = 1; i <= 1000; i++) {
+            assertEquals(i % 2 == 0, table.matches(i << 32 | 7L, i, null));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.datatype.Bytes;
+import com.pushtechnology.diffusion.datatype.DataType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link FingerprintingValueUpdater}.
+ *
+ * @author Push Technology Limited
+ */
+public final class FingerprintingValueUpdaterTest {
+    @Mock
+    private TopicUpdateControl.ValueUpdater<String> delegate;
+    @Mock
+    private DataType<String> dataType;
+    @Mock
+    private Bytes bytesOne;
+    @Mock
+    private Bytes bytesTwo;
+    @Mock
+    private UpdateCallback callback;
+    @Mock
+    private UpdateContextCallback<String> contextCallback;
+    @Captor
+    private ArgumentCaptor<UpdateCallback> sent;
+    @Captor
+    private ArgumentCaptor<UpdateContextCallback<String>> sentWithContext;
+
+    private FingerprintingValueUpdater<String> updater;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(dataType.toBytes("one")).thenReturn(bytesOne);
+        when(dataType.toBytes("two")).thenReturn(bytesTwo);
+        when(bytesOne.toByteArray()).thenReturn(new byte[] {1});
+        when(bytesTwo.toByteArray()).thenReturn(new byte[] {2});
+
+        updater = new FingerprintingValueUpdater<>(delegate, dataType, true);
+    }
+
+    @After
+    public void postConditions() {
+        verifyNoMoreInteractions(delegate, callback, contextCallback);
+    }
+
+    @Test
+    public void skipUnchanged() {
+        updater.update("topic", "one", callback);
+        verify(delegate).update(eq("topic"), eq("one"), sent.capture());
+        sent.getValue().onSuccess();
+
+        updater.update("topic", "one", callback);
+
+        verify(callback, times(2)).onSuccess();
+        assertEquals(1, updater.fingerprintCount());
+    }
+
+    @Test
+    public void sendChanged() {
+        updater.update("topic", "one", callback);
+        verify(delegate).update(eq("topic"), eq("one"), sent.capture());
+        sent.getValue().onSuccess();
+
+        updater.update("topic", "two", callback);
+
+        verify(delegate).update(eq("topic"), eq("two"), isA(UpdateCallback.class));
+        verify(callback).onSuccess();
+    }
+
+    @Test
+    public void sendToOtherTopic() {
+        updater.update("topic", "one", callback);
+        verify(delegate).update(eq("topic"), eq("one"), sent.capture());
+        sent.getValue().onSuccess();
+
+        updater.update("otherTopic", "one", callback);
+
+        verify(delegate).update(eq("otherTopic"), eq("one"), isA(UpdateCallback.class));
+        verify(callback).onSuccess();
+    }
+
+    @Test
+    public void sendWhileUnconfirmed() {
+        updater.update("topic", "one", callback);
+        updater.update("topic", "one", callback);
+
+        verify(delegate, times(2)).update(eq("topic"), eq("one"), isA(UpdateCallback.class));
+    }
+
+    @Test
+    public void sendAfterError() {
+        updater.update("topic", "one", callback);
+        verify(delegate).update(eq("topic"), eq("one"), sent.capture());
+        sent.getValue().onError(ErrorReason.ACCESS_DENIED);
+
+        updater.update("topic", "one", callback);
+
+        verify(callback).onError(ErrorReason.ACCESS_DENIED);
+        verify(delegate, times(2)).update(eq("topic"), eq("one"), isA(UpdateCallback.class));
+    }
+
+    @Test
+    public void skipUnchangedWithContext() {
+        updater.update("topic", "one", "context", contextCallback);
+        verify(delegate).update(eq("topic"), eq("one"), eq("context"), sentWithContext.capture());
+        sentWithContext.getValue().onSuccess("context");
+
+        updater.update("topic", "one", "context", contextCallback);
+
+        verify(contextCallback, times(2)).onSuccess("context");
+    }
+
+    @Test
+    public void removeCachedValues() {
+        updater.update("topic", "one", callback);
+        verify(delegate).update(eq("topic"), eq("one"), sent.capture());
+        sent.getValue().onSuccess();
+
+        updater.removeCachedValues("?topic");
+        updater.update("topic", "one", callback);
+
+        verify(delegate).removeCachedValues("?topic");
+        verify(delegate, times(2)).update(eq("topic"), eq("one"), isA(UpdateCallback.class));
+        verify(callback).onSuccess();
+    }
+
+    @Test
+    public void getCachedValue() {
+        when(delegate.getCachedValue("topic")).thenReturn("one");
+
+        assertEquals("one", updater.getCachedValue("topic"));
+
+        verify(delegate).getCachedValue("topic");
+    }
+
+    @Test
+    public void hashes() {
+        assertNotEquals(0L, FingerprintingValueUpdater.hashPath(""));
+        assertNotEquals(FingerprintingValueUpdater.hashPath("a/b"), FingerprintingValueUpdater.hashPath("a/c"));
+        assertEquals(
+            FingerprintingValueUpdater.hashBytes(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9}),
+            FingerprintingValueUpdater.hashBytes(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9}));
+        assertNotEquals(
+            FingerprintingValueUpdater.hashBytes(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9}),
+            FingerprintingValueUpdater.hashBytes(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 0}));
+        assertNotEquals(
+            FingerprintingValueUpdater.hashBytes(new byte[] {0}),
+            FingerprintingValueUpdater.hashBytes(new byte[] {0, 0}));
+    }
+}
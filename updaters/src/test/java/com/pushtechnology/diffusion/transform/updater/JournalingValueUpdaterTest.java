@@ -0,0 +1,389 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.datatype.Bytes;
+import com.pushtechnology.diffusion.datatype.DataType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link JournalingValueUpdater}.
+ *
+ * @author Push Technology Limited
+ */
+public final class JournalingValueUpdaterTest {
+    @Mock
+    private TopicUpdateControl.ValueUpdater<String> delegate;
+    @Mock
+    private DataType<String> dataType;
+    @Mock
+    private Bytes firstBytes;
+    @Mock
+    private Bytes secondBytes;
+    @Mock
+    private Session session;
+    @Mock
+    private UpdateCallback callback;
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Captor
+    private ArgumentCaptor<UpdateContextCallback<String>> replayed;
+    @Captor
+    private ArgumentCaptor<Runnable> retry;
+
+    private Path directory;
+    private OutboundJournal journal;
+    private JournalingValueUpdater<String> updater;
+
+    @Before
+    public void setUp() throws IOException {
+        initMocks(this);
+
+        when(dataType.toBytes("first")).thenReturn(firstBytes);
+        when(dataType.toBytes("second")).thenReturn(secondBytes);
+        when(firstBytes.toByteArray()).thenReturn("first".getBytes(UTF_8));
+        when(secondBytes.toByteArray()).thenReturn("second".getBytes(UTF_8));
+        when(dataType.readValue(any(byte[].class)))
+            .thenAnswer(invocation -> new String((byte[]) invocation.getArguments()[0], UTF_8));
+
+        directory = Files.createTempDirectory("outbound");
+        journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler);
+        updater = new JournalingValueUpdater<>(session, delegate, dataType, journal);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void sendWhileConnected() {
+        connect();
+
+        updater.update("a", "first", callback);
+
+        verify(delegate).update("a", "first", callback);
+        assertEquals(0L, journal.getJournaledUpdates());
+    }
+
+    @Test
+    public void journalWhileDisconnected() {
+        updater.update("a", "first", callback);
+
+        verify(callback).onSuccess();
+        verify(delegate, never()).update(anyString(), anyString(), any(UpdateCallback.class));
+        assertEquals(1L, journal.getJournaledUpdates());
+    }
+
+    @Test
+    public void journalAfterDisconnect() {
+        connect();
+        updater.onSessionStateChanged(
+            session,
+            Session.State.CONNECTED_ACTIVE,
+            Session.State.RECOVERING_RECONNECT);
+
+        updater.update("a", "first", callback);
+
+        verify(callback).onSuccess();
+        assertEquals(1L, journal.getJournaledUpdates());
+    }
+
+    @Test
+    public void replayOnReconnect() {
+        updater.update("a", "first", callback);
+        updater.update("b", "second", callback);
+
+        connect();
+
+        assertTrue(journal.isReplaying());
+        verify(delegate).update(eq("a"), eq("first"), eq("a"), replayed.capture());
+        verify(delegate).update(eq("b"), eq("second"), eq("b"), replayed.capture());
+        completeReplayed("a", "b");
+
+        assertFalse(journal.isReplaying());
+        assertTrue(journal.isEmpty());
+        assertEquals(2L, journal.getReplayedUpdates());
+
+        updater.update("a", "second", callback);
+
+        verify(delegate).update("a", "second", callback);
+    }
+
+    @Test
+    public void journalDuringReplay() {
+        updater.update("a", "first", callback);
+        connect();
+
+        updater.update("a", "second", callback);
+
+        verify(delegate, never()).update(anyString(), anyString(), any(UpdateCallback.class));
+        verify(delegate).update(eq("a"), eq("first"), eq("a"), replayed.capture());
+        completeReplayed("a");
+
+        verify(delegate, times(2)).update(eq("a"), anyString(), eq("a"), replayed.capture());
+        completeReplayed("a");
+
+        assertFalse(journal.isReplaying());
+        assertEquals(2L, journal.getReplayedUpdates());
+    }
+
+    @Test
+    public void conflateReplay() throws IOException {
+        journal.close();
+        journal = OutboundJournal.builder().segmentSize(4096).conflateReplay(true).open(directory, scheduler);
+        updater = new JournalingValueUpdater<>(session, delegate, dataType, journal);
+
+        updater.update("a", "first", callback);
+        updater.update("a", "second", callback);
+        connect();
+
+        verify(delegate).update(eq("a"), eq("second"), eq("a"), replayed.capture());
+        verify(delegate, never()).update(eq("a"), eq("first"), eq("a"), any());
+        completeReplayed("a");
+
+        assertEquals(1L, journal.getReplayedUpdates());
+    }
+
+    @Test
+    public void failedReplays() {
+        updater.update("a", "first", callback);
+        connect();
+
+        verify(delegate).update(eq("a"), eq("first"), eq("a"), replayed.capture());
+        replayed.getValue().onError("a", ErrorReason.ACCESS_DENIED);
+
+        assertEquals(1L, journal.getFailedReplays());
+        assertTrue(journal.isEmpty());
+    }
+
+    @Test
+    public void disconnectDuringReplay() {
+        updater.update("a", "first", callback);
+        connect();
+        verify(delegate).update(eq("a"), eq("first"), eq("a"), replayed.capture());
+
+        updater.onSessionStateChanged(
+            session,
+            Session.State.CONNECTED_ACTIVE,
+            Session.State.RECOVERING_RECONNECT);
+        replayed.getValue().onError("a", ErrorReason.COMMUNICATION_FAILURE);
+
+        assertFalse(journal.isReplaying());
+        assertFalse(journal.isEmpty());
+
+        connect();
+
+        verify(delegate, times(2)).update(eq("a"), eq("first"), eq("a"), replayed.capture());
+    }
+
+    @Test
+    public void retryAfterReplayException() {
+        doThrow(new IllegalStateException("Intentionally thrown in test"))
+            .doNothing()
+            .when(delegate)
+            .update(eq("a"), eq("first"), eq("a"), replayed.capture());
+        updater.update("a", "first", callback);
+        connect();
+
+        verify(scheduler).schedule(retry.capture(), eq(100L), eq(TimeUnit.MILLISECONDS));
+        assertFalse(journal.isReplaying());
+        assertFalse(journal.isEmpty());
+
+        updater.update("a", "second", callback);
+        verify(delegate, never()).update(anyString(), anyString(), any(UpdateCallback.class));
+
+        retry.getValue().run();
+        verify(delegate, times(2)).update(eq("a"), eq("first"), eq("a"), replayed.capture());
+        completeReplayed("a");
+        verify(delegate).update(eq("a"), eq("second"), eq("a"), replayed.capture());
+        completeReplayed("a");
+
+        assertTrue(journal.isEmpty());
+        updater.update("a", "third", callback);
+        verify(delegate).update("a", "third", callback);
+    }
+
+    @Test
+    public void retryBackoff() {
+        doThrow(new IllegalStateException("Intentionally thrown in test"))
+            .when(delegate)
+            .update(eq("a"), eq("first"), eq("a"), replayed.capture());
+        updater.update("a", "first", callback);
+        connect();
+
+        verify(scheduler).schedule(retry.capture(), eq(100L), eq(TimeUnit.MILLISECONDS));
+        retry.getValue().run();
+        verify(scheduler).schedule(retry.capture(), eq(200L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void deleteEachReplayedSegment() {
+        for (int i = 0; i < 5; i++) {
+            updater.update("a", "first", callback);
+        }
+        when(dataType.toBytes("large")).thenReturn(firstBytes);
+        when(firstBytes.toByteArray()).thenReturn(new byte[3000]);
+        updater.update("a", "large", callback);
+        updater.update("a", "large", callback);
+        assertEquals(2 * 4096L, journal.getDiskUsage());
+
+        doNothing().when(delegate).update(eq("a"), any(), eq("a"), replayed.capture());
+        connect();
+        verify(delegate, times(6)).update(eq("a"), any(), eq("a"), any());
+        completeReplayed("a", "a", "a", "a", "a", "a");
+
+        assertEquals(4096L, journal.getDiskUsage());
+        assertTrue(journal.isReplaying());
+    }
+
+    @Test
+    public void appendDuringMultiSegmentReplay() {
+        when(dataType.toBytes("large")).thenReturn(secondBytes);
+        when(secondBytes.toByteArray()).thenReturn(new byte[3000]);
+        updater.update("a", "large", callback);
+        updater.update("a", "large", callback);
+        updater.update("a", "large", callback);
+        assertEquals(3 * 4096L, journal.getDiskUsage());
+
+        doNothing().when(delegate).update(eq("a"), any(), eq("a"), replayed.capture());
+        connect();
+        updater.update("b", "first", callback);
+        completeReplayed("a");
+        updater.update("b", "first", callback);
+
+        // Only the last segment is completed for the replay
+        assertEquals(2 * 4096L, journal.getDiskUsage());
+        completeReplayed("a");
+        updater.update("b", "first", callback);
+
+        assertEquals(2 * 4096L, journal.getDiskUsage());
+        verify(delegate, times(3)).update(eq("a"), any(), eq("a"), any());
+        verify(delegate, times(2)).update(eq("b"), eq("first"), eq("b"), any());
+    }
+
+    @Test
+    public void quarantineUnreadableSegment() throws IOException {
+        updater.update("a", "first", callback);
+        final Path segment = journal.seal().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // A record length longer than the segment
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f, 0, 0, 0}), 0L);
+        }
+
+        connect();
+
+        assertTrue(journal.isEmpty());
+        assertFalse(journal.isReplaying());
+        assertEquals(1L, journal.getQuarantinedSegments());
+        assertTrue(Files.exists(segment.resolveSibling(segment.getFileName() + ".quarantined")));
+        verify(delegate, never()).update(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    public void detachedUpdaterSendsDirectly() {
+        journal.attach(updater);
+        JournalingValueUpdater.create(session, delegate, String.class, journal);
+
+        verify(session).removeListener(updater);
+        updater.update("a", "first", callback);
+
+        verify(delegate).update("a", "first", callback);
+        assertEquals(0L, journal.getJournaledUpdates());
+    }
+
+    @Test
+    public void handOverReplay() {
+        journal.attach(updater);
+        updater.update("a", "first", callback);
+        connect();
+        verify(delegate).update(eq("a"), eq("first"), eq("a"), replayed.capture());
+
+        when(session.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+        final JournalingValueUpdater<String> nextUpdater =
+            JournalingValueUpdater.create(session, delegate, String.class, journal);
+        nextUpdater.update("b", "second", callback);
+        verify(delegate, never()).update(eq("b"), anyString(), any(UpdateCallback.class));
+
+        completeReplayed("a");
+        verify(delegate).update(eq("b"), eq("second"), eq("b"), replayed.capture());
+        completeReplayed("b");
+
+        assertFalse(journal.isReplaying());
+        assertTrue(journal.isEmpty());
+        nextUpdater.update("c", "third", callback);
+        verify(delegate).update("c", "third", callback);
+    }
+
+    @Test
+    public void rejectWhenJournalClosed() {
+        journal.close();
+
+        updater.update("a", "first", callback);
+
+        verify(callback).onError(ErrorReason.COMMUNICATION_FAILURE);
+    }
+
+    private void connect() {
+        updater.onSessionStateChanged(session, Session.State.RECOVERING_RECONNECT, Session.State.CONNECTED_ACTIVE);
+    }
+
+    private void completeReplayed(String... topicPaths) {
+        for (String topicPath : topicPaths) {
+            replayed.getValue().onSuccess(topicPath);
+        }
+    }
+}
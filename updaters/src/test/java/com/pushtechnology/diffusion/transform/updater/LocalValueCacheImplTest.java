@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LocalValueCacheImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class LocalValueCacheImplTest {
+    private LocalValueCacheImpl<String> cache;
+
+    @Before
+    public void setUp() {
+        cache = new LocalValueCacheImpl<>(3);
+    }
+
+    @Test
+    public void getMissing() {
+        assertNull(cache.get("topic"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void putAndGet() {
+        cache.put("topic", "value", 1L);
+
+        assertEquals("value", cache.get("topic"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void laterUpdateReplaces() {
+        cache.put("topic", "first", 1L);
+        cache.put("topic", "second", 2L);
+
+        assertEquals("second", cache.get("topic"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void earlierUpdateIgnored() {
+        cache.put("topic", "second", 2L);
+        cache.put("topic", "first", 1L);
+
+        assertEquals("second", cache.get("topic"));
+    }
+
+    @Test
+    public void evictUnreferenced() {
+        cache.put("a", "a", 1L);
+        cache.put("b", "b", 2L);
+        cache.put("c", "c", 3L);
+        cache.get("a");
+        cache.get("c");
+
+        cache.put("d", "d", 4L);
+
+        assertNull(cache.get("b"));
+        assertEquals("a", cache.get("a"));
+        assertEquals("c", cache.get("c"));
+        assertEquals("d", cache.get("d"));
+        assertEquals(3, cache.size());
+        assertEquals(1L, cache.getEvictions());
+    }
+
+    @Test
+    public void evictWhenAllReferenced() {
+        cache.put("a", "a", 1L);
+        cache.put("b", "b", 2L);
+        cache.put("c", "c", 3L);
+        cache.get("a");
+        cache.get("b");
+        cache.get("c");
+
+        cache.put("d", "d", 4L);
+
+        assertNull(cache.get("a"));
+        assertEquals(3, cache.size());
+        assertEquals(1L, cache.getEvictions());
+    }
+
+    @Test
+    public void replacementKeepsReference() {
+        cache.put("a", "a", 1L);
+        cache.put("b", "b", 2L);
+        cache.put("c", "c", 3L);
+        cache.get("a");
+        cache.put("a", "a2", 4L);
+
+        cache.put("d", "d", 5L);
+
+        assertEquals("a2", cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void removeFreesSlot() {
+        cache.put("a", "a", 1L);
+        cache.put("b", "b", 2L);
+        cache.put("c", "c", 3L);
+
+        cache.remove("b");
+        cache.put("d", "d", 4L);
+
+        assertNull(cache.get("b"));
+        assertEquals("a", cache.get("a"));
+        assertEquals("c", cache.get("c"));
+        assertEquals("d", cache.get("d"));
+        assertEquals(0L, cache.getEvictions());
+    }
+
+    @Test
+    public void removeMissing() {
+        cache.remove("topic");
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void clear() {
+        cache.put("a", "a", 1L);
+        cache.put("b", "b", 2L);
+        cache.put("c", "c", 3L);
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+
+        cache.put("d", "d", 4L);
+        cache.put("e", "e", 5L);
+        cache.put("f", "f", 6L);
+        assertEquals(3, cache.size());
+        assertEquals(0L, cache.getEvictions());
+    }
+
+    @Test
+    public void removeRejectsEarlierUpdates() {
+        final long removedSequence = cache.startUpdate("topic");
+        cache.remove("topic");
+        final long laterSequence = cache.startUpdate("topic");
+
+        cache.put("topic", "removed", removedSequence);
+        assertNull(cache.get("topic"));
+
+        cache.put("topic", "later", laterSequence);
+        assertEquals("later", cache.get("topic"));
+    }
+
+    @Test
+    public void clearRejectsEarlierUpdates() {
+        final long clearedSequence = cache.startUpdate("topic");
+        cache.clear();
+
+        cache.put("topic", "cleared", clearedSequence);
+
+        assertNull(cache.get("topic"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void evictionRejectsEarlierUpdates() {
+        final long earlierSequence = cache.startUpdate("a");
+        cache.put("a", "a", cache.startUpdate("a"));
+        final long laterSequence = cache.startUpdate("a");
+        cache.put("b", "b", cache.startUpdate("b"));
+        cache.put("c", "c", cache.startUpdate("c"));
+        cache.put("d", "d", cache.startUpdate("d"));
+
+        cache.put("a", "earlier", earlierSequence);
+        assertNull(cache.get("a"));
+
+        cache.put("a", "later", laterSequence);
+        assertEquals("later", cache.get("a"));
+    }
+
+    @Test
+    public void failedUpdateForgotten() {
+        final long failedSequence = cache.startUpdate("topic");
+        cache.failUpdate("topic");
+        cache.remove("topic");
+
+        cache.put("topic", "value", failedSequence);
+
+        assertEquals("value", cache.get("topic"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new LocalValueCacheImpl<String>(0);
+    }
+}
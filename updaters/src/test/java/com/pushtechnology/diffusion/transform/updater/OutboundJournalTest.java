@@ -0,0 +1,311 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link OutboundJournal}.
+ *
+ * @author Push Technology Limited
+ */
+public final class OutboundJournalTest {
+    private Path directory;
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("outbound");
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        scheduler.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void empty() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            assertTrue(journal.isEmpty());
+            assertEquals(0L, journal.getDiskUsage());
+            assertEquals(0, journal.seal().size());
+        }
+    }
+
+    @Test
+    public void appendAndReplay() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            assertTrue(journal.append("a", bytes("first")));
+            assertTrue(journal.append("b", bytes("second")));
+
+            assertFalse(journal.isEmpty());
+            assertEquals(4096L, journal.getDiskUsage());
+            assertEquals(2L, journal.getJournaledUpdates());
+
+            final List<Path> sealed = journal.seal();
+            assertEquals(asList("a=first", "b=second"), read(journal.records(sealed)));
+
+            journal.delete(sealed);
+            assertTrue(journal.isEmpty());
+            assertEquals(0L, journal.getDiskUsage());
+        }
+    }
+
+    @Test
+    public void appendAfterSeal() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            journal.append("a", bytes("first"));
+            final List<Path> sealed = journal.seal();
+            journal.append("a", bytes("second"));
+
+            assertEquals(asList("a=first"), read(journal.records(sealed)));
+            journal.delete(sealed);
+
+            assertFalse(journal.isEmpty());
+            assertEquals(asList("a=second"), read(journal.records(journal.seal())));
+        }
+    }
+
+    @Test
+    public void sealEmptySegment() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            journal.append("a", bytes("first"));
+            journal.delete(journal.seal());
+            journal.append("a", bytes("second"));
+            journal.delete(journal.seal());
+
+            assertTrue(journal.isEmpty());
+            assertEquals(0, journal.seal().size());
+        }
+    }
+
+    @Test
+    public void rollSegments() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(journal.append("path", new byte[1000]));
+            }
+
+            assertEquals(3 * 4096L, journal.getDiskUsage());
+            assertEquals(10, read(journal.records(journal.seal())).size());
+        }
+    }
+
+    @Test
+    public void nextReplaySegment() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            journal.append("a", new byte[3000]);
+            journal.append("b", new byte[3000]);
+
+            final Path first = journal.nextReplaySegment();
+            journal.append("c", bytes("first"));
+            assertEquals(2 * 4096L, journal.getDiskUsage());
+            journal.delete(asList(first));
+
+            final Path second = journal.nextReplaySegment();
+            journal.append("c", bytes("second"));
+            assertEquals(2 * 4096L, journal.getDiskUsage());
+            assertEquals(2, read(journal.records(asList(second))).size());
+        }
+    }
+
+    @Test
+    public void rejectWhenFull() throws IOException {
+        try (OutboundJournal journal =
+            OutboundJournal.builder().segmentSize(4096).maxBytes(8192).open(directory, scheduler)) {
+            for (int i = 0; i < 8; i++) {
+                assertTrue(journal.append("path", new byte[1000]));
+            }
+
+            assertFalse(journal.append("path", new byte[1000]));
+            assertEquals(8L, journal.getJournaledUpdates());
+            assertEquals(1L, journal.getRejectedUpdates());
+            assertEquals(8192L, journal.getDiskUsage());
+        }
+    }
+
+    @Test
+    public void rejectTooLarge() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            assertFalse(journal.append("path", new byte[4096]));
+            assertEquals(1L, journal.getRejectedUpdates());
+        }
+    }
+
+    @Test
+    public void rejectWhenClosed() throws IOException {
+        final OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler);
+        journal.close();
+
+        assertFalse(journal.append("path", bytes("value")));
+        assertEquals(1L, journal.getRejectedUpdates());
+    }
+
+    @Test
+    public void replayExistingSegments() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            journal.append("a", bytes("first"));
+        }
+
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            assertFalse(journal.isEmpty());
+            journal.append("a", bytes("second"));
+
+            assertEquals(asList("a=first", "a=second"), read(journal.records(journal.seal())));
+        }
+    }
+
+    @Test
+    public void missingSegment() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            final OutboundJournal.Records records = journal.records(asList(directory.resolve("missing")));
+
+            assertFalse(records.hasNext());
+            assertEquals(asList(directory.resolve("missing")), records.getUnreadableSegments());
+        }
+    }
+
+    @Test
+    public void malformedRecord() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            journal.append("a", bytes("first"));
+            journal.append("b", bytes("second"));
+            journal.seal();
+            journal.append("c", bytes("third"));
+            final List<Path> sealed = journal.seal();
+
+            // Corrupt the value length of the second record of the first segment
+            try (FileChannel channel = FileChannel.open(sealed.get(0), StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[] {0x7f}), 16L + 4L + 2L + 1L);
+            }
+
+            final OutboundJournal.Records records = journal.records(sealed);
+            assertEquals("a", records.next().getKey());
+            assertEquals("c", records.next().getKey());
+            assertFalse(records.hasNext());
+            assertEquals(asList(sealed.get(0)), records.getUnreadableSegments());
+        }
+    }
+
+    @Test
+    public void quarantine() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            journal.append("a", bytes("first"));
+            final List<Path> sealed = journal.seal();
+
+            journal.quarantine(sealed);
+
+            assertTrue(journal.isEmpty());
+            assertEquals(1L, journal.getQuarantinedSegments());
+            assertFalse(Files.exists(sealed.get(0)));
+            assertTrue(Files.exists(sealed.get(0).resolveSibling(sealed.get(0).getFileName() + ".quarantined")));
+        }
+
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    @Test
+    public void retryDelay() throws IOException {
+        try (OutboundJournal journal = OutboundJournal
+            .builder()
+            .replayRetryDelay(100L, 1000L, TimeUnit.MILLISECONDS)
+            .open(directory, scheduler)) {
+
+            assertEquals(100L, journal.retryDelay(1));
+            assertEquals(200L, journal.retryDelay(2));
+            assertEquals(800L, journal.retryDelay(4));
+            assertEquals(1000L, journal.retryDelay(5));
+            assertEquals(1000L, journal.retryDelay(Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void metrics() throws IOException {
+        try (OutboundJournal journal = OutboundJournal.builder().segmentSize(4096).open(directory, scheduler)) {
+            assertTrue(journal.startReplaying());
+            journal.recordReplayed();
+            journal.recordFailedReplays(2);
+
+            assertTrue(journal.isReplaying());
+            assertFalse(journal.startReplaying());
+            assertEquals(1L, journal.getReplayedUpdates());
+            assertEquals(2L, journal.getFailedReplays());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void smallSegments() {
+        OutboundJournal.builder().segmentSize(4095);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxBytesSmallerThanSegment() throws IOException {
+        OutboundJournal.builder().segmentSize(8192).maxBytes(4096).open(directory, scheduler);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void retryDelayGreaterThanMax() {
+        OutboundJournal.builder().replayRetryDelay(2L, 1L, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroInFlight() {
+        OutboundJournal.builder().replayMaxInFlight(0);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF_8);
+    }
+
+    private static List<String> read(OutboundJournal.Records records) {
+        final List<String> result = new ArrayList<>();
+        while (records.hasNext()) {
+            final Map.Entry<String, byte[]> record = records.next();
+            result.add(record.getKey() + "=" + new String(record.getValue(), UTF_8));
+        }
+        assertTrue(records.getUnreadableSegments().isEmpty());
+        return result;
+    }
+}
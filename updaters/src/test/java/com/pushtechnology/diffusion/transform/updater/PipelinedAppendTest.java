@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import com.pushtechnology.diffusion.client.features.TimeSeries.EventMetadata;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PipelinedAppend}.
+ *
+ * @author Push Technology Limited
+ */
+public final class PipelinedAppendTest {
+    private static final IllegalStateException FAILURE = new IllegalStateException("Intentionally thrown in test");
+
+    private final Queue<Runnable> completions = new ArrayDeque<>();
+    private final List<String> sent = new ArrayList<>();
+    private final List<BackfillStatus> progress = new ArrayList<>();
+    private long now;
+
+    private final TimeSeriesUpdater<String> updater = new TimeSeriesUpdater<String>() {
+        @Override
+        public CompletableFuture<EventMetadata> append(String path, String value) {
+            if ("throws".equals(value)) {
+                throw FAILURE;
+            }
+            sent.add(value);
+            final CompletableFuture<EventMetadata> future = new CompletableFuture<>();
+            if ("bad".equals(value)) {
+                completions.add(() -> future.completeExceptionally(FAILURE));
+            }
+            else {
+                completions.add(() -> future.complete(null));
+            }
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<EventMetadata> edit(String path, long originalSequence, String value) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @Before
+    public void setUp() {
+        completions.clear();
+        sent.clear();
+        progress.clear();
+        now = 0L;
+    }
+
+    @Test
+    public void windowLimitsInFlight() throws Exception {
+        final CompletableFuture<BackfillStatus> result =
+            start(values(10), BackfillOptions.builder().initialInFlight(4).adaptive(false).build());
+
+        assertEquals(4, sent.size());
+
+        completions.poll().run();
+        assertEquals(5, sent.size());
+
+        completeAll();
+
+        final BackfillStatus status = result.get();
+        assertEquals(values(10), sent);
+        assertEquals(10L, status.getAppended());
+        assertEquals(0L, status.getFailed());
+        assertEquals(4, status.getInFlightLimit());
+        assertNull(status.getFirstFailure());
+        assertFalse(status.isStopped());
+    }
+
+    @Test
+    public void adaptiveWindowGrows() throws Exception {
+        final CompletableFuture<BackfillStatus> result =
+            start(values(200), BackfillOptions.builder().initialInFlight(2).maxInFlight(8).build());
+
+        completeAll();
+
+        assertEquals(8, result.get().getInFlightLimit());
+        assertEquals(200L, result.get().getAppended());
+    }
+
+    @Test
+    public void adaptiveWindowShrinks() throws Exception {
+        final CompletableFuture<BackfillStatus> result =
+            start(values(40), BackfillOptions.builder().initialInFlight(8).build());
+
+        now = 1L;
+        completions.poll().run();
+        while (!completions.isEmpty()) {
+            now += 100L;
+            completions.poll().run();
+        }
+
+        assertTrue(result.get().getInFlightLimit() < 8);
+        assertEquals(40L, result.get().getAppended());
+    }
+
+    @Test
+    public void fastFailureDoesNotShrinkWindow() throws Exception {
+        final CompletableFuture<BackfillStatus> result = start(
+            asList("bad", "second", "third", "fourth"),
+            BackfillOptions.builder().initialInFlight(4).skipFailures(true).build());
+
+        now = 1L;
+        completions.poll().run();
+        now = 10L;
+        completeAll();
+
+        assertEquals(4, result.get().getInFlightLimit());
+        assertEquals(3L, result.get().getAppended());
+    }
+
+    @Test
+    public void stopOnFailure() throws Exception {
+        final CompletableFuture<BackfillStatus> result =
+            start(asList("bad", "second", "third"), BackfillOptions.builder().initialInFlight(2).build());
+
+        completeAll();
+
+        final BackfillStatus status = result.get();
+        assertEquals(asList("bad", "second"), sent);
+        assertEquals(1L, status.getAppended());
+        assertEquals(1L, status.getFailed());
+        assertSame(FAILURE, status.getFirstFailure());
+        assertTrue(status.isStopped());
+    }
+
+    @Test
+    public void skipFailures() throws Exception {
+        final CompletableFuture<BackfillStatus> result = start(
+            asList("first", "bad", "throws", "fourth"),
+            BackfillOptions.builder().initialInFlight(2).skipFailures(true).build());
+
+        completeAll();
+
+        final BackfillStatus status = result.get();
+        assertEquals(asList("first", "bad", "fourth"), sent);
+        assertEquals(2L, status.getAppended());
+        assertEquals(2L, status.getFailed());
+        assertSame(FAILURE, status.getFirstFailure());
+        assertFalse(status.isStopped());
+    }
+
+    @Test
+    public void reportProgress() throws Exception {
+        start(values(10), BackfillOptions.builder().progress(3, progress::add).build());
+
+        completeAll();
+
+        assertEquals(asList(3L, 6L, 9L), progress.stream().map(BackfillStatus::getAppended).collect(toList()));
+    }
+
+    @Test
+    public void listenerException() throws Exception {
+        final CompletableFuture<BackfillStatus> result = start(
+            values(3),
+            BackfillOptions.builder().progress(1, status -> {
+                throw new IllegalStateException("Intentionally thrown in test");
+            }).build());
+
+        completeAll();
+
+        assertEquals(3L, result.get().getAppended());
+    }
+
+    @Test
+    public void noValues() throws Exception {
+        final CompletableFuture<BackfillStatus> result = start(emptyList(), BackfillOptions.defaults());
+
+        assertTrue(result.isDone());
+        assertEquals(0L, result.get().getAppended());
+    }
+
+    @Test
+    public void iteratorException() throws Exception {
+        final Iterator<String> values = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                throw FAILURE;
+            }
+        };
+
+        final CompletableFuture<BackfillStatus> result =
+            new PipelinedAppend<>(updater, "path", values, BackfillOptions.defaults(), () -> now).start();
+
+        try {
+            result.get();
+            fail("Expected the backfill to fail");
+        }
+        catch (ExecutionException e) {
+            assertSame(FAILURE, e.getCause());
+        }
+    }
+
+    @Test
+    public void eventsPerSecond() {
+        final BackfillStatus status = new BackfillStatus(500L, 0L, 1, 250_000_000L, null, false);
+
+        assertEquals(2000.0, status.getEventsPerSecond(), 0.001);
+    }
+
+    private CompletableFuture<BackfillStatus> start(List<String> values, BackfillOptions options) {
+        return new PipelinedAppend<>(updater, "path", values.iterator(), options, () -> now).start();
+    }
+
+    private void completeAll() {
+        Runnable completion = completions.poll();
+        while (completion != null) {
+            completion.run();
+            completion = completions.poll();
+        }
+    }
+
+    private static List<String> values(int count) {
+        return range(0, count).mapToObj(i -> "value" + i).collect(toList());
+    }
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.transform.transformer.TransformationException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PipelinedUpdate}.
+ *
+ * @author Push Technology Limited
+ */
+public final class PipelinedUpdateTest {
+    private final Queue<Runnable> successes = new ArrayDeque<>();
+    private final Map<String, String> updated = new LinkedHashMap<>();
+    private RuntimeException updateException;
+
+    private final TransformedUpdater<String, String> updater = new TransformedUpdater<String, String>() {
+        @Override
+        public void update(String topicPath, String value, UpdateCallback callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <C> void update(String topicPath, String value, C context, UpdateContextCallback<C> callback)
+                throws TransformationException {
+            if (updateException != null) {
+                throw updateException;
+            }
+            if ("bad".equals(value)) {
+                throw new TransformationException("Intentionally thrown in test");
+            }
+            updated.put(topicPath, value);
+            if ("rejected".equals(value)) {
+                successes.add(() -> callback.onError(context, ErrorReason.INCOMPATIBLE_UPDATE));
+            }
+            else {
+                successes.add(() -> callback.onSuccess(context));
+            }
+        }
+
+        @Override
+        public ValueCache<String> untransformedValueCache() {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @Before
+    public void setUp() {
+        successes.clear();
+        updated.clear();
+        updateException = null;
+    }
+
+    @Test
+    public void windowLimitsInFlight() throws Exception {
+        final CompletableFuture<BatchUpdateResult> future = updater.updateAll(values(10), 3);
+
+        assertEquals(3, updated.size());
+        assertFalse(future.isDone());
+
+        successes.poll().run();
+        assertEquals(4, updated.size());
+
+        completeAll();
+
+        assertEquals(10, updated.size());
+        assertTrue(future.isDone());
+        assertEquals(10, future.get().getSucceeded());
+        assertTrue(future.get().isSuccessful());
+    }
+
+    @Test
+    public void updatesInOrder() {
+        final Map<String, String> values = values(5);
+        updater.updateAll(values, 2);
+        completeAll();
+
+        assertEquals(values, updated);
+    }
+
+    @Test
+    public void empty() throws Exception {
+        final CompletableFuture<BatchUpdateResult> future = updater.updateAll(Collections.emptyMap(), 3);
+
+        assertTrue(future.isDone());
+        assertEquals(0, future.get().getSucceeded());
+    }
+
+    @Test
+    public void failures() throws Exception {
+        final Map<String, String> values = new LinkedHashMap<>();
+        values.put("a", "good");
+        values.put("b", "bad");
+        values.put("c", "rejected");
+        values.put("d", "good");
+
+        final CompletableFuture<BatchUpdateResult> future = updater.updateAll(values, 1);
+        completeAll();
+
+        final BatchUpdateResult result = future.get();
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getSucceeded());
+        assertEquals(Collections.singleton("b"), result.getTransformationFailures().keySet());
+        assertEquals(Collections.singletonMap("c", ErrorReason.INCOMPATIBLE_UPDATE), result.getErrors());
+    }
+
+    @Test
+    public void updaterException() throws Exception {
+        final CompletableFuture<BatchUpdateResult> future = updater.updateAll(values(5), 2);
+
+        updateException = new IllegalStateException("Intentionally thrown in test");
+        completeAll();
+
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("Expected exception");
+        }
+        catch (ExecutionException e) {
+            assertSame(updateException, e.getCause());
+        }
+        assertEquals(2, updated.size());
+    }
+
+    @Test
+    public void valuesException() throws Exception {
+        final RuntimeException valuesException = new IllegalStateException("Intentionally thrown in test");
+        final CompletableFuture<BatchUpdateResult> future = updater.updateAll(
+            range(0, 5).mapToObj(i -> {
+                if (i == 3) {
+                    throw valuesException;
+                }
+                return new SimpleEntry<>("topic" + i, "value" + i);
+            }),
+            2);
+        completeAll();
+
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("Expected exception");
+        }
+        catch (ExecutionException e) {
+            assertSame(valuesException, e.getCause());
+        }
+        assertEquals(3, updated.size());
+    }
+
+    @Test
+    public void streamClosed() {
+        final AtomicBoolean closed = new AtomicBoolean();
+        updater.updateAll(values(3).entrySet().stream().onClose(() -> closed.set(true)), 2);
+
+        assertFalse(closed.get());
+        completeAll();
+        assertTrue(closed.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void windowNotPositive() {
+        updater.updateAll(values(1), 0);
+    }
+
+    private void completeAll() {
+        Runnable success = successes.poll();
+        while (success != null) {
+            success.run();
+            success = successes.poll();
+        }
+    }
+
+    private static Map<String, String> values(int count) {
+        return range(0, count)
+            .boxed()
+            .collect(toMap(i -> "topic" + i, i -> "value" + i, (a, b) -> a, LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.util.Collections.singletonList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.callbacks.Registration;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+/**
+ * Unit tests for {@link PooledUpdateSource}.
+ *
+ * @author Push Technology Limited
+ */
+public final class PooledUpdateSourceTest {
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private Session session;
+    @Mock
+    private TopicUpdateControl updateControl;
+    @Mock
+    private TopicUpdateControl.UpdateSource updateSource;
+    @Mock
+    private TopicUpdateControl.Updater updater;
+    @Mock
+    private Registration registration;
+    @Captor
+    private ArgumentCaptor<TopicUpdateControl.UpdateSource> registered;
+
+    private SessionPool sessionPool;
+
+    @Before
+    public void setUp() {
+        when(session.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+
+        sessionPool = SessionPool.of(singletonList(session));
+    }
+
+    @Test
+    public void forwardNotifications() {
+        PooledUpdateSource.register(updateControl, "topic", updateSource);
+        verify(updateControl).registerUpdateSource(eq("topic"), registered.capture());
+
+        registered.getValue().onRegistered("topic", registration);
+        registered.getValue().onActive("topic", updater);
+        registered.getValue().onStandby("topic");
+        registered.getValue().onError("topic", ErrorReason.ACCESS_DENIED);
+
+        verify(updateSource).onRegistered("topic", registration);
+        verify(updateSource).onActive("topic", updater);
+        verify(updateSource).onStandby("topic");
+        verify(updateSource).onError("topic", ErrorReason.ACCESS_DENIED);
+    }
+
+    @Test
+    public void closeBindingClosesRegistration() {
+        final SessionPool.Binding binding = sessionPool.bind(
+            "topic",
+            boundSession -> PooledUpdateSource.register(updateControl, "topic", updateSource));
+        verify(updateControl).registerUpdateSource(eq("topic"), registered.capture());
+        registered.getValue().onRegistered("topic", registration);
+
+        binding.close();
+
+        verify(registration).close();
+    }
+
+    @Test
+    public void closeBindingBeforeRegistered() {
+        final SessionPool.Binding binding = sessionPool.bind(
+            "topic",
+            boundSession -> PooledUpdateSource.register(updateControl, "topic", updateSource));
+        verify(updateControl).registerUpdateSource(eq("topic"), registered.capture());
+
+        binding.close();
+        verify(registration, never()).close();
+
+        registered.getValue().onRegistered("topic", registration);
+        verify(registration).close();
+    }
+
+    @Test
+    public void closeBindingAfterClosed() {
+        final Runnable unbind = PooledUpdateSource.register(updateControl, "topic", updateSource);
+        verify(updateControl).registerUpdateSource(eq("topic"), registered.capture());
+        registered.getValue().onRegistered("topic", registration);
+        registered.getValue().onClose("topic");
+
+        unbind.run();
+
+        verify(registration, never()).close();
+        verify(updateSource).onClose("topic");
+    }
+}
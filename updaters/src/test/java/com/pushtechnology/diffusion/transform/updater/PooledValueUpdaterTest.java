@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.transform.session.SessionPool;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+/**
+ * Unit tests for {@link PooledValueUpdater}.
+ *
+ * @author Push Technology Limited
+ */
+public final class PooledValueUpdaterTest {
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private Session sessionOne;
+    @Mock
+    private Session sessionTwo;
+    @Mock
+    private TopicUpdateControl updateControlOne;
+    @Mock
+    private TopicUpdateControl updateControlTwo;
+    @Mock
+    private TopicUpdateControl.Updater updaterOne;
+    @Mock
+    private TopicUpdateControl.Updater updaterTwo;
+    @Mock
+    private TopicUpdateControl.ValueUpdater<String> valueUpdaterOne;
+    @Mock
+    private TopicUpdateControl.ValueUpdater<String> valueUpdaterTwo;
+    @Mock
+    private UpdateCallback callback;
+
+    private SessionPool sessionPool;
+    private PooledValueUpdater<String> updater;
+
+    @Before
+    public void setUp() {
+        when(sessionOne.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+        when(sessionTwo.getState()).thenReturn(Session.State.CONNECTED_ACTIVE);
+        when(sessionOne.feature(TopicUpdateControl.class)).thenReturn(updateControlOne);
+        when(sessionTwo.feature(TopicUpdateControl.class)).thenReturn(updateControlTwo);
+        when(updateControlOne.updater()).thenReturn(updaterOne);
+        when(updateControlTwo.updater()).thenReturn(updaterTwo);
+        when(updaterOne.valueUpdater(String.class)).thenReturn(valueUpdaterOne);
+        when(updaterTwo.valueUpdater(String.class)).thenReturn(valueUpdaterTwo);
+
+        sessionPool = SessionPool.of(asList(sessionOne, sessionTwo));
+        updater = new PooledValueUpdater<>(sessionPool, String.class);
+    }
+
+    @Test
+    public void update() {
+        for (int i = 0; i < 10; i++) {
+            final String topicPath = "topic/" + i;
+            updater.update(topicPath, "value", callback);
+
+            verify(valueUpdaterFor(topicPath)).update(topicPath, "value", callback);
+        }
+    }
+
+    @Test
+    public void getCachedValue() {
+        when(valueUpdaterFor("topic").getCachedValue("topic")).thenReturn("value");
+
+        assertEquals("value", updater.getCachedValue("topic"));
+    }
+
+    @Test
+    public void removeCachedValues() {
+        updater.removeCachedValues("?topic//");
+
+        verify(valueUpdaterOne).removeCachedValues("?topic//");
+        verify(valueUpdaterTwo).removeCachedValues("?topic//");
+    }
+
+    private TopicUpdateControl.ValueUpdater<String> valueUpdaterFor(String topicPath) {
+        return sessionPool.sessionFor(topicPath) == sessionOne ? valueUpdaterOne : valueUpdaterTwo;
+    }
+}
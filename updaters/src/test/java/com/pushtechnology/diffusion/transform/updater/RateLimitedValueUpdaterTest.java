@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.datatype.Bytes;
+import com.pushtechnology.diffusion.datatype.DataType;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link RateLimitedValueUpdater}.
+ *
+ * @author Push Technology Limited
+ */
+public final class RateLimitedValueUpdaterTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Mock
+    private TopicUpdateControl.ValueUpdater<String> delegate;
+    @Mock
+    private DataType<String> dataType;
+    @Mock
+    private Bytes bytes;
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Mock
+    private UpdateCallback callbackOne;
+    @Mock
+    private UpdateCallback callbackTwo;
+    @Mock
+    private UpdateCallback callbackThree;
+    @Mock
+    private UpdateCallback callbackFour;
+    @Mock
+    private UpdateContextCallback<String> contextCallback;
+    @Captor
+    private ArgumentCaptor<Runnable> task;
+    @Captor
+    private ArgumentCaptor<UpdateCallback> sent;
+
+    private long now;
+    private UpdateRateLimiter limiter;
+    private RateLimitedValueUpdater<String> updater;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        now = 0L;
+        createUpdater(UpdateRateLimiter.builder().updatesPerSecond(1.0));
+    }
+
+    @Test
+    public void sendWithinLimits() {
+        updater.update("topic", "first", callbackOne);
+
+        verify(delegate).update("topic", "first", callbackOne);
+        verifyNoMoreInteractions(scheduler);
+        assertEquals(0L, limiter.getDelayedUpdates());
+    }
+
+    @Test
+    public void delayExcess() {
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "second", callbackTwo);
+
+        verify(scheduler).schedule(task.capture(), eq(SECOND), eq(NANOSECONDS));
+        verify(delegate, never()).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+        assertEquals(1, updater.heldTopicCount());
+
+        now = SECOND;
+        task.getValue().run();
+
+        verify(delegate).update(eq("topic"), eq("second"), sent.capture());
+        sent.getValue().onSuccess();
+        verify(callbackTwo).onSuccess();
+        assertEquals(1L, limiter.getDelayedUpdates());
+        assertEquals(SECOND, limiter.getThrottledNanos());
+        assertEquals(0, updater.heldTopicCount());
+    }
+
+    @Test
+    public void holdInOrder() {
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "second", callbackTwo);
+        updater.update("topic", "third", callbackThree);
+
+        verify(scheduler).schedule(task.capture(), eq(SECOND), eq(NANOSECONDS));
+        now = SECOND;
+        task.getValue().run();
+
+        verify(scheduler, times(2)).schedule(task.capture(), eq(SECOND), eq(NANOSECONDS));
+        now = 2L * SECOND;
+        task.getValue().run();
+
+        final InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).update("topic", "first", callbackOne);
+        inOrder.verify(delegate).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+        inOrder.verify(delegate).update(eq("topic"), eq("third"), any(UpdateCallback.class));
+        assertEquals(0, updater.heldTopicCount());
+    }
+
+    @Test
+    public void conflateExcess() {
+        createUpdater(UpdateRateLimiter.builder().updatesPerSecond(1.0).throttlePolicy(ThrottlePolicy.conflate()));
+
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "second", callbackTwo);
+        updater.update("topic", "third", callbackThree);
+        updater.update("topic", "fourth", callbackFour);
+
+        verify(scheduler).schedule(task.capture(), eq(SECOND), eq(NANOSECONDS));
+        now = SECOND;
+        task.getValue().run();
+        verify(scheduler, times(2)).schedule(task.capture(), eq(SECOND), eq(NANOSECONDS));
+        now = 2L * SECOND;
+        task.getValue().run();
+
+        verify(delegate).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+        verify(delegate, never()).update(eq("topic"), eq("third"), any(UpdateCallback.class));
+        verify(delegate).update(eq("topic"), eq("fourth"), sent.capture());
+
+        sent.getValue().onSuccess();
+        verify(callbackThree).onSuccess();
+        verify(callbackFour).onSuccess();
+        assertEquals(1L, limiter.getConflatedUpdates());
+    }
+
+    @Test
+    public void rejectExcess() {
+        createUpdater(UpdateRateLimiter.builder().updatesPerSecond(1.0).throttlePolicy(ThrottlePolicy.reject()));
+
+        updater.update("topic", "first", callbackOne);
+        try {
+            updater.update("topic", "second", callbackTwo);
+            fail("Expected the update to be rejected");
+        }
+        catch (RejectedExecutionException e) {
+            assertEquals(1L, limiter.getRejectedUpdates());
+        }
+
+        now = SECOND;
+        updater.update("topic", "third", callbackThree);
+
+        verify(delegate).update("topic", "first", callbackOne);
+        verify(delegate).update("topic", "third", callbackThree);
+        verifyNoMoreInteractions(delegate, scheduler);
+    }
+
+    @Test
+    public void rejectWhenHeldFull() {
+        createUpdater(UpdateRateLimiter.builder().updatesPerSecond(1.0).throttlePolicy(ThrottlePolicy.delay(1)));
+
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "second", callbackTwo);
+        try {
+            updater.update("topic", "third", callbackThree);
+            fail("Expected the update to be rejected");
+        }
+        catch (RejectedExecutionException e) {
+            assertEquals(1L, limiter.getRejectedUpdates());
+        }
+
+        verify(scheduler).schedule(task.capture(), eq(SECOND), eq(NANOSECONDS));
+        now = SECOND;
+        task.getValue().run();
+
+        verify(delegate).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+        verify(delegate, never()).update(eq("topic"), eq("third"), any(UpdateCallback.class));
+        assertEquals(1L, limiter.getDelayedUpdates());
+    }
+
+    @Test
+    public void rejectWhenSchedulerShutDown() {
+        doThrow(new RejectedExecutionException("Intentionally thrown in test"))
+            .when(scheduler)
+            .schedule(any(Runnable.class), anyLong(), eq(NANOSECONDS));
+
+        updater.update("topic", "first", callbackOne);
+        try {
+            updater.update("topic", "second", callbackTwo);
+            fail("Expected the update to be rejected");
+        }
+        catch (RejectedExecutionException e) {
+            assertEquals(0, updater.heldTopicCount());
+        }
+    }
+
+    @Test
+    public void failHeldWhenSchedulerShutDown() {
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "second", callbackTwo);
+        updater.update("topic", "third", callbackThree);
+
+        verify(scheduler).schedule(task.capture(), eq(SECOND), eq(NANOSECONDS));
+        doThrow(new RejectedExecutionException("Intentionally thrown in test"))
+            .when(scheduler)
+            .schedule(any(Runnable.class), anyLong(), eq(NANOSECONDS));
+        now = SECOND;
+        task.getValue().run();
+
+        verify(delegate).update(eq("topic"), eq("second"), any(UpdateCallback.class));
+        verify(delegate, never()).update(eq("topic"), eq("third"), any(UpdateCallback.class));
+        verify(callbackThree).onError(ErrorReason.COMMUNICATION_FAILURE);
+        assertEquals(0, updater.heldTopicCount());
+    }
+
+    @Test
+    public void limitBytes() {
+        when(dataType.toBytes("value")).thenReturn(bytes);
+        when(bytes.length()).thenReturn(150);
+        createUpdater(UpdateRateLimiter.builder().bytesPerSecond(100.0));
+
+        updater.update("topic", "value", callbackOne);
+        updater.update("topic", "value", callbackTwo);
+
+        verify(delegate).update("topic", "value", callbackOne);
+        verify(scheduler).schedule(any(Runnable.class), eq(2L * SECOND), eq(NANOSECONDS));
+    }
+
+    @Test
+    public void heldUpdateFails() {
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "second", callbackTwo);
+
+        verify(scheduler).schedule(task.capture(), eq(SECOND), eq(NANOSECONDS));
+        task.getValue().run();
+
+        verify(delegate).update(eq("topic"), eq("second"), sent.capture());
+        sent.getValue().onError(ErrorReason.ACCESS_DENIED);
+        verify(callbackTwo).onError(ErrorReason.ACCESS_DENIED);
+    }
+
+    @Test
+    public void heldUpdateThrows() {
+        doThrow(new IllegalStateException("Intentionally thrown in test"))
+            .when(delegate)
+            .update(eq("topic"), eq("second"), any(UpdateCallback.class));
+
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "second", callbackTwo);
+
+        verify(scheduler).schedule(task.capture(), eq(SECOND), eq(NANOSECONDS));
+        task.getValue().run();
+
+        verify(callbackTwo).onError(ErrorReason.INCOMPATIBLE_UPDATE);
+        assertEquals(0, updater.heldTopicCount());
+    }
+
+    @Test
+    public void updateWithContext() {
+        updater.update("topic", "first", callbackOne);
+        updater.update("topic", "second", "context", contextCallback);
+
+        verify(scheduler).schedule(task.capture(), eq(SECOND), eq(NANOSECONDS));
+        task.getValue().run();
+
+        verify(delegate).update(eq("topic"), eq("second"), sent.capture());
+        sent.getValue().onSuccess();
+        verify(contextCallback).onSuccess("context");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValue() {
+        updater.update("topic", null, callbackOne);
+    }
+
+    private void createUpdater(UpdateRateLimiter.Builder builder) {
+        limiter = builder.build(scheduler, () -> now);
+        updater = new RateLimitedValueUpdater<>(delegate, dataType, limiter);
+    }
+}
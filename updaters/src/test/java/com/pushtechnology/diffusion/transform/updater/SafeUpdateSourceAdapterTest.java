@@ -56,7 +56,7 @@ public final class SafeUpdateSourceAdapterTest {
     public void setUp() {
         initMocks(this);
 
-        adapter = new SafeUpdateSourceAdapter<>(valueCache, updaterBuilder, updateSource);
+        adapter = new SafeUpdateSourceAdapter<>(valueCache, updaterBuilder::create, updateSource);
 
         when(updaterBuilder.create(updater)).thenReturn(valueUpdater);
     }
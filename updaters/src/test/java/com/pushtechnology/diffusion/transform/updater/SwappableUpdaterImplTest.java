@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
+import com.pushtechnology.diffusion.datatype.json.JSON;
+import com.pushtechnology.diffusion.transform.transformer.UnsafeTransformer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link SwappableUpdaterImpl}.
+ *
+ * @author Push Technology Limited
+ */
+public final class SwappableUpdaterImplTest {
+    @Mock
+    private TopicUpdateControl.ValueUpdater<JSON> delegateUpdater;
+    @Mock
+    private JSON jsonValue;
+    @Mock
+    private JSON otherJsonValue;
+    @Mock
+    private UnsafeTransformer<String, JSON> transformer;
+    @Mock
+    private UnsafeTransformer<String, JSON> otherTransformer;
+    @Mock
+    private TopicUpdateControl.Updater.UpdateCallback callback;
+    @Mock
+    private TopicUpdateControl.Updater.UpdateContextCallback contextCallback;
+
+    private SwappableUpdaterImpl<JSON, String> updater;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+
+        when(delegateUpdater.getCachedValue("topic")).thenReturn(jsonValue);
+        when(transformer.transform("stringValue")).thenReturn(jsonValue);
+        when(otherTransformer.transform("stringValue")).thenReturn(otherJsonValue);
+
+        updater = new SwappableUpdaterImpl<>(delegateUpdater, transformer);
+    }
+
+    @After
+    public void postConditions() {
+        verifyNoMoreInteractions(callback, transformer, otherTransformer, jsonValue, delegateUpdater);
+    }
+
+    @Test
+    public void update() throws Exception {
+        updater.update("topic", "stringValue", callback);
+
+        verify(transformer).transform("stringValue");
+        verify(delegateUpdater).update("topic", jsonValue, callback);
+    }
+
+    @Test
+    public void updateWithContext() throws Exception {
+        updater.update("topic", "stringValue", "context", contextCallback);
+
+        verify(transformer).transform("stringValue");
+        verify(delegateUpdater).update("topic", jsonValue, "context", contextCallback);
+    }
+
+    @Test
+    public void swap() throws Exception {
+        updater.update("topic", "stringValue", callback);
+        updater.swap(otherTransformer);
+        updater.update("topic", "stringValue", callback);
+
+        verify(transformer).transform("stringValue");
+        verify(delegateUpdater).update("topic", jsonValue, callback);
+        verify(otherTransformer).transform("stringValue");
+        verify(delegateUpdater).update("topic", otherJsonValue, callback);
+    }
+
+    @Test
+    public void untransformedValueCacheAfterSwap() {
+        updater.swap(otherTransformer);
+
+        final ValueCache<JSON> jsonValueCache = updater.untransformedValueCache();
+
+        final JSON cachedValue = jsonValueCache.getCachedValue("topic");
+
+        assertEquals(jsonValue, cachedValue);
+        verify(delegateUpdater).getCachedValue("topic");
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TokenBucket}.
+ *
+ * @author Push Technology Limited
+ */
+public final class TokenBucketTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private final TokenBucket bucket = new TokenBucket(10.0, SECOND, 0L);
+
+    @Test
+    public void startsFull() {
+        assertTrue(bucket.isAvailable(10.0, 0L));
+        assertEquals(0L, bucket.reserve(10.0, 0L));
+        assertFalse(bucket.isAvailable(1.0, 0L));
+    }
+
+    @Test
+    public void reserveInDebt() {
+        bucket.reserve(10.0, 0L);
+
+        assertEquals(SECOND / 2L, bucket.reserve(5.0, 0L));
+        assertEquals(SECOND, bucket.reserve(5.0, 0L));
+    }
+
+    @Test
+    public void refill() {
+        bucket.reserve(10.0, 0L);
+
+        assertFalse(bucket.isAvailable(1.0, SECOND / 20L));
+        assertTrue(bucket.isAvailable(1.0, SECOND / 10L));
+    }
+
+    @Test
+    public void refillLimitedByCapacity() {
+        bucket.reserve(10.0, 0L);
+
+        assertEquals(SECOND / 10L, bucket.reserve(11.0, 10L * SECOND));
+    }
+
+    @Test
+    public void amountLargerThanCapacity() {
+        assertTrue(bucket.isAvailable(100.0, 0L));
+        assertEquals(9L * SECOND, bucket.reserve(100.0, 0L));
+    }
+
+    @Test
+    public void minimumCapacity() {
+        final TokenBucket slowBucket = new TokenBucket(0.5, SECOND, 0L);
+
+        assertTrue(slowBucket.isAvailable(1.0, 0L));
+        assertEquals(0L, slowBucket.reserve(1.0, 0L));
+        assertEquals(2L * SECOND, slowBucket.reserve(1.0, 0L));
+    }
+}
@@ -102,7 +102,7 @@ public final class UnboundSafeUpdaterBuilderImplTest {
         when(session.feature(TopicUpdateControl.class)).thenReturn(updateControl);
         when(session.feature(TimeSeries.class)).thenReturn(timeSeries);
 
-        updaterBuilder = new UnboundSafeUpdaterBuilderImpl<>(JSON.class, identity(JSON.class));
+        updaterBuilder = new UnboundSafeUpdaterBuilderImpl<>(JSON.class, identity(JSON.class), UpdaterStage.none());
     }
 
     @After
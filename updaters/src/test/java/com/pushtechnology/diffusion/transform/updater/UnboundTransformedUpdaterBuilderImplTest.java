@@ -18,13 +18,24 @@ package com.pushtechnology.diffusion.transform.updater;
 import static com.pushtechnology.diffusion.transform.transformer.Transformers.identity;
 import static com.pushtechnology.diffusion.transform.transformer.Transformers.toTransformer;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
+
 import com.pushtechnology.diffusion.client.features.TimeSeries;
 import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl;
 import com.pushtechnology.diffusion.client.session.Session;
@@ -47,6 +58,8 @@ import org.mockito.stubbing.Answer;
  * @author Push Technology Limited
  */
 public final class UnboundTransformedUpdaterBuilderImplTest {
+    @Mock
+    private ScheduledExecutorService scheduler;
     @Mock
     private Session session;
     @Mock
@@ -60,6 +73,8 @@ public final class UnboundTransformedUpdaterBuilderImplTest {
     @Mock
     private TopicUpdateControl.ValueUpdater<JSON> delegateUpdater;
     @Mock
+    private TopicUpdateControl.ValueUpdater<JSON> stagedUpdater;
+    @Mock
     private JSON jsonValue;
     @Mock
     private UnsafeTransformer<String, JSON> unsafeTransformer;
@@ -73,6 +88,7 @@ public final class UnboundTransformedUpdaterBuilderImplTest {
     private ArgumentCaptor<TopicUpdateControl.UpdateSource> updateSourceCaptor;
 
     private UnboundTransformedUpdaterBuilderImpl<JSON, JSON> updaterBuilder;
+    private Path directory;
 
     @Before
     public void setUp() throws Exception {
@@ -93,7 +109,11 @@ public final class UnboundTransformedUpdaterBuilderImplTest {
         when(session.feature(TopicUpdateControl.class)).thenReturn(updateControl);
         when(session.feature(TimeSeries.class)).thenReturn(timeSeries);
 
-        updaterBuilder = new UnboundTransformedUpdaterBuilderImpl<>(JSON.class, toTransformer(identity(JSON.class)));
+        directory = Files.createTempDirectory("outbound");
+        updaterBuilder = new UnboundTransformedUpdaterBuilderImpl<>(
+            JSON.class,
+            toTransformer(identity(JSON.class)),
+            UpdaterStage.none());
     }
 
     @After
@@ -101,6 +121,13 @@ public final class UnboundTransformedUpdaterBuilderImplTest {
         verifyNoMoreInteractions(callback, jsonValue, delegateUpdater, unsafeTransformer, session, timeSeries);
     }
 
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
     @Test
     public void createAndUpdate() throws TransformationException {
         final TransformedUpdater<JSON, JSON> updater = updaterBuilder.create(simpleUpdater);
@@ -132,6 +159,182 @@ public final class UnboundTransformedUpdaterBuilderImplTest {
         verify(delegateUpdater).update("topic", jsonValue, callback);
     }
 
+    @Test
+    public void createConflatingAndUpdateWithSession() throws TransformationException {
+        final ConflatingUpdater<JSON, JSON> updater = updaterBuilder.createConflating(session);
+
+        verify(session).feature(TopicUpdateControl.class);
+        verify(updateControl).updater();
+
+        updater.update("topic", jsonValue, callback);
+
+        verify(delegateUpdater).update(
+            eq("topic"),
+            eq(jsonValue),
+            isA(TopicUpdateControl.Updater.UpdateCallback.class));
+    }
+
+    @Test
+    public void createAsyncAndUpdateWithSession() {
+        final AsyncUpdater<JSON> updater = updaterBuilder.createAsync(session, 2, 10, UpdateOverflowPolicy.block());
+
+        verify(session).feature(TopicUpdateControl.class);
+        verify(updateControl).updater();
+
+        updater.update("topic", jsonValue);
+        updater.close();
+
+        verify(delegateUpdater, timeout(1000L)).update(
+            eq("topic"),
+            eq(jsonValue),
+            isA(TopicUpdateControl.Updater.UpdateCallback.class));
+    }
+
+    @Test
+    public void createAsyncAppliesStages() {
+        final AsyncUpdater<JSON> updater = new UnboundTransformedUpdaterBuilderImpl<>(
+                JSON.class,
+                toTransformer(identity(JSON.class)),
+                UpdaterStage.<JSON>none().andThen((stageSession, valueUpdater) -> stagedUpdater))
+            .createAsync(session, 2, 10, UpdateOverflowPolicy.block());
+
+        verify(session).feature(TopicUpdateControl.class);
+        verify(updateControl).updater();
+
+        updater.update("topic", jsonValue);
+        updater.close();
+
+        verify(stagedUpdater, timeout(1000L)).update(
+            eq("topic"),
+            eq(jsonValue),
+            isA(TopicUpdateControl.Updater.UpdateCallback.class));
+        verifyNoMoreInteractions(stagedUpdater);
+    }
+
+    @Test
+    public void createCachingAndUpdateWithSession() throws TransformationException {
+        final CachingUpdater<JSON, JSON> updater = updaterBuilder.createCaching(session, 10);
+
+        verify(session).feature(TopicUpdateControl.class);
+        verify(updateControl).updater();
+
+        updater.update("topic", jsonValue, callback);
+
+        verify(delegateUpdater).update(
+            eq("topic"),
+            eq(jsonValue),
+            isA(TopicUpdateControl.Updater.UpdateCallback.class));
+        assertEquals(0, updater.localValueCache().size());
+    }
+
+    @Test
+    public void createCachingAppliesStages() throws TransformationException {
+        final CachingUpdater<JSON, JSON> updater = new UnboundTransformedUpdaterBuilderImpl<>(
+                JSON.class,
+                toTransformer(identity(JSON.class)),
+                UpdaterStage.<JSON>none().andThen((stageSession, valueUpdater) -> stagedUpdater))
+            .createCaching(session, 10);
+
+        verify(session).feature(TopicUpdateControl.class);
+        verify(updateControl).updater();
+
+        updater.update("topic", jsonValue, callback);
+
+        verify(stagedUpdater).update(
+            eq("topic"),
+            eq(jsonValue),
+            isA(TopicUpdateControl.Updater.UpdateCallback.class));
+        verifyNoMoreInteractions(stagedUpdater);
+        assertEquals(0, updater.localValueCache().size());
+    }
+
+    @Test
+    public void rateLimitStageKeptAfterTransform() throws Exception {
+        final UpdateRateLimiter limiter = UpdateRateLimiter
+            .builder()
+            .updatesPerSecond(1)
+            .throttlePolicy(ThrottlePolicy.reject())
+            .build(scheduler);
+        final TransformedUpdater<JSON, String> updater = updaterBuilder
+            .rateLimit(limiter)
+            .unsafeTransform(unsafeTransformer)
+            .create(session);
+
+        verify(session).feature(TopicUpdateControl.class);
+        verify(updateControl).updater();
+
+        updater.update("topic", "stringValue", callback);
+
+        verify(delegateUpdater).update("topic", jsonValue, callback);
+
+        try {
+            updater.update("topic", "stringValue", callback);
+            fail("Expected the update to be rejected");
+        }
+        catch (RejectedExecutionException e) {
+            // Expected
+        }
+
+        verify(unsafeTransformer, times(2)).transform("stringValue");
+        verify(unsafeTransformer).chainUnsafe(isA(UnsafeTransformer.class));
+    }
+
+    @Test
+    public void journalStageUsedByEachUpdater() throws Exception {
+        try (OutboundJournal journal = OutboundJournal.builder().open(directory, scheduler)) {
+            final UnboundTransformedUpdaterBuilder<JSON, JSON> journaledBuilder = updaterBuilder.journal(journal);
+
+            journaledBuilder.create(session);
+            journaledBuilder.create(session);
+
+            verify(session, times(2)).feature(TopicUpdateControl.class);
+            verify(updateControl, times(2)).updater();
+            verify(session, times(2)).addListener(isA(JournalingValueUpdater.class));
+            verify(session, times(2)).getState();
+            verify(session).removeListener(isA(JournalingValueUpdater.class));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void journalStageRequiresSession() throws Exception {
+        try (OutboundJournal journal = OutboundJournal.builder().open(directory, scheduler)) {
+            updaterBuilder.journal(journal).create(simpleUpdater);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void journalStageRejectsRegistrationWithoutSession() throws Exception {
+        try (OutboundJournal journal = OutboundJournal.builder().open(directory, scheduler)) {
+            updaterBuilder
+                .journal(journal)
+                .unsafeTransform(unsafeTransformer)
+                .register(updateControl, "topic", updateSource);
+        }
+    }
+
+    @Test
+    public void registerJournaledUpdateSource() throws Exception {
+        try (OutboundJournal journal = OutboundJournal.builder().open(directory, scheduler)) {
+            updaterBuilder
+                .journal(journal)
+                .unsafeTransform(unsafeTransformer)
+                .register(session, "topic", updateSource);
+
+            verify(session).feature(TopicUpdateControl.class);
+            verify(updateControl).registerUpdateSource(eq("topic"), updateSourceCaptor.capture());
+
+            updateSourceCaptor.getValue().onActive("topic", simpleUpdater);
+            updateSourceCaptor.getValue().onStandby("topic");
+            updateSourceCaptor.getValue().onActive("topic", simpleUpdater);
+
+            verify(updateSource, times(2)).onActive(eq("topic"), updaterCaptor.capture());
+            verify(updateSource).onStandby("topic");
+            verify(session, times(2)).addListener(isA(JournalingValueUpdater.class));
+            verify(session, times(2)).getState();
+            verify(session).removeListener(isA(JournalingValueUpdater.class));
+        }
+    }
+
     @Test
     public void untransformedValueCache() {
         final TransformedUpdater<JSON, JSON> updater = updaterBuilder.create(simpleUpdater);
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link UpdateOverflowPolicy}.
+ *
+ * @author Push Technology Limited
+ */
+public final class UpdateOverflowPolicyTest {
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(2);
+    private final List<String> dropped = new ArrayList<>();
+
+    @Test
+    public void blockWithSpace() throws InterruptedException {
+        UpdateOverflowPolicy.block().enqueue(queue, "first", dropped::add);
+
+        assertEquals(singletonList("first"), new ArrayList<>(queue));
+        assertTrue(dropped.isEmpty());
+    }
+
+    @Test
+    public void blockUntilSpace() throws InterruptedException {
+        queue.add("first");
+        queue.add("second");
+        final Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(50L);
+                queue.take();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+
+        UpdateOverflowPolicy.block().enqueue(queue, "third", dropped::add);
+        consumer.join();
+
+        assertEquals(asList("second", "third"), new ArrayList<>(queue));
+        assertTrue(dropped.isEmpty());
+    }
+
+    @Test
+    public void dropNewest() throws InterruptedException {
+        queue.add("first");
+        queue.add("second");
+
+        UpdateOverflowPolicy.dropNewest().enqueue(queue, "third", dropped::add);
+
+        assertEquals(asList("first", "second"), new ArrayList<>(queue));
+        assertEquals(singletonList("third"), dropped);
+    }
+
+    @Test
+    public void dropOldest() throws InterruptedException {
+        queue.add("first");
+        queue.add("second");
+
+        UpdateOverflowPolicy.dropOldest().enqueue(queue, "third", dropped::add);
+
+        assertEquals(asList("second", "third"), new ArrayList<>(queue));
+        assertEquals(singletonList("first"), dropped);
+    }
+}
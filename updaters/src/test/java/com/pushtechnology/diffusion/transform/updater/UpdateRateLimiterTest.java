@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link UpdateRateLimiter}.
+ *
+ * @author Push Technology Limited
+ */
+public final class UpdateRateLimiterTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private long now;
+
+    @Before
+    public void setUp() {
+        now = 0L;
+    }
+
+    @Test
+    public void globalUpdates() {
+        final UpdateRateLimiter limiter = build(UpdateRateLimiter.builder().updatesPerSecond(2.0));
+
+        assertTrue(limiter.tryAcquire("a", 0));
+        assertTrue(limiter.tryAcquire("b", 0));
+        assertFalse(limiter.tryAcquire("c", 0));
+
+        now = SECOND / 2L;
+        assertTrue(limiter.tryAcquire("c", 0));
+        assertFalse(limiter.limitsBytes());
+    }
+
+    @Test
+    public void prefixLimitsTopicsBelow() {
+        final UpdateRateLimiter limiter = build(UpdateRateLimiter.builder().updatesPerSecond("prices/", 1.0));
+
+        assertTrue(limiter.tryAcquire("prices/a", 0));
+        assertFalse(limiter.tryAcquire("prices/b", 0));
+        assertFalse(limiter.tryAcquire("prices", 0));
+        assertTrue(limiter.tryAcquire("pricesX", 0));
+        assertTrue(limiter.tryAcquire("other", 0));
+    }
+
+    @Test
+    public void failedAcquireTakesNothing() {
+        final UpdateRateLimiter limiter = build(UpdateRateLimiter
+            .builder()
+            .updatesPerSecond(10.0)
+            .updatesPerSecond("prices", 1.0));
+
+        assertTrue(limiter.tryAcquire("prices/a", 0));
+        assertFalse(limiter.tryAcquire("prices/b", 0));
+
+        for (int i = 0; i < 9; i++) {
+            assertTrue(limiter.tryAcquire("other", 0));
+        }
+        assertFalse(limiter.tryAcquire("other", 0));
+    }
+
+    @Test
+    public void reserveWaitsForSlowestLimit() {
+        final UpdateRateLimiter limiter = build(UpdateRateLimiter
+            .builder()
+            .updatesPerSecond(10.0)
+            .bytesPerSecond("prices", 100.0));
+
+        assertTrue(limiter.limitsBytes());
+        assertEquals(SECOND / 2L, limiter.reserve("prices/a", 150));
+        assertEquals(0L, limiter.reserve("other", 150));
+    }
+
+    @Test
+    public void burst() {
+        final UpdateRateLimiter limiter = build(UpdateRateLimiter
+            .builder()
+            .updatesPerSecond(2.0)
+            .burst(Duration.ofSeconds(2L)));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire("a", 0));
+        }
+        assertFalse(limiter.tryAcquire("a", 0));
+    }
+
+    @Test
+    public void metrics() {
+        final UpdateRateLimiter limiter = build(UpdateRateLimiter.builder());
+
+        limiter.recordDelayed();
+        limiter.recordConflated();
+        limiter.recordRejected();
+        limiter.recordThrottled(SECOND);
+
+        assertEquals(1L, limiter.getDelayedUpdates());
+        assertEquals(1L, limiter.getConflatedUpdates());
+        assertEquals(1L, limiter.getRejectedUpdates());
+        assertEquals(SECOND, limiter.getThrottledNanos());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rateNotPositive() {
+        UpdateRateLimiter.builder().updatesPerSecond(0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void burstNotPositive() {
+        UpdateRateLimiter.builder().burst(Duration.ZERO);
+    }
+
+    private UpdateRateLimiter build(UpdateRateLimiter.Builder builder) {
+        return builder.build(null, () -> now);
+    }
+}
@@ -56,7 +56,7 @@ public final class UpdateSourceAdapterTest {
     public void setUp() {
         initMocks(this);
 
-        adapter = new UpdateSourceAdapter<>(valueCache, updaterBuilder, updateSource);
+        adapter = new UpdateSourceAdapter<>(valueCache, updaterBuilder::create, updateSource);
 
         when(updaterBuilder.create(updater)).thenReturn(valueUpdater);
     }
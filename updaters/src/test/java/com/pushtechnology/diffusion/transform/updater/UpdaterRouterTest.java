@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+import com.pushtechnology.diffusion.client.session.Session;
+import com.pushtechnology.diffusion.datatype.json.JSON;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Unit tests for {@link UpdaterRouter}.
+ *
+ * @author Push Technology Limited
+ */
+public final class UpdaterRouterTest {
+    @Mock
+    private Session session;
+    @Mock
+    private UnboundTransformedUpdaterBuilder<JSON, String> stringBuilder;
+    @Mock
+    private UnboundTransformedUpdaterBuilder<JSON, Long> longBuilder;
+    @Mock
+    private TransformedUpdater<JSON, String> stringUpdater;
+    @Mock
+    private TransformedUpdater<JSON, Long> longUpdater;
+    @Mock
+    private UpdateCallback callback;
+    @Mock
+    private UpdateContextCallback<String> contextCallback;
+
+    private UpdaterRouter router;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(stringBuilder.create(session)).thenReturn(stringUpdater);
+        when(longBuilder.create(session)).thenReturn(longUpdater);
+
+        router = UpdaterRouter
+            .builder()
+            .route("names/**", String.class, stringBuilder)
+            .route("counts/*", Long.class, longBuilder)
+            .route("**", Long.class, longBuilder)
+            .build(session);
+    }
+
+    @Test
+    public void build() {
+        verify(stringBuilder).create(session);
+        verify(longBuilder, times(2)).create(session);
+    }
+
+    @Test
+    public void routeByPattern() throws Exception {
+        router.update("names/first", "value", callback);
+        router.update("counts/first", 1L, callback);
+
+        verify(stringUpdater).update("names/first", "value", callback);
+        verify(longUpdater).update("counts/first", 1L, callback);
+    }
+
+    @Test
+    public void routeWithContext() throws Exception {
+        router.update("names/first", "value", "context", contextCallback);
+
+        verify(stringUpdater).update("names/first", "value", "context", contextCallback);
+    }
+
+    @Test
+    public void firstRegisteredRouteUsed() throws Exception {
+        router.update("names", "value", callback);
+
+        verify(stringUpdater).update("names", "value", callback);
+    }
+
+    @Test
+    public void resolutionCached() throws Exception {
+        router.update("names/first", "first", callback);
+        router.update("names/first", "second", callback);
+        router.update("names/second", "third", callback);
+
+        assertEquals(2, router.resolvedPathCount());
+        verify(stringUpdater).update("names/first", "first", callback);
+        verify(stringUpdater).update("names/first", "second", callback);
+        verify(stringUpdater).update("names/second", "third", callback);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongValueType() throws Exception {
+        try {
+            router.update("counts/first", "value", callback);
+        }
+        finally {
+            verify(longUpdater, never()).update(anyString(), any(Long.class), any(UpdateCallback.class));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noRoute() throws Exception {
+        UpdaterRouter
+            .builder()
+            .route("names/*", String.class, stringBuilder)
+            .build(session)
+            .update("other", "value", callback);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValue() throws Exception {
+        router.update("names/first", null, callback);
+    }
+
+    @Test
+    public void resolutionCacheBounded() throws Exception {
+        final UpdaterRouter smallRouter = UpdaterRouter
+            .builder()
+            .route("names/**", String.class, stringBuilder)
+            .resolutionCacheSize(2)
+            .build(session);
+
+        smallRouter.update("names/first", "first", callback);
+        smallRouter.update("names/second", "second", callback);
+        smallRouter.update("names/third", "third", callback);
+        smallRouter.update("names/first", "fourth", callback);
+
+        assertEquals(2, smallRouter.resolvedPathCount());
+        verify(stringUpdater).update("names/first", "first", callback);
+        verify(stringUpdater).update("names/third", "third", callback);
+        verify(stringUpdater).update("names/first", "fourth", callback);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroResolutionCacheSize() {
+        UpdaterRouter.builder().resolutionCacheSize(0);
+    }
+}
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Push Technology Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package com.pushtechnology.diffusion.transform.updater;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import com.pushtechnology.diffusion.client.callbacks.ErrorReason;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateCallback;
+import com.pushtechnology.diffusion.client.features.control.topics.TopicUpdateControl.Updater.UpdateContextCallback;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link WarmStandbyUpdateSource}.
+ *
+ * @author Push Technology Limited
+ */
+public final class WarmStandbyUpdateSourceTest {
+    private final List<String> notifications = new ArrayList<>();
+    private final List<String> callbacks = new ArrayList<>();
+    private final Queue<Runnable> completions = new ArrayDeque<>();
+    private final List<String> sent = new ArrayList<>();
+
+    private final UpdateCallback callback = new UpdateCallback() {
+        @Override
+        public void onSuccess() {
+            callbacks.add("success");
+        }
+
+        @Override
+        public void onError(ErrorReason errorReason) {
+            callbacks.add(errorReason.toString());
+        }
+    };
+
+    private final TransformedUpdater<String, String> activeUpdater = new TransformedUpdater<String, String>() {
+        @Override
+        public void update(String topicPath, String value, UpdateCallback updateCallback) {
+            sent.add(topicPath + "=" + value);
+            completions.add(updateCallback::onSuccess);
+        }
+
+        @Override
+        public <C> void update(String topicPath, String value, C context, UpdateContextCallback<C> updateCallback) {
+            sent.add(topicPath + "=" + value);
+            completions.add(() -> updateCallback.onSuccess(context));
+        }
+
+        @Override
+        public ValueCache<String> untransformedValueCache() {
+            return null;
+        }
+    };
+
+    private final TransformedUpdateSource.Default<String, String> delegate =
+        new TransformedUpdateSource.Default<String, String>() {
+            @Override
+            public void onActive(String topicPath, TransformedUpdater<String, String> updater) {
+                notifications.add("active " + topicPath);
+                assertSame(source.getUpdater(), updater);
+            }
+
+            @Override
+            public void onStandby(String topicPath) {
+                notifications.add("standby " + topicPath);
+            }
+
+            @Override
+            public void onClose(String topicPath) {
+                notifications.add("close " + topicPath);
+            }
+        };
+
+    private WarmStandbyUpdateSource<String, String> source;
+
+    @Before
+    public void setUp() {
+        notifications.clear();
+        callbacks.clear();
+        completions.clear();
+        sent.clear();
+        source = WarmStandbyUpdateSource.create(delegate, 2);
+    }
+
+    @Test
+    public void bufferWhileStandby() throws Exception {
+        source.onStandby("topic");
+        source.getUpdater().update("topic/a", "first", callback);
+        source.getUpdater().update("topic/b", "first", callback);
+        source.getUpdater().update("topic/a", "second", callback);
+
+        assertEquals(emptyList(), sent);
+        assertEquals(asList("success", "success", "success"), callbacks);
+        assertEquals(2, source.getBufferedTopicCount());
+        assertEquals(1L, source.getConflatedUpdates());
+        assertEquals(asList("standby topic"), notifications);
+    }
+
+    @Test
+    public void flushOnActive() throws Exception {
+        source.getUpdater().update("topic/a", "first", callback);
+        source.getUpdater().update("topic/b", "first", callback);
+        source.getUpdater().update("topic/c", "first", callback);
+        source.getUpdater().update("topic/a", "second", callback);
+
+        source.onActive("topic", activeUpdater);
+
+        assertEquals(asList("topic/a=second", "topic/b=first"), sent);
+        assertEquals(asList("active topic"), notifications);
+        assertFalse(source.getLastFlush().isDone());
+
+        completeAll();
+
+        assertEquals(asList("topic/a=second", "topic/b=first", "topic/c=first"), sent);
+        assertEquals(0, source.getBufferedTopicCount());
+        assertTrue(source.getLastFlush().isDone());
+        assertEquals(3, source.getLastFlush().get().getSucceeded());
+    }
+
+    @Test
+    public void bufferDuringFlush() throws Exception {
+        source.getUpdater().update("topic/a", "first", callback);
+        source.getUpdater().update("topic/b", "first", callback);
+        source.getUpdater().update("topic/c", "first", callback);
+        source.onActive("topic", activeUpdater);
+
+        source.getUpdater().update("topic/a", "second", callback);
+        source.getUpdater().update("topic/c", "second", callback);
+
+        completeAll();
+
+        assertEquals(asList("topic/a=first", "topic/b=first", "topic/c=second", "topic/a=second"), sent);
+        assertEquals(1L, source.getConflatedUpdates());
+    }
+
+    @Test
+    public void sendWhileActive() throws Exception {
+        source.onActive("topic", activeUpdater);
+        assertTrue(source.getLastFlush().isDone());
+
+        source.getUpdater().update("topic/a", "first", callback);
+
+        assertEquals(asList("topic/a=first"), sent);
+        assertEquals(emptyList(), callbacks);
+
+        completeAll();
+
+        assertEquals(asList("success"), callbacks);
+    }
+
+    @Test
+    public void standbyStopsFlush() throws Exception {
+        source.getUpdater().update("topic/a", "first", callback);
+        source.getUpdater().update("topic/b", "first", callback);
+        source.getUpdater().update("topic/c", "first", callback);
+        source.onActive("topic", activeUpdater);
+
+        source.onStandby("topic");
+        completeAll();
+
+        assertEquals(asList("topic/a=first", "topic/b=first"), sent);
+        assertEquals(1, source.getBufferedTopicCount());
+
+        sent.clear();
+        source.onActive("topic", activeUpdater);
+        completeAll();
+
+        assertEquals(asList("topic/c=first"), sent);
+    }
+
+    @Test
+    public void closeReturnsToStandby() throws Exception {
+        source.onActive("topic", activeUpdater);
+        source.onClose("topic");
+
+        source.getUpdater().update("topic/a", "first", callback);
+
+        assertEquals(emptyList(), sent);
+        assertEquals(1, source.getBufferedTopicCount());
+        assertEquals(asList("active topic", "close topic"), notifications);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void valueCacheWhileStandby() {
+        source.getUpdater().untransformedValueCache();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroInFlight() {
+        WarmStandbyUpdateSource.create(delegate, 0);
+    }
+
+    private void completeAll() {
+        Runnable completion = completions.poll();
+        while (completion != null) {
+            completion.run();
+            completion = completions.poll();
+        }
+    }
+}